@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
+import org.apache.shiro.realm.AuthorizingRealm;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AuthorizingRealm#isPermitted(PrincipalCollection, String)} for a user with a configurable number
+ * of granted permissions, with the realm's authorization info cached (as in production), and with and without the
+ * {@link AuthorizingRealm#setPermissionIndexingEnabled(boolean) permission index}.
+ *
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorizingRealmBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int grants;
+
+    @Param({"false", "true"})
+    public boolean permissionIndexingEnabled;
+
+    private AuthorizingRealm realm;
+    private PrincipalCollection principals;
+    private String lastGranted;
+    private String notGranted;
+
+    @Setup
+    public void setUp() {
+        Set<String> permissions = new HashSet<String>(grants * 2);
+        for (int i = 0; i < grants; i++) {
+            permissions.add("document" + (i % 100) + ":read,write:" + i);
+        }
+        final SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+        info.setStringPermissions(permissions);
+
+        realm = new AuthorizingRealm() {
+            @Override
+            protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+                return info;
+            }
+
+            @Override
+            protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token)
+                    throws AuthenticationException {
+                throw new UnsupportedOperationException();
+            }
+        };
+        realm.setName("benchmark");
+        realm.setCacheManager(new MemoryConstrainedCacheManager());
+        realm.setPermissionIndexingEnabled(permissionIndexingEnabled);
+
+        principals = new SimplePrincipalCollection("jsmith", "benchmark");
+        lastGranted = "document" + ((grants - 1) % 100) + ":write:" + (grants - 1);
+        notGranted = "document0:delete:0";
+    }
+
+    @Benchmark
+    public boolean isPermitted() {
+        return realm.isPermitted(principals, lastGranted);
+    }
+
+    @Benchmark
+    public boolean isNotPermitted() {
+        return realm.isPermitted(principals, notGranted);
+    }
+}
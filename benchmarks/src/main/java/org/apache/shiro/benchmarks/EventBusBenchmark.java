@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks;
+
+import org.apache.shiro.event.Subscribe;
+import org.apache.shiro.event.support.DefaultEventBus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DefaultEventBus#publish(Object)} with the given number of registered subscribers, only one of which
+ * accepts the published event type.  It runs with several threads, since publishing from many request threads at
+ * once is the typical production load.
+ *
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int subscribers;
+
+    private DefaultEventBus eventBus;
+    private final PublishedEvent event = new PublishedEvent();
+
+    @Setup
+    public void setUp() {
+        eventBus = new DefaultEventBus();
+        eventBus.register(new PublishedEventSubscriber());
+        for (int i = 1; i < subscribers; i++) {
+            eventBus.register(new OtherEventSubscriber());
+        }
+    }
+
+    @Benchmark
+    public void publish() {
+        eventBus.publish(event);
+    }
+
+    public static class PublishedEvent {
+    }
+
+    public static class OtherEvent {
+    }
+
+    public static class PublishedEventSubscriber {
+        @Subscribe
+        public void onEvent(PublishedEvent event) {
+            Blackhole.consumeCPU(1);
+        }
+    }
+
+    public static class OtherEventSubscriber {
+        @Subscribe
+        public void onEvent(OtherEvent event) {
+            Blackhole.consumeCPU(1);
+        }
+    }
+}
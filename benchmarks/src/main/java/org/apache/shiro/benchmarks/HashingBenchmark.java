@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks;
+
+import org.apache.shiro.authc.credential.DefaultPasswordService;
+import org.apache.shiro.crypto.hash.DefaultHashService;
+import org.apache.shiro.crypto.hash.SimpleHash;
+import org.apache.shiro.util.ByteSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SimpleHash} and {@link DefaultPasswordService} at the given hash iteration counts.  The default
+ * counts cover a single iteration (raw digest cost), a typical legacy setting and Shiro's
+ * {@link DefaultPasswordService#DEFAULT_HASH_ITERATIONS default} for password hashing.
+ *
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashingBenchmark {
+
+    @Param({"SHA-256", "SHA-512"})
+    public String algorithm;
+
+    @Param({"1", "1024", "500000"})
+    public int iterations;
+
+    private ByteSource salt;
+    private DefaultPasswordService passwordService;
+    private String encryptedPassword;
+
+    @Setup
+    public void setUp() {
+        salt = ByteSource.Util.bytes("0123456789abcdef");
+
+        DefaultHashService hashService = new DefaultHashService();
+        hashService.setHashAlgorithmName(algorithm);
+        hashService.setHashIterations(iterations);
+        passwordService = new DefaultPasswordService();
+        passwordService.setHashService(hashService);
+        encryptedPassword = passwordService.encryptPassword("correct horse battery staple");
+    }
+
+    @Benchmark
+    public SimpleHash simpleHash() {
+        return new SimpleHash(algorithm, "correct horse battery staple", salt, iterations);
+    }
+
+    @Benchmark
+    public String encryptPassword() {
+        return passwordService.encryptPassword("correct horse battery staple");
+    }
+
+    @Benchmark
+    public boolean passwordsMatch() {
+        return passwordService.passwordsMatch("correct horse battery staple", encryptedPassword);
+    }
+}
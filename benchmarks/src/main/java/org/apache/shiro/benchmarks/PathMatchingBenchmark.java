@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks;
+
+import org.apache.shiro.util.AntPathMatcher;
+import org.apache.shiro.web.filter.mgt.CompiledPathMatchingFilterChainResolver;
+import org.apache.shiro.web.filter.mgt.FilterChainManager;
+import org.apache.shiro.web.filter.mgt.PathMatchingFilterChainResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AntPathMatcher#matches(String, String)} and
+ * {@link PathMatchingFilterChainResolver#getChain(ServletRequest, ServletResponse, FilterChain)} with a
+ * configurable number of {@code [urls]} chains, for a request matching the last chain (the worst case for
+ * first-match-wins resolution).
+ *
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathMatchingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int chains;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private PathMatchingFilterChainResolver resolver;
+    private ServletRequest request;
+    private FilterChain originalChain;
+
+    @Setup
+    public void setUp() {
+        resolver = compiled ? new CompiledPathMatchingFilterChainResolver() : new PathMatchingFilterChainResolver();
+        FilterChainManager manager = resolver.getFilterChainManager();
+        for (int i = 0; i < chains - 1; i++) {
+            manager.createChain("/app" + i + "/**/*.json", "authc, perms[app" + i + ":read]");
+        }
+        manager.createChain("/api/*/users/**", "authcBasic, rest[users]");
+
+        request = newRequest("/api/v1/users/jsmith/profile");
+        originalChain = new FilterChain() {
+            public void doFilter(ServletRequest request, ServletResponse response) {
+            }
+        };
+    }
+
+    private static ServletRequest newRequest(final String requestURI) {
+        return (ServletRequest) Proxy.newProxyInstance(PathMatchingBenchmark.class.getClassLoader(),
+                new Class[]{HttpServletRequest.class}, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getRequestURI".equals(method.getName())) {
+                            return requestURI;
+                        }
+                        if ("getContextPath".equals(method.getName())) {
+                            return "";
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    @Benchmark
+    public boolean antPathMatcherMatches() {
+        return pathMatcher.matches("/api/*/users/**", "/api/v1/users/jsmith/profile");
+    }
+
+    @Benchmark
+    public FilterChain getChain() {
+        return resolver.getChain(request, null, originalChain);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.benchmarks;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link WildcardPermission#implies(Permission)} for a granted permission with a configurable number of
+ * parts and sub-parts, both for a match and for a mismatch in the last part.
+ *
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WildcardPermissionBenchmark {
+
+    @Param({"3", "6"})
+    public int parts;
+
+    @Param({"1", "10"})
+    public int subParts;
+
+    private Permission granted;
+    private Permission implied;
+    private Permission notImplied;
+
+    @Setup
+    public void setUp() {
+        StringBuilder grantedString = new StringBuilder();
+        StringBuilder impliedString = new StringBuilder();
+        for (int i = 0; i < parts; i++) {
+            if (i > 0) {
+                grantedString.append(':');
+                impliedString.append(':');
+            }
+            for (int j = 0; j < subParts; j++) {
+                if (j > 0) {
+                    grantedString.append(',');
+                }
+                grantedString.append("part").append(i).append("value").append(j);
+            }
+            impliedString.append("part").append(i).append("value").append(subParts - 1);
+        }
+        granted = new WildcardPermission(grantedString.toString());
+        implied = new WildcardPermission(impliedString.toString());
+        notImplied = new WildcardPermission(impliedString.toString() + "x");
+    }
+
+    @Benchmark
+    public boolean implies() {
+        return granted.implies(implied);
+    }
+
+    @Benchmark
+    public boolean impliesMismatch() {
+        return granted.implies(notImplied);
+    }
+
+    @Benchmark
+    public Permission parse() {
+        return new WildcardPermission("printer:print,query:lp7200,lp7300");
+    }
+}
@@ -0,0 +1,564 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.cache;
+
+import org.apache.shiro.util.Destroyable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-memory {@link Cache Cache} that holds at most a fixed number of entries, with optional time-to-live and
+ * time-to-idle expiration.
+ * <p/>
+ * <h3>Concurrency</h3>
+ * Entries are spread over a number of independently locked <em>segments</em> (lock striping), so threads accessing
+ * different keys rarely contend with each other.  Each lock is only held for a constant-time hash lookup and a few
+ * pointer updates.
+ * <p/>
+ * <h3>Eviction</h3>
+ * Each segment evicts using a <em>segmented LRU</em> policy: new entries are admitted to a <em>probationary</em>
+ * LRU list and are only promoted to the <em>protected</em> list (which holds up to 80% of the segment) when they
+ * are accessed again.  When a segment is full, the least recently used probationary entry is evicted first.  Unlike
+ * a plain LRU, a burst of entries that are only used once (for example a credential-stuffing attack against an
+ * authentication cache) therefore cannot flush the frequently used entries.  Unlike a
+ * {@link org.apache.shiro.util.SoftHashMap SoftHashMap}-backed cache, eviction is deterministic and incremental and
+ * does not depend on garbage collector behavior.
+ * <p/>
+ * <h3>Expiration</h3>
+ * If a {@link #getTimeToLive() timeToLive} is set, entries expire that many milliseconds after they were last
+ * written.  If a {@link #getTimeToIdle() timeToIdle} is set, entries expire that many milliseconds after they were
+ * last read or written.  Expired entries are never returned and are removed when encountered, when they reach the
+ * end of their LRU list, or when {@link #cleanUp() cleanUp} is called.
+ * <p/>
+ * <h3>Statistics</h3>
+ * Hit, miss, eviction and expiration counts are maintained per segment under the segment lock and summed on demand,
+ * so recording them adds no additional synchronization.
+ * <p/>
+ * Neither {@code null} keys nor {@code null} values are supported.
+ *
+ * @see BoundedCacheManager
+ * @since 1.5
+ */
+public class BoundedCache<K, V> implements Cache<K, V>, Destroyable {
+
+    /**
+     * The percentage of each segment's capacity reserved for entries that have been accessed more than once.
+     */
+    private static final int PROTECTED_PERCENTAGE = 80;
+
+    private static final int MAX_SEGMENTS = 1 << 8;
+
+    private final String name;
+    private final int maxEntries;
+    private final long timeToLive;
+    private final long timeToIdle;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+
+    /**
+     * Creates a new cache holding at most {@code maxEntries} entries that never expire.
+     *
+     * @param name       the name of the cache
+     * @param maxEntries the maximum number of entries, must be greater than zero
+     */
+    public BoundedCache(String name, int maxEntries) {
+        this(name, maxEntries, 0, 0);
+    }
+
+    /**
+     * Creates a new cache holding at most {@code maxEntries} entries that expire after the specified durations.
+     *
+     * @param name        the name of the cache
+     * @param maxEntries  the maximum number of entries, must be greater than zero
+     * @param timeToLive  the number of milliseconds after which an entry expires once written, or {@code 0} to never
+     *                    expire entries based on when they were written
+     * @param timeToIdle  the number of milliseconds after which an entry expires once last read or written, or
+     *                    {@code 0} to never expire entries based on when they were last accessed
+     */
+    @SuppressWarnings({"unchecked"})
+    public BoundedCache(String name, int maxEntries, long timeToLive, long timeToIdle) {
+        if (name == null) {
+            throw new IllegalArgumentException("Cache name cannot be null.");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than zero.");
+        }
+        if (timeToLive < 0 || timeToIdle < 0) {
+            throw new IllegalArgumentException("timeToLive and timeToIdle cannot be negative.");
+        }
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.timeToIdle = timeToIdle;
+
+        //enough segments to make contention unlikely, but never so many that a segment holds less than 8 entries:
+        int desired = Math.min(Runtime.getRuntime().availableProcessors() * 4, Math.max(1, maxEntries / 8));
+        int segmentCount = 1;
+        while (segmentCount < desired && segmentCount < MAX_SEGMENTS) {
+            segmentCount <<= 1;
+        }
+        this.segmentMask = segmentCount - 1;
+        this.segments = new Segment[segmentCount];
+        int capacity = maxEntries / segmentCount;
+        int remainder = maxEntries % segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment<K, V>(this, i < remainder ? capacity + 1 : capacity);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public long getTimeToIdle() {
+        return timeToIdle;
+    }
+
+    /**
+     * Returns the current time in milliseconds used to determine entry expiration.  Only called if a
+     * {@link #getTimeToLive() timeToLive} or {@link #getTimeToIdle() timeToIdle} has been set.
+     *
+     * @return the current time in milliseconds.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private boolean isExpiring() {
+        return timeToLive > 0 || timeToIdle > 0;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (timeToLive > 0 && now - node.writeTime >= timeToLive) ||
+                (timeToIdle > 0 && now - node.accessTime >= timeToIdle);
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        //spread the hash bits so keys with poorly distributed hashCodes still use all segments:
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return segments[h & segmentMask];
+    }
+
+    public V get(K key) throws CacheException {
+        if (key == null) {
+            return null;
+        }
+        return segmentFor(key).get(key);
+    }
+
+    public V put(K key, V value) throws CacheException {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("BoundedCache does not support null keys or values.");
+        }
+        return segmentFor(key).put(key, value);
+    }
+
+    public V remove(K key) throws CacheException {
+        if (key == null) {
+            return null;
+        }
+        return segmentFor(key).remove(key);
+    }
+
+    public void clear() throws CacheException {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Removes all expired entries from the cache.  Calling this method is never required for correctness, but may
+     * be used to release memory held by expired entries sooner.
+     */
+    public void cleanUp() {
+        if (!isExpiring()) {
+            return;
+        }
+        for (Segment<K, V> segment : segments) {
+            segment.expireAll();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public Set<K> keys() {
+        Set<K> keys = new LinkedHashSet<K>();
+        for (Segment<K, V> segment : segments) {
+            segment.collect(keys, null);
+        }
+        if (keys.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    public Collection<V> values() {
+        List<V> values = new ArrayList<V>();
+        for (Segment<K, V> segment : segments) {
+            segment.collect(null, values);
+        }
+        if (values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Returns the number of lookups that returned a cached value.
+     *
+     * @return the number of lookups that returned a cached value.
+     */
+    public long getHitCount() {
+        long count = 0;
+        for (Segment<K, V> segment : segments) {
+            count += segment.hits;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of lookups that did not return a cached value, including lookups of expired entries.
+     *
+     * @return the number of lookups that did not return a cached value.
+     */
+    public long getMissCount() {
+        long count = 0;
+        for (Segment<K, V> segment : segments) {
+            count += segment.misses;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of entries removed to keep the cache within its {@link #getMaxEntries() maxEntries}.
+     *
+     * @return the number of entries removed to keep the cache within its {@code maxEntries}.
+     */
+    public long getEvictionCount() {
+        long count = 0;
+        for (Segment<K, V> segment : segments) {
+            count += segment.evictions;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of entries removed because their {@link #getTimeToLive() timeToLive} or
+     * {@link #getTimeToIdle() timeToIdle} elapsed.
+     *
+     * @return the number of entries removed because they expired.
+     */
+    public long getExpirationCount() {
+        long count = 0;
+        for (Segment<K, V> segment : segments) {
+            count += segment.expirations;
+        }
+        return count;
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public void destroy() throws Exception {
+        clear();
+    }
+
+    public String toString() {
+        return new StringBuilder("BoundedCache '")
+                .append(name).append("' (")
+                .append(size()).append(" of ").append(maxEntries)
+                .append(" entries, hits=").append(getHitCount())
+                .append(", misses=").append(getMissCount())
+                .append(", evictions=").append(getEvictionCount())
+                .append(", expirations=").append(getExpirationCount())
+                .append(")")
+                .toString();
+    }
+
+    /**
+     * A cache entry, linked into exactly one of its segment's two LRU lists.
+     */
+    private static final class Node<K, V> {
+
+        private final K key;
+        private V value;
+        private long writeTime;
+        private long accessTime;
+        private boolean protectedEntry;
+
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Creates the sentinel of a circular list.
+         */
+        private Node() {
+            this.key = null;
+            this.prev = this;
+            this.next = this;
+        }
+    }
+
+    /**
+     * An independently locked, segmented-LRU portion of the cache.  All fields are guarded by {@link #lock}, except
+     * for the statistics counters, which are only written under the lock and may be read racily.
+     */
+    private static final class Segment<K, V> {
+
+        private final BoundedCache<K, V> cache;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<K, Node<K, V>> map = new HashMap<K, Node<K, V>>();
+
+        private final int capacity;
+        private final int protectedCapacity;
+
+        //sentinels of the two circular LRU lists; sentinel.next is the most recently used entry:
+        private final Node<K, V> probation = new Node<K, V>();
+        private final Node<K, V> protectedList = new Node<K, V>();
+        private int protectedSize;
+
+        private volatile long hits;
+        private volatile long misses;
+        private volatile long evictions;
+        private volatile long expirations;
+
+        private Segment(BoundedCache<K, V> cache, int capacity) {
+            this.cache = cache;
+            this.capacity = Math.max(1, capacity);
+            this.protectedCapacity = Math.max(1, this.capacity * PROTECTED_PERCENTAGE / 100);
+        }
+
+        private V get(K key) {
+            lock.lock();
+            try {
+                Node<K, V> node = map.get(key);
+                if (node == null) {
+                    misses++;
+                    return null;
+                }
+                if (cache.isExpiring()) {
+                    long now = cache.currentTimeMillis();
+                    if (cache.isExpired(node, now)) {
+                        removeNode(node);
+                        expirations++;
+                        misses++;
+                        return null;
+                    }
+                    node.accessTime = now;
+                }
+                hits++;
+                onAccess(node);
+                return node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private V put(K key, V value) {
+            lock.lock();
+            try {
+                long now = cache.isExpiring() ? cache.currentTimeMillis() : 0;
+                Node<K, V> node = map.get(key);
+                if (node != null) {
+                    V previous = cache.isExpired(node, now) ? null : node.value;
+                    node.value = value;
+                    node.writeTime = now;
+                    node.accessTime = now;
+                    onAccess(node);
+                    return previous;
+                }
+
+                node = new Node<K, V>(key, value);
+                node.writeTime = now;
+                node.accessTime = now;
+                map.put(key, node);
+                linkFirst(probation, node);
+                if (map.size() > capacity) {
+                    evict(now);
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private V remove(K key) {
+            lock.lock();
+            try {
+                Node<K, V> node = map.get(key);
+                if (node == null) {
+                    return null;
+                }
+                removeNode(node);
+                return cache.isExpiring() && cache.isExpired(node, cache.currentTimeMillis()) ? null : node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                map.clear();
+                probation.next = probation.prev = probation;
+                protectedList.next = protectedList.prev = protectedList;
+                protectedSize = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void collect(Set<K> keys, List<V> values) {
+            lock.lock();
+            try {
+                boolean expiring = cache.isExpiring();
+                long now = expiring ? cache.currentTimeMillis() : 0;
+                for (Node<K, V> node : map.values()) {
+                    if (!expiring || !cache.isExpired(node, now)) {
+                        if (keys != null) {
+                            keys.add(node.key);
+                        }
+                        if (values != null) {
+                            values.add(node.value);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void expireAll() {
+            lock.lock();
+            try {
+                long now = cache.currentTimeMillis();
+                expireFrom(probation, now);
+                expireFrom(protectedList, now);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void expireFrom(Node<K, V> list, long now) {
+            Node<K, V> node = list.next;
+            while (node != list) {
+                Node<K, V> next = node.next;
+                if (cache.isExpired(node, now)) {
+                    removeNode(node);
+                    expirations++;
+                }
+                node = next;
+            }
+        }
+
+        /**
+         * Moves an accessed entry to the front of the protected list, promoting it from probation if necessary.
+         */
+        private void onAccess(Node<K, V> node) {
+            unlink(node);
+            if (!node.protectedEntry) {
+                node.protectedEntry = true;
+                protectedSize++;
+                if (protectedSize > protectedCapacity) {
+                    //demote the least recently used protected entry, giving it another chance on probation:
+                    Node<K, V> demoted = protectedList.prev;
+                    unlink(demoted);
+                    demoted.protectedEntry = false;
+                    protectedSize--;
+                    linkFirst(probation, demoted);
+                }
+            }
+            linkFirst(protectedList, node);
+        }
+
+        private void evict(long now) {
+            while (map.size() > capacity) {
+                Node<K, V> victim = probation.prev != probation ? probation.prev : protectedList.prev;
+                removeNode(victim);
+                if (cache.isExpiring() && cache.isExpired(victim, now)) {
+                    expirations++;
+                } else {
+                    evictions++;
+                }
+            }
+        }
+
+        private void removeNode(Node<K, V> node) {
+            map.remove(node.key);
+            unlink(node);
+            if (node.protectedEntry) {
+                node.protectedEntry = false;
+                protectedSize--;
+            }
+        }
+
+        private static <K, V> void linkFirst(Node<K, V> list, Node<K, V> node) {
+            node.prev = list;
+            node.next = list.next;
+            list.next.prev = node;
+            list.next = node;
+        }
+
+        private static <K, V> void unlink(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+}
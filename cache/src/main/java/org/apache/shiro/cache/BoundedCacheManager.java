@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.cache;
+
+/**
+ * Memory-only {@link CacheManager CacheManager} implementation usable in production environments that creates
+ * {@link BoundedCache BoundedCache}s: lock-striped caches holding at most {@link #getMaxEntries() maxEntries} entries
+ * each, evicted with a scan-resistant segmented LRU policy, with optional {@link #getTimeToLive() time-to-live} and
+ * {@link #getTimeToIdle() time-to-idle} expiration and hit/miss/eviction statistics.
+ * <p/>
+ * Compared to the {@link MemoryConstrainedCacheManager MemoryConstrainedCacheManager}, whose caches are emptied
+ * by the garbage collector under memory pressure and serialize their writes through a single lock, this
+ * implementation offers predictable cache sizes and better throughput under concurrent load, at the cost of having
+ * to choose an appropriate {@code maxEntries} value.  For example, in {@code shiro.ini}:
+ * <pre>
+ * cacheManager = org.apache.shiro.cache.BoundedCacheManager
+ * cacheManager.maxEntries = 50000
+ * cacheManager.timeToIdle = 1800000
+ * securityManager.cacheManager = $cacheManager
+ * </pre>
+ * As with the {@code MemoryConstrainedCacheManager}, the created caches are local to the JVM and do not offer any
+ * enterprise-level features such as cache coherency or replication.
+ *
+ * @since 1.5
+ */
+public class BoundedCacheManager extends AbstractCacheManager {
+
+    /**
+     * The default maximum number of entries per cache, {@code 10000}.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long timeToLive;
+    private long timeToIdle;
+
+    /**
+     * Returns the maximum number of entries held by each created cache.  Defaults to {@link #DEFAULT_MAX_ENTRIES}.
+     *
+     * @return the maximum number of entries held by each created cache.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of entries held by each created cache.  Only affects caches created afterwards.
+     *
+     * @param maxEntries the maximum number of entries held by each created cache, must be greater than zero.
+     */
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than zero.");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the number of milliseconds after which an entry expires once written, or {@code 0} (the default) if
+     * entries do not expire based on when they were written.
+     *
+     * @return the time-to-live of cache entries in milliseconds, or {@code 0} for no time-to-live.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the number of milliseconds after which an entry expires once written, or {@code 0} if entries should not
+     * expire based on when they were written.  Only affects caches created afterwards.
+     *
+     * @param timeToLive the time-to-live of cache entries in milliseconds, or {@code 0} for no time-to-live.
+     */
+    public void setTimeToLive(long timeToLive) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("timeToLive cannot be negative.");
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the number of milliseconds after which an entry expires once last read or written, or {@code 0} (the
+     * default) if entries do not expire based on when they were last accessed.
+     *
+     * @return the time-to-idle of cache entries in milliseconds, or {@code 0} for no time-to-idle.
+     */
+    public long getTimeToIdle() {
+        return timeToIdle;
+    }
+
+    /**
+     * Sets the number of milliseconds after which an entry expires once last read or written, or {@code 0} if entries
+     * should not expire based on when they were last accessed.  Only affects caches created afterwards.
+     *
+     * @param timeToIdle the time-to-idle of cache entries in milliseconds, or {@code 0} for no time-to-idle.
+     */
+    public void setTimeToIdle(long timeToIdle) {
+        if (timeToIdle < 0) {
+            throw new IllegalArgumentException("timeToIdle cannot be negative.");
+        }
+        this.timeToIdle = timeToIdle;
+    }
+
+    /**
+     * Returns a new {@link BoundedCache BoundedCache} instance configured with this manager's
+     * {@link #getMaxEntries() maxEntries}, {@link #getTimeToLive() timeToLive} and
+     * {@link #getTimeToIdle() timeToIdle}.
+     *
+     * @param name the name of the cache
+     * @return a new {@link BoundedCache BoundedCache} instance.
+     */
+    @Override
+    protected Cache createCache(String name) throws CacheException {
+        return new BoundedCache<Object, Object>(name, getMaxEntries(), getTimeToLive(), getTimeToIdle());
+    }
+}
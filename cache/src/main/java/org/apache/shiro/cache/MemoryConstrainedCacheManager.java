@@ -30,7 +30,12 @@ import org.apache.shiro.util.SoftHashMap;
  * cache coherency, optimistic locking, failover or other similar features.  For more enterprise features, consider
  * using a different {@code CacheManager} implementation backed by an enterprise-grade caching product (Hazelcast,
  * EhCache, TerraCotta, Coherence, GigaSpaces, etc, etc).
+ * <p/>
+ * Because the created caches are emptied by the garbage collector, their size (and therefore hit rate) is hard to
+ * predict under load.  Consider the {@link BoundedCacheManager BoundedCacheManager} if predictable cache sizes,
+ * entry expiration or cache statistics are needed.
  *
+ * @see BoundedCacheManager
  * @since 1.0
  */
 public class MemoryConstrainedCacheManager extends AbstractCacheManager {
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.cache
+
+/**
+ * @since 1.5
+ */
+class BoundedCacheTest extends GroovyTestCase {
+
+    void testInvalidArguments() {
+        shouldFail(IllegalArgumentException) { new BoundedCache('test', 0) }
+        shouldFail(IllegalArgumentException) { new BoundedCache('test', 10, -1, 0) }
+        shouldFail(IllegalArgumentException) { new BoundedCache('test', 10).put(null, 'value') }
+        shouldFail(IllegalArgumentException) { new BoundedCache('test', 10).put('key', null) }
+    }
+
+    void testPutGetRemove() {
+        def cache = new BoundedCache<String, String>('test', 100)
+        assertNull cache.put('a', '1')
+        assertEquals '1', cache.put('a', '2')
+        assertEquals '2', cache.get('a')
+        assertNull cache.get('b')
+        assertNull cache.get(null)
+        assertEquals 1, cache.size()
+        assertEquals(['a'] as Set, cache.keys())
+        assertEquals(['2'], new ArrayList(cache.values()))
+
+        assertEquals '2', cache.remove('a')
+        assertNull cache.remove('a')
+        assertEquals 0, cache.size()
+        assertTrue cache.keys().isEmpty()
+
+        assertEquals 1, cache.hitCount
+        assertEquals 1, cache.missCount
+    }
+
+    void testSizeIsBounded() {
+        def cache = new BoundedCache<Integer, Integer>('test', 64)
+        1000.times { cache.put(it, it) }
+        assertTrue cache.size() <= 64
+        assertEquals 1000 - cache.size(), cache.evictionCount
+    }
+
+    void testFrequentlyUsedEntriesSurviveScans() {
+        def cache = new BoundedCache<String, String>('test', 8)
+        cache.put('hot', 'value')
+        cache.get('hot')
+        100.times {
+            cache.put("cold$it".toString(), 'value')
+            assertEquals 'value', cache.get('hot')
+        }
+        assertEquals 8, cache.size()
+    }
+
+    void testTimeToLive() {
+        def cache = new ManualClockCache(100, 1000, 0)
+        cache.put('a', 'value')
+        cache.time = 999
+        assertEquals 'value', cache.get('a')
+        cache.time = 1000
+        assertNull cache.get('a')
+        assertEquals 1, cache.expirationCount
+        assertEquals 0, cache.size()
+    }
+
+    void testTimeToIdle() {
+        def cache = new ManualClockCache(100, 0, 1000)
+        cache.put('a', 'value')
+        cache.put('b', 'value')
+        cache.time = 900
+        assertEquals 'value', cache.get('a')
+        cache.time = 1800
+        assertEquals 'value', cache.get('a')
+        assertEquals(['a'] as Set, cache.keys())
+        cache.cleanUp()
+        assertEquals 1, cache.size()
+        assertEquals 1, cache.expirationCount
+    }
+
+    void testCacheManager() {
+        def manager = new BoundedCacheManager(maxEntries: 10, timeToLive: 1000)
+        BoundedCache cache = (BoundedCache) manager.getCache('test')
+        assertSame cache, manager.getCache('test')
+        assertEquals 10, cache.maxEntries
+        assertEquals 1000, cache.timeToLive
+        assertEquals 0, cache.timeToIdle
+        shouldFail(IllegalArgumentException) { manager.maxEntries = 0 }
+    }
+
+    private static class ManualClockCache extends BoundedCache<String, String> {
+        long time
+
+        ManualClockCache(int maxEntries, long timeToLive, long timeToIdle) {
+            super('test', maxEntries, timeToLive, timeToIdle)
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return time
+        }
+    }
+}
@@ -58,6 +58,13 @@ public abstract class AbstractAuthenticator implements Authenticator, LogoutAwar
      */
     private Collection<AuthenticationListener> listeners;
 
+    /**
+     * Optional throttle consulted before every authentication attempt.
+     *
+     * @since 1.5
+     */
+    private LoginThrottle loginThrottle;
+
     /*-------------------------------------------
     |         C O N S T R U C T O R S           |
     ============================================*/
@@ -102,6 +109,31 @@ public abstract class AbstractAuthenticator implements Authenticator, LogoutAwar
         return this.listeners;
     }
 
+    /**
+     * Returns the throttle consulted before every authentication attempt, or {@code null} if attempts are not
+     * throttled (the default).
+     *
+     * @return the throttle consulted before every authentication attempt, or {@code null}.
+     * @since 1.5
+     */
+    public LoginThrottle getLoginThrottle() {
+        return loginThrottle;
+    }
+
+    /**
+     * Sets the throttle consulted before every authentication attempt, so that attempts for principals or from hosts
+     * with too many recent failures are rejected with an {@link ExcessiveAttemptsException} before
+     * {@link #doAuthenticate(AuthenticationToken) doAuthenticate} is called.  The throttle is also notified of every
+     * attempt's outcome, before and independently of the {@link #getAuthenticationListeners() authenticationListeners},
+     * so that it learns about failed attempts.
+     *
+     * @param loginThrottle the throttle consulted before every authentication attempt, or {@code null}.
+     * @since 1.5
+     */
+    public void setLoginThrottle(LoginThrottle loginThrottle) {
+        this.loginThrottle = loginThrottle;
+    }
+
     /*-------------------------------------------
     |               M E T H O D S               |
     ============================================*/
@@ -111,12 +143,16 @@ public abstract class AbstractAuthenticator implements Authenticator, LogoutAwar
      * authentication was successful for the specified {@code token} which resulted in the specified
      * {@code info}.  This implementation merely iterates over the internal {@code listeners} collection and
      * calls {@link AuthenticationListener#onSuccess(AuthenticationToken, AuthenticationInfo) onSuccess}
-     * for each.
+     * for each, after notifying the {@link #getLoginThrottle() loginThrottle}, if any.
      *
      * @param token the submitted {@code AuthenticationToken} that resulted in a successful authentication.
      * @param info  the returned {@code AuthenticationInfo} resulting from the successful authentication.
      */
     protected void notifySuccess(AuthenticationToken token, AuthenticationInfo info) {
+        LoginThrottle throttle = getLoginThrottle();
+        if (throttle != null) {
+            throttle.onSuccess(token, info);
+        }
         for (AuthenticationListener listener : this.listeners) {
             listener.onSuccess(token, info);
         }
@@ -128,12 +164,16 @@ public abstract class AbstractAuthenticator implements Authenticator, LogoutAwar
      * specified {@code token} which resulted in the specified {@code ae} exception.  This implementation merely
      * iterates over the internal {@code listeners} collection and calls
      * {@link AuthenticationListener#onFailure(AuthenticationToken, AuthenticationException) onFailure}
-     * for each.
+     * for each, after notifying the {@link #getLoginThrottle() loginThrottle}, if any.
      *
      * @param token the submitted {@code AuthenticationToken} that resulted in a failed authentication.
      * @param ae    the resulting {@code AuthenticationException} that caused the authentication to fail.
      */
     protected void notifyFailure(AuthenticationToken token, AuthenticationException ae) {
+        LoginThrottle throttle = getLoginThrottle();
+        if (throttle != null) {
+            throttle.onFailure(token, ae);
+        }
         for (AuthenticationListener listener : this.listeners) {
             listener.onFailure(token, ae);
         }
@@ -195,6 +235,10 @@ public abstract class AbstractAuthenticator implements Authenticator, LogoutAwar
 
         AuthenticationInfo info;
         try {
+            LoginThrottle throttle = getLoginThrottle();
+            if (throttle != null) {
+                throttle.assertAllowed(token);
+            }
             info = doAuthenticate(token);
             if (info == null) {
                 String msg = "No account information found for authentication token [" + token + "] by this " +
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc;
+
+/**
+ * Thrown when submitted credentials could not be verified because the system is overloaded: a
+ * {@link org.apache.shiro.authc.credential.CredentialsVerificationExecutor CredentialsVerificationExecutor} had no
+ * room left to queue the verification, or the verification did not complete in time.
+ * <p/>
+ * Unlike other {@code AuthenticationException}s, this exception does not say anything about the submitted
+ * credentials or the account.  Applications will usually ask the user to try again later (e.g. with an HTTP
+ * {@code 503} response) instead of reporting a failed login attempt.
+ *
+ * @since 1.5
+ */
+public class CredentialsVerificationRejectedException extends AuthenticationException {
+
+    /**
+     * Creates a new CredentialsVerificationRejectedException.
+     */
+    public CredentialsVerificationRejectedException() {
+        super();
+    }
+
+    /**
+     * Constructs a new CredentialsVerificationRejectedException.
+     *
+     * @param message the reason for the exception
+     */
+    public CredentialsVerificationRejectedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new CredentialsVerificationRejectedException.
+     *
+     * @param cause the underlying Throwable that caused this exception to be thrown.
+     */
+    public CredentialsVerificationRejectedException(Throwable cause) {
+        super(cause);
+    }
+
+    /**
+     * Constructs a new CredentialsVerificationRejectedException.
+     *
+     * @param message the reason for the exception
+     * @param cause   the underlying Throwable that caused this exception to be thrown.
+     */
+    public CredentialsVerificationRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc;
+
+import org.apache.shiro.subject.PrincipalCollection;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rejects authentication attempts with an {@link ExcessiveAttemptsException} once too many attempts for the same
+ * principal, or from the same host, have failed recently, before any realm is consulted or any password is hashed.
+ * <p/>
+ * The throttle is an {@link AuthenticationListener} that counts {@link #onFailure failed attempts} per
+ * {@link AuthenticationToken#getPrincipal() principal} and per {@link HostAuthenticationToken#getHost() host} over a
+ * sliding {@link #setWindow(long) window}.  It is enabled by configuring it as an
+ * {@link AbstractAuthenticator#setLoginThrottle(LoginThrottle) authenticator's loginThrottle}, which
+ * {@link #assertAllowed(AuthenticationToken) consults} it before every attempt and notifies it of the outcome:
+ * <pre>
+ * [main]
+ * loginThrottle = org.apache.shiro.authc.LoginThrottle
+ * loginThrottle.principalLimit = 10
+ * loginThrottle.hostLimit = 100
+ * securityManager.authenticator.loginThrottle = $loginThrottle
+ * </pre>
+ * <h3>Memory and accuracy</h3>
+ * Counters are kept in two fixed-size count-min sketches (one for principals, one for hosts) of
+ * {@link #setStripes(int) stripes} atomic counters each, so memory use does not grow no matter how many principals or
+ * hosts an attacker cycles through, and counting and checking are lock-free.  A sketch never under-estimates: hash
+ * collisions can only over-count, so heavily loaded sketches may throttle a principal or host somewhat before it
+ * reaches its limit.  Counts decay over time: the estimate is the current window's count plus the previous window's
+ * count weighted by how much of the previous window still overlaps the sliding window.  Rejected attempts count as
+ * failures too, so an attacker stays throttled for as long as the attack continues.  Successful attempts do not reset
+ * counts.
+ *
+ * @since 1.5
+ */
+public class LoginThrottle implements AuthenticationListener {
+
+    /**
+     * The default {@link #getPrincipalLimit() principalLimit}, {@code 10} failed attempts.
+     */
+    public static final int DEFAULT_PRINCIPAL_LIMIT = 10;
+
+    /**
+     * The default {@link #getHostLimit() hostLimit}, {@code 100} failed attempts.
+     */
+    public static final int DEFAULT_HOST_LIMIT = 100;
+
+    /**
+     * The default {@link #getWindow() window}, {@code 60000} milliseconds.
+     */
+    public static final long DEFAULT_WINDOW = 60000;
+
+    /**
+     * The default number of {@link #getStripes() stripes}, {@code 4096}.
+     */
+    public static final int DEFAULT_STRIPES = 4096;
+
+    private static final int PRINCIPAL_SEED = 0x9e3779b9;
+    private static final int HOST_SEED = 0x7f4a7c15;
+
+    private int principalLimit;
+    private int hostLimit;
+    private long window;
+    private int stripes;
+
+    private volatile Sketch principals;
+    private volatile Sketch hosts;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public LoginThrottle() {
+        this.principalLimit = DEFAULT_PRINCIPAL_LIMIT;
+        this.hostLimit = DEFAULT_HOST_LIMIT;
+        this.window = DEFAULT_WINDOW;
+        this.stripes = DEFAULT_STRIPES;
+    }
+
+    /**
+     * Returns the number of failed attempts per principal within the {@link #getWindow() window} after which further
+     * attempts for that principal are rejected, {@link #DEFAULT_PRINCIPAL_LIMIT} by default.
+     *
+     * @return the number of failed attempts per principal after which further attempts are rejected.
+     */
+    public int getPrincipalLimit() {
+        return principalLimit;
+    }
+
+    /**
+     * Sets the number of failed attempts per principal within the {@link #getWindow() window} after which further
+     * attempts for that principal are rejected, {@link #DEFAULT_PRINCIPAL_LIMIT} by default.  Zero or less disables
+     * throttling per principal.
+     *
+     * @param principalLimit the number of failed attempts per principal after which further attempts are rejected.
+     */
+    public void setPrincipalLimit(int principalLimit) {
+        this.principalLimit = principalLimit;
+    }
+
+    /**
+     * Returns the number of failed attempts per host within the {@link #getWindow() window} after which further
+     * attempts from that host are rejected, {@link #DEFAULT_HOST_LIMIT} by default.
+     *
+     * @return the number of failed attempts per host after which further attempts are rejected.
+     */
+    public int getHostLimit() {
+        return hostLimit;
+    }
+
+    /**
+     * Sets the number of failed attempts per host within the {@link #getWindow() window} after which further
+     * attempts from that host are rejected, {@link #DEFAULT_HOST_LIMIT} by default.  Zero or less disables
+     * throttling per host.  Hosts are only known for {@link HostAuthenticationToken}s.
+     *
+     * @param hostLimit the number of failed attempts per host after which further attempts are rejected.
+     */
+    public void setHostLimit(int hostLimit) {
+        this.hostLimit = hostLimit;
+    }
+
+    /**
+     * Returns the length in milliseconds of the sliding window over which failed attempts are counted,
+     * {@link #DEFAULT_WINDOW} by default.
+     *
+     * @return the length in milliseconds of the sliding window over which failed attempts are counted.
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Sets the length in milliseconds of the sliding window over which failed attempts are counted,
+     * {@link #DEFAULT_WINDOW} by default.  This has no effect once attempts have been counted.
+     *
+     * @param window the length in milliseconds of the sliding window over which failed attempts are counted.
+     */
+    public void setWindow(long window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be greater than zero.");
+        }
+        this.window = window;
+    }
+
+    /**
+     * Returns the number of counters per row of each sketch, {@link #DEFAULT_STRIPES} by default.
+     *
+     * @return the number of counters per row of each sketch.
+     */
+    public int getStripes() {
+        return stripes;
+    }
+
+    /**
+     * Sets the number of counters per row of each sketch, {@link #DEFAULT_STRIPES} by default.  Each counter takes 8
+     * bytes and each sketch has 2 rows.  More stripes mean fewer collisions between principals or hosts.  This has no
+     * effect once attempts have been counted.
+     *
+     * @param stripes the number of counters per row of each sketch.
+     */
+    public void setStripes(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be at least 1.");
+        }
+        this.stripes = stripes;
+    }
+
+    /**
+     * Returns the number of attempts rejected by {@link #assertAllowed(AuthenticationToken)}.
+     *
+     * @return the number of attempts rejected.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Throws an {@link ExcessiveAttemptsException} if too many attempts for the token's principal or from its host
+     * have failed recently.
+     *
+     * @param token the submitted authentication token.
+     * @throws ExcessiveAttemptsException if the attempt is to be rejected.
+     */
+    public void assertAllowed(AuthenticationToken token) throws ExcessiveAttemptsException {
+        long now = System.currentTimeMillis();
+        Object principal = token.getPrincipal();
+        if (this.principalLimit > 0 && principal != null &&
+                getPrincipals().estimate(principal, now) >= this.principalLimit) {
+            this.rejectedCount.incrementAndGet();
+            throw new ExcessiveAttemptsException("Too many failed authentication attempts for principal [" +
+                    principal + "].  Please try again later.");
+        }
+        String host = getHost(token);
+        if (this.hostLimit > 0 && host != null && getHosts().estimate(host, now) >= this.hostLimit) {
+            this.rejectedCount.incrementAndGet();
+            throw new ExcessiveAttemptsException("Too many failed authentication attempts from host [" + host +
+                    "].  Please try again later.");
+        }
+    }
+
+    public void onFailure(AuthenticationToken token, AuthenticationException ae) {
+        long now = System.currentTimeMillis();
+        Object principal = token.getPrincipal();
+        if (principal != null) {
+            getPrincipals().increment(principal, now);
+        }
+        String host = getHost(token);
+        if (host != null) {
+            getHosts().increment(host, now);
+        }
+    }
+
+    public void onSuccess(AuthenticationToken token, AuthenticationInfo info) {
+    }
+
+    public void onLogout(PrincipalCollection principals) {
+    }
+
+    private static String getHost(AuthenticationToken token) {
+        return token instanceof HostAuthenticationToken ? ((HostAuthenticationToken) token).getHost() : null;
+    }
+
+    private Sketch getPrincipals() {
+        Sketch sketch = this.principals;
+        if (sketch == null) {
+            synchronized (this) {
+                sketch = this.principals;
+                if (sketch == null) {
+                    sketch = new Sketch(this.stripes, this.window, PRINCIPAL_SEED);
+                    this.principals = sketch;
+                }
+            }
+        }
+        return sketch;
+    }
+
+    private Sketch getHosts() {
+        Sketch sketch = this.hosts;
+        if (sketch == null) {
+            synchronized (this) {
+                sketch = this.hosts;
+                if (sketch == null) {
+                    sketch = new Sketch(this.stripes, this.window, HOST_SEED);
+                    this.hosts = sketch;
+                }
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * A count-min sketch of sliding window counters.  Each counter packs, into a single {@code long} updated by CAS,
+     * the number of the window it was last updated in modulo 2<sup>32</sup> (upper 32 bits), the count of that window
+     * (middle 16 bits) and the count of the window before it (lower 16 bits).
+     */
+    private static final class Sketch {
+
+        private static final int ROWS = 2;
+        private static final long MAX_COUNT = 0xFFFF;
+        private static final long WINDOW_NUMBER_MASK = 0xFFFFFFFFL;
+
+        private final AtomicLongArray counters;
+        private final int stripes;
+        private final long window;
+        private final int seed;
+
+        private Sketch(int stripes, long window, int seed) {
+            this.counters = new AtomicLongArray(ROWS * stripes);
+            this.stripes = stripes;
+            this.window = window;
+            this.seed = seed;
+        }
+
+        private void increment(Object key, long now) {
+            long windowNumber = windowNumber(now);
+            long previousWindowNumber = (windowNumber - 1) & WINDOW_NUMBER_MASK;
+            for (int row = 0; row < ROWS; row++) {
+                int index = index(key, row);
+                long current;
+                long updated;
+                do {
+                    current = this.counters.get(index);
+                    long lastWindow = current >>> 32;
+                    long count = (current >>> 16) & MAX_COUNT;
+                    long previous;
+                    if (lastWindow == windowNumber) {
+                        previous = current & MAX_COUNT;
+                    } else if (lastWindow == previousWindowNumber) {
+                        previous = count;
+                        count = 0;
+                    } else {
+                        previous = 0;
+                        count = 0;
+                    }
+                    count = Math.min(MAX_COUNT, count + 1);
+                    updated = (windowNumber << 32) | (count << 16) | previous;
+                } while (!this.counters.compareAndSet(index, current, updated));
+            }
+        }
+
+        private long estimate(Object key, long now) {
+            long windowNumber = windowNumber(now);
+            long previousWindowNumber = (windowNumber - 1) & WINDOW_NUMBER_MASK;
+            //how much of the previous window still overlaps the sliding window ending now:
+            double previousWeight = 1.0 - (double) (now % this.window) / this.window;
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < ROWS; row++) {
+                long current = this.counters.get(index(key, row));
+                long lastWindow = current >>> 32;
+                long count = (current >>> 16) & MAX_COUNT;
+                long estimate;
+                if (lastWindow == windowNumber) {
+                    estimate = count + (long) ((current & MAX_COUNT) * previousWeight);
+                } else if (lastWindow == previousWindowNumber) {
+                    estimate = (long) (count * previousWeight);
+                } else {
+                    estimate = 0;
+                }
+                min = Math.min(min, estimate);
+            }
+            return min;
+        }
+
+        /**
+         * Returns the number of the window containing {@code now}, modulo 2<sup>32</sup> so that it fits the upper
+         * 32 bits of a counter for any window length.
+         */
+        private long windowNumber(long now) {
+            return (now / this.window) & WINDOW_NUMBER_MASK;
+        }
+
+        /**
+         * Returns the index of the key's counter in the specified row.  The rows hash the key independently, so keys
+         * colliding in one row (including keys with equal {@code hashCode}s) are unlikely to collide in the other.
+         */
+        private int index(Object key, int row) {
+            int h = (row == 0 ? key.hashCode() : secondaryHash(key)) ^ this.seed;
+            //MurmurHash3 32-bit finalizer:
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return row * this.stripes + (h & Integer.MAX_VALUE) % this.stripes;
+        }
+
+        /**
+         * Returns a hash of the key that does not depend on its {@code hashCode}: FNV-1a over the characters of its
+         * string representation (principals and hosts are typically strings already).
+         */
+        private static int secondaryHash(Object key) {
+            String value = String.valueOf(key);
+            int h = 0x811c9dc5;
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x01000193;
+            }
+            return h;
+        }
+    }
+}
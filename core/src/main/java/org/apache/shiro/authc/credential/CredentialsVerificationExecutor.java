@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc.credential;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.CredentialsVerificationRejectedException;
+import org.apache.shiro.util.Destroyable;
+import org.apache.shiro.util.Initializable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link CredentialsMatcher#doCredentialsMatch(AuthenticationToken, AuthenticationInfo) credentials matching}
+ * on a fixed-size thread pool with a bounded queue, to limit how much CPU time expensive verifications (e.g. hashing
+ * a password with hundreds of thousands of {@link HashedCredentialsMatcher#setHashIterations(int) iterations}) can
+ * take away from the rest of the application.
+ * <p/>
+ * Without such an executor, every request thread attempting a login hashes concurrently, so a burst of login
+ * attempts can occupy every CPU core until the container runs out of threads.  With it, at most
+ * {@link #setPoolSize(int) poolSize} verifications run at once (the number of available processors by default), up
+ * to {@link #setQueueCapacity(int) queueCapacity} further verifications wait for their turn, and any others fail
+ * immediately with a {@link CredentialsVerificationRejectedException}.  A verification that does not complete within
+ * the {@link #setTimeout(long) timeout} (including its time in the queue) fails with the same exception.
+ * <p/>
+ * The executor is opt-in and is used by configuring it on an
+ * {@link org.apache.shiro.realm.AuthenticatingRealm#setCredentialsVerificationExecutor(CredentialsVerificationExecutor)
+ * AuthenticatingRealm}; a single instance may be shared by several realms.  The pool is started on
+ * {@link #init() init} or first use, and its threads are daemon threads.  Once {@link #destroy() destroyed}, the
+ * executor rejects all further verifications.
+ *
+ * @since 1.5
+ */
+public class CredentialsVerificationExecutor implements Initializable, Destroyable {
+
+    private static final Logger log = LoggerFactory.getLogger(CredentialsVerificationExecutor.class);
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
+    public static final long DEFAULT_TIMEOUT = 5000;
+
+    private int poolSize;
+    private int queueCapacity;
+    private long timeout;
+    private String threadNamePrefix;
+
+    private volatile ThreadPoolExecutor executor;
+    private volatile boolean destroyed;
+
+    private final AtomicLong verifiedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private final AtomicLong totalVerifyNanos = new AtomicLong();
+    private final AtomicLong maxVerifyNanos = new AtomicLong();
+
+    public CredentialsVerificationExecutor() {
+        this.poolSize = Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        this.timeout = DEFAULT_TIMEOUT;
+        this.threadNamePrefix = "shiroCredentialsVerifier-";
+    }
+
+    /**
+     * Returns the maximum number of verifications running at once, the number of available processors by default.
+     *
+     * @return the maximum number of verifications running at once.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Sets the maximum number of verifications running at once, the number of available processors by default.  This
+     * has no effect once the pool has been started.
+     *
+     * @param poolSize the maximum number of verifications running at once, at least {@code 1}.
+     */
+    public void setPoolSize(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be at least 1.");
+        }
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Returns the maximum number of verifications waiting to run, {@link #DEFAULT_QUEUE_CAPACITY} by default.
+     *
+     * @return the maximum number of verifications waiting to run.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of verifications waiting to run, {@link #DEFAULT_QUEUE_CAPACITY} by default.  Further
+     * verifications are rejected immediately.  This has no effect once the pool has been started.
+     *
+     * @param queueCapacity the maximum number of verifications waiting to run, at least {@code 1}.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1.");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Returns the time in milliseconds a verification may take, including its time in the queue, before it is
+     * rejected, {@link #DEFAULT_TIMEOUT} by default.
+     *
+     * @return the time in milliseconds a verification may take before it is rejected.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the time in milliseconds a verification may take, including its time in the queue, before it is
+     * rejected, {@link #DEFAULT_TIMEOUT} by default.  A verification that has not started by then is never run.
+     *
+     * @param timeout the time in milliseconds a verification may take before it is rejected.
+     */
+    public void setTimeout(long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be greater than zero.");
+        }
+        this.timeout = timeout;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * Starts the thread pool, if it has not been started already.  This has no effect once the executor has been
+     * {@link #destroy() destroyed}.
+     */
+    public void init() {
+        if (!this.destroyed) {
+            getExecutor();
+        }
+    }
+
+    /**
+     * Stops the thread pool.  Verifications still waiting in the queue are not run; their callers are rejected, as
+     * are the callers of all later verifications.
+     */
+    public void destroy() {
+        ThreadPoolExecutor executor;
+        synchronized (this) {
+            this.destroyed = true;
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            for (Runnable queued : executor.shutdownNow()) {
+                if (queued instanceof Future) {
+                    ((Future) queued).cancel(false);
+                }
+            }
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor() throws CredentialsVerificationRejectedException {
+        ThreadPoolExecutor executor = this.executor;
+        if (executor == null) {
+            synchronized (this) {
+                if (this.destroyed) {
+                    this.rejectedCount.incrementAndGet();
+                    throw new CredentialsVerificationRejectedException("Credentials verification pool has been " +
+                            "shut down.");
+                }
+                executor = this.executor;
+                if (executor == null) {
+                    executor = new ThreadPoolExecutor(this.poolSize, this.poolSize, 0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<Runnable>(this.queueCapacity), new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger(1);
+
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r);
+                            thread.setDaemon(true);
+                            thread.setName(threadNamePrefix + count.getAndIncrement());
+                            return thread;
+                        }
+                    }, new ThreadPoolExecutor.AbortPolicy());
+                    this.executor = executor;
+                    log.debug("Started credentials verification pool with {} thread(s).", this.poolSize);
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the matcher's {@code doCredentialsMatch} on the thread pool and waits for its result.
+     *
+     * @param matcher the credentials matcher to run.
+     * @param token   the submitted authentication token.
+     * @param info    the stored account data.
+     * @return the result of the matcher's {@code doCredentialsMatch}.
+     * @throws CredentialsVerificationRejectedException
+     *                                 if the queue is full, the verification did not complete in time or the
+     *                                 executor has been {@link #destroy() destroyed}.
+     * @throws AuthenticationException if the calling thread is interrupted while waiting, or rethrown from the
+     *                                 matcher.
+     */
+    public boolean verify(final CredentialsMatcher matcher, final AuthenticationToken token,
+                          final AuthenticationInfo info) throws AuthenticationException {
+        Future<Boolean> result;
+        try {
+            result = getExecutor().submit(new Callable<Boolean>() {
+                public Boolean call() {
+                    long start = System.nanoTime();
+                    try {
+                        return matcher.doCredentialsMatch(token, info);
+                    } finally {
+                        recordVerification(System.nanoTime() - start);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.rejectedCount.incrementAndGet();
+            if (this.destroyed) {
+                throw new CredentialsVerificationRejectedException("Credentials verification pool has been " +
+                        "shut down.", e);
+            }
+            throw new CredentialsVerificationRejectedException("Credentials verification queue is full.  " +
+                    "Rejecting credentials verification for token [" + token + "].", e);
+        }
+
+        try {
+            return result.get(this.timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            //a verification that has not started yet will never run:
+            result.cancel(false);
+            this.timedOutCount.incrementAndGet();
+            throw new CredentialsVerificationRejectedException("Credentials verification for token [" + token +
+                    "] did not complete within " + this.timeout + " ms.", e);
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException("Interrupted while waiting for credentials verification.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AuthenticationException("Credentials verification failed.", cause);
+        } catch (CancellationException e) {
+            //cancelled by destroy():
+            this.rejectedCount.incrementAndGet();
+            throw new CredentialsVerificationRejectedException("Credentials verification pool has been shut down.",
+                    e);
+        }
+    }
+
+    private void recordVerification(long nanos) {
+        this.verifiedCount.incrementAndGet();
+        this.totalVerifyNanos.addAndGet(nanos);
+        long max = this.maxVerifyNanos.get();
+        while (nanos > max && !this.maxVerifyNanos.compareAndSet(max, nanos)) {
+            max = this.maxVerifyNanos.get();
+        }
+    }
+
+    /**
+     * Returns the number of verifications currently waiting to run.
+     *
+     * @return the number of verifications currently waiting to run.
+     */
+    public int getQueueDepth() {
+        ThreadPoolExecutor executor = this.executor;
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Returns the number of verifications currently running.
+     *
+     * @return the number of verifications currently running.
+     */
+    public int getActiveCount() {
+        ThreadPoolExecutor executor = this.executor;
+        return executor != null ? executor.getActiveCount() : 0;
+    }
+
+    /**
+     * Returns the number of verifications that have run, whether or not their caller was still waiting.
+     *
+     * @return the number of verifications that have run.
+     */
+    public long getVerifiedCount() {
+        return verifiedCount.get();
+    }
+
+    /**
+     * Returns the number of verifications rejected because the queue was full (or the pool had been shut down).
+     *
+     * @return the number of verifications rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Returns the number of verifications rejected because they did not complete within the
+     * {@link #getTimeout() timeout}.
+     *
+     * @return the number of verifications that timed out.
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    /**
+     * Returns the average time verifications took to run, excluding their time in the queue.
+     *
+     * @param unit the unit of the returned value
+     * @return the average time verifications took to run.
+     */
+    public long getAverageVerifyTime(TimeUnit unit) {
+        long verified = this.verifiedCount.get();
+        return verified == 0 ? 0 : unit.convert(this.totalVerifyNanos.get() / verified, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest time a verification took to run, excluding its time in the queue.
+     *
+     * @param unit the unit of the returned value
+     * @return the longest time a verification took to run.
+     */
+    public long getMaxVerifyTime(TimeUnit unit) {
+        return unit.convert(this.maxVerifyNanos.get(), TimeUnit.NANOSECONDS);
+    }
+}
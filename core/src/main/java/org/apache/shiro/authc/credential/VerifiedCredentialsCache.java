@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc.credential;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.codec.CodecSupport;
+import org.apache.shiro.crypto.CryptoException;
+import org.apache.shiro.crypto.SecureRandomNumberGenerator;
+import org.apache.shiro.util.ByteSource;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A short-lived, in-memory cache of successfully verified credentials, which lets an
+ * {@link org.apache.shiro.realm.AuthenticatingRealm AuthenticatingRealm} skip both the account lookup and the
+ * (typically expensive, iterated hash) credentials matching when the very same credentials are presented again.
+ * <p/>
+ * This mostly benefits stateless applications, such as REST APIs authenticating every request with HTTP Basic
+ * credentials, where each request would otherwise perform a full login.  It is opt-in: configure an instance on each
+ * realm that should use it, e.g.:
+ * <pre>
+ * [main]
+ * verifiedCredentialsCache = org.apache.shiro.authc.credential.VerifiedCredentialsCache
+ * verifiedCredentialsCache.timeToLive = 30000
+ * myRealm.verifiedCredentialsCache = $verifiedCredentialsCache
+ * </pre>
+ * <h3>Security</h3>
+ * Raw credentials are never kept: each entry holds an HMAC-SHA256 of the realm name, principal and presented
+ * credentials, keyed with a random secret generated when the cache is created and never exposed.  A lookup only
+ * succeeds if the presented credentials produce the identical HMAC, compared in constant time.  At most one entry is
+ * kept per realm and account, and entries expire after the {@link #setTimeToLive(long) timeToLive}, so a changed
+ * password or a locked account takes effect within that time at the latest; realms invalidate an account's entry
+ * immediately when its {@link org.apache.shiro.realm.AuthenticatingRealm#clearCache cached data is cleared}, e.g. on
+ * logout.
+ *
+ * @since 1.5
+ */
+public class VerifiedCredentialsCache {
+
+    /**
+     * The default {@link #getTimeToLive() timeToLive}, {@code 60000} milliseconds.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 60000;
+
+    /**
+     * The default {@link #getMaxSize() maxSize}, {@code 10000} entries.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec secret;
+    private final ThreadLocal<Mac> macs;
+    private final ConcurrentMap<Key, Entry> entries;
+
+    private long timeToLive;
+    private int maxSize;
+
+    public VerifiedCredentialsCache() {
+        this.secret = new SecretKeySpec(new SecureRandomNumberGenerator().nextBytes(32).getBytes(), MAC_ALGORITHM);
+        this.macs = new ThreadLocal<Mac>();
+        this.entries = new ConcurrentHashMap<Key, Entry>();
+        this.timeToLive = DEFAULT_TIME_TO_LIVE;
+        this.maxSize = DEFAULT_MAX_SIZE;
+    }
+
+    /**
+     * Returns the time in milliseconds after which verified credentials must be verified again,
+     * {@link #DEFAULT_TIME_TO_LIVE} by default.
+     *
+     * @return the time in milliseconds after which verified credentials must be verified again.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the time in milliseconds after which verified credentials must be verified again,
+     * {@link #DEFAULT_TIME_TO_LIVE} by default.  Keep this short: it is the longest time that an account change not
+     * followed by {@link #remove(String, Object) invalidation} may go unnoticed.
+     *
+     * @param timeToLive the time in milliseconds after which verified credentials must be verified again.
+     */
+    public void setTimeToLive(long timeToLive) {
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("timeToLive must be greater than zero.");
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the maximum number of entries, {@link #DEFAULT_MAX_SIZE} by default.
+     *
+     * @return the maximum number of entries.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of entries, {@link #DEFAULT_MAX_SIZE} by default.  When the cache is full, expired
+     * entries are purged, and if it is still full, further credentials are not cached until entries expire.
+     *
+     * @param maxSize the maximum number of entries.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1.");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the {@code AuthenticationInfo} with which the token's exact credentials were successfully verified,
+     * or {@code null} if they were not, or not recently enough.
+     *
+     * @param realmName the name of the realm verifying the credentials.
+     * @param key       the realm's cache key for the account, typically the token's principal.
+     * @param token     the submitted authentication token.
+     * @return the {@code AuthenticationInfo} the token was verified with, or {@code null}.
+     */
+    public AuthenticationInfo get(String realmName, Object key, AuthenticationToken token) {
+        if (key == null) {
+            return null;
+        }
+        Key entryKey = new Key(realmName, key);
+        Entry entry = this.entries.get(entryKey);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            this.entries.remove(entryKey, entry);
+            return null;
+        }
+        byte[] mac = mac(realmName, token);
+        return mac != null && MessageDigest.isEqual(mac, entry.mac) ? entry.info : null;
+    }
+
+    /**
+     * Records that the token's credentials were successfully verified with the specified {@code AuthenticationInfo},
+     * replacing any previous entry for the account.
+     *
+     * @param realmName the name of the realm that verified the credentials.
+     * @param key       the realm's cache key for the account, typically the token's principal.
+     * @param token     the successfully verified authentication token.
+     * @param info      the {@code AuthenticationInfo} the token was verified with.
+     */
+    public void put(String realmName, Object key, AuthenticationToken token, AuthenticationInfo info) {
+        if (key == null || info == null) {
+            return;
+        }
+        byte[] mac = mac(realmName, token);
+        if (mac == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Key entryKey = new Key(realmName, key);
+        if (this.entries.size() >= this.maxSize && !this.entries.containsKey(entryKey)) {
+            purgeExpired(now);
+            if (this.entries.size() >= this.maxSize) {
+                return;
+            }
+        }
+        this.entries.put(entryKey, new Entry(mac, info, now + this.timeToLive));
+    }
+
+    /**
+     * Removes the entry of the specified account, if any.
+     *
+     * @param realmName the name of the realm that verified the credentials.
+     * @param key       the realm's cache key for the account.
+     */
+    public void remove(String realmName, Object key) {
+        if (key != null) {
+            this.entries.remove(new Key(realmName, key));
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Returns the number of entries, including any that have expired but not been purged yet.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    private void purgeExpired(long now) {
+        for (Iterator<Entry> i = this.entries.values().iterator(); i.hasNext(); ) {
+            if (i.next().isExpired(now)) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the HMAC of the realm name, principal and credentials, or {@code null} if the credentials cannot be
+     * converted to bytes (in which case they are never cached).
+     */
+    private byte[] mac(String realmName, AuthenticationToken token) {
+        Object credentials = token.getCredentials();
+        if (credentials == null || !ByteSource.Util.isCompatible(credentials)) {
+            return null;
+        }
+        Mac mac = getMac();
+        update(mac, CodecSupport.toBytes(String.valueOf(realmName)));
+        update(mac, CodecSupport.toBytes(String.valueOf(token.getPrincipal())));
+        byte[] credentialBytes = ByteSource.Util.bytes(credentials).getBytes();
+        update(mac, credentialBytes);
+        return mac.doFinal();
+    }
+
+    /**
+     * Length-prefixes each field, so that different combinations of fields never produce the same input.
+     */
+    private static void update(Mac mac, byte[] field) {
+        int length = field.length;
+        mac.update((byte) (length >>> 24));
+        mac.update((byte) (length >>> 16));
+        mac.update((byte) (length >>> 8));
+        mac.update((byte) length);
+        mac.update(field);
+    }
+
+    private Mac getMac() {
+        Mac mac = this.macs.get();
+        if (mac == null) {
+            try {
+                mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(this.secret);
+            } catch (GeneralSecurityException e) {
+                throw new CryptoException("Unable to initialize " + MAC_ALGORITHM + " for verified credentials.", e);
+            }
+            this.macs.set(mac);
+        }
+        return mac;
+    }
+
+    private static final class Key {
+
+        private final String realmName;
+        private final Object key;
+
+        private Key(String realmName, Object key) {
+            this.realmName = realmName;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return key.equals(other.key) &&
+                    (realmName != null ? realmName.equals(other.realmName) : other.realmName == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + (realmName != null ? realmName.hashCode() : 0);
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] mac;
+        private final AuthenticationInfo info;
+        private final long expiresAt;
+
+        private Entry(byte[] mac, AuthenticationInfo info, long expiresAt) {
+            this.mac = mac;
+            this.info = info;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -22,11 +22,15 @@ import org.apache.shiro.authz.permission.PermissionResolver;
 import org.apache.shiro.authz.permission.PermissionResolverAware;
 import org.apache.shiro.authz.permission.RolePermissionResolver;
 import org.apache.shiro.authz.permission.RolePermissionResolverAware;
+import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.realm.Realm;
 import org.apache.shiro.subject.PrincipalCollection;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -54,6 +58,15 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
      */
     protected RolePermissionResolver rolePermissionResolver;
 
+    /**
+     * Whether or not a realm class inherits {@code AuthorizingRealm}'s {@code isPermitted} method for a single
+     * permission string and for multiple permission strings respectively, keyed by realm class.
+     */
+    private final ConcurrentMap<Class<?>, Boolean> inheritsStringPermissionCheck =
+            new ConcurrentHashMap<Class<?>, Boolean>();
+    private final ConcurrentMap<Class<?>, Boolean> inheritsStringPermissionsCheck =
+            new ConcurrentHashMap<Class<?>, Boolean>();
+
     /**
      * Default no-argument constructor, does nothing.
      */
@@ -211,16 +224,83 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
         }
     }
 
+    /**
+     * Resolves the specified permission string once with the {@link #getPermissionResolver() permissionResolver}
+     * shared by all configured realms, so it does not need to be resolved again by each realm, or returns
+     * {@code null} if no shared {@code permissionResolver} has been configured.
+     *
+     * @param permission the permission string to resolve
+     * @return the resolved permission or {@code null} if no shared {@code permissionResolver} has been configured
+     * @since 1.5
+     */
+    protected Permission resolvePermission(String permission) {
+        PermissionResolver resolver = getPermissionResolver();
+        return resolver != null ? resolver.resolvePermission(permission) : null;
+    }
+
+    /**
+     * Returns {@code true} if the specified realm may be given permissions already
+     * {@link #resolvePermission(String) resolved} by this authorizer instead of the permission strings, {@code false}
+     * otherwise.
+     * <p/>
+     * This is only the case if the outcome is provably the same: the realm is an {@link AuthorizingRealm} that still
+     * uses this authorizer's {@link #getPermissionResolver() permissionResolver} instance and does not override the
+     * string permission method that would otherwise be called.
+     *
+     * @param realm    the realm to check
+     * @param multiple {@code true} for the {@code String...} method, {@code false} for the single {@code String} one
+     * @return {@code true} if the realm may be given resolved permissions, {@code false} otherwise
+     * @since 1.5
+     */
+    protected boolean isResolvedPermissionSupported(Realm realm, boolean multiple) {
+        PermissionResolver resolver = getPermissionResolver();
+        if (resolver == null || !(realm instanceof AuthorizingRealm) ||
+                ((AuthorizingRealm) realm).getPermissionResolver() != resolver) {
+            return false;
+        }
+        return multiple ?
+                inheritsPermissionCheck(inheritsStringPermissionsCheck, realm.getClass(), String[].class) :
+                inheritsPermissionCheck(inheritsStringPermissionCheck, realm.getClass(), String.class);
+    }
+
+    private static boolean inheritsPermissionCheck(ConcurrentMap<Class<?>, Boolean> cache, Class<?> realmClass,
+                                                   Class<?> permissionType) {
+        Boolean inherits = cache.get(realmClass);
+        if (inherits == null) {
+            try {
+                inherits = realmClass.getMethod("isPermitted", PrincipalCollection.class, permissionType)
+                        .getDeclaringClass() == AuthorizingRealm.class;
+            } catch (NoSuchMethodException e) {
+                inherits = Boolean.FALSE;
+            }
+            cache.put(realmClass, inherits);
+        }
+        return inherits;
+    }
+
     /**
      * Returns <code>true</code> if any of the configured realms'
      * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, String)} returns <code>true</code>,
      * <code>false</code> otherwise.
+     * <p/>
+     * If a shared {@link #setPermissionResolver(PermissionResolver) permissionResolver} has been configured, the
+     * permission string is {@link #resolvePermission(String) resolved} only once and the resulting
+     * {@code Permission} is passed to all realms that {@link #isResolvedPermissionSupported(Realm, boolean) support}
+     * it.  All other realms are given the permission string.
      */
     public boolean isPermitted(PrincipalCollection principals, String permission) {
         assertRealmsConfigured();
+        Permission resolved = null;
         for (Realm realm : getRealms()) {
             if (!(realm instanceof Authorizer)) continue;
-            if (((Authorizer) realm).isPermitted(principals, permission)) {
+            if (isResolvedPermissionSupported(realm, false)) {
+                if (resolved == null) {
+                    resolved = resolvePermission(permission);
+                }
+                if (((Authorizer) realm).isPermitted(principals, resolved)) {
+                    return true;
+                }
+            } else if (((Authorizer) realm).isPermitted(principals, permission)) {
                 return true;
             }
         }
@@ -244,45 +324,135 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
     }
 
     /**
-     * Returns <code>true</code> if any of the configured realms'
-     * {@link #isPermittedAll(org.apache.shiro.subject.PrincipalCollection, String...)} call returns
-     * <code>true</code>, <code>false</code> otherwise.
+     * Returns an array with one entry per specified permission string, {@code true} at a given index if any of the
+     * configured realms permits the corresponding permission, {@code false} otherwise.
+     * <p/>
+     * As of 1.5, the permissions are evaluated in batches: each realm is asked about all permissions not yet
+     * permitted by a previous realm with a single
+     * {@link Authorizer#isPermitted(org.apache.shiro.subject.PrincipalCollection, String...)} call, so a realm needs
+     * to look up the Subject's authorization data only once per call rather than once per permission.  If a shared
+     * {@link #setPermissionResolver(PermissionResolver) permissionResolver} has been configured, the permission
+     * strings are also {@link #resolvePermission(String) resolved} only once for all realms that
+     * {@link #isResolvedPermissionSupported(Realm, boolean) support} it.
      */
     public boolean[] isPermitted(PrincipalCollection principals, String... permissions) {
         assertRealmsConfigured();
-        if (permissions != null && permissions.length > 0) {
-            boolean[] isPermitted = new boolean[permissions.length];
-            for (int i = 0; i < permissions.length; i++) {
-                isPermitted[i] = isPermitted(principals, permissions[i]);
+        if (permissions == null || permissions.length == 0) {
+            return new boolean[0];
+        }
+
+        List<Permission> resolved = null;
+        boolean[] isPermitted = new boolean[permissions.length];
+        int pending = permissions.length;
+        for (Realm realm : getRealms()) {
+            if (!(realm instanceof Authorizer)) continue;
+            boolean[] realmPermitted;
+            if (isResolvedPermissionSupported(realm, true)) {
+                if (resolved == null) {
+                    resolved = new ArrayList<Permission>(permissions.length);
+                    for (String permission : permissions) {
+                        resolved.add(resolvePermission(permission));
+                    }
+                }
+                realmPermitted = ((Authorizer) realm).isPermitted(principals, pending(resolved, isPermitted, pending));
+            } else {
+                realmPermitted = ((Authorizer) realm).isPermitted(principals, pending(permissions, isPermitted, pending));
+            }
+            pending = merge(isPermitted, realmPermitted);
+            if (pending == 0) {
+                break;
             }
-            return isPermitted;
         }
-        return new boolean[0];
+        return isPermitted;
     }
 
     /**
-     * Returns <code>true</code> if any of the configured realms'
-     * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, List)} call returns <code>true</code>,
-     * <code>false</code> otherwise.
+     * Returns an array with one entry per specified permission, {@code true} at a given index if any of the
+     * configured realms permits the corresponding permission, {@code false} otherwise.
+     * <p/>
+     * As of 1.5, the permissions are evaluated in batches: each realm is asked about all permissions not yet
+     * permitted by a previous realm with a single
+     * {@link Authorizer#isPermitted(org.apache.shiro.subject.PrincipalCollection, List)} call, so a realm needs
+     * to look up the Subject's authorization data only once per call rather than once per permission.
      */
     public boolean[] isPermitted(PrincipalCollection principals, List<Permission> permissions) {
         assertRealmsConfigured();
-        if (permissions != null && !permissions.isEmpty()) {
-            boolean[] isPermitted = new boolean[permissions.size()];
-            int i = 0;
-            for (Permission p : permissions) {
-                isPermitted[i++] = isPermitted(principals, p);
+        if (permissions == null || permissions.isEmpty()) {
+            return new boolean[0];
+        }
+
+        boolean[] isPermitted = new boolean[permissions.size()];
+        int pending = isPermitted.length;
+        for (Realm realm : getRealms()) {
+            if (!(realm instanceof Authorizer)) continue;
+            boolean[] realmPermitted = ((Authorizer) realm).isPermitted(principals, pending(permissions, isPermitted, pending));
+            pending = merge(isPermitted, realmPermitted);
+            if (pending == 0) {
+                break;
             }
-            return isPermitted;
         }
+        return isPermitted;
+    }
 
-        return new boolean[0];
+    /**
+     * Returns the permissions that have not been permitted yet, or {@code all} itself if none have.
+     */
+    private static List<Permission> pending(List<Permission> all, boolean[] isPermitted, int pending) {
+        if (pending == all.size()) {
+            return all;
+        }
+        List<Permission> remaining = new ArrayList<Permission>(pending);
+        int i = 0;
+        for (Permission permission : all) {
+            if (!isPermitted[i++]) {
+                remaining.add(permission);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Returns the permission strings that have not been permitted yet, or {@code all} itself if none have.
+     */
+    private static String[] pending(String[] all, boolean[] isPermitted, int pending) {
+        if (pending == all.length) {
+            return all;
+        }
+        String[] remaining = new String[pending];
+        int j = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (!isPermitted[i]) {
+                remaining[j++] = all[i];
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Merges a realm's answers for the pending (not yet permitted) permissions into {@code isPermitted} and returns
+     * the number of permissions that are still pending afterwards.
+     */
+    private static int merge(boolean[] isPermitted, boolean[] realmPermitted) {
+        int pending = 0;
+        int j = 0;
+        for (int i = 0; i < isPermitted.length; i++) {
+            if (!isPermitted[i]) {
+                if (realmPermitted != null && j < realmPermitted.length && realmPermitted[j]) {
+                    isPermitted[i] = true;
+                } else {
+                    pending++;
+                }
+                j++;
+            }
+        }
+        return pending;
     }
 
     /**
      * Returns <code>true</code> if any of the configured realms'
      * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, String)} call returns <code>true</code>
-     * for <em>all</em> of the specified string permissions, <code>false</code> otherwise.
+     * for <em>all</em> of the specified string permissions, <code>false</code> otherwise.  Permissions following the
+     * first one that is not permitted are not evaluated.
      */
     public boolean isPermittedAll(PrincipalCollection principals, String... permissions) {
         assertRealmsConfigured();
@@ -299,7 +469,8 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
     /**
      * Returns <code>true</code> if any of the configured realms'
      * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, Permission)} call returns <code>true</code>
-     * for <em>all</em> of the specified Permissions, <code>false</code> otherwise.
+     * for <em>all</em> of the specified Permissions, <code>false</code> otherwise.  Permissions following the first
+     * one that is not permitted are not evaluated.
      */
     public boolean isPermittedAll(PrincipalCollection principals, Collection<Permission> permissions) {
         assertRealmsConfigured();
@@ -313,6 +484,10 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
         return true;
     }
 
+    private static List<Permission> asList(Collection<Permission> permissions) {
+        return permissions instanceof List ? (List<Permission>) permissions : new ArrayList<Permission>(permissions);
+    }
+
     /**
      * If !{@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, String) isPermitted(permission)}, throws
      * an <code>UnauthorizedException</code> otherwise returns quietly.
@@ -337,13 +512,20 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
 
     /**
      * If !{@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, String...) isPermitted(permission)},
-     * throws an <code>UnauthorizedException</code> otherwise returns quietly.
+     * throws an <code>UnauthorizedException</code> for the first permission that is not permitted, otherwise returns
+     * quietly.
+     * <p/>
+     * As of 1.5, this evaluates all permissions in a single
+     * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, String...) batch}.
      */
     public void checkPermissions(PrincipalCollection principals, String... permissions) throws AuthorizationException {
         assertRealmsConfigured();
         if (permissions != null && permissions.length > 0) {
-            for (String perm : permissions) {
-                checkPermission(principals, perm);
+            boolean[] isPermitted = isPermitted(principals, permissions);
+            for (int i = 0; i < isPermitted.length; i++) {
+                if (!isPermitted[i]) {
+                    throw new UnauthorizedException("Subject does not have permission [" + permissions[i] + "]");
+                }
             }
         }
     }
@@ -351,13 +533,20 @@ public class ModularRealmAuthorizer implements Authorizer, PermissionResolverAwa
     /**
      * If !{@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, Permission) isPermitted(permission)} for
      * <em>all</em> the given Permissions, throws
-     * an <code>UnauthorizedException</code> otherwise returns quietly.
+     * an <code>UnauthorizedException</code> for the first permission that is not permitted, otherwise returns quietly.
+     * <p/>
+     * As of 1.5, this evaluates all permissions in a single
+     * {@link #isPermitted(org.apache.shiro.subject.PrincipalCollection, List) batch}.
      */
     public void checkPermissions(PrincipalCollection principals, Collection<Permission> permissions) throws AuthorizationException {
         assertRealmsConfigured();
-        if (permissions != null) {
-            for (Permission permission : permissions) {
-                checkPermission(principals, permission);
+        if (permissions != null && !permissions.isEmpty()) {
+            List<Permission> list = asList(permissions);
+            boolean[] isPermitted = isPermitted(principals, list);
+            for (int i = 0; i < isPermitted.length; i++) {
+                if (!isPermitted[i]) {
+                    throw new UnauthorizedException("Subject does not have permission [" + list.get(i) + "]");
+                }
             }
         }
     }
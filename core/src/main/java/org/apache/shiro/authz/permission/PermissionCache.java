@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe cache of resolved {@link Permission Permission} instances keyed by the permission string
+ * they were resolved from.
+ * <p/>
+ * Resolving a permission string (e.g. splitting and lower-casing a {@link WildcardPermission WildcardPermission})
+ * is comparatively expensive, while most applications only ever check a small, fixed set of distinct permission
+ * strings.  A {@code PermissionCache} allows a {@link PermissionResolver PermissionResolver} to resolve each such
+ * string once and share the resulting instance across all subsequent checks.  Cached permissions must therefore be
+ * immutable once resolved, which is the case for all permission implementations shipped with Shiro.
+ * <p/>
+ * The cache never holds more than approximately {@link #getMaxSize() maxSize} entries.  When it grows beyond that,
+ * entries are evicted using the <em>CLOCK</em> (second chance) algorithm: each lookup marks its entry as recently
+ * used, and an eviction sweep removes the entries that have not been used since the previous sweep.  Lookups never
+ * block, and only one thread performs eviction at any one time.
+ *
+ * @see WildcardPermissionResolver#setPermissionCache(PermissionCache)
+ * @since 1.5
+ */
+public class PermissionCache {
+
+    /**
+     * The default maximum number of cached permissions, {@code 1000}.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final ConcurrentMap<String, Entry> entries;
+    private final int maxSize;
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private Iterator<Map.Entry<String, Entry>> clockHand; //guarded by 'evicting'
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a new cache holding up to {@link #DEFAULT_MAX_SIZE} permissions.
+     */
+    public PermissionCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new cache holding up to {@code maxSize} permissions.
+     *
+     * @param maxSize the maximum number of cached permissions, must be greater than zero.
+     */
+    public PermissionCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than zero.");
+        }
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<String, Entry>(Math.min(maxSize, 1024) * 4 / 3 + 1);
+    }
+
+    /**
+     * Returns the permission previously cached for the specified permission string, or {@code null} if there is
+     * none.
+     *
+     * @param permissionString the permission string the permission was resolved from.
+     * @return the cached permission or {@code null} if there is none.
+     */
+    public Permission get(String permissionString) {
+        if (permissionString == null) {
+            return null;
+        }
+        Entry entry = entries.get(permissionString);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        //avoid writing (and invalidating other cores' cache lines) when already marked:
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.permission;
+    }
+
+    /**
+     * Caches the permission resolved from the specified permission string, evicting other entries if the cache has
+     * grown beyond its {@link #getMaxSize() maxSize}.
+     *
+     * @param permissionString the permission string the permission was resolved from.
+     * @param permission       the (immutable) permission resolved from the permission string.
+     */
+    public void put(String permissionString, Permission permission) {
+        if (permissionString == null || permission == null) {
+            return;
+        }
+        entries.put(permissionString, new Entry(permission));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            //another thread is already evicting; the cache may briefly exceed maxSize, which is acceptable
+            return;
+        }
+        try {
+            //at most two full revolutions: the first clears every 'referenced' flag, the second must then evict
+            int budget = entries.size() * 2;
+            while (entries.size() > maxSize && budget-- > 0) {
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = entries.entrySet().iterator();
+                    if (!clockHand.hasNext()) {
+                        break;
+                    }
+                }
+                Entry entry = clockHand.next().getValue();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else {
+                    clockHand.remove();
+                    evictionCount.incrementAndGet();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Removes all cached permissions.  The hit, miss and eviction counters are not reset.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of currently cached permissions.
+     *
+     * @return the number of currently cached permissions.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the maximum number of permissions this cache will hold.
+     *
+     * @return the maximum number of permissions this cache will hold.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of {@link #get(String) lookups} that found a cached permission.
+     *
+     * @return the number of lookups that found a cached permission.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of {@link #get(String) lookups} that did not find a cached permission.
+     *
+     * @return the number of lookups that did not find a cached permission.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of permissions evicted because the cache grew beyond its {@link #getMaxSize() maxSize}.
+     *
+     * @return the number of evicted permissions.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + "[size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    private static final class Entry {
+
+        private final Permission permission;
+
+        /**
+         * CLOCK reference bit: set on every hit, cleared by the eviction sweep.
+         */
+        private volatile boolean referenced;
+
+        private Entry(Permission permission) {
+            this.permission = permission;
+        }
+    }
+}
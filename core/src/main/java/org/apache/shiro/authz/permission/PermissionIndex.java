@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, pre-compiled view of a collection of granted {@link Permission Permission}s that answers
+ * {@link #implies(Permission) implies} checks without scanning every grant.
+ * <p/>
+ * {@link WildcardPermission WildcardPermission} grants (and subclasses that do not override
+ * {@link WildcardPermission#implies(Permission) implies}) are compiled into a trie keyed by permission part, so a
+ * check only visits the branches whose parts can actually match, making its cost proportional to the depth of the
+ * checked permission rather than the number of grants.  All other {@code Permission} implementations are retained
+ * as-is and evaluated linearly, exactly as they would have been without the index.
+ * <p/>
+ * An index answers {@code implies} identically to iterating over the source permissions and returning {@code true}
+ * if any of them implies the checked permission.  Because it is immutable, a single index may be shared by any
+ * number of threads.
+ *
+ * @see org.apache.shiro.realm.AuthorizingRealm#setPermissionIndexingEnabled(boolean)
+ * @since 1.5
+ */
+public class PermissionIndex {
+
+    /**
+     * Caches, per {@code WildcardPermission} subclass, whether or not the class inherits the default
+     * {@code implies} logic and can therefore be compiled into the trie.
+     */
+    private static final Map<Class<?>, Boolean> INDEXABLE_TYPES = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    private static final Permission[] EMPTY = new Permission[0];
+
+    private final Node root;
+    private final Permission[] unindexed;
+
+    /**
+     * Compiles the specified granted permissions into a new index.
+     *
+     * @param permissions the granted permissions to compile, may be {@code null} or empty.
+     */
+    public PermissionIndex(Collection<? extends Permission> permissions) {
+        Node root = null;
+        List<Permission> unindexed = null;
+
+        if (permissions != null) {
+            for (Permission permission : permissions) {
+                WildcardPermission.CompiledParts parts =
+                        isIndexable(permission) ? ((WildcardPermission) permission).getCompiledParts() : null;
+                if (parts != null) {
+                    if (root == null) {
+                        root = new Node(null, null, 0);
+                    }
+                    root.add(parts);
+                } else if (permission != null) {
+                    if (unindexed == null) {
+                        unindexed = new ArrayList<Permission>();
+                    }
+                    unindexed.add(permission);
+                }
+            }
+        }
+
+        if (root != null) {
+            root.compile();
+        }
+        this.root = root;
+        this.unindexed = unindexed != null ? unindexed.toArray(new Permission[unindexed.size()]) : EMPTY;
+    }
+
+    /**
+     * Returns {@code true} if any of the indexed permissions implies the specified permission, {@code false}
+     * otherwise.
+     *
+     * @param permission the permission to check.
+     * @return {@code true} if any of the indexed permissions implies the specified permission, {@code false}
+     *         otherwise.
+     */
+    public boolean implies(Permission permission) {
+        if (root != null && permission instanceof WildcardPermission) {
+            WildcardPermission.CompiledParts parts = ((WildcardPermission) permission).getCompiledParts();
+            if (parts != null && root.implies(parts, 0)) {
+                return true;
+            }
+        }
+        for (Permission granted : unindexed) {
+            if (granted.implies(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this index contains no permissions at all and will therefore never imply anything.
+     *
+     * @return {@code true} if this index contains no permissions at all.
+     */
+    public boolean isEmpty() {
+        return root == null && unindexed.length == 0;
+    }
+
+    private static boolean isIndexable(Permission permission) {
+        if (!(permission instanceof WildcardPermission)) {
+            return false;
+        }
+        Class<?> clazz = permission.getClass();
+        Boolean indexable = INDEXABLE_TYPES.get(clazz);
+        if (indexable == null) {
+            try {
+                indexable = clazz.getMethod("implies", Permission.class).getDeclaringClass() == WildcardPermission.class;
+            } catch (NoSuchMethodException e) {
+                indexable = Boolean.FALSE;
+            }
+            INDEXABLE_TYPES.put(clazz, indexable);
+        }
+        return indexable;
+    }
+
+    /**
+     * A single trie level.  A node is reached by matching one part of a granted permission; its children are
+     * reachable by matching the next part.
+     * <p/>
+     * Nodes are only mutated while the enclosing {@code PermissionIndex} is being constructed and are safely
+     * published through its final {@code root} field.
+     */
+    private static final class Node {
+
+        private static final Node[] NO_NODES = new Node[0];
+
+        /**
+         * The part this node was reached by, or {@code null} for the root and wildcard nodes.
+         */
+        private final Set<String> part;
+
+        /**
+         * The compiled parts of the first granted permission that created this node, and the index of {@link #part}
+         * within them, used to match checked parts without allocating.
+         */
+        private final WildcardPermission.CompiledParts grant;
+        private final int partIndex;
+
+        /**
+         * {@code true} if at least one granted permission ends at this node, in which case anything deeper is
+         * implied.
+         */
+        private boolean terminal;
+
+        /**
+         * {@code true} if a granted permission ends at this node or continues from it with wildcard parts only, in
+         * which case a checked permission that ends here is implied.
+         */
+        private boolean wildcardRemainder;
+
+        /**
+         * Child reached by granted parts containing the wildcard token, which match any checked part.
+         */
+        private Node wildcard;
+
+        /**
+         * Build-time children keyed by their exact granted part.
+         */
+        private Map<Set<String>, Node> children;
+
+        /**
+         * Compiled children keyed by every token of their granted part, for lookup by a checked token.
+         */
+        private Map<String, Node[]> childrenByToken;
+
+        /**
+         * Compiled children in insertion order, used only for (unusual) empty checked parts.
+         */
+        private Node[] allChildren = NO_NODES;
+
+        private Node(Set<String> part, WildcardPermission.CompiledParts grant, int partIndex) {
+            this.part = part;
+            this.grant = grant;
+            this.partIndex = partIndex;
+        }
+
+        private void add(WildcardPermission.CompiledParts parts) {
+            Node node = this;
+            int i = 0;
+            for (Set<String> part : parts.source) {
+                node = node.child(part, parts, i++);
+            }
+            node.terminal = true;
+        }
+
+        private Node child(Set<String> part, WildcardPermission.CompiledParts parts, int index) {
+            if (parts.isWildcard(index)) {
+                if (wildcard == null) {
+                    wildcard = new Node(null, null, 0);
+                }
+                return wildcard;
+            }
+            if (children == null) {
+                children = new LinkedHashMap<Set<String>, Node>();
+            }
+            Node child = children.get(part);
+            if (child == null) {
+                child = new Node(new LinkedHashSet<String>(part), parts, index);
+                children.put(child.part, child);
+            }
+            return child;
+        }
+
+        private void compile() {
+            if (wildcard != null) {
+                wildcard.compile();
+            }
+            wildcardRemainder = terminal || (wildcard != null && wildcard.wildcardRemainder);
+
+            if (children != null) {
+                Map<String, List<Node>> byToken = new LinkedHashMap<String, List<Node>>();
+                for (Node child : children.values()) {
+                    child.compile();
+                    for (String token : child.part) {
+                        List<Node> nodes = byToken.get(token);
+                        if (nodes == null) {
+                            nodes = new ArrayList<Node>(1);
+                            byToken.put(token, nodes);
+                        }
+                        nodes.add(child);
+                    }
+                }
+                childrenByToken = new HashMap<String, Node[]>(byToken.size() * 2);
+                for (Map.Entry<String, List<Node>> entry : byToken.entrySet()) {
+                    List<Node> nodes = entry.getValue();
+                    childrenByToken.put(entry.getKey(), nodes.toArray(new Node[nodes.size()]));
+                }
+                allChildren = children.values().toArray(new Node[children.size()]);
+                children = null;
+            }
+        }
+
+        /**
+         * Mirrors {@link WildcardPermission#implies(Permission)} for every granted permission below this node at
+         * once: a checked part is matched by a wildcard child or by any child whose granted part contains all of the
+         * checked part's tokens.
+         */
+        private boolean implies(WildcardPermission.CompiledParts parts, int index) {
+            if (terminal) {
+                return true;
+            }
+            if (index == parts.length()) {
+                return wildcardRemainder;
+            }
+            if (wildcard != null && wildcard.implies(parts, index + 1)) {
+                return true;
+            }
+            if (childrenByToken == null) {
+                return false;
+            }
+
+            String[] checked = parts.tokens[index];
+            Node[] candidates;
+            if (checked.length == 0) {
+                candidates = allChildren;
+            } else {
+                candidates = childrenByToken.get(checked[0]);
+                if (candidates == null) {
+                    return false;
+                }
+            }
+            for (Node candidate : candidates) {
+                if ((checked.length <= 1 || candidate.grant.containsAll(candidate.partIndex, parts, index)) &&
+                        candidate.implies(parts, index + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
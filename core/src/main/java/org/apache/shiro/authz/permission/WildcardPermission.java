@@ -24,6 +24,8 @@ import org.apache.shiro.util.StringUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -116,11 +118,20 @@ public class WildcardPermission implements Permission, Serializable {
     protected static final String SUBPART_DIVIDER_TOKEN = ",";
     protected static final boolean DEFAULT_CASE_SENSITIVE = false;
 
+    //the value computed for the 1.4 class, before an explicit version was declared, so previously serialized
+    //instances remain readable:
+    private static final long serialVersionUID = 8500703358315979658L;
+
     /*--------------------------------------------
     |    I N S T A N C E   V A R I A B L E S    |
     ============================================*/
     private List<Set<String>> parts;
 
+    /**
+     * The {@link #getParts() parts} compiled for matching, lazily (re)built whenever the parts change.
+     */
+    private transient CompiledParts compiledParts;
+
     /*--------------------------------------------
     |         C O N S T R U C T O R S           |
     ============================================*/
@@ -162,6 +173,7 @@ public class WildcardPermission implements Permission, Serializable {
         List<String> parts = CollectionUtils.asList(wildcardString.split(PART_DIVIDER_TOKEN));
 
         this.parts = new ArrayList<Set<String>>();
+        this.compiledParts = null;
         for (String part : parts) {
             Set<String> subparts = CollectionUtils.asSet(part.split(SUBPART_DIVIDER_TOKEN));
 
@@ -190,6 +202,27 @@ public class WildcardPermission implements Permission, Serializable {
      */
     protected void setParts(List<Set<String>> parts) {
         this.parts = parts;
+        this.compiledParts = null;
+    }
+
+    /**
+     * Returns the compiled form of the current {@link #getParts() parts}, compiling it first if the parts have not
+     * been compiled yet or have been replaced since.
+     *
+     * @return the compiled form of the current parts, or {@code null} if there are no parts.
+     */
+    CompiledParts getCompiledParts() {
+        List<Set<String>> parts = getParts();
+        CompiledParts compiled = this.compiledParts;
+        if (compiled == null || compiled.source != parts) {
+            if (parts == null) {
+                return null;
+            }
+            compiled = new CompiledParts(parts);
+            //benign race: CompiledParts is immutable and safely published through its final fields
+            this.compiledParts = compiled;
+        }
+        return compiled;
     }
 
     /*--------------------------------------------
@@ -202,29 +235,30 @@ public class WildcardPermission implements Permission, Serializable {
             return false;
         }
 
-        WildcardPermission wp = (WildcardPermission) p;
+        CompiledParts parts = getCompiledParts();
+        CompiledParts otherParts = ((WildcardPermission) p).getCompiledParts();
+        if (parts == null || otherParts == null) {
+            return false;
+        }
 
-        List<Set<String>> otherParts = wp.getParts();
+        int length = parts.length();
+        int otherLength = otherParts.length();
 
         int i = 0;
-        for (Set<String> otherPart : otherParts) {
+        for (; i < otherLength; i++) {
             // If this permission has less parts than the other permission, everything after the number of parts contained
             // in this permission is automatically implied, so return true
-            if (getParts().size() - 1 < i) {
+            if (i >= length) {
                 return true;
-            } else {
-                Set<String> part = getParts().get(i);
-                if (!part.contains(WILDCARD_TOKEN) && !part.containsAll(otherPart)) {
-                    return false;
-                }
-                i++;
+            }
+            if (!parts.isWildcard(i) && !parts.containsAll(i, otherParts, i)) {
+                return false;
             }
         }
 
         // If this permission has more parts than the other parts, only imply it if all of the other parts are wildcards
-        for (; i < getParts().size(); i++) {
-            Set<String> part = getParts().get(i);
-            if (!part.contains(WILDCARD_TOKEN)) {
+        for (; i < length; i++) {
+            if (!parts.isWildcard(i)) {
                 return false;
             }
         }
@@ -261,4 +295,119 @@ public class WildcardPermission implements Permission, Serializable {
         return parts.hashCode();
     }
 
+    /**
+     * An immutable, allocation-free representation of a permission's parts used for {@code implies} checks.
+     * <p/>
+     * Each part's tokens are {@link String#intern() interned} and sorted by hash code, so checking whether one part
+     * contains all tokens of another is a single merge over two small arrays using int and identity comparisons.
+     * Parts containing the {@link #WILDCARD_TOKEN wildcard token} are flagged in a bitmask, so the common wildcard
+     * short-circuit requires no token lookups at all.
+     *
+     * @since 1.5
+     */
+    static final class CompiledParts {
+
+        /**
+         * The parts list this instance was compiled from, used to detect when recompilation is necessary.
+         */
+        final List<Set<String>> source;
+
+        /**
+         * The interned tokens of each part, sorted by hash code.
+         */
+        final String[][] tokens;
+
+        /**
+         * The hash code of each entry in {@link #tokens}, in the same order.
+         */
+        final int[][] hashes;
+
+        /**
+         * Bit {@code i} is set if part {@code i} contains the wildcard token.
+         */
+        final long[] wildcards;
+
+        CompiledParts(List<Set<String>> source) {
+            this.source = source;
+            int length = source.size();
+            this.tokens = new String[length][];
+            this.hashes = new int[length][];
+            this.wildcards = new long[(length + 63) >>> 6];
+
+            int i = 0;
+            for (Set<String> part : source) {
+                String[] partTokens = new String[part.size()];
+                int j = 0;
+                for (String token : part) {
+                    if (WILDCARD_TOKEN.equals(token)) {
+                        wildcards[i >>> 6] |= 1L << i;
+                    }
+                    partTokens[j++] = token.intern();
+                }
+                Arrays.sort(partTokens, HashCodeComparator.INSTANCE);
+                int[] partHashes = new int[partTokens.length];
+                for (j = 0; j < partTokens.length; j++) {
+                    partHashes[j] = partTokens[j].hashCode();
+                }
+                this.tokens[i] = partTokens;
+                this.hashes[i] = partHashes;
+                i++;
+            }
+        }
+
+        int length() {
+            return tokens.length;
+        }
+
+        boolean isWildcard(int part) {
+            return (wildcards[part >>> 6] & (1L << part)) != 0;
+        }
+
+        /**
+         * Returns {@code true} if the specified part of this instance contains every token of the specified part of
+         * {@code other}, i.e. the equivalent of {@code Set.containsAll}.
+         */
+        boolean containsAll(int part, CompiledParts other, int otherPart) {
+            String[] tokens = this.tokens[part];
+            int[] hashes = this.hashes[part];
+            String[] otherTokens = other.tokens[otherPart];
+            int[] otherHashes = other.hashes[otherPart];
+
+            if (otherTokens.length > tokens.length) {
+                //both are sets, so a smaller one can never contain all tokens of a larger one
+                return false;
+            }
+
+            int start = 0;
+            next:
+            for (int i = 0; i < otherTokens.length; i++) {
+                int hash = otherHashes[i];
+                while (start < hashes.length && hashes[start] < hash) {
+                    start++;
+                }
+                //tokens are interned, so identity is equality within a run of identical hash codes:
+                for (int j = start; j < hashes.length && hashes[j] == hash; j++) {
+                    if (tokens[j] == otherTokens[i]) {
+                        continue next;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Orders tokens by hash code, as expected by {@link CompiledParts#containsAll(int, CompiledParts, int)}.
+     */
+    private static final class HashCodeComparator implements Comparator<String> {
+
+        private static final HashCodeComparator INSTANCE = new HashCodeComparator();
+
+        public int compare(String a, String b) {
+            int ha = a.hashCode();
+            int hb = b.hashCode();
+            return ha < hb ? -1 : (ha == hb ? 0 : 1);
+        }
+    }
 }
@@ -24,20 +24,62 @@ import org.apache.shiro.authz.Permission;
 /**
  * <tt>PermissionResolver</tt> implementation that returns a new {@link WildcardPermission WildcardPermission}
  * based on the input string.
+ * <p/>
+ * As of 1.5, resolved permissions are kept in a bounded {@link PermissionCache PermissionCache} so that checking the
+ * same permission string repeatedly does not parse it again every time.  Because {@code WildcardPermission}s are
+ * immutable once constructed, the same instance is safely shared by all callers.  Caching may be disabled by setting
+ * the {@link #setPermissionCache(PermissionCache) permissionCache} property to {@code null}.
  *
  * @since 0.9
  */
 public class WildcardPermissionResolver implements PermissionResolver {
 
+    private PermissionCache permissionCache;
+
+    public WildcardPermissionResolver() {
+        this.permissionCache = new PermissionCache();
+    }
+
+    /**
+     * Returns the cache of previously resolved permissions, or {@code null} if caching is disabled.
+     *
+     * @return the cache of previously resolved permissions, or {@code null} if caching is disabled.
+     * @since 1.5
+     */
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
+    /**
+     * Sets the cache of previously resolved permissions, or {@code null} to disable caching and resolve a new
+     * instance on every call.  A single cache may be shared by multiple {@code WildcardPermissionResolver}s.
+     *
+     * @param permissionCache the cache of previously resolved permissions, or {@code null} to disable caching.
+     * @since 1.5
+     */
+    public void setPermissionCache(PermissionCache permissionCache) {
+        this.permissionCache = permissionCache;
+    }
+
     /**
-     * Returns a new {@link WildcardPermission WildcardPermission} instance constructed based on the specified
-     * <tt>permissionString</tt>.
+     * Returns a {@link WildcardPermission WildcardPermission} instance constructed based on the specified
+     * <tt>permissionString</tt>, re-using a previously constructed instance if one is available in the
+     * {@link #getPermissionCache() permissionCache}.
      *
      * @param permissionString the permission string to convert to a {@link Permission Permission} instance.
-     * @return a new {@link WildcardPermission WildcardPermission} instance constructed based on the specified
+     * @return a {@link WildcardPermission WildcardPermission} instance constructed based on the specified
      *         <tt>permissionString</tt>
      */
     public Permission resolvePermission(String permissionString) {
-        return new WildcardPermission(permissionString);
+        PermissionCache cache = getPermissionCache();
+        if (cache == null) {
+            return new WildcardPermission(permissionString);
+        }
+        Permission permission = cache.get(permissionString);
+        if (permission == null) {
+            permission = new WildcardPermission(permissionString);
+            cache.put(permissionString, permission);
+        }
+        return permission;
     }
 }
@@ -0,0 +1,747 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.io;
+
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.session.mgt.CompactSession;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.support.DefaultSubjectContext;
+import org.apache.shiro.subject.support.DelegatingSubject;
+import org.apache.shiro.util.ByteSource;
+import org.apache.shiro.util.SimpleByteSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link Serializer} that writes Shiro's own state objects in a compact, versioned binary format instead of
+ * standard JVM serialization.
+ * <p/>
+ * JVM serialization spends most of the bytes of a typical serialized session on class descriptors, {@link Date}
+ * objects and {@code HashMap} internals.  This implementation knows the schema of {@link SimpleSession},
+ * {@link CompactSession}, {@link SimplePrincipalCollection}, {@link SimpleAuthenticationInfo} and
+ * {@link SimpleAuthorizationInfo} (exact classes only; subclasses may carry additional state) and writes only their
+ * field values:
+ * <ul>
+ * <li>integers, longs and timestamps are written as variable-length integers; a session's last access and stop
+ * timestamps as offsets from its start timestamp,</li>
+ * <li>every string is written once per serialized object and referenced by its index in a string table afterwards.
+ * The string table is pre-populated with Shiro's own well-known session attribute keys, and session IDs in canonical
+ * {@code UUID} form are written as 16 bytes,</li>
+ * <li>{@code String}s, {@code Boolean}s, {@code Integer}s, {@code Long}s, {@code Date}s, {@code byte[]} and
+ * {@code char[]} arrays, {@link SimpleByteSource}s and {@code ArrayList}s, {@code HashSet}s, {@code LinkedHashSet}s,
+ * {@code HashMap}s and {@code LinkedHashMap}s of such values are written natively,</li>
+ * <li>values of any other type are written by a matching {@link #addCodec(Codec) codec} if one was registered for
+ * their exact class, and by standard JVM serialization otherwise.</li>
+ * </ul>
+ * Data previously written by a {@link DefaultSerializer} (i.e. standard JVM serialization) is recognized and still
+ * deserialized, so this serializer may replace a {@code DefaultSerializer} for existing data.
+ * <p/>
+ * Every serialized object starts with a format version.  Codecs are identified by the name of the class they
+ * handle, so the same codecs must be registered wherever the data is deserialized.
+ *
+ * @param <T> The type of the object being serialized and deserialized.
+ * @since 1.5
+ */
+public class CompactSerializer<T> implements Serializer<T> {
+
+    /**
+     * Writes and reads values of a single type in a compact binary form.
+     *
+     * @param <V> the type of values handled by this codec.
+     */
+    public interface Codec<V> {
+
+        /**
+         * Returns the exact class of the values handled by this codec.
+         *
+         * @return the exact class of the values handled by this codec.
+         */
+        Class<V> getType();
+
+        /**
+         * Writes the specified (non-null) value.
+         *
+         * @param value the value to write.
+         * @param out   the output to write the value to.
+         * @throws IOException if the value cannot be written.
+         */
+        void write(V value, DataOutput out) throws IOException;
+
+        /**
+         * Reads a value previously written by {@link #write(Object, DataOutput) write}.
+         *
+         * @param in the input to read the value from.
+         * @return the value read.
+         * @throws IOException if the value cannot be read.
+         */
+        V read(DataInput in) throws IOException;
+    }
+
+    private static final byte MAGIC = (byte) 0x5C;
+    private static final byte VERSION = 1;
+
+    private static final String UTF_8 = "UTF-8";
+
+    //first byte of standard JVM serialization streams (STREAM_MAGIC is 0xACED):
+    private static final byte JAVA_SERIALIZATION_MAGIC = (byte) 0xAC;
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int STRING = 3;
+    private static final int STRING_REF = 4;
+    private static final int UUID_STRING = 5;
+    private static final int INTEGER = 6;
+    private static final int LONG = 7;
+    private static final int DATE = 8;
+    private static final int BYTES = 9;
+    private static final int CHARS = 10;
+    private static final int BYTE_SOURCE = 11;
+    private static final int ARRAY_LIST = 12;
+    private static final int HASH_SET = 13;
+    private static final int LINKED_HASH_SET = 14;
+    private static final int HASH_MAP = 15;
+    private static final int LINKED_HASH_MAP = 16;
+    private static final int SIMPLE_SESSION = 17;
+    private static final int SIMPLE_PRINCIPAL_COLLECTION = 18;
+    private static final int SIMPLE_AUTHENTICATION_INFO = 19;
+    private static final int SIMPLE_AUTHORIZATION_INFO = 20;
+    private static final int CODEC = 21;
+    private static final int JAVA_SERIALIZED = 22;
+    private static final int COMPACT_SESSION = 23;
+
+    private static final int ID_BIT_MASK = 1;
+    private static final int START_TIMESTAMP_BIT_MASK = 1 << 1;
+    private static final int STOP_TIMESTAMP_BIT_MASK = 1 << 2;
+    private static final int LAST_ACCESS_TIME_BIT_MASK = 1 << 3;
+    private static final int TIMEOUT_BIT_MASK = 1 << 4;
+    private static final int EXPIRED_BIT_MASK = 1 << 5;
+    private static final int HOST_BIT_MASK = 1 << 6;
+    private static final int ATTRIBUTES_BIT_MASK = 1 << 7;
+
+    /**
+     * The strings every string table starts with.  This list is part of the format: it may only ever be appended to,
+     * together with a new format version.
+     */
+    private static final String[] WELL_KNOWN_STRINGS = {
+            DefaultSubjectContext.PRINCIPALS_SESSION_KEY,
+            DefaultSubjectContext.AUTHENTICATED_SESSION_KEY,
+            DelegatingSubject.class.getName() + ".RUN_AS_PRINCIPALS_SESSION_KEY",
+            "shiroSavedRequest"
+    };
+
+    private static final Map<String, Integer> WELL_KNOWN_STRING_INDEXES;
+
+    static {
+        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        for (int i = 0; i < WELL_KNOWN_STRINGS.length; i++) {
+            indexes.put(WELL_KNOWN_STRINGS[i], i);
+        }
+        WELL_KNOWN_STRING_INDEXES = indexes;
+    }
+
+    private final ConcurrentMap<Class<?>, Codec<?>> codecsByType = new ConcurrentHashMap<Class<?>, Codec<?>>();
+    private final ConcurrentMap<String, Codec<?>> codecsByTypeName = new ConcurrentHashMap<String, Codec<?>>();
+
+    private final DefaultSerializer<Object> javaSerializer = new DefaultSerializer<Object>();
+
+    /**
+     * Registers a codec for values of its {@link Codec#getType() type}, replacing any codec previously registered for
+     * the same type.
+     *
+     * @param codec the codec to register.
+     */
+    public void addCodec(Codec<?> codec) {
+        if (codec == null || codec.getType() == null) {
+            throw new IllegalArgumentException("codec argument and its type cannot be null.");
+        }
+        codecsByType.put(codec.getType(), codec);
+        codecsByTypeName.put(codec.getType().getName(), codec);
+    }
+
+    /**
+     * Registers all of the specified codecs, as if {@link #addCodec(Codec)} were called for each one.
+     *
+     * @param codecs the codecs to register.
+     */
+    public void setCodecs(Collection<Codec<?>> codecs) {
+        if (codecs != null) {
+            for (Codec<?> codec : codecs) {
+                addCodec(codec);
+            }
+        }
+    }
+
+    public byte[] serialize(T o) throws SerializationException {
+        if (o == null) {
+            String msg = "argument cannot be null.";
+            throw new IllegalArgumentException(msg);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        try {
+            Writer writer = new Writer(new DataOutputStream(baos));
+            writer.out.writeByte(MAGIC);
+            writer.out.writeByte(VERSION);
+            writer.writeValue(o);
+            writer.out.flush();
+            return baos.toByteArray();
+        } catch (IOException e) {
+            String msg = "Unable to serialize object [" + o + "].";
+            throw new SerializationException(msg, e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public T deserialize(byte[] serialized) throws SerializationException {
+        if (serialized == null) {
+            String msg = "argument cannot be null.";
+            throw new IllegalArgumentException(msg);
+        }
+        if (serialized.length > 0 && serialized[0] == JAVA_SERIALIZATION_MAGIC) {
+            return (T) javaSerializer.deserialize(serialized);
+        }
+        if (serialized.length < 2 || serialized[0] != MAGIC) {
+            throw new SerializationException("Unable to deserialize argument byte array: unknown format.");
+        }
+        if (serialized[1] != VERSION) {
+            throw new SerializationException("Unable to deserialize argument byte array: unsupported format " +
+                    "version [" + serialized[1] + "].");
+        }
+        try {
+            Reader reader = new Reader(new ByteArrayInputStream(serialized, 2, serialized.length - 2));
+            return (T) reader.readValue();
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Exception e) {
+            String msg = "Unable to deserialize argument byte array.";
+            throw new SerializationException(msg, e);
+        }
+    }
+
+    private static boolean isUuidString(String s) {
+        if (s.length() != 36 || s.charAt(8) != '-') {
+            return false;
+        }
+        try {
+            return UUID.fromString(s).toString().equals(s);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a single object graph, keeping track of the strings written so far.
+     */
+    private final class Writer {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        private void writeSignedVarLong(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer index = WELL_KNOWN_STRING_INDEXES.get(s);
+            if (index == null) {
+                index = strings.get(s);
+                if (index != null) {
+                    index += WELL_KNOWN_STRINGS.length;
+                }
+            }
+            if (index != null) {
+                out.writeByte(STRING_REF);
+                writeVarLong(index);
+            } else if (isUuidString(s)) {
+                UUID uuid = UUID.fromString(s);
+                out.writeByte(UUID_STRING);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            } else {
+                strings.put(s, strings.size());
+                out.writeByte(STRING);
+                writeBytes(s.getBytes(UTF_8));
+            }
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeValues(Collection<?> values) throws IOException {
+            writeVarLong(values.size());
+            for (Object value : values) {
+                writeValue(value);
+            }
+        }
+
+        private void writeEntries(Map<?, ?> map) throws IOException {
+            writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            Class<?> type = value.getClass();
+            if (type == String.class) {
+                writeString((String) value);
+            } else if (type == Boolean.class) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (type == Integer.class) {
+                out.writeByte(INTEGER);
+                writeSignedVarLong((Integer) value);
+            } else if (type == Long.class) {
+                out.writeByte(LONG);
+                writeSignedVarLong((Long) value);
+            } else if (type == Date.class) {
+                out.writeByte(DATE);
+                writeSignedVarLong(((Date) value).getTime());
+            } else if (type == byte[].class) {
+                out.writeByte(BYTES);
+                writeBytes((byte[]) value);
+            } else if (type == char[].class) {
+                out.writeByte(CHARS);
+                writeString(new String((char[]) value));
+            } else if (type == SimpleByteSource.class) {
+                out.writeByte(BYTE_SOURCE);
+                writeBytes(((ByteSource) value).getBytes());
+            } else if (type == ArrayList.class) {
+                out.writeByte(ARRAY_LIST);
+                writeValues((Collection<?>) value);
+            } else if (type == HashSet.class) {
+                out.writeByte(HASH_SET);
+                writeValues((Collection<?>) value);
+            } else if (type == LinkedHashSet.class) {
+                out.writeByte(LINKED_HASH_SET);
+                writeValues((Collection<?>) value);
+            } else if (type == HashMap.class) {
+                out.writeByte(HASH_MAP);
+                writeEntries((Map<?, ?>) value);
+            } else if (type == LinkedHashMap.class) {
+                out.writeByte(LINKED_HASH_MAP);
+                writeEntries((Map<?, ?>) value);
+            } else if (type == SimpleSession.class) {
+                out.writeByte(SIMPLE_SESSION);
+                writeSession((SimpleSession) value);
+            } else if (type == CompactSession.class) {
+                out.writeByte(COMPACT_SESSION);
+                writeSession((CompactSession) value);
+            } else if (type == SimplePrincipalCollection.class) {
+                out.writeByte(SIMPLE_PRINCIPAL_COLLECTION);
+                writePrincipals((SimplePrincipalCollection) value);
+            } else if (type == SimpleAuthenticationInfo.class) {
+                SimpleAuthenticationInfo info = (SimpleAuthenticationInfo) value;
+                out.writeByte(SIMPLE_AUTHENTICATION_INFO);
+                writeValue(info.getPrincipals());
+                writeValue(info.getCredentials());
+                writeValue(info.getCredentialsSalt());
+            } else if (type == SimpleAuthorizationInfo.class) {
+                SimpleAuthorizationInfo info = (SimpleAuthorizationInfo) value;
+                out.writeByte(SIMPLE_AUTHORIZATION_INFO);
+                writeValue(info.getRoles());
+                writeValue(info.getStringPermissions());
+                writeValue(info.getObjectPermissions());
+            } else {
+                Codec<Object> codec = (Codec<Object>) codecsByType.get(type);
+                if (codec != null) {
+                    out.writeByte(CODEC);
+                    writeString(type.getName());
+                    codec.write(value, out);
+                } else {
+                    out.writeByte(JAVA_SERIALIZED);
+                    writeBytes(javaSerializer.serialize(value));
+                }
+            }
+        }
+
+        private void writeSession(SimpleSession session) throws IOException {
+            Map<Object, Object> attributes = session.getAttributes();
+            boolean hasAttributes = attributes != null && !attributes.isEmpty();
+            writeSessionFields(session.getId(), session.getStartTimestamp(), session.getStopTimestamp(),
+                    session.getLastAccessTime(), session.getTimeout(), session.isExpired(), session.getHost(),
+                    hasAttributes);
+            if (hasAttributes) {
+                writeValue(attributes);
+            }
+        }
+
+        private void writeSession(CompactSession session) throws IOException {
+            List<Object> attributes = session.getAttributeEntries();
+            boolean hasAttributes = !attributes.isEmpty();
+            writeSessionFields(session.getId(), session.getStartTimestamp(), session.getStopTimestamp(),
+                    session.getLastAccessTime(), session.getTimeout(), session.isExpired(), session.getHost(),
+                    hasAttributes);
+            if (hasAttributes) {
+                writeVarLong(attributes.size() / 2);
+                for (Object keyOrValue : attributes) {
+                    writeValue(keyOrValue);
+                }
+            }
+        }
+
+        private void writeSessionFields(Serializable id, Date start, Date stop, Date lastAccess, long timeout,
+                                        boolean expired, String host, boolean hasAttributes) throws IOException {
+            int bitMask = 0;
+            bitMask = id != null ? bitMask | ID_BIT_MASK : bitMask;
+            bitMask = start != null ? bitMask | START_TIMESTAMP_BIT_MASK : bitMask;
+            bitMask = stop != null ? bitMask | STOP_TIMESTAMP_BIT_MASK : bitMask;
+            bitMask = lastAccess != null ? bitMask | LAST_ACCESS_TIME_BIT_MASK : bitMask;
+            bitMask = timeout != 0L ? bitMask | TIMEOUT_BIT_MASK : bitMask;
+            bitMask = expired ? bitMask | EXPIRED_BIT_MASK : bitMask;
+            bitMask = host != null ? bitMask | HOST_BIT_MASK : bitMask;
+            bitMask = hasAttributes ? bitMask | ATTRIBUTES_BIT_MASK : bitMask;
+            writeVarLong(bitMask);
+
+            //the other timestamps are written relative to the start timestamp, which makes them (much) shorter:
+            long base = start != null ? start.getTime() : 0L;
+            if (id != null) {
+                writeValue(id);
+            }
+            if (start != null) {
+                writeSignedVarLong(base);
+            }
+            if (stop != null) {
+                writeSignedVarLong(stop.getTime() - base);
+            }
+            if (lastAccess != null) {
+                writeSignedVarLong(lastAccess.getTime() - base);
+            }
+            if (timeout != 0L) {
+                writeSignedVarLong(timeout);
+            }
+            if (host != null) {
+                writeString(host);
+            }
+        }
+
+        private void writePrincipals(SimplePrincipalCollection principals) throws IOException {
+            Set<String> realmNames = principals.getRealmNames();
+            //null if the collection is empty:
+            if (realmNames == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(realmNames.size());
+            for (String realmName : realmNames) {
+                writeString(realmName);
+                writeValues(principals.fromRealm(realmName));
+            }
+        }
+    }
+
+    /**
+     * Reads a single object graph written by a {@link Writer}.
+     */
+    private final class Reader {
+
+        private final ByteArrayInputStream bytes;
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<String>();
+
+        private Reader(ByteArrayInputStream bytes) {
+            this.bytes = bytes;
+            this.in = new DataInputStream(bytes);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed variable-length integer.");
+        }
+
+        private long readSignedVarLong() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Reads a length or element count, which can never exceed the number of remaining bytes.
+         */
+        private int readCount() throws IOException {
+            long count = readVarLong();
+            if (count > bytes.available()) {
+                throw new SerializationException("Malformed data: count [" + count + "] exceeds the remaining " +
+                        "number of bytes.");
+            }
+            return (int) count;
+        }
+
+        private String readString() throws IOException {
+            Object value = readValue();
+            if (value != null && !(value instanceof String)) {
+                throw new SerializationException("Malformed data: expected a String but found [" + value + "].");
+            }
+            return (String) value;
+        }
+
+        private byte[] readBytes() throws IOException {
+            byte[] bytes = new byte[readCount()];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        private <C extends Collection<Object>> C readValues(C values, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                values.add(readValue());
+            }
+            return values;
+        }
+
+        private <M extends Map<Object, Object>> M readEntries(M map, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                Object key = readValue();
+                map.put(key, readValue());
+            }
+            return map;
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private Object readValue() throws IOException {
+            int tag = in.readUnsignedByte();
+            int count;
+            switch (tag) {
+                case NULL:
+                    return null;
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case STRING:
+                    String s = new String(readBytes(), UTF_8);
+                    strings.add(s);
+                    return s;
+                case STRING_REF:
+                    long index = readVarLong();
+                    if (index < WELL_KNOWN_STRINGS.length) {
+                        return WELL_KNOWN_STRINGS[(int) index];
+                    }
+                    index -= WELL_KNOWN_STRINGS.length;
+                    if (index >= strings.size()) {
+                        throw new SerializationException("Malformed data: unknown string reference.");
+                    }
+                    return strings.get((int) index);
+                case UUID_STRING:
+                    return new UUID(in.readLong(), in.readLong()).toString();
+                case INTEGER:
+                    return (int) readSignedVarLong();
+                case LONG:
+                    return readSignedVarLong();
+                case DATE:
+                    return new Date(readSignedVarLong());
+                case BYTES:
+                    return readBytes();
+                case CHARS:
+                    return readString().toCharArray();
+                case BYTE_SOURCE:
+                    return new SimpleByteSource(readBytes());
+                case ARRAY_LIST:
+                    count = readCount();
+                    return readValues(new ArrayList<Object>(count), count);
+                case HASH_SET:
+                    count = readCount();
+                    return readValues(new HashSet<Object>(), count);
+                case LINKED_HASH_SET:
+                    count = readCount();
+                    return readValues(new LinkedHashSet<Object>(), count);
+                case HASH_MAP:
+                    count = readCount();
+                    return readEntries(new HashMap<Object, Object>(), count);
+                case LINKED_HASH_MAP:
+                    count = readCount();
+                    return readEntries(new LinkedHashMap<Object, Object>(), count);
+                case SIMPLE_SESSION:
+                    return readSession();
+                case COMPACT_SESSION:
+                    return readCompactSession();
+                case SIMPLE_PRINCIPAL_COLLECTION:
+                    return readPrincipals();
+                case SIMPLE_AUTHENTICATION_INFO:
+                    SimpleAuthenticationInfo authcInfo = new SimpleAuthenticationInfo();
+                    authcInfo.setPrincipals((PrincipalCollection) readValue());
+                    authcInfo.setCredentials(readValue());
+                    authcInfo.setCredentialsSalt((ByteSource) readValue());
+                    return authcInfo;
+                case SIMPLE_AUTHORIZATION_INFO:
+                    SimpleAuthorizationInfo authzInfo = new SimpleAuthorizationInfo();
+                    authzInfo.setRoles((Set<String>) readValue());
+                    authzInfo.setStringPermissions((Set<String>) readValue());
+                    authzInfo.setObjectPermissions((Set<Permission>) readValue());
+                    return authzInfo;
+                case CODEC:
+                    String typeName = readString();
+                    Codec<?> codec = codecsByTypeName.get(typeName);
+                    if (codec == null) {
+                        throw new SerializationException("No codec registered for type [" + typeName + "].");
+                    }
+                    return codec.read(in);
+                case JAVA_SERIALIZED:
+                    return javaSerializer.deserialize(readBytes());
+                default:
+                    throw new SerializationException("Malformed data: unknown type tag [" + tag + "].");
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private SimpleSession readSession() throws IOException {
+            SessionFields fields = readSessionFields();
+            SimpleSession session = new SimpleSession();
+            session.setId(fields.id);
+            session.setStartTimestamp(fields.start);
+            session.setStopTimestamp(fields.stop);
+            session.setLastAccessTime(fields.lastAccess);
+            session.setTimeout(fields.timeout);
+            session.setExpired(fields.expired);
+            session.setHost(fields.host);
+            if (fields.hasAttributes) {
+                Object attributes = readValue();
+                if (!(attributes instanceof Map)) {
+                    throw new SerializationException("Malformed data: expected session attributes.");
+                }
+                session.setAttributes((Map<Object, Object>) attributes);
+            }
+            return session;
+        }
+
+        private CompactSession readCompactSession() throws IOException {
+            SessionFields fields = readSessionFields();
+            CompactSession session = new CompactSession();
+            session.setId(fields.id);
+            session.setStartTimestamp(fields.start);
+            session.setStopTimestamp(fields.stop);
+            session.setLastAccessTime(fields.lastAccess);
+            session.setTimeout(fields.timeout);
+            session.setExpired(fields.expired);
+            session.setHost(fields.host);
+            if (fields.hasAttributes) {
+                int count = readCount();
+                for (int i = 0; i < count; i++) {
+                    Object key = readValue();
+                    session.setAttribute(key, readValue());
+                }
+            }
+            return session;
+        }
+
+        private SessionFields readSessionFields() throws IOException {
+            int bitMask = (int) readVarLong();
+            //absent fields were null or zero when written:
+            SessionFields fields = new SessionFields();
+            long base = 0L;
+            if ((bitMask & ID_BIT_MASK) != 0) {
+                fields.id = (Serializable) readValue();
+            }
+            if ((bitMask & START_TIMESTAMP_BIT_MASK) != 0) {
+                base = readSignedVarLong();
+                fields.start = new Date(base);
+            }
+            if ((bitMask & STOP_TIMESTAMP_BIT_MASK) != 0) {
+                fields.stop = new Date(base + readSignedVarLong());
+            }
+            if ((bitMask & LAST_ACCESS_TIME_BIT_MASK) != 0) {
+                fields.lastAccess = new Date(base + readSignedVarLong());
+            }
+            if ((bitMask & TIMEOUT_BIT_MASK) != 0) {
+                fields.timeout = readSignedVarLong();
+            }
+            fields.expired = (bitMask & EXPIRED_BIT_MASK) != 0;
+            if ((bitMask & HOST_BIT_MASK) != 0) {
+                fields.host = readString();
+            }
+            fields.hasAttributes = (bitMask & ATTRIBUTES_BIT_MASK) != 0;
+            return fields;
+        }
+
+        private SimplePrincipalCollection readPrincipals() throws IOException {
+            SimplePrincipalCollection principals = new SimplePrincipalCollection();
+            int realmCount = readCount();
+            for (int i = 0; i < realmCount; i++) {
+                String realmName = readString();
+                int principalCount = readCount();
+                for (int j = 0; j < principalCount; j++) {
+                    principals.add(readValue(), realmName);
+                }
+            }
+            return principals;
+        }
+    }
+
+    /**
+     * The fields shared by all session types, as read by a {@link Reader}.
+     */
+    private static final class SessionFields {
+        private Serializable id;
+        private Date start;
+        private Date stop;
+        private Date lastAccess;
+        private long timeout;
+        private boolean expired;
+        private String host;
+        private boolean hasAttributes;
+    }
+}
@@ -22,10 +22,13 @@ import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authc.IncorrectCredentialsException;
+import org.apache.shiro.authc.UnknownAccountException;
 import org.apache.shiro.authc.UsernamePasswordToken;
 import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
 import org.apache.shiro.authc.credential.CredentialsMatcher;
+import org.apache.shiro.authc.credential.CredentialsVerificationExecutor;
 import org.apache.shiro.authc.credential.SimpleCredentialsMatcher;
+import org.apache.shiro.authc.credential.VerifiedCredentialsCache;
 import org.apache.shiro.cache.Cache;
 import org.apache.shiro.cache.CacheManager;
 import org.apache.shiro.subject.PrincipalCollection;
@@ -130,6 +133,26 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
      */
     private CredentialsMatcher credentialsMatcher;
 
+    /**
+     * Optional executor that credentials matching is delegated to, {@code null} to match on the calling thread.
+     *
+     * @since 1.5
+     */
+    private CredentialsVerificationExecutor credentialsVerificationExecutor;
+
+    /**
+     * Optional cache of recently verified credentials, {@code null} to verify credentials on every authentication.
+     *
+     * @since 1.5
+     */
+    private VerifiedCredentialsCache verifiedCredentialsCache;
+
+    /**
+     * Optional cache of accounts recently found not to exist, {@code null} to always look up accounts.
+     *
+     * @since 1.5
+     */
+    private UnknownAccountCache unknownAccountCache;
 
     private Cache<Object, AuthenticationInfo> authenticationCache;
 
@@ -211,6 +234,81 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
         this.credentialsMatcher = credentialsMatcher;
     }
 
+    /**
+     * Returns the executor that {@link #getCredentialsMatcher() credentials matching} is delegated to, or
+     * {@code null} if credentials are matched on the calling thread (the default).
+     *
+     * @return the executor that credentials matching is delegated to, or {@code null}.
+     * @since 1.5
+     */
+    public CredentialsVerificationExecutor getCredentialsVerificationExecutor() {
+        return credentialsVerificationExecutor;
+    }
+
+    /**
+     * Sets the executor that {@link #getCredentialsMatcher() credentials matching} is delegated to, in order to bound
+     * the number of expensive (e.g. iterated hash) verifications running at once.  When the executor is overloaded,
+     * authentication fails with a {@link org.apache.shiro.authc.CredentialsVerificationRejectedException
+     * CredentialsVerificationRejectedException}.  The default is {@code null}: credentials are matched on the calling
+     * thread.
+     *
+     * @param credentialsVerificationExecutor the executor to delegate credentials matching to, or {@code null}.
+     * @since 1.5
+     */
+    public void setCredentialsVerificationExecutor(CredentialsVerificationExecutor credentialsVerificationExecutor) {
+        this.credentialsVerificationExecutor = credentialsVerificationExecutor;
+    }
+
+    /**
+     * Returns the cache of recently verified credentials, or {@code null} if credentials are verified on every
+     * authentication (the default).
+     *
+     * @return the cache of recently verified credentials, or {@code null}.
+     * @since 1.5
+     */
+    public VerifiedCredentialsCache getVerifiedCredentialsCache() {
+        return verifiedCredentialsCache;
+    }
+
+    /**
+     * Sets the cache of recently verified credentials.  When set, authenticating again with the very same credentials
+     * within the cache's {@link VerifiedCredentialsCache#getTimeToLive() timeToLive} returns the previously verified
+     * {@code AuthenticationInfo} without looking up the account or matching credentials.  This is useful for stateless
+     * applications authenticating every request.  The default is {@code null}.
+     *
+     * @param verifiedCredentialsCache the cache of recently verified credentials, or {@code null}.
+     * @since 1.5
+     */
+    public void setVerifiedCredentialsCache(VerifiedCredentialsCache verifiedCredentialsCache) {
+        this.verifiedCredentialsCache = verifiedCredentialsCache;
+    }
+
+    /**
+     * Returns the cache of accounts recently found not to exist, or {@code null} if accounts are always looked up
+     * (the default).
+     *
+     * @return the cache of accounts recently found not to exist, or {@code null}.
+     * @since 1.5
+     */
+    public UnknownAccountCache getUnknownAccountCache() {
+        return unknownAccountCache;
+    }
+
+    /**
+     * Sets the cache of accounts recently found not to exist.  When set, authentication attempts for an account that
+     * {@link #doGetAuthenticationInfo(AuthenticationToken) doGetAuthenticationInfo} recently did not find (returning
+     * {@code null} or throwing an {@link UnknownAccountException}) fail without looking the account up again, which
+     * protects the data source from attempts with many unknown usernames.  Such attempts then return {@code null}.
+     * The default is {@code null}.
+     *
+     * @param unknownAccountCache the cache of accounts recently found not to exist, or {@code null}.
+     * @see #clearCachedUnknownAccount(Object)
+     * @since 1.5
+     */
+    public void setUnknownAccountCache(UnknownAccountCache unknownAccountCache) {
+        this.unknownAccountCache = unknownAccountCache;
+    }
+
     /**
      * Returns the authenticationToken class supported by this realm.
      * <p/>
@@ -565,10 +663,21 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
      */
     public final AuthenticationInfo getAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
 
+        VerifiedCredentialsCache verifiedCredentials = getVerifiedCredentialsCache();
+        Object verifiedCredentialsKey = null;
+        if (verifiedCredentials != null && token != null) {
+            verifiedCredentialsKey = getAuthenticationCacheKey(token);
+            AuthenticationInfo verified = verifiedCredentials.get(getName(), verifiedCredentialsKey, token);
+            if (verified != null) {
+                log.trace("Credentials for token [{}] were verified recently.  Skipping credentials matching.", token);
+                return verified;
+            }
+        }
+
         AuthenticationInfo info = getCachedAuthenticationInfo(token);
         if (info == null) {
             //otherwise not cached, perform the lookup:
-            info = doGetAuthenticationInfo(token);
+            info = lookupAuthenticationInfo(token);
             log.debug("Looked up AuthenticationInfo [{}] from doGetAuthenticationInfo", info);
             if (token != null && info != null) {
                 cacheAuthenticationInfoIfPossible(token, info);
@@ -579,6 +688,9 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
 
         if (info != null) {
             assertCredentialsMatch(token, info);
+            if (verifiedCredentials != null) {
+                verifiedCredentials.put(getName(), verifiedCredentialsKey, token, info);
+            }
         } else {
             log.debug("No AuthenticationInfo found for submitted AuthenticationToken [{}].  Returning null.", token);
         }
@@ -586,18 +698,50 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
         return info;
     }
 
+    /**
+     * Calls {@link #doGetAuthenticationInfo(AuthenticationToken) doGetAuthenticationInfo}, unless the
+     * {@link #getUnknownAccountCache() unknownAccountCache} knows that the account does not exist, and records
+     * unknown accounts in that cache.
+     */
+    private AuthenticationInfo lookupAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+        UnknownAccountCache unknownAccounts = getUnknownAccountCache();
+        Object key = unknownAccounts != null && token != null ? getAuthenticationCacheKey(token) : null;
+        if (key == null) {
+            return doGetAuthenticationInfo(token);
+        }
+        if (unknownAccounts.isUnknown(key)) {
+            log.debug("Account [{}] is known not to exist.  Skipping lookup.", key);
+            return null;
+        }
+        AuthenticationInfo info;
+        try {
+            info = doGetAuthenticationInfo(token);
+        } catch (UnknownAccountException e) {
+            unknownAccounts.put(key);
+            throw e;
+        }
+        if (info == null) {
+            unknownAccounts.put(key);
+        }
+        return info;
+    }
+
     /**
      * Asserts that the submitted {@code AuthenticationToken}'s credentials match the stored account
      * {@code AuthenticationInfo}'s credentials, and if not, throws an {@link AuthenticationException}.
      *
      * @param token the submitted authentication token
      * @param info  the AuthenticationInfo corresponding to the given {@code token}
-     * @throws AuthenticationException if the token's credentials do not match the stored account credentials.
+     * @throws AuthenticationException if the token's credentials do not match the stored account credentials, or a
+     *                                 configured {@link #getCredentialsVerificationExecutor() executor} rejected
+     *                                 the verification.
      */
     protected void assertCredentialsMatch(AuthenticationToken token, AuthenticationInfo info) throws AuthenticationException {
         CredentialsMatcher cm = getCredentialsMatcher();
         if (cm != null) {
-            if (!cm.doCredentialsMatch(token, info)) {
+            CredentialsVerificationExecutor executor = getCredentialsVerificationExecutor();
+            boolean match = executor != null ? executor.verify(cm, token, info) : cm.doCredentialsMatch(token, info);
+            if (!match) {
                 //not successful - throw an exception to indicate this:
                 String msg = "Submitted credentials for token [" + token + "] did not match the expected credentials.";
                 throw new IncorrectCredentialsException(msg);
@@ -678,6 +822,9 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
      * If you wish to clear out all associated cached data (and not just authentication data), use the
      * {@link #clearCache(org.apache.shiro.subject.PrincipalCollection)} method instead (which will in turn call this
      * method by default).
+     * <p/>
+     * As of 1.5, this also removes the account's entry from the {@link #getVerifiedCredentialsCache()
+     * verifiedCredentialsCache}, if one is configured.
      *
      * @param principals the principals of the account for which to clear the cached AuthorizationInfo.
      * @see #clearCache(org.apache.shiro.subject.PrincipalCollection)
@@ -691,6 +838,26 @@ public abstract class AuthenticatingRealm extends CachingRealm implements Initia
                 Object key = getAuthenticationCacheKey(principals);
                 cache.remove(key);
             }
+            VerifiedCredentialsCache verifiedCredentials = getVerifiedCredentialsCache();
+            if (verifiedCredentials != null) {
+                verifiedCredentials.remove(getName(), getAuthenticationCacheKey(principals));
+            }
+        }
+    }
+
+    /**
+     * Notifies the {@link #getUnknownAccountCache() unknownAccountCache}, if any, that the account with the specified
+     * cache key has been created, so that it can authenticate immediately.  Subclasses creating accounts at runtime
+     * should call this method for each new account.
+     *
+     * @param key the {@link #getAuthenticationCacheKey(AuthenticationToken) cache key} of the new account, typically
+     *            its username.
+     * @since 1.5
+     */
+    protected void clearCachedUnknownAccount(Object key) {
+        UnknownAccountCache unknownAccounts = getUnknownAccountCache();
+        if (unknownAccounts != null) {
+            unknownAccounts.accountCreated(key);
         }
     }
 
@@ -26,6 +26,7 @@ import org.apache.shiro.cache.CacheManager;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.util.CollectionUtils;
 import org.apache.shiro.util.Initializable;
+import org.apache.shiro.util.SoftHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,6 +84,13 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
 
     private RolePermissionResolver permissionRoleResolver;
 
+    private boolean permissionIndexingEnabled;
+
+    /**
+     * Compiled {@link PermissionIndex} instances, keyed by the cached AuthorizationInfo they were compiled from.
+     */
+    private final Map<AuthorizationInfo, IndexedPermissions> permissionIndexes;
+
     /*-------------------------------------------
     |         C O N S T R U C T O R S           |
     ============================================*/
@@ -106,6 +114,8 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
 
         this.authorizationCachingEnabled = true;
         this.permissionResolver = new WildcardPermissionResolver();
+        this.permissionIndexingEnabled = false;
+        this.permissionIndexes = new SoftHashMap<AuthorizationInfo, IndexedPermissions>();
 
         int instanceNumber = INSTANCE_COUNT.getAndIncrement();
         this.authorizationCacheName = getClass().getName() + DEFAULT_AUTHORIZATION_CACHE_SUFFIX;
@@ -173,6 +183,46 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         }
     }
 
+    /**
+     * Returns {@code true} if the permissions of each cached {@link AuthorizationInfo} instance should be compiled
+     * once into a {@link PermissionIndex} and reused for all subsequent permission checks against that same
+     * instance, {@code false} if every check should re-resolve and scan the instance's permissions.
+     * <p/>
+     * Indexing only takes effect while {@link #isAuthorizationCachingEnabled() authorization caching} is in use, since
+     * an index is only worth compiling for an {@code AuthorizationInfo} instance that will be seen again.  Note that
+     * this also means the result of {@link #getPermissions(org.apache.shiro.authz.AuthorizationInfo) getPermissions}
+     * (including any {@link #getRolePermissionResolver() role permissions}) is captured when the index is compiled,
+     * and is only refreshed when the cached {@code AuthorizationInfo} is
+     * {@link #clearCachedAuthorizationInfo(org.apache.shiro.subject.PrincipalCollection) cleared}.
+     * <p/>
+     * The default value is {@code false}.  Only enable it if the configured authorization {@link Cache} returns the
+     * same {@code AuthorizationInfo} instance on every lookup (as in-memory caches do): for caches that return a new
+     * copy on every lookup (as serializing or distributed caches do), the compiled index could never be reused and
+     * every check would compile and retain another one.
+     *
+     * @return {@code true} if compiled permission indexes should be used, {@code false} otherwise.
+     * @since 1.5
+     */
+    public boolean isPermissionIndexingEnabled() {
+        return permissionIndexingEnabled;
+    }
+
+    /**
+     * Sets whether or not the permissions of each cached {@link AuthorizationInfo} instance should be compiled into
+     * a reusable {@link PermissionIndex}.  See {@link #isPermissionIndexingEnabled()} for more information.
+     * <p/>
+     * The default value is {@code false}.
+     *
+     * @param permissionIndexingEnabled whether or not compiled permission indexes should be used.
+     * @since 1.5
+     */
+    public void setPermissionIndexingEnabled(boolean permissionIndexingEnabled) {
+        this.permissionIndexingEnabled = permissionIndexingEnabled;
+        if (!permissionIndexingEnabled) {
+            this.permissionIndexes.clear();
+        }
+    }
+
     public PermissionResolver getPermissionResolver() {
         return permissionResolver;
     }
@@ -383,7 +433,10 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         //cache instance will be non-null if caching is enabled:
         if (cache != null) {
             Object key = getAuthorizationCacheKey(principals);
-            cache.remove(key);
+            AuthorizationInfo removed = cache.remove(key);
+            if (removed != null) {
+                permissionIndexes.remove(removed);
+            }
         }
     }
 
@@ -463,8 +516,36 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         return isPermitted(permission, info);
     }
 
+    /**
+     * Returns the {@link PermissionIndex} compiled from the {@link #getPermissions(AuthorizationInfo) permissions} of
+     * the specified cached {@code AuthorizationInfo}, compiling it on first use, or {@code null} if
+     * {@link #isPermissionIndexingEnabled() indexing} does not apply and permissions should be evaluated directly.
+     *
+     * @param info the AuthorizationInfo whose permissions will be checked
+     * @return the compiled index for the specified info or {@code null} if indexing does not apply.
+     * @since 1.5
+     */
+    protected PermissionIndex getPermissionIndex(AuthorizationInfo info) {
+        if (info == null || !isPermissionIndexingEnabled() || getAvailableAuthorizationCache() == null) {
+            return null;
+        }
+        IndexedPermissions indexed = permissionIndexes.get(info);
+        //AuthorizationInfo implementations may define equality by principals only (e.g. SimpleAccount), so an
+        //index is only ever reused for the exact instance it was compiled from:
+        if (indexed == null || indexed.source != info) {
+            //racing threads may both compile the same info - harmless, as the resulting indexes are equivalent:
+            indexed = new IndexedPermissions(info, new PermissionIndex(getPermissions(info)));
+            permissionIndexes.put(info, indexed);
+        }
+        return indexed.index;
+    }
+
     //visibility changed from private to protected per SHIRO-332
     protected boolean isPermitted(Permission permission, AuthorizationInfo info) {
+        PermissionIndex index = getPermissionIndex(info);
+        if (index != null) {
+            return index.implies(permission);
+        }
         Collection<Permission> perms = getPermissions(info);
         if (perms != null && !perms.isEmpty()) {
             for (Permission perm : perms) {
@@ -549,10 +630,13 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
     }
 
     public void checkPermissions(PrincipalCollection subjectIdentifier, String... permissions) throws AuthorizationException {
-        if (permissions != null) {
+        if (permissions != null && permissions.length > 0) {
+            //resolve all permissions first so the AuthorizationInfo is only looked up once:
+            List<Permission> perms = new ArrayList<Permission>(permissions.length);
             for (String permString : permissions) {
-                checkPermission(subjectIdentifier, permString);
+                perms.add(getPermissionResolver().resolvePermission(permString));
             }
+            checkPermissions(subjectIdentifier, perms);
         }
     }
 
@@ -662,4 +746,18 @@ public abstract class AuthorizingRealm extends AuthenticatingRealm
         super.doClearCache(principals);
         clearCachedAuthorizationInfo(principals);
     }
+
+    /**
+     * Associates a compiled {@link PermissionIndex} with the exact AuthorizationInfo instance it was compiled from.
+     */
+    private static final class IndexedPermissions {
+
+        private final AuthorizationInfo source;
+        private final PermissionIndex index;
+
+        private IndexedPermissions(AuthorizationInfo source, PermissionIndex index) {
+            this.source = source;
+            this.index = index;
+        }
+    }
 }
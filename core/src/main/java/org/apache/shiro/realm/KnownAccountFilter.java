@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.realm;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of the accounts known to a realm, which can tell for certain that an account does <em>not</em>
+ * exist without looking it up in the realm's data source.
+ * <p/>
+ * {@link #mightContain(Object)} never returns {@code false} for an {@link #add(Object) added} account, and returns
+ * {@code true} for an account that was never added with roughly the configured
+ * {@link #setFalsePositiveProbability(double) falsePositiveProbability}, as long as no more than the
+ * {@link #setExpectedAccounts(int) expectedAccounts} have been added.  Accounts cannot be removed: deleted accounts
+ * simply remain possible matches.
+ * <p/>
+ * <b>Every</b> existing account must be added (e.g. on application startup) and every newly created account must be
+ * added as well (see {@link UnknownAccountCache#accountCreated(Object)}), since any account missing from the filter
+ * can no longer authenticate.
+ *
+ * @see UnknownAccountCache#setKnownAccountFilter(KnownAccountFilter)
+ * @since 1.5
+ */
+public class KnownAccountFilter {
+
+    /**
+     * The default {@link #getExpectedAccounts() expectedAccounts}, {@code 100000}.
+     */
+    public static final int DEFAULT_EXPECTED_ACCOUNTS = 100000;
+
+    /**
+     * The default {@link #getFalsePositiveProbability() falsePositiveProbability}, {@code 0.01}.
+     */
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private int expectedAccounts;
+    private double falsePositiveProbability;
+
+    private volatile AtomicLongArray bits;
+    private int bitCount;
+    private int hashCount;
+
+    public KnownAccountFilter() {
+        this(DEFAULT_EXPECTED_ACCOUNTS, DEFAULT_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    public KnownAccountFilter(int expectedAccounts, double falsePositiveProbability) {
+        setExpectedAccounts(expectedAccounts);
+        setFalsePositiveProbability(falsePositiveProbability);
+    }
+
+    public int getExpectedAccounts() {
+        return expectedAccounts;
+    }
+
+    /**
+     * Sets the number of accounts the filter is sized for, {@link #DEFAULT_EXPECTED_ACCOUNTS} by default.  This has
+     * no effect once accounts have been added.
+     *
+     * @param expectedAccounts the number of accounts the filter is sized for.
+     */
+    public void setExpectedAccounts(int expectedAccounts) {
+        if (expectedAccounts < 1) {
+            throw new IllegalArgumentException("expectedAccounts must be at least 1.");
+        }
+        this.expectedAccounts = expectedAccounts;
+    }
+
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * Sets the probability of {@link #mightContain(Object)} returning {@code true} for an unknown account,
+     * {@link #DEFAULT_FALSE_POSITIVE_PROBABILITY} by default.  This has no effect once accounts have been added.
+     *
+     * @param falsePositiveProbability the probability of a false positive, greater than {@code 0} and less than
+     *                                 {@code 1}.
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1 (exclusive).");
+        }
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * Adds the specified account.
+     *
+     * @param key the realm's cache key for the account, typically its username.
+     */
+    public void add(Object key) {
+        AtomicLongArray bits = getBits();
+        int h1 = hash(key);
+        int h2 = mix(h1 ^ 0x5bd1e995);
+        for (int i = 0; i < this.hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Adds all of the specified accounts.
+     *
+     * @param keys the realm's cache keys for the accounts, typically their usernames.
+     */
+    public void addAll(Collection<?> keys) {
+        for (Object key : keys) {
+            add(key);
+        }
+    }
+
+    /**
+     * Returns {@code false} if the specified account was certainly never {@link #add(Object) added}, {@code true} if
+     * it might have been.
+     *
+     * @param key the realm's cache key for the account, typically its username.
+     * @return {@code false} if the account was certainly never added, {@code true} otherwise.
+     */
+    public boolean mightContain(Object key) {
+        AtomicLongArray bits = this.bits;
+        if (bits == null) {
+            return false;
+        }
+        int h1 = hash(key);
+        int h2 = mix(h1 ^ 0x5bd1e995);
+        for (int i = 0; i < this.hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AtomicLongArray getBits() {
+        AtomicLongArray bits = this.bits;
+        if (bits == null) {
+            synchronized (this) {
+                bits = this.bits;
+                if (bits == null) {
+                    //optimal sizing: m = -n ln(p) / (ln 2)^2, k = m/n ln 2
+                    double ln2 = Math.log(2);
+                    long m = (long) Math.ceil(-this.expectedAccounts * Math.log(this.falsePositiveProbability) /
+                            (ln2 * ln2));
+                    m = Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+                    this.bitCount = (int) m;
+                    this.hashCount = Math.max(1, (int) Math.round((double) m / this.expectedAccounts * ln2));
+                    bits = new AtomicLongArray((this.bitCount + 63) >>> 6);
+                    this.bits = bits;
+                }
+            }
+        }
+        return bits;
+    }
+
+    private int index(int hash) {
+        return (hash & Integer.MAX_VALUE) % this.bitCount;
+    }
+
+    private static int hash(Object key) {
+        return mix(key != null ? key.hashCode() : 0);
+    }
+
+    /**
+     * The MurmurHash3 32-bit finalizer, spreading the bits of (often poorly distributed) hash codes.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -110,6 +110,7 @@ public class SimpleAccountRealm extends AuthorizingRealm {
         } finally {
             USERS_LOCK.writeLock().unlock();
         }
+        clearCachedUnknownAccount(username);
     }
 
     protected SimpleRole getRole(String rolename) {
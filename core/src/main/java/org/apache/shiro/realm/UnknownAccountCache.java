@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.realm;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, short-lived cache of accounts that a realm recently failed to find, so that repeated authentication
+ * attempts for unknown accounts (e.g. credential stuffing with random usernames) do not reach the realm's data source
+ * every time.
+ * <p/>
+ * An {@link AuthenticatingRealm#setUnknownAccountCache(UnknownAccountCache) AuthenticatingRealm} records an account as
+ * unknown when its {@code doGetAuthenticationInfo} returns {@code null} or throws an
+ * {@link org.apache.shiro.authc.UnknownAccountException UnknownAccountException}.  Until the entry expires after the
+ * {@link #setTimeToLive(long) timeToLive}, further attempts for that account fail without a lookup.  When the cache is
+ * full, arbitrary entries are evicted to make room for new ones.
+ * <p/>
+ * Optionally, a {@link #setKnownAccountFilter(KnownAccountFilter) knownAccountFilter} of all existing accounts can be
+ * configured, in which case accounts that certainly do not exist fail without a lookup even on their first attempt.
+ * <p/>
+ * Applications creating accounts at runtime must call {@link #accountCreated(Object) accountCreated} (or
+ * {@link AuthenticatingRealm#clearCachedUnknownAccount(Object)}), so that new accounts can authenticate immediately.
+ * Each realm needs its own instance.
+ *
+ * @since 1.5
+ */
+public class UnknownAccountCache {
+
+    /**
+     * The default {@link #getTimeToLive() timeToLive}, {@code 30000} milliseconds.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 30000;
+
+    /**
+     * The default {@link #getMaxSize() maxSize}, {@code 10000} entries.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final ConcurrentMap<Object, Long> expiryTimes; //key: account cache key, value: expiry time
+    private final AtomicLong hitCount;
+
+    private long timeToLive;
+    private int maxSize;
+    private KnownAccountFilter knownAccountFilter;
+
+    public UnknownAccountCache() {
+        this.expiryTimes = new ConcurrentHashMap<Object, Long>();
+        this.hitCount = new AtomicLong();
+        this.timeToLive = DEFAULT_TIME_TO_LIVE;
+        this.maxSize = DEFAULT_MAX_SIZE;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the time in milliseconds that an account is considered unknown without looking it up again,
+     * {@link #DEFAULT_TIME_TO_LIVE} by default.
+     *
+     * @param timeToLive the time in milliseconds that an account is considered unknown.
+     */
+    public void setTimeToLive(long timeToLive) {
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("timeToLive must be greater than zero.");
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of unknown accounts remembered, {@link #DEFAULT_MAX_SIZE} by default.
+     *
+     * @param maxSize the maximum number of unknown accounts remembered.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1.");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public KnownAccountFilter getKnownAccountFilter() {
+        return knownAccountFilter;
+    }
+
+    /**
+     * Sets a filter of all existing accounts, which is checked before looking up accounts that are not (or no longer)
+     * cached as unknown.  The default is {@code null}.  <b>Every</b> existing account must have been added to the
+     * filter, otherwise it cannot authenticate.
+     *
+     * @param knownAccountFilter a filter of all existing accounts, or {@code null}.
+     */
+    public void setKnownAccountFilter(KnownAccountFilter knownAccountFilter) {
+        this.knownAccountFilter = knownAccountFilter;
+    }
+
+    /**
+     * Returns {@code true} if the specified account is known not to exist, in which case it need not be looked up.
+     *
+     * @param key the realm's cache key for the account, typically its username.
+     * @return {@code true} if the specified account is known not to exist.
+     */
+    public boolean isUnknown(Object key) {
+        if (key == null) {
+            return false;
+        }
+        KnownAccountFilter filter = this.knownAccountFilter;
+        if (filter != null && !filter.mightContain(key)) {
+            this.hitCount.incrementAndGet();
+            return true;
+        }
+        Long expiryTime = this.expiryTimes.get(key);
+        if (expiryTime == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() >= expiryTime) {
+            this.expiryTimes.remove(key, expiryTime);
+            return false;
+        }
+        this.hitCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records that the specified account does not exist.
+     *
+     * @param key the realm's cache key for the account, typically its username.
+     */
+    public void put(Object key) {
+        if (key == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (this.expiryTimes.size() >= this.maxSize && !this.expiryTimes.containsKey(key)) {
+            makeRoom();
+        }
+        this.expiryTimes.put(key, now + this.timeToLive);
+    }
+
+    /**
+     * Records that the specified account has been created: it is no longer considered unknown, and it is added to
+     * the {@link #getKnownAccountFilter() knownAccountFilter}, if any.
+     *
+     * @param key the realm's cache key for the account, typically its username.
+     */
+    public void accountCreated(Object key) {
+        if (key == null) {
+            return;
+        }
+        KnownAccountFilter filter = this.knownAccountFilter;
+        if (filter != null) {
+            filter.add(key);
+        }
+        this.expiryTimes.remove(key);
+    }
+
+    /**
+     * Forgets all unknown accounts.  The {@link #getKnownAccountFilter() knownAccountFilter} is not affected.
+     */
+    public void clear() {
+        this.expiryTimes.clear();
+    }
+
+    /**
+     * Returns the number of accounts currently remembered as unknown, including any that have expired but not been
+     * purged yet.
+     *
+     * @return the number of accounts currently remembered as unknown.
+     */
+    public int size() {
+        return this.expiryTimes.size();
+    }
+
+    /**
+     * Returns the number of lookups avoided, i.e. how often {@link #isUnknown(Object)} returned {@code true}.
+     *
+     * @return the number of lookups avoided.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Evicts arbitrary entries until there is room for another one.  Expired entries are only purged when looked up,
+     * so that a full cache under attack costs no more than a few removals per new entry.
+     */
+    private void makeRoom() {
+        Iterator<Object> i = this.expiryTimes.keySet().iterator();
+        while (this.expiryTimes.size() >= this.maxSize && i.hasNext()) {
+            i.next();
+            i.remove();
+        }
+    }
+}
@@ -30,19 +30,30 @@ import org.apache.shiro.util.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Abstract implementation supporting the {@link NativeSessionManager NativeSessionManager} interface, supporting
  * {@link SessionListener SessionListener}s and application of the
  * {@link #getGlobalSessionTimeout() globalSessionTimeout}.
+ * <p/>
+ * If {@link #setWorkingCopyEnabled(boolean) workingCopyEnabled}, this class also supports thread-bound
+ * {@link WorkingCopySessionManager working copy scopes}: while a scope is active, each session is looked up at most
+ * once and the {@link #onChange(Session) onChange} calls caused by attribute, timeout and last access time changes are
+ * coalesced into a single call when the scope ends.
  *
  * @since 1.0
  */
-public abstract class AbstractNativeSessionManager extends AbstractSessionManager implements NativeSessionManager, EventBusAware {
+public abstract class AbstractNativeSessionManager extends AbstractSessionManager
+        implements NativeSessionManager, WorkingCopySessionManager, EventBusAware {
 
     private static final Logger log = LoggerFactory.getLogger(AbstractSessionManager.class);
 
@@ -50,8 +61,14 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
 
     private Collection<SessionListener> listeners;
 
+    private boolean workingCopyEnabled;
+
+    private final ThreadLocal<Map<Serializable, SessionWorkingCopy>> workingCopies =
+            new ThreadLocal<Map<Serializable, SessionWorkingCopy>>();
+
     public AbstractNativeSessionManager() {
         this.listeners = new ArrayList<SessionListener>();
+        this.workingCopyEnabled = false;
     }
 
     public void setSessionListeners(Collection<SessionListener> listeners) {
@@ -83,6 +100,32 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         this.eventBus = eventBus;
     }
 
+    /**
+     * Returns {@code true} if {@link #beginWorkingCopyScope() working copy scopes} are supported, {@code false}
+     * otherwise.  The default is {@code false}.
+     * <p/>
+     * While a scope is active, changes to a session are only written to the underlying data store when the scope
+     * ends, so other threads that read the session from the data store (rather than sharing the same instance) will
+     * not see them until then.
+     *
+     * @return {@code true} if working copy scopes are supported, {@code false} otherwise.
+     * @since 1.5
+     */
+    public boolean isWorkingCopyEnabled() {
+        return workingCopyEnabled;
+    }
+
+    /**
+     * Sets whether or not {@link #beginWorkingCopyScope() working copy scopes} are supported.  The default is
+     * {@code false}.
+     *
+     * @param workingCopyEnabled whether or not working copy scopes are supported.
+     * @since 1.5
+     */
+    public void setWorkingCopyEnabled(boolean workingCopyEnabled) {
+        this.workingCopyEnabled = workingCopyEnabled;
+    }
+
     /**
      * Publishes events on the event bus if the event bus is non-null, otherwise does nothing.
      *
@@ -99,6 +142,7 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         Session session = createSession(context);
         applyGlobalSessionTimeout(session);
         onStart(session, context);
+        bindWorkingCopy(session);
         notifyStart(session);
         //Don't expose the EIS-tier Session object to the client-tier:
         return createExposedSession(session, context);
@@ -145,7 +189,13 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         if (key == null) {
             throw new NullPointerException("SessionKey argument cannot be null.");
         }
-        return doGetSession(key);
+        SessionWorkingCopy copy = getWorkingCopy(key.getSessionId());
+        if (copy != null) {
+            return copy.session;
+        }
+        Session session = doGetSession(key);
+        bindWorkingCopy(session);
+        return session;
     }
 
     private Session lookupRequiredSession(SessionKey key) throws SessionException {
@@ -224,13 +274,23 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
     public void setTimeout(SessionKey key, long maxIdleTimeInMillis) throws InvalidSessionException {
         Session s = lookupRequiredSession(key);
         s.setTimeout(maxIdleTimeInMillis);
-        onChange(s);
+        SessionWorkingCopy copy = getWorkingCopy(s);
+        if (copy != null) {
+            copy.changed = true;
+        } else {
+            onChange(s);
+        }
     }
 
     public void touch(SessionKey key) throws InvalidSessionException {
         Session s = lookupRequiredSession(key);
         s.touch();
-        onChange(s);
+        SessionWorkingCopy copy = getWorkingCopy(s);
+        if (copy != null) {
+            copy.lastAccessTimeChanged = true;
+        } else {
+            onTouch(s);
+        }
     }
 
     public String getHost(SessionKey key) {
@@ -255,7 +315,7 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         } else {
             Session s = lookupRequiredSession(sessionKey);
             s.setAttribute(attributeKey, value);
-            onChange(s);
+            onAttributeChange(s, attributeKey);
         }
     }
 
@@ -263,7 +323,7 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
         Session s = lookupRequiredSession(sessionKey);
         Object removed = s.removeAttribute(attributeKey);
         if (removed != null) {
-            onChange(s);
+            onAttributeChange(s, attributeKey);
         }
         return removed;
     }
@@ -279,6 +339,8 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
 
     public void stop(SessionKey key) throws InvalidSessionException {
         Session session = lookupRequiredSession(key);
+        //a stopped session is written (and possibly deleted) immediately; it must not be written again later:
+        unbindWorkingCopy(session);
         try {
             if (log.isDebugEnabled()) {
                 log.debug("Stopping session with id [" + session.getId() + "]");
@@ -309,4 +371,110 @@ public abstract class AbstractNativeSessionManager extends AbstractSessionManage
 
     protected void onChange(Session s) {
     }
+
+    /**
+     * Template method invoked when only a session's {@link Session#getLastAccessTime() lastAccessTime} has changed,
+     * typically because it was {@link Session#touch() touched}.  The default implementation simply calls
+     * {@link #onChange(Session) onChange}; subclasses may persist the last access time on its own instead.
+     *
+     * @param s the touched session.
+     * @since 1.5
+     */
+    protected void onTouch(Session s) {
+        onChange(s);
+    }
+
+    public boolean beginWorkingCopyScope() {
+        if (!isWorkingCopyEnabled() || workingCopies.get() != null) {
+            return false;
+        }
+        workingCopies.set(new HashMap<Serializable, SessionWorkingCopy>());
+        return true;
+    }
+
+    public void endWorkingCopyScope() {
+        Map<Serializable, SessionWorkingCopy> copies = workingCopies.get();
+        workingCopies.remove();
+        if (copies == null) {
+            return;
+        }
+        RuntimeException failure = null;
+        for (SessionWorkingCopy copy : copies.values()) {
+            if (!copy.isDirty()) {
+                continue;
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("Writing working copy of session [" + copy.session.getId() + "] (changed attributes: " +
+                        copy.changedAttributes + ", last access time changed: " + copy.lastAccessTimeChanged + ")");
+            }
+            try {
+                if (copy.changed || !copy.changedAttributes.isEmpty()) {
+                    onChange(copy.session);
+                } else {
+                    onTouch(copy.session);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Unable to write working copy of session [" + copy.session.getId() + "].", e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void onAttributeChange(Session s, Object attributeKey) {
+        SessionWorkingCopy copy = getWorkingCopy(s);
+        if (copy != null) {
+            copy.changedAttributes.add(attributeKey);
+        } else {
+            onChange(s);
+        }
+    }
+
+    private SessionWorkingCopy getWorkingCopy(Serializable sessionId) {
+        Map<Serializable, SessionWorkingCopy> copies = sessionId != null ? workingCopies.get() : null;
+        return copies != null ? copies.get(sessionId) : null;
+    }
+
+    private SessionWorkingCopy getWorkingCopy(Session session) {
+        SessionWorkingCopy copy = getWorkingCopy(session.getId());
+        //only defer changes made to the very instance that will be written when the scope ends:
+        return copy != null && copy.session == session ? copy : null;
+    }
+
+    private void bindWorkingCopy(Session session) {
+        Map<Serializable, SessionWorkingCopy> copies = workingCopies.get();
+        if (copies != null && session != null && session.getId() != null) {
+            copies.put(session.getId(), new SessionWorkingCopy(session));
+        }
+    }
+
+    private void unbindWorkingCopy(Session session) {
+        Map<Serializable, SessionWorkingCopy> copies = workingCopies.get();
+        if (copies != null) {
+            copies.remove(session.getId());
+        }
+    }
+
+    /**
+     * A session looked up during a working copy scope, along with the changes made to it since.
+     */
+    private static final class SessionWorkingCopy {
+
+        private final Session session;
+        private final Set<Object> changedAttributes = new HashSet<Object>();
+        private boolean lastAccessTimeChanged;
+        private boolean changed;
+
+        private SessionWorkingCopy(Session session) {
+            this.session = session;
+        }
+
+        private boolean isDirty() {
+            return changed || lastAccessTimeChanged || !changedAttributes.isEmpty();
+        }
+    }
 }
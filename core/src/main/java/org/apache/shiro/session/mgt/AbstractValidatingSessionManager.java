@@ -28,7 +28,18 @@ import org.apache.shiro.util.LifecycleUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -49,6 +60,23 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
      */
     public static final long DEFAULT_SESSION_VALIDATION_INTERVAL = MILLIS_PER_HOUR;
 
+    /**
+     * The default maximum number of sessions validated as a single batch, see
+     * {@link #setSessionValidationBatchSize(int)}.
+     *
+     * @since 1.5
+     */
+    public static final int DEFAULT_SESSION_VALIDATION_BATCH_SIZE = 1000;
+
+    /**
+     * The default interval at which all active sessions are validated even though a
+     * {@link #setSessionExpiryIndex(SessionExpiryIndex) sessionExpiryIndex} is used (24 hours), see
+     * {@link #setSessionExpiryIndexRescanInterval(long)}.
+     *
+     * @since 1.5
+     */
+    public static final long DEFAULT_SESSION_EXPIRY_INDEX_RESCAN_INTERVAL = 24 * MILLIS_PER_HOUR;
+
     protected boolean sessionValidationSchedulerEnabled;
 
     /**
@@ -58,9 +86,31 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
 
     protected long sessionValidationInterval;
 
+    private SessionExpiryIndex sessionExpiryIndex;
+
+    private int sessionValidationBatchSize;
+
+    private long sessionExpiryIndexRescanInterval;
+
+    /**
+     * The start time of the last full validation run that populated the expiry index with all active sessions, or
+     * {@code 0} if the index has not been (completely) populated.
+     */
+    private volatile long sessionExpiryIndexSeedTime;
+
+    private volatile SessionValidationMetrics lastValidationMetrics;
+
+    /**
+     * The invalidation permit of the session being validated by the current thread as part of a validation run that
+     * limits concurrent invalidations.
+     */
+    private final ThreadLocal<InvalidationPermit> invalidationPermit = new ThreadLocal<InvalidationPermit>();
+
     public AbstractValidatingSessionManager() {
         this.sessionValidationSchedulerEnabled = true;
         this.sessionValidationInterval = DEFAULT_SESSION_VALIDATION_INTERVAL;
+        this.sessionValidationBatchSize = DEFAULT_SESSION_VALIDATION_BATCH_SIZE;
+        this.sessionExpiryIndexRescanInterval = DEFAULT_SESSION_EXPIRY_INDEX_RESCAN_INTERVAL;
     }
 
     public boolean isSessionValidationSchedulerEnabled() {
@@ -109,6 +159,146 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
         return sessionValidationInterval;
     }
 
+    /**
+     * Returns the index of session expiry times used to validate only those sessions that can actually have expired,
+     * or {@code null} (the default) if every active session is validated on each
+     * {@link #validateSessions() validation run}.
+     *
+     * @return the index of session expiry times, or {@code null} if every active session is validated on each run.
+     * @since 1.5
+     */
+    public SessionExpiryIndex getSessionExpiryIndex() {
+        return sessionExpiryIndex;
+    }
+
+    /**
+     * Sets the index of session expiry times used to validate only those sessions that can actually have expired.
+     * <p/>
+     * The first {@link #validateSessions() validation run} after the index is set still validates all
+     * {@link #getActiveSessions() active sessions}, indexing every session that is still valid.  From then on, the
+     * index is kept up to date as sessions are created, touched and deleted, and each run only polls the sessions whose
+     * indexed expiry time has passed, in batches of {@link #getSessionValidationBatchSize() sessionValidationBatchSize}.
+     * <p/>
+     * Sessions created through another node of a cluster sharing the same session data store are not indexed by this
+     * node, and sessions touched through another node are not re-indexed until their indexed expiry time passes and
+     * they are found to still be valid.  All active sessions are therefore validated (and indexed) again every
+     * {@link #setSessionExpiryIndexRescanInterval(long) sessionExpiryIndexRescanInterval}, and by the run following a
+     * run that failed or was cancelled.
+     *
+     * @param sessionExpiryIndex the index of session expiry times, or {@code null} to validate every active session on
+     *                           each run.
+     * @since 1.5
+     */
+    public void setSessionExpiryIndex(SessionExpiryIndex sessionExpiryIndex) {
+        this.sessionExpiryIndex = sessionExpiryIndex;
+        this.sessionExpiryIndexSeedTime = 0;
+    }
+
+    /**
+     * Returns the interval in milliseconds at which a validation run validates all active sessions even though a
+     * {@link #getSessionExpiryIndex() sessionExpiryIndex} is used.  The default is
+     * {@link #DEFAULT_SESSION_EXPIRY_INDEX_RESCAN_INTERVAL}.
+     *
+     * @return the interval in milliseconds at which all active sessions are validated despite the expiry index.
+     * @since 1.5
+     */
+    public long getSessionExpiryIndexRescanInterval() {
+        return sessionExpiryIndexRescanInterval;
+    }
+
+    /**
+     * Sets the interval in milliseconds at which a validation run validates all active sessions even though a
+     * {@link #getSessionExpiryIndex() sessionExpiryIndex} is used, picking up sessions the index does not know about,
+     * such as sessions created through other nodes of a cluster.  A value of zero or less disables these periodic
+     * full runs.
+     *
+     * @param sessionExpiryIndexRescanInterval the interval in milliseconds at which all active sessions are validated
+     *                                         despite the expiry index.
+     * @since 1.5
+     */
+    public void setSessionExpiryIndexRescanInterval(long sessionExpiryIndexRescanInterval) {
+        this.sessionExpiryIndexRescanInterval = sessionExpiryIndexRescanInterval;
+    }
+
+    /**
+     * Returns the metrics of the last completed validation run, whether serial ({@link #validateSessions()}) or
+     * {@link #validateSessions(Executor, int, int) parallel}, or {@code null} if no run has completed yet.
+     *
+     * @return the metrics of the last completed validation run, or {@code null}.
+     * @since 1.5
+     */
+    public SessionValidationMetrics getLastValidationMetrics() {
+        return lastValidationMetrics;
+    }
+
+    /**
+     * Returns the maximum number of sessions validated as a single batch, i.e. polled from the
+     * {@link #getSessionExpiryIndex() sessionExpiryIndex} at once, or validated by a single task during
+     * {@link #validateSessions(Executor, int, int) parallel validation}.  The default is
+     * {@link #DEFAULT_SESSION_VALIDATION_BATCH_SIZE}.
+     *
+     * @return the maximum number of sessions validated as a single batch.
+     * @since 1.5
+     */
+    public int getSessionValidationBatchSize() {
+        return sessionValidationBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of sessions validated as a single batch, i.e. polled from the
+     * {@link #getSessionExpiryIndex() sessionExpiryIndex} at once, or validated by a single task during
+     * {@link #validateSessions(Executor, int, int) parallel validation}.
+     *
+     * @param sessionValidationBatchSize the maximum number of sessions validated as a single batch, must be greater
+     *                                   than zero.
+     * @since 1.5
+     */
+    public void setSessionValidationBatchSize(int sessionValidationBatchSize) {
+        if (sessionValidationBatchSize <= 0) {
+            throw new IllegalArgumentException("sessionValidationBatchSize must be greater than zero.");
+        }
+        this.sessionValidationBatchSize = sessionValidationBatchSize;
+    }
+
+    /**
+     * Updates the {@link #getSessionExpiryIndex() sessionExpiryIndex}, if any, with the specified session's current
+     * expiry time.  Sessions that are no longer valid or never expire are removed from the index instead.
+     * <p/>
+     * Subclasses must call this method whenever a session is created, or its last access time or timeout changes.
+     *
+     * @param session the session whose expiry time may have changed.
+     * @since 1.5
+     */
+    protected void updateSessionExpiryIndex(Session session) {
+        SessionExpiryIndex index = getSessionExpiryIndex();
+        if (index == null || session == null || session.getId() == null) {
+            return;
+        }
+        long timeout = getTimeout(session);
+        Date lastAccessTime = session.getLastAccessTime();
+        if (timeout <= 0 || lastAccessTime == null ||
+                (session instanceof ValidatingSession && !((ValidatingSession) session).isValid())) {
+            index.remove(session.getId());
+        } else {
+            index.put(session.getId(), lastAccessTime.getTime() + timeout);
+        }
+    }
+
+    /**
+     * Removes the specified session from the {@link #getSessionExpiryIndex() sessionExpiryIndex}, if any.
+     * <p/>
+     * Subclasses must call this method whenever a session is deleted.
+     *
+     * @param session the deleted session.
+     * @since 1.5
+     */
+    protected void removeFromSessionExpiryIndex(Session session) {
+        SessionExpiryIndex index = getSessionExpiryIndex();
+        if (index != null && session != null && session.getId() != null) {
+            index.remove(session.getId());
+        }
+    }
+
     @Override
     protected final Session doGetSession(final SessionKey key) throws InvalidSessionException {
         enableSessionValidationIfNecessary();
@@ -151,6 +341,7 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
     }
 
     protected void onExpiration(Session s, ExpiredSessionException ese, SessionKey key) {
+        acquireInvalidationPermit();
         log.trace("Session with id [{}] has expired.", s.getId());
         try {
             onExpiration(s);
@@ -172,6 +363,7 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
             onExpiration(s, (ExpiredSessionException) ise, key);
             return;
         }
+        acquireInvalidationPermit();
         log.trace("Session with id [{}] is invalid.", s.getId());
         try {
             onStop(s);
@@ -271,41 +463,295 @@ public abstract class AbstractValidatingSessionManager extends AbstractNativeSes
      * @see ValidatingSessionManager#validateSessions()
      */
     public void validateSessions() {
+        validateSessions(null, 0, 0);
+    }
+
+    /**
+     * Validates sessions exactly like {@link #validateSessions()}, optionally spreading the work over an
+     * {@code Executor}, and returns the metrics of the run.
+     * <p/>
+     * The sessions to validate (all {@link #getActiveSessions() active sessions}, or only those due for validation if
+     * a {@link #getSessionExpiryIndex() sessionExpiryIndex} is used) are partitioned into chunks of
+     * {@link #getSessionValidationBatchSize() sessionValidationBatchSize} sessions, and each chunk is validated by a
+     * task submitted to the {@code executor}.  At most {@code maxPendingChunks} tasks are submitted but not yet
+     * finished at any one time; once that many are pending, the calling thread blocks until one finishes.  Should the
+     * executor reject a task while not shut down, it is run on the calling thread instead.
+     * <p/>
+     * Stopping an invalid session typically deletes it from the underlying data store and notifies
+     * {@link org.apache.shiro.session.SessionListener SessionListener}s.  {@code maxConcurrentInvalidations} limits how
+     * many sessions are being stopped at once across all tasks, to avoid overloading the data store.
+     * <p/>
+     * This method returns once every session has been validated, or once the run has been cancelled because the
+     * calling thread was interrupted or the executor (if an {@code ExecutorService}) was shut down.
+     *
+     * @param executor                   the executor to validate chunks of sessions, or {@code null} to validate all
+     *                                   sessions on the calling thread.
+     * @param maxPendingChunks           the maximum number of chunks submitted to the executor but not yet validated;
+     *                                   ignored if {@code executor} is {@code null}, and treated as {@code 1} if less.
+     * @param maxConcurrentInvalidations the maximum number of invalid sessions being stopped at once, or zero or less
+     *                                   for no limit.
+     * @return the metrics of this validation run.
+     * @since 1.5
+     */
+    public SessionValidationMetrics validateSessions(Executor executor, int maxPendingChunks,
+                                                     int maxConcurrentInvalidations) {
+        long startTime = System.currentTimeMillis();
+        SessionExpiryIndex index = getSessionExpiryIndex();
+        long seedTime = this.sessionExpiryIndexSeedTime;
+        long rescanInterval = getSessionExpiryIndexRescanInterval();
+        boolean incremental = index != null && seedTime > 0 &&
+                (rescanInterval <= 0 || startTime - seedTime < rescanInterval);
+
         if (log.isInfoEnabled()) {
-            log.info("Validating all active sessions...");
-        }
-
-        int invalidCount = 0;
-
-        Collection<Session> activeSessions = getActiveSessions();
-
-        if (activeSessions != null && !activeSessions.isEmpty()) {
-            for (Session s : activeSessions) {
-                try {
-                    //simulate a lookup key to satisfy the method signature.
-                    //this could probably stand to be cleaned up in future versions:
-                    SessionKey key = new DefaultSessionKey(s.getId());
-                    validate(s, key);
-                } catch (InvalidSessionException e) {
-                    if (log.isDebugEnabled()) {
-                        boolean expired = (e instanceof ExpiredSessionException);
-                        String msg = "Invalidated session with id [" + s.getId() + "]" +
-                                (expired ? " (expired)" : " (stopped)");
-                        log.debug(msg);
+            log.info(incremental ? "Validating sessions due for validation..." : "Validating all active sessions...");
+        }
+
+        int batchSize = getSessionValidationBatchSize();
+        ValidationRun run = new ValidationRun(executor, maxPendingChunks, maxConcurrentInvalidations, startTime,
+                incremental ? index : null);
+        boolean completed = false;
+        try {
+            try {
+                if (incremental) {
+                    List<Serializable> ids;
+                    do {
+                        ids = index.pollExpired(startTime, batchSize);
+                        if (!ids.isEmpty()) {
+                            run.submit(null, ids);
+                        }
+                    } while (ids.size() >= batchSize);
+                } else {
+                    Collection<Session> activeSessions = getActiveSessions();
+                    if (activeSessions != null && !activeSessions.isEmpty()) {
+                        List<Session> chunk = new ArrayList<Session>(Math.min(batchSize, activeSessions.size()));
+                        for (Session s : activeSessions) {
+                            chunk.add(s);
+                            if (chunk.size() == batchSize) {
+                                run.submit(chunk, null);
+                                chunk = new ArrayList<Session>(batchSize);
+                            }
+                        }
+                        if (!chunk.isEmpty()) {
+                            run.submit(chunk, null);
+                        }
                     }
-                    invalidCount++;
                 }
+            } finally {
+                run.awaitCompletion();
+            }
+            completed = !run.failed;
+        } catch (CancellationException e) {
+            log.info("Session validation was cancelled.");
+        } finally {
+            if (index != null) {
+                //sessions polled from the index by an incomplete run may no longer be indexed, so the next run
+                //validates all active sessions:
+                this.sessionExpiryIndexSeedTime = !completed ? 0 : incremental ? seedTime : startTime;
             }
         }
 
+        SessionValidationMetrics metrics = new SessionValidationMetrics(run.scanned.get(), run.expired.get(),
+                run.stopped.get(), System.currentTimeMillis() - startTime);
         if (log.isInfoEnabled()) {
             String msg = "Finished session validation.";
-            if (invalidCount > 0) {
-                msg += "  [" + invalidCount + "] sessions were stopped.";
+            if (metrics.getInvalidCount() > 0) {
+                msg += "  [" + metrics.getInvalidCount() + "] sessions were stopped.";
             } else {
                 msg += "  No sessions were stopped.";
             }
-            log.info(msg);
+            log.info(msg + "  " + metrics);
+        }
+        this.lastValidationMetrics = metrics;
+        return metrics;
+    }
+
+    /**
+     * Validates a single session as part of a validation run via {@link #validate(Session, SessionKey)}, counting the
+     * outcome.  Stopping an invalid session is subject to the run's invalidation limit.
+     */
+    private void validate(Session s, SessionKey key, ValidationRun run) {
+        run.scanned.incrementAndGet();
+        InvalidationPermit permit = run.invalidations != null ? new InvalidationPermit(run.invalidations) : null;
+        if (permit != null) {
+            invalidationPermit.set(permit);
+        }
+        try {
+            validate(s, key);
+        } catch (InvalidSessionException e) {
+            boolean expired = (e instanceof ExpiredSessionException);
+            if (expired) {
+                run.expired.incrementAndGet();
+            } else {
+                run.stopped.incrementAndGet();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Invalidated session with id [" + s.getId() + "]" + (expired ? " (expired)" : " (stopped)"));
+            }
+            return;
+        } finally {
+            if (permit != null) {
+                invalidationPermit.remove();
+                permit.release();
+            }
+        }
+
+        if (run.index == null) {
+            updateSessionExpiryIndex(s);
+            return;
+        }
+        //polled from the index but still valid - re-index, never at or before the start of the run to guarantee the
+        //run terminates:
+        long timeout = getTimeout(s);
+        Date lastAccessTime = s.getLastAccessTime();
+        if (timeout > 0 && lastAccessTime != null) {
+            run.index.put(s.getId(), Math.max(lastAccessTime.getTime() + timeout, run.startTime + 1));
+        }
+    }
+
+    /**
+     * Waits, if validating a session as part of a validation run limiting concurrent invalidations, until the
+     * session may be stopped.
+     */
+    private void acquireInvalidationPermit() {
+        InvalidationPermit permit = invalidationPermit.get();
+        if (permit != null) {
+            permit.acquire();
+        }
+    }
+
+    private void validateChunk(List<Session> sessions, List<Serializable> ids, ValidationRun run) {
+        if (sessions != null) {
+            for (Session s : sessions) {
+                //simulate a lookup key to satisfy the method signature.
+                //this could probably stand to be cleaned up in future versions:
+                validate(s, new DefaultSessionKey(s.getId()), run);
+            }
+            return;
+        }
+        for (Serializable id : ids) {
+            SessionKey key = new DefaultSessionKey(id);
+            Session s;
+            try {
+                s = retrieveSession(key);
+            } catch (UnknownSessionException e) {
+                //already deleted, nothing to validate:
+                continue;
+            }
+            if (s != null) {
+                validate(s, key, run);
+            }
+        }
+    }
+
+    /**
+     * The state of a single {@link #validateSessions(Executor, int, int) validation run}.
+     */
+    private final class ValidationRun {
+
+        private final Executor executor;
+        private final Semaphore pendingChunks;
+        private final int maxPendingChunks;
+        private final Semaphore invalidations;
+        private final long startTime;
+        private final SessionExpiryIndex index;
+
+        private final AtomicInteger scanned = new AtomicInteger();
+        private final AtomicInteger expired = new AtomicInteger();
+        private final AtomicInteger stopped = new AtomicInteger();
+        private volatile boolean failed;
+
+        private ValidationRun(Executor executor, int maxPendingChunks, int maxConcurrentInvalidations, long startTime,
+                              SessionExpiryIndex index) {
+            this.executor = executor;
+            this.maxPendingChunks = Math.max(maxPendingChunks, 1);
+            this.pendingChunks = executor != null ? new Semaphore(this.maxPendingChunks) : null;
+            this.invalidations = maxConcurrentInvalidations > 0 ? new Semaphore(maxConcurrentInvalidations) : null;
+            this.startTime = startTime;
+            this.index = index;
+        }
+
+        private void submit(final List<Session> sessions, final List<Serializable> ids) {
+            if (executor == null) {
+                validateChunk(sessions, ids, this);
+                return;
+            }
+            acquirePendingChunks(1);
+            Runnable task = new Runnable() {
+                public void run() {
+                    try {
+                        validateChunk(sessions, ids, ValidationRun.this);
+                    } catch (RuntimeException e) {
+                        failed = true;
+                        log.error("Unable to validate a chunk of sessions.  Continuing with the remaining chunks.", e);
+                    } finally {
+                        pendingChunks.release();
+                    }
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (isExecutorShutdown()) {
+                    pendingChunks.release();
+                    throw new CancellationException("The session validation executor has been shut down.");
+                }
+                task.run();
+            }
+        }
+
+        private boolean isExecutorShutdown() {
+            return executor instanceof ExecutorService && ((ExecutorService) executor).isShutdown();
+        }
+
+        private void awaitCompletion() {
+            if (pendingChunks != null) {
+                acquirePendingChunks(maxPendingChunks);
+                pendingChunks.release(maxPendingChunks);
+            }
+        }
+
+        /**
+         * Waits for the specified number of chunk permits.  Chunks dropped by an executor that is shut down never
+         * release theirs, so a shut down executor or an interrupt cancels the run instead of waiting forever.
+         */
+        private void acquirePendingChunks(int permits) {
+            try {
+                while (!pendingChunks.tryAcquire(permits, 1, TimeUnit.SECONDS)) {
+                    if (isExecutorShutdown()) {
+                        throw new CancellationException("The session validation executor has been shut down.");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for session validation tasks.");
+            }
+        }
+    }
+
+    /**
+     * A permit, acquired at most once, to stop an invalid session during a validation run.
+     */
+    private static final class InvalidationPermit {
+
+        private final Semaphore invalidations;
+        private boolean acquired;
+
+        private InvalidationPermit(Semaphore invalidations) {
+            this.invalidations = invalidations;
+        }
+
+        private void acquire() {
+            if (!acquired) {
+                invalidations.acquireUninterruptibly();
+                acquired = true;
+            }
+        }
+
+        private void release() {
+            if (acquired) {
+                invalidations.release();
+                acquired = false;
+            }
         }
     }
 
@@ -0,0 +1,487 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import org.apache.shiro.session.ExpiredSessionException;
+import org.apache.shiro.session.InvalidSessionException;
+import org.apache.shiro.session.StoppedSessionException;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A memory-compact {@link ValidatingSession} implementation, intended for applications that keep very large numbers of
+ * sessions in memory (for example in a {@link org.apache.shiro.session.mgt.eis.MemorySessionDAO MemorySessionDAO}).
+ * <p/>
+ * Functionally, instances behave like {@link SimpleSession}s, but their state is laid out differently:
+ * <ul>
+ * <li>timestamps are kept as primitive {@code long}s; {@code Date} instances are only created by the getters,</li>
+ * <li>attributes are kept in a single flat array of alternating keys and values (an open-addressing hash table)
+ * instead of a lazily created {@code HashMap} with one entry object per attribute,</li>
+ * <li>{@code String} attribute keys are shared between sessions: equal keys are replaced by a single canonical
+ * instance (up to a bounded number of distinct keys), so that each session does not retain its own copy.</li>
+ * </ul>
+ * Use a {@link CompactSessionFactory} to have a {@link DefaultSessionManager} create instances of this class.
+ * <p/>
+ * Like {@code SimpleSession}, this class is not thread-safe by itself.  Two instances are equal if they have equal
+ * {@link #getId() id}s; instances without an id are only equal to themselves.
+ *
+ * @see CompactSessionFactory
+ * @since 1.5
+ */
+public class CompactSession implements ValidatingSession, Serializable {
+
+    private static final long serialVersionUID = 2580914567410293811L;
+
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+
+    /**
+     * Marks an unset ({@code null}) timestamp.
+     */
+    private static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * Stands in for a {@code null} attribute key in the attribute table.
+     */
+    private static final Object NULL_KEY = new NullKey();
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static final int MAX_SHARED_KEYS = 1024;
+    private static final ConcurrentMap<String, String> SHARED_KEYS = new ConcurrentHashMap<String, String>();
+
+    private Serializable id;
+    private long startTimestamp;
+    private long stopTimestamp = NONE;
+    private long lastAccessTime;
+    private long timeout;
+    private boolean expired;
+    private String host;
+
+    /**
+     * Alternating attribute keys and values, indexed by {@code 2 * slot}.  The number of slots is always a power of two.
+     * Serialized explicitly, since slots depend on key hash codes, which need not be stable across JVMs.
+     */
+    private transient Object[] attributes;
+    private transient int attributeCount;
+
+    public CompactSession() {
+        this.timeout = DefaultSessionManager.DEFAULT_GLOBAL_SESSION_TIMEOUT;
+        this.startTimestamp = System.currentTimeMillis();
+        this.lastAccessTime = this.startTimestamp;
+    }
+
+    public CompactSession(String host) {
+        this();
+        this.host = host;
+    }
+
+    private static Date toDate(long time) {
+        return time != NONE ? new Date(time) : null;
+    }
+
+    private static long toTime(Date date) {
+        return date != null ? date.getTime() : NONE;
+    }
+
+    public Serializable getId() {
+        return this.id;
+    }
+
+    public void setId(Serializable id) {
+        this.id = id;
+    }
+
+    public Date getStartTimestamp() {
+        return toDate(startTimestamp);
+    }
+
+    public void setStartTimestamp(Date startTimestamp) {
+        this.startTimestamp = toTime(startTimestamp);
+    }
+
+    /**
+     * Returns the time the session was stopped, or {@code null} if the session is still active.
+     *
+     * @return the time the session was stopped, or {@code null} if the session is still active.
+     * @see SimpleSession#getStopTimestamp()
+     */
+    public Date getStopTimestamp() {
+        return toDate(stopTimestamp);
+    }
+
+    public void setStopTimestamp(Date stopTimestamp) {
+        this.stopTimestamp = toTime(stopTimestamp);
+    }
+
+    public Date getLastAccessTime() {
+        return toDate(lastAccessTime);
+    }
+
+    public void setLastAccessTime(Date lastAccessTime) {
+        this.lastAccessTime = toTime(lastAccessTime);
+    }
+
+    /**
+     * Returns true if this session has expired, false otherwise.  If the session has
+     * expired, no further user interaction with the system may be done under this session.
+     *
+     * @return true if this session has expired, false otherwise.
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
+    public void setExpired(boolean expired) {
+        this.expired = expired;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public void touch() {
+        this.lastAccessTime = System.currentTimeMillis();
+    }
+
+    public void stop() {
+        if (this.stopTimestamp == NONE) {
+            this.stopTimestamp = System.currentTimeMillis();
+        }
+    }
+
+    protected boolean isStopped() {
+        return this.stopTimestamp != NONE;
+    }
+
+    protected void expire() {
+        stop();
+        this.expired = true;
+    }
+
+    public boolean isValid() {
+        return !isStopped() && !isExpired();
+    }
+
+    /**
+     * Determines if this session is expired.
+     *
+     * @return true if the specified session has expired, false otherwise.
+     */
+    protected boolean isTimedOut() {
+        if (isExpired()) {
+            return true;
+        }
+        if (this.timeout < 0L) {
+            return false;
+        }
+        if (this.lastAccessTime == NONE) {
+            String msg = "session.lastAccessTime for session with id [" + getId() + "] is null.  This value must " +
+                    "be set at least once, preferably at least upon instantiation.";
+            throw new IllegalStateException(msg);
+        }
+        return this.lastAccessTime < System.currentTimeMillis() - this.timeout;
+    }
+
+    public void validate() throws InvalidSessionException {
+        if (isStopped()) {
+            String msg = "Session with id [" + getId() + "] has been " +
+                    "explicitly stopped.  No further interaction under this session is " +
+                    "allowed.";
+            throw new StoppedSessionException(msg);
+        }
+
+        if (isTimedOut()) {
+            expire();
+
+            DateFormat df = DateFormat.getInstance();
+            String msg = "Session with id [" + getId() + "] has expired. " +
+                    "Last access time: " + df.format(getLastAccessTime()) +
+                    ".  Current time: " + df.format(new Date()) +
+                    ".  Session timeout is set to " + timeout / MILLIS_PER_SECOND + " seconds (" +
+                    timeout / MILLIS_PER_MINUTE + " minutes)";
+            throw new ExpiredSessionException(msg);
+        }
+    }
+
+    // ==============================================================
+    // Attributes: an open-addressing hash table with linear probing
+    // ==============================================================
+
+    private static Object maskNull(Object key) {
+        return key != null ? key : NULL_KEY;
+    }
+
+    private static Object unmaskNull(Object key) {
+        return key != NULL_KEY ? key : null;
+    }
+
+    /**
+     * Returns the canonical instance of the specified key, so that equal keys are retained only once across sessions.
+     */
+    private static Object share(Object key) {
+        if (!(key instanceof String)) {
+            return key;
+        }
+        String shared = SHARED_KEYS.get(key);
+        if (shared != null) {
+            return shared;
+        }
+        if (SHARED_KEYS.size() >= MAX_SHARED_KEYS) {
+            return key;
+        }
+        shared = SHARED_KEYS.putIfAbsent((String) key, (String) key);
+        return shared != null ? shared : key;
+    }
+
+    private static int slot(Object key, int mask) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        return h & mask;
+    }
+
+    /**
+     * Returns the index of the key in the attribute table, or {@code -1} if it is not present.
+     */
+    private int indexOf(Object maskedKey) {
+        Object[] table = this.attributes;
+        if (table == null) {
+            return -1;
+        }
+        int mask = (table.length >> 1) - 1;
+        for (int slot = slot(maskedKey, mask); ; slot = (slot + 1) & mask) {
+            Object k = table[slot << 1];
+            if (k == null) {
+                return -1;
+            }
+            if (k == maskedKey || k.equals(maskedKey)) {
+                return slot << 1;
+            }
+        }
+    }
+
+    private static void insert(Object[] table, Object maskedKey, Object value) {
+        int mask = (table.length >> 1) - 1;
+        int slot = slot(maskedKey, mask);
+        while (table[slot << 1] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot << 1] = maskedKey;
+        table[(slot << 1) + 1] = value;
+    }
+
+    private void ensureCapacity() {
+        Object[] table = this.attributes;
+        if (table == null) {
+            this.attributes = new Object[INITIAL_CAPACITY << 1];
+            return;
+        }
+        //keep the load factor at or below 3/4:
+        int slots = table.length >> 1;
+        if ((attributeCount + 1) * 4 <= slots * 3) {
+            return;
+        }
+        Object[] resized = new Object[table.length << 1];
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != null) {
+                insert(resized, table[i], table[i + 1]);
+            }
+        }
+        this.attributes = resized;
+    }
+
+    public Collection<Object> getAttributeKeys() throws InvalidSessionException {
+        Object[] table = this.attributes;
+        if (attributeCount == 0) {
+            return Collections.emptySet();
+        }
+        Collection<Object> keys = new LinkedHashSet<Object>(attributeCount * 2);
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != null) {
+                keys.add(unmaskNull(table[i]));
+            }
+        }
+        return Collections.unmodifiableCollection(keys);
+    }
+
+    public Object getAttribute(Object key) {
+        int index = indexOf(maskNull(key));
+        return index >= 0 ? this.attributes[index + 1] : null;
+    }
+
+    public void setAttribute(Object key, Object value) {
+        if (value == null) {
+            removeAttribute(key);
+            return;
+        }
+        Object maskedKey = maskNull(key);
+        int index = indexOf(maskedKey);
+        if (index >= 0) {
+            this.attributes[index + 1] = value;
+            return;
+        }
+        ensureCapacity();
+        insert(this.attributes, share(maskedKey), value);
+        attributeCount++;
+    }
+
+    public Object removeAttribute(Object key) {
+        int index = indexOf(maskNull(key));
+        if (index < 0) {
+            return null;
+        }
+        Object[] table = this.attributes;
+        Object removed = table[index + 1];
+        table[index] = null;
+        table[index + 1] = null;
+        attributeCount--;
+
+        //re-insert the entries of the same probe run that follow the removed one, so that lookups still find them:
+        int mask = (table.length >> 1) - 1;
+        for (int slot = ((index >> 1) + 1) & mask; table[slot << 1] != null; slot = (slot + 1) & mask) {
+            Object k = table[slot << 1];
+            Object v = table[(slot << 1) + 1];
+            table[slot << 1] = null;
+            table[(slot << 1) + 1] = null;
+            insert(table, k, v);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns a snapshot of the keys and values of all attributes, alternating, e.g. for serialization.
+     *
+     * @return a snapshot of the keys and values of all attributes, alternating.
+     */
+    public List<Object> getAttributeEntries() {
+        List<Object> entries = new ArrayList<Object>(attributeCount * 2);
+        Object[] table = this.attributes;
+        if (table != null) {
+            for (int i = 0; i < table.length; i += 2) {
+                if (table[i] != null) {
+                    entries.add(unmaskNull(table[i]));
+                    entries.add(table[i + 1]);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns {@code true} if the argument is a {@code CompactSession} with an {@link #getId() id} equal to this
+     * session's id.  Sessions without an id are only equal to themselves.
+     *
+     * @param obj the object to compare with this one for equality.
+     * @return {@code true} if this object is equivalent to the specified argument, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof CompactSession) {
+            Serializable thisId = getId();
+            Serializable otherId = ((CompactSession) obj).getId();
+            return thisId != null && thisId.equals(otherId);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        Serializable id = getId();
+        return id != null ? id.hashCode() : System.identityHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getClass().getName()).append(",id=").append(getId());
+        return sb.toString();
+    }
+
+    /**
+     * Serializes this object to the specified output stream for JDK Serialization.
+     *
+     * @param out output stream used for Object serialization.
+     * @throws IOException if any of this object's fields cannot be written to the stream.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        List<Object> entries = getAttributeEntries();
+        out.writeInt(attributeCount);
+        for (Object entry : entries) {
+            out.writeObject(entry);
+        }
+    }
+
+    /**
+     * Reconstitutes this object based on the specified InputStream for JDK Serialization, re-inserting all
+     * attributes.
+     *
+     * @param in the input stream to use for reading data to populate this object.
+     * @throws IOException            if the input stream cannot be used.
+     * @throws ClassNotFoundException if a required class needed for instantiation is not available in the present JVM
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Object key = in.readObject();
+            setAttribute(key, in.readObject());
+        }
+    }
+
+    /**
+     * The {@code null} key placeholder, never serialized itself.
+     */
+    private static final class NullKey {
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.shiro.session.Session;
 import org.apache.shiro.session.UnknownSessionException;
 import org.apache.shiro.session.mgt.eis.MemorySessionDAO;
 import org.apache.shiro.session.mgt.eis.SessionDAO;
+import org.apache.shiro.session.mgt.eis.TouchableSessionDAO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -175,6 +176,7 @@ public class DefaultSessionManager extends AbstractValidatingSessionManager impl
             log.debug("Creating new EIS record for new session instance [" + session + "]");
         }
         sessionDAO.create(session);
+        updateSessionExpiryIndex(session);
     }
 
     @Override
@@ -183,6 +185,9 @@ public class DefaultSessionManager extends AbstractValidatingSessionManager impl
             SimpleSession ss = (SimpleSession) session;
             Date stopTs = ss.getStopTimestamp();
             ss.setLastAccessTime(stopTs);
+        } else if (session instanceof CompactSession) {
+            CompactSession cs = (CompactSession) session;
+            cs.setLastAccessTime(cs.getStopTimestamp());
         }
         onChange(session);
     }
@@ -197,6 +202,8 @@ public class DefaultSessionManager extends AbstractValidatingSessionManager impl
     protected void onExpiration(Session session) {
         if (session instanceof SimpleSession) {
             ((SimpleSession) session).setExpired(true);
+        } else if (session instanceof CompactSession) {
+            ((CompactSession) session).setExpired(true);
         }
         onChange(session);
     }
@@ -210,6 +217,24 @@ public class DefaultSessionManager extends AbstractValidatingSessionManager impl
 
     protected void onChange(Session session) {
         sessionDAO.update(session);
+        updateSessionExpiryIndex(session);
+    }
+
+    /**
+     * Persists only the touched session's last access time if the {@code sessionDAO} is a
+     * {@link TouchableSessionDAO TouchableSessionDAO}, otherwise {@link #onChange(Session) updates} the whole session.
+     *
+     * @param session the touched session.
+     * @since 1.5
+     */
+    @Override
+    protected void onTouch(Session session) {
+        if (sessionDAO instanceof TouchableSessionDAO) {
+            ((TouchableSessionDAO) sessionDAO).touch(session);
+            updateSessionExpiryIndex(session);
+        } else {
+            onChange(session);
+        }
     }
 
     protected Session retrieveSession(SessionKey sessionKey) throws UnknownSessionException {
@@ -238,6 +263,7 @@ public class DefaultSessionManager extends AbstractValidatingSessionManager impl
 
     protected void delete(Session session) {
         sessionDAO.delete(session);
+        removeFromSessionExpiryIndex(session);
     }
 
     protected Collection<Session> getActiveSessions() {
@@ -37,6 +37,10 @@ import java.util.Date;
  * <p>Of course, if used in-process with a NativeSessionManager business POJO, as might be the case in a
  * web-based application where the web classes and server-side business pojos exist in the same
  * JVM, a remote method call will not be incurred.
+ * <p/>
+ * If the session manager is a {@link WorkingCopySessionManager WorkingCopySessionManager} with an active working copy
+ * scope, repeated calls on a {@code DelegatingSession} do not incur repeated reads from, or writes to, the session
+ * store either: the session is read once per scope and written back once when the scope ends.
  *
  * @since 0.1
  */
@@ -18,6 +18,7 @@
  */
 package org.apache.shiro.session.mgt;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -32,6 +33,13 @@ import org.slf4j.LoggerFactory;
  * SessionValidationScheduler implementation that uses a
  * {@link ScheduledExecutorService} to call {@link ValidatingSessionManager#validateSessions()} every
  * <em>{@link #getInterval interval}</em> milliseconds.
+ * <p/>
+ * By default sessions are validated on the single scheduler thread.  Setting
+ * {@link #setValidationThreads(int) validationThreads} to more than {@code 1} enables parallel validation of
+ * {@link AbstractValidatingSessionManager AbstractValidatingSessionManager}s: sessions are then validated in chunks on a
+ * dedicated worker pool of that size, see
+ * {@link AbstractValidatingSessionManager#validateSessions(java.util.concurrent.Executor, int, int)}.  The metrics of
+ * the last parallel run are available via {@link #getLastValidationMetrics()}.
  *
  * @since 0.9
  */
@@ -47,6 +55,10 @@ public class ExecutorServiceSessionValidationScheduler implements SessionValidat
     private long interval = DefaultSessionManager.DEFAULT_SESSION_VALIDATION_INTERVAL;
     private boolean enabled = false;
     private String threadNamePrefix = "SessionValidationThread-";
+    private int validationThreads = 1;
+    private int maxConcurrentInvalidations = 0;
+    private volatile ExecutorService validationExecutor;
+    private volatile SessionValidationMetrics lastValidationMetrics;
 
     public ExecutorServiceSessionValidationScheduler() {
         super();
@@ -84,6 +96,70 @@ public class ExecutorServiceSessionValidationScheduler implements SessionValidat
         return this.threadNamePrefix;
     }
 
+    /**
+     * Returns the number of worker threads validating sessions in parallel.  The default is {@code 1}, i.e. sessions
+     * are validated on the scheduler thread itself.
+     *
+     * @return the number of worker threads validating sessions in parallel.
+     * @since 1.5
+     */
+    public int getValidationThreads() {
+        return validationThreads;
+    }
+
+    /**
+     * Sets the number of worker threads validating sessions in parallel.  Values greater than {@code 1} only take
+     * effect for {@link AbstractValidatingSessionManager AbstractValidatingSessionManager}s, and must be set before
+     * session validation is {@link #enableSessionValidation() enabled}.
+     *
+     * @param validationThreads the number of worker threads validating sessions in parallel.
+     * @since 1.5
+     */
+    public void setValidationThreads(int validationThreads) {
+        if (validationThreads < 1) {
+            throw new IllegalArgumentException("validationThreads must be at least 1.");
+        }
+        this.validationThreads = validationThreads;
+    }
+
+    /**
+     * Returns the maximum number of invalid sessions being stopped (and typically deleted from the session data store)
+     * at once during a validation run.  The default is {@code 0}, meaning no limit other than the number of
+     * {@link #getValidationThreads() validationThreads}.
+     *
+     * @return the maximum number of invalid sessions being stopped at once, or {@code 0} for no limit.
+     * @since 1.5
+     */
+    public int getMaxConcurrentInvalidations() {
+        return maxConcurrentInvalidations;
+    }
+
+    /**
+     * Sets the maximum number of invalid sessions being stopped (and typically deleted from the session data store)
+     * at once during a validation run, or zero or less for no limit other than the number of
+     * {@link #getValidationThreads() validationThreads}.
+     *
+     * @param maxConcurrentInvalidations the maximum number of invalid sessions being stopped at once.
+     * @since 1.5
+     */
+    public void setMaxConcurrentInvalidations(int maxConcurrentInvalidations) {
+        this.maxConcurrentInvalidations = maxConcurrentInvalidations;
+    }
+
+    /**
+     * Returns the metrics of the last validation run, or {@code null} if no run has completed yet or the last run
+     * failed.  Serial runs call {@link ValidatingSessionManager#validateSessions()}; their metrics are those reported
+     * by an {@link AbstractValidatingSessionManager AbstractValidatingSessionManager}, or only contain the run's
+     * duration for any other session manager (or one overriding {@code validateSessions()} without reporting
+     * metrics).
+     *
+     * @return the metrics of the last completed validation run, or {@code null}.
+     * @since 1.5
+     */
+    public SessionValidationMetrics getLastValidationMetrics() {
+        return lastValidationMetrics;
+    }
+
     /**
      * Creates a single thread {@link ScheduledExecutorService} to validate sessions at fixed intervals 
      * and enables this scheduler. The executor is created as a daemon thread to allow JVM to shut down
@@ -103,6 +179,18 @@ public class ExecutorServiceSessionValidationScheduler implements SessionValidat
 	            }  
             });                  
             this.service.scheduleAtFixedRate(this, interval, interval, TimeUnit.MILLISECONDS);
+            if (this.validationThreads > 1) {
+                this.validationExecutor = Executors.newFixedThreadPool(this.validationThreads, new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger(1);
+
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r);
+                        thread.setDaemon(true);
+                        thread.setName(threadNamePrefix + "worker-" + count.getAndIncrement());
+                        return thread;
+                    }
+                });
+            }
         }
         this.enabled = true;
     }
@@ -112,17 +200,44 @@ public class ExecutorServiceSessionValidationScheduler implements SessionValidat
             log.debug("Executing session validation...");
         }
         long startTime = System.currentTimeMillis();
-        this.sessionManager.validateSessions();
+        SessionValidationMetrics metrics = null;
+        try {
+            metrics = validateSessions(startTime);
+        } finally {
+            this.lastValidationMetrics = metrics;
+        }
         long stopTime = System.currentTimeMillis();
         if (log.isDebugEnabled()) {
             log.debug("Session validation completed successfully in " + (stopTime - startTime) + " milliseconds.");
         }
     }
 
+    private SessionValidationMetrics validateSessions(long startTime) {
+        ExecutorService validationExecutor = this.validationExecutor;
+        AbstractValidatingSessionManager manager = this.sessionManager instanceof AbstractValidatingSessionManager ?
+                (AbstractValidatingSessionManager) this.sessionManager : null;
+        if (validationExecutor != null && manager != null) {
+            //at most two chunks queued per worker, so sessions are not loaded faster than they can be validated:
+            return manager.validateSessions(validationExecutor, this.validationThreads * 2,
+                    this.maxConcurrentInvalidations);
+        }
+        SessionValidationMetrics previous = manager != null ? manager.getLastValidationMetrics() : null;
+        this.sessionManager.validateSessions();
+        SessionValidationMetrics reported = manager != null ? manager.getLastValidationMetrics() : null;
+        if (reported != null && reported != previous) {
+            return reported;
+        }
+        return new SessionValidationMetrics(0, 0, 0, System.currentTimeMillis() - startTime);
+    }
+
     public void disableSessionValidation() {
         if (this.service != null) {
             this.service.shutdownNow();
         }
+        if (this.validationExecutor != null) {
+            this.validationExecutor.shutdownNow();
+            this.validationExecutor = null;
+        }
         this.enabled = false;
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe index of session IDs ordered by the time at which each session will expire, i.e. its last access
+ * time plus its timeout.
+ * <p/>
+ * When an {@link AbstractValidatingSessionManager#setSessionExpiryIndex(SessionExpiryIndex) expiry index} is
+ * configured, {@link AbstractValidatingSessionManager#validateSessions() session validation} no longer has to scan
+ * every active session: it only {@link #pollExpired(long, int) polls} the sessions that can actually have expired by
+ * now, in bounded batches.
+ * <p/>
+ * Expiry times are rounded up to the index's {@link #getResolution() resolution}.  Re-indexing a session whose
+ * rounded expiry time has not changed (e.g. when it is touched repeatedly within the same resolution window) does not
+ * modify the underlying skip list at all.  Index entries are only a hint as to when a session should be checked: a
+ * polled session must still be validated against its current state.
+ *
+ * @since 1.5
+ */
+public class SessionExpiryIndex {
+
+    /**
+     * The default {@link #getResolution() resolution}, {@code 1000} milliseconds.
+     */
+    public static final long DEFAULT_RESOLUTION = 1000;
+
+    private final long resolution;
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<Entry>();
+    private final ConcurrentMap<Serializable, Entry> entriesById = new ConcurrentHashMap<Serializable, Entry>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates a new index with the {@link #DEFAULT_RESOLUTION default resolution}.
+     */
+    public SessionExpiryIndex() {
+        this(DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * Creates a new index that rounds expiry times up to the specified resolution.
+     *
+     * @param resolution the resolution of indexed expiry times in milliseconds, must be greater than zero.
+     */
+    public SessionExpiryIndex(long resolution) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("resolution must be greater than zero.");
+        }
+        this.resolution = resolution;
+    }
+
+    /**
+     * Returns the resolution, in milliseconds, that indexed expiry times are rounded up to.
+     *
+     * @return the resolution, in milliseconds, that indexed expiry times are rounded up to.
+     */
+    public long getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Indexes (or re-indexes) the session with the specified ID to expire at the specified time.
+     *
+     * @param sessionId  the ID of the session to index.
+     * @param expiryTime the time in milliseconds since the epoch at which the session will expire.
+     */
+    public void put(Serializable sessionId, long expiryTime) {
+        long rounded = roundUp(expiryTime);
+        Entry existing = entriesById.get(sessionId);
+        if (existing != null && existing.expiryTime == rounded) {
+            return;
+        }
+        Entry entry = new Entry(rounded, sequence.incrementAndGet(), sessionId);
+        Entry replaced = entriesById.put(sessionId, entry);
+        entries.add(entry);
+        if (replaced != null) {
+            entries.remove(replaced);
+        }
+    }
+
+    /**
+     * Removes the session with the specified ID from the index.
+     *
+     * @param sessionId the ID of the session to remove.
+     */
+    public void remove(Serializable sessionId) {
+        Entry entry = entriesById.remove(sessionId);
+        if (entry != null) {
+            entries.remove(entry);
+        }
+    }
+
+    /**
+     * Removes and returns the IDs of up to {@code max} sessions indexed to expire at or before the specified time,
+     * earliest first.
+     *
+     * @param now the current time in milliseconds since the epoch.
+     * @param max the maximum number of session IDs to return.
+     * @return the IDs of up to {@code max} sessions that may have expired, never {@code null}.
+     */
+    public List<Serializable> pollExpired(long now, int max) {
+        List<Serializable> expired = null;
+        Iterator<Entry> i = entries.iterator();
+        while (i.hasNext() && (expired == null || expired.size() < max)) {
+            Entry entry = i.next();
+            if (entry.expiryTime > now) {
+                break;
+            }
+            //entries orphaned by a concurrent put/remove are simply discarded:
+            if (entries.remove(entry) && entriesById.remove(entry.sessionId, entry)) {
+                if (expired == null) {
+                    expired = new ArrayList<Serializable>(Math.min(max, 64));
+                }
+                expired.add(entry.sessionId);
+            }
+        }
+        return expired != null ? expired : Collections.<Serializable>emptyList();
+    }
+
+    /**
+     * Returns the number of indexed sessions.
+     *
+     * @return the number of indexed sessions.
+     */
+    public int size() {
+        return entriesById.size();
+    }
+
+    /**
+     * Removes all sessions from the index.
+     */
+    public void clear() {
+        entriesById.clear();
+        entries.clear();
+    }
+
+    private long roundUp(long time) {
+        long remainder = time % resolution;
+        if (remainder == 0) {
+            return time;
+        }
+        long rounded = time - remainder + (remainder > 0 ? resolution : 0);
+        //guard against overflow for sessions that (practically) never expire:
+        return rounded < time ? Long.MAX_VALUE : rounded;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final long expiryTime;
+        private final long sequence; //unique tie-breaker, session IDs need not be Comparable
+        private final Serializable sessionId;
+
+        private Entry(long expiryTime, long sequence, Serializable sessionId) {
+            this.expiryTime = expiryTime;
+            this.sequence = sequence;
+            this.sessionId = sessionId;
+        }
+
+        public int compareTo(Entry o) {
+            if (expiryTime != o.expiryTime) {
+                return expiryTime < o.expiryTime ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+}
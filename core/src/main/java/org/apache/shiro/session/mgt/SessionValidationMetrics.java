@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import java.io.Serializable;
+
+/**
+ * Immutable metrics of a single session validation run, as returned by
+ * {@link AbstractValidatingSessionManager#validateSessions(java.util.concurrent.Executor, int, int)}.
+ * <p/>
+ * These are primarily useful to size the session validation
+ * {@link ExecutorServiceSessionValidationScheduler#setInterval(long) interval} and thread pool: if runs take a
+ * significant fraction of the interval, validation should run more often, in parallel, or both.
+ *
+ * @since 1.5
+ */
+public class SessionValidationMetrics implements Serializable {
+
+    private final int scannedCount;
+    private final int expiredCount;
+    private final int stoppedCount;
+    private final long duration;
+
+    public SessionValidationMetrics(int scannedCount, int expiredCount, int stoppedCount, long duration) {
+        this.scannedCount = scannedCount;
+        this.expiredCount = expiredCount;
+        this.stoppedCount = stoppedCount;
+        this.duration = duration;
+    }
+
+    /**
+     * Returns the number of sessions that were validated.
+     *
+     * @return the number of sessions that were validated.
+     */
+    public int getScannedCount() {
+        return scannedCount;
+    }
+
+    /**
+     * Returns the number of sessions that were found to have expired.
+     *
+     * @return the number of sessions that were found to have expired.
+     */
+    public int getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * Returns the number of sessions that were found to be invalid for any other reason than expiration, typically
+     * because they had been explicitly stopped.
+     *
+     * @return the number of sessions that were found to be invalid for any other reason than expiration.
+     */
+    public int getStoppedCount() {
+        return stoppedCount;
+    }
+
+    /**
+     * Returns the total number of invalid sessions, i.e. the sum of the expired and stopped counts.
+     *
+     * @return the total number of invalid sessions.
+     */
+    public int getInvalidCount() {
+        return expiredCount + stoppedCount;
+    }
+
+    /**
+     * Returns the duration of the validation run in milliseconds.
+     *
+     * @return the duration of the validation run in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public String toString() {
+        return "[scanned=" + scannedCount + ", expired=" + expiredCount + ", stopped=" + stoppedCount +
+                ", duration=" + duration + "ms]";
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+/**
+ * A {@code WorkingCopySessionManager} is a {@link SessionManager SessionManager} that can keep a thread-bound
+ * <em>working copy</em> of each session accessed during a unit of work, such as a single web request.
+ * <p/>
+ * While a working copy scope is active, a session is read from the underlying data store at most once, and all
+ * changes made to it (attribute changes, {@link org.apache.shiro.session.Session#touch() touches}, timeout changes)
+ * are recorded against the working copy and written back in a single coalesced update when the scope
+ * {@link #endWorkingCopyScope() ends}, instead of once per change.
+ *
+ * @since 1.5
+ */
+public interface WorkingCopySessionManager extends SessionManager {
+
+    /**
+     * Begins a working copy scope bound to the calling thread.
+     * <p/>
+     * Scopes do not nest: if a scope is already active on the calling thread, or working copies are not enabled, this
+     * method does nothing and returns {@code false}.  Callers must only call {@link #endWorkingCopyScope()} if this
+     * method returned {@code true}.
+     *
+     * @return {@code true} if a new scope was begun, {@code false} otherwise.
+     */
+    boolean beginWorkingCopyScope();
+
+    /**
+     * Ends the working copy scope bound to the calling thread, writing every changed working copy back to the
+     * underlying data store.  The scope is always unbound from the thread, even if writing a session fails.
+     */
+    void endWorkingCopyScope();
+}
@@ -20,6 +20,7 @@ package org.apache.shiro.session.mgt.eis;
 
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.CompactSession;
 import org.apache.shiro.session.mgt.SimpleSession;
 
 import java.io.Serializable;
@@ -137,13 +138,18 @@ public abstract class AbstractSessionDAO implements SessionDAO {
      * {@code AbstractSessionDAO} implementation directly, but it is provided so subclasses don't
      * need to know the {@code Session} implementation if they don't need to.
      * <p/>
-     * This default implementation casts the argument to a {@link SimpleSession}, Shiro's default EIS implementation.
+     * This default implementation casts the argument to a {@link SimpleSession}, Shiro's default EIS implementation,
+     * or to a {@link CompactSession}.
      *
      * @param session   the session instance to which the sessionId will be applied
      * @param sessionId the id to assign to the specified session instance.
      */
     protected void assignSessionId(Session session, Serializable sessionId) {
-        ((SimpleSession) session).setId(sessionId);
+        if (session instanceof CompactSession) {
+            ((CompactSession) session).setId(sessionId);
+        } else {
+            ((SimpleSession) session).setId(sessionId);
+        }
     }
 
     /**
@@ -42,10 +42,14 @@ import java.util.Collections;
  * All {@code SessionDAO} methods are implemented by this class to employ
  * caching behavior and delegates the actual EIS operations to respective do* methods to be implemented by
  * subclasses (doCreate, doRead, etc).
+ * <p/>
+ * As of 1.5, this class is a {@link TouchableSessionDAO TouchableSessionDAO}: subclasses whose backing store can
+ * persist a session's last access time on its own can override {@link #doTouch(Session) doTouch} to avoid writing
+ * the entire session whenever it is merely touched.
  *
  * @since 0.2
  */
-public abstract class CachingSessionDAO extends AbstractSessionDAO implements CacheManagerAware {
+public abstract class CachingSessionDAO extends AbstractSessionDAO implements CacheManagerAware, TouchableSessionDAO {
 
     /**
      * The default active sessions cache name, equal to {@code shiro-activeSessionCache}.
@@ -67,10 +71,24 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
      */
     private String activeSessionsCacheName = ACTIVE_SESSION_CACHE_NAME;
 
+    /**
+     * Whether or not a subclass overrides {@link #update(Session)}, in which case touches are passed to it as well.
+     */
+    private final boolean updateOverridden;
+
     /**
      * Default no-arg constructor.
      */
     public CachingSessionDAO() {
+        this.updateOverridden = isUpdateOverridden(getClass());
+    }
+
+    private static boolean isUpdateOverridden(Class<?> clazz) {
+        try {
+            return clazz.getMethod("update", Session.class).getDeclaringClass() != CachingSessionDAO.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
     }
 
     /**
@@ -275,6 +293,46 @@ public abstract class CachingSessionDAO extends AbstractSessionDAO implements Ca
      */
     public void update(Session session) throws UnknownSessionException {
         doUpdate(session);
+        cacheUpdated(session);
+    }
+
+    /**
+     * Persists the given session's {@link Session#getLastAccessTime() lastAccessTime} by delegating to
+     * {@link #doTouch(org.apache.shiro.session.Session)}, and caches the session exactly as
+     * {@link #update(org.apache.shiro.session.Session) update} does.
+     * <p/>
+     * If a subclass overrides {@link #update(org.apache.shiro.session.Session) update}, this implementation calls that
+     * method instead, so that its logic is not bypassed for touched sessions.
+     *
+     * @param session the session whose last access time has changed.
+     * @throws UnknownSessionException if no existing EIS session record exists with the
+     *                                 identifier of {@link Session#getId() session.getId()}
+     * @since 1.5
+     */
+    public void touch(Session session) throws UnknownSessionException {
+        if (this.updateOverridden) {
+            update(session);
+            return;
+        }
+        doTouch(session);
+        cacheUpdated(session);
+    }
+
+    /**
+     * Subclass implementation hook to persist only the {@code Session}'s
+     * {@link Session#getLastAccessTime() lastAccessTime} to the underlying EIS.  The session's other state has not
+     * changed since it was last created or updated.
+     * <p/>
+     * The default implementation merely calls {@link #doUpdate(org.apache.shiro.session.Session) doUpdate}.
+     *
+     * @param session the session object whose last access time will be propagated to the EIS.
+     * @since 1.5
+     */
+    protected void doTouch(Session session) {
+        doUpdate(session);
+    }
+
+    private void cacheUpdated(Session session) {
         if (session instanceof ValidatingSession) {
             if (((ValidatingSession) session).isValid()) {
                 cache(session, session.getId());
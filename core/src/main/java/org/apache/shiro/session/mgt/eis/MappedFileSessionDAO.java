@@ -0,0 +1,849 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.io.CompactSerializer;
+import org.apache.shiro.io.Serializer;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.SessionException;
+import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.util.Destroyable;
+import org.apache.shiro.util.Initializable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A {@code SessionDAO} that keeps serialized sessions off the Java heap, in memory-mapped segment files, so that
+ * sessions survive application restarts and millions of them add no garbage collection pressure.
+ * <h3>Storage</h3>
+ * The configured {@link #setDirectory(File) directory} holds an append-only log of session records, split into
+ * fixed-size {@link #setSegmentSize(int) segments} that are each mapped into memory.  Every
+ * {@link #create(Session) create} and {@link #update(Session) update} appends the
+ * {@link #setSerializer(Serializer) serialized} session to the newest segment, and every {@link #delete(Session)
+ * delete} appends a tombstone.  The only on-heap state is an index from session ID to the location of the session's
+ * latest record, so {@link #readSession(Serializable) readSession} deserializes a new {@code Session} instance from
+ * the mapped segment on every call.
+ * <h3>Compaction</h3>
+ * Superseded records are garbage.  Periodically (every {@link #setCompactionInterval(long) compactionInterval}
+ * milliseconds) and whenever {@link #compact()} is called, if more than half of the used space is garbage, the
+ * oldest segments are compacted: their live records are copied to the newest segment and the segment files are
+ * deleted.  Compacting oldest-first ensures that dropping a tombstone can never resurrect an older record.
+ * <h3>Recovery</h3>
+ * On {@link #init() startup}, the existing segments are replayed in order to rebuild the index, so a restarted
+ * application sees all sessions again.  Each record carries a checksum, and replaying a segment stops at the first
+ * incomplete or corrupt record.  Changes are written to the operating system's page cache immediately, so they
+ * survive the termination of the JVM; they are only {@link MappedByteBuffer#force() forced} to disk before a
+ * compacted segment is deleted and when this DAO is {@link #destroy() destroyed}.  A lock file prevents two processes from using the same directory at once.
+ * <h3>Security</h3>
+ * The segment files hold session IDs, principals and session attributes in plain form, and anyone able to read them
+ * can hijack the stored sessions.  A {@link #setDirectory(File) directory} must therefore be configured explicitly,
+ * and should not be shared with other users.  The directory (when created by this DAO), the segment files and the
+ * lock file are made readable and writable by their owner only, where the file system supports it.
+ * <h3>Usage</h3>
+ * <pre>
+ * sessionDAO = org.apache.shiro.session.mgt.eis.MappedFileSessionDAO
+ * sessionDAO.directory = /var/lib/myapp/sessions
+ * securityManager.sessionManager.sessionDAO = $sessionDAO
+ * </pre>
+ * Combining this DAO with a {@link org.apache.shiro.session.mgt.SessionExpiryIndex SessionExpiryIndex} avoids
+ * deserializing every session on each session validation run.
+ *
+ * @since 1.5
+ */
+public class MappedFileSessionDAO extends AbstractSessionDAO implements Initializable, Destroyable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedFileSessionDAO.class);
+
+    /**
+     * The default {@link #getSegmentSize() segmentSize}, 64 megabytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The default {@link #getCompactionInterval() compactionInterval}, {@code 60000} milliseconds.
+     */
+    public static final long DEFAULT_COMPACTION_INTERVAL = 60000;
+
+    private static final String SEGMENT_FILE_PREFIX = "sessions-";
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final String LOCK_FILE_NAME = "sessions.lock";
+
+    //segment header: magic, format version, state, reserved
+    private static final int SEGMENT_MAGIC = 0x53484953;
+    private static final int SEGMENT_VERSION = 1;
+    private static final int STATE_OFFSET = 8;
+    private static final int STATE_LIVE = 1;
+    private static final int STATE_DEAD = 2;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+
+    //record: body length, CRC32 of the body, then the body: type, ID length, ID, session
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private File directory;
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private long compactionInterval = DEFAULT_COMPACTION_INTERVAL;
+    private String threadNamePrefix = "SessionCompactionThread-";
+    private Serializer<Session> serializer = new CompactSerializer<Session>();
+    private final Serializer<Serializable> idSerializer = new CompactSerializer<Serializable>();
+
+    /**
+     * Guards all fields below.  Reads of the mapped segments take the read lock, so segments cannot be deleted
+     * while being read.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean open;
+    private final Map<Serializable, Long> index = new HashMap<Serializable, Long>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+    private Segment head;
+    private RandomAccessFile lockFile;
+    private FileLock fileLock;
+    private ScheduledExecutorService service;
+
+    public MappedFileSessionDAO() {
+    }
+
+    public MappedFileSessionDAO(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the directory holding the segment files.  There is no default, as the files contain session IDs and
+     * other sensitive data.
+     *
+     * @return the directory holding the segment files.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Sets the directory holding the segment files, which is created (accessible to its owner only) if necessary.
+     * It must not be used by any other {@code MappedFileSessionDAO} at the same time, and should not be readable by
+     * other users.
+     *
+     * @param directory the directory holding the segment files.
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the size of each segment file in bytes.  The default is {@link #DEFAULT_SEGMENT_SIZE}.
+     *
+     * @return the size of each segment file in bytes.
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Sets the size of each segment file in bytes, which limits the size of a single serialized session.  Only
+     * affects segments created afterwards.
+     *
+     * @param segmentSize the size of each segment file in bytes.
+     */
+    public void setSegmentSize(int segmentSize) {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize is too small.");
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Returns the interval in milliseconds at which the background thread checks whether compaction is needed.  The
+     * default is {@link #DEFAULT_COMPACTION_INTERVAL}.
+     *
+     * @return the interval in milliseconds at which the background thread checks whether compaction is needed.
+     */
+    public long getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    /**
+     * Sets the interval in milliseconds at which the background thread checks whether compaction is needed.  A value
+     * of zero or less disables the background thread; {@link #compact()} must then be called explicitly.
+     *
+     * @param compactionInterval the interval in milliseconds at which compaction is checked.
+     */
+    public void setCompactionInterval(long compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * Returns the serializer used to write sessions to, and read them from, the segments.  The default is a
+     * {@link CompactSerializer}.
+     *
+     * @return the serializer used to write and read sessions.
+     */
+    public Serializer<Session> getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Sets the serializer used to write sessions to, and read them from, the segments.  Changing it makes sessions
+     * written by the previous serializer unreadable, unless the new one can still read them.
+     *
+     * @param serializer the serializer used to write and read sessions.
+     */
+    public void setSerializer(Serializer<Session> serializer) {
+        if (serializer == null) {
+            throw new IllegalArgumentException("serializer argument cannot be null.");
+        }
+        this.serializer = serializer;
+    }
+
+    /**
+     * Opens the segment files in the configured directory, rebuilding the session index from them, and starts the
+     * background compaction thread.  Called automatically on first use if not called explicitly.
+     */
+    public void init() {
+        if (open) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!open) {
+                open();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the background compaction thread, forces all changes to disk and closes the segment files.  Using this
+     * DAO afterwards opens them again.
+     */
+    public void destroy() {
+        ScheduledExecutorService service;
+        lock.writeLock().lock();
+        try {
+            service = this.service;
+            this.service = null;
+            if (open) {
+                close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (service != null) {
+            service.shutdownNow();
+        }
+    }
+
+    protected Serializable doCreate(Session session) {
+        Serializable sessionId = generateSessionId(session);
+        assignSessionId(session, sessionId);
+        write(session);
+        return sessionId;
+    }
+
+    protected Session doReadSession(Serializable sessionId) {
+        init();
+        byte[] serialized;
+        lock.readLock().lock();
+        try {
+            Long location = index.get(sessionId);
+            if (location == null) {
+                return null;
+            }
+            serialized = readSerializedSession(location);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return serializer.deserialize(serialized);
+    }
+
+    public void update(Session session) throws UnknownSessionException {
+        write(session);
+    }
+
+    public void delete(Session session) {
+        if (session == null) {
+            throw new NullPointerException("session argument cannot be null.");
+        }
+        Serializable id = session.getId();
+        if (id == null) {
+            return;
+        }
+        init();
+        byte[] body = newBody(DELETE, idSerializer.serialize(id), null);
+        lock.writeLock().lock();
+        try {
+            Long location = index.remove(id);
+            if (location != null) {
+                released(location);
+                append(body);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Collection<Session> getActiveSessions() {
+        init();
+        List<byte[]> serialized;
+        lock.readLock().lock();
+        try {
+            serialized = new ArrayList<byte[]>(index.size());
+            for (Long location : index.values()) {
+                serialized.add(readSerializedSession(location));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (serialized.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Session> sessions = new ArrayList<Session>(serialized.size());
+        for (byte[] bytes : serialized) {
+            sessions.add(serializer.deserialize(bytes));
+        }
+        return Collections.unmodifiableList(sessions);
+    }
+
+    /**
+     * Compacts the oldest segments if more than half of the used space is garbage, at most once for each segment
+     * that existed when this method was called.
+     */
+    public void compact() {
+        if (!open) {
+            return;
+        }
+        int n;
+        lock.readLock().lock();
+        try {
+            n = segments.size() - 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+        //the lock is released between segments, so that sessions can be read and written meanwhile:
+        for (boolean compacted = true; n > 0 && compacted; n--) {
+            lock.writeLock().lock();
+            try {
+                compacted = open && isCompactionNeeded() && compactOldest();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of stored sessions.
+     *
+     * @return the number of stored sessions.
+     */
+    public int getSessionCount() {
+        init();
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of segment files in use.
+     *
+     * @return the number of segment files in use.
+     */
+    public int getSegmentCount() {
+        init();
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of all records in the segments, including superseded records.
+     *
+     * @return the number of bytes of all records in the segments.
+     */
+    public long getUsedBytes() {
+        init();
+        lock.readLock().lock();
+        try {
+            long used = 0;
+            for (Segment segment : segments.values()) {
+                used += segment.position - SEGMENT_HEADER_SIZE;
+            }
+            return used;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the records holding the current state of the stored sessions.
+     *
+     * @return the number of bytes of the records holding the current state of the stored sessions.
+     */
+    public long getLiveBytes() {
+        init();
+        lock.readLock().lock();
+        try {
+            long live = 0;
+            for (Segment segment : segments.values()) {
+                live += segment.liveBytes;
+            }
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Session session) {
+        Serializable id = session.getId();
+        if (id == null) {
+            throw new NullPointerException("session id cannot be null.");
+        }
+        init();
+        byte[] body = newBody(PUT, idSerializer.serialize(id), serializer.serialize(session));
+        lock.writeLock().lock();
+        try {
+            long location = append(body);
+            head.liveBytes += RECORD_HEADER_SIZE + body.length;
+            Long previous = index.put(id, location);
+            if (previous != null) {
+                released(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static byte[] newBody(byte type, byte[] id, byte[] session) {
+        int sessionLength = session != null ? session.length : 0;
+        ByteBuffer body = ByteBuffer.allocate(1 + 4 + id.length + sessionLength);
+        body.put(type).putInt(id.length).put(id);
+        if (session != null) {
+            body.put(session);
+        }
+        return body.array();
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Returns the serialized session of the PUT record at the specified location.
+     */
+    private byte[] readSerializedSession(long location) {
+        ByteBuffer buffer = segments.get(segmentOf(location)).buffer.duplicate();
+        int offset = offsetOf(location);
+        int bodyLength = buffer.getInt(offset);
+        int idLength = buffer.getInt(offset + RECORD_HEADER_SIZE + 1);
+        byte[] serialized = new byte[bodyLength - 5 - idLength];
+        buffer.position(offset + RECORD_HEADER_SIZE + 5 + idLength);
+        buffer.get(serialized);
+        return serialized;
+    }
+
+    /**
+     * Accounts for the record at the specified location no longer being live.
+     */
+    private void released(long location) {
+        Segment segment = segments.get(segmentOf(location));
+        segment.liveBytes -= RECORD_HEADER_SIZE + segment.buffer.getInt(offsetOf(location));
+    }
+
+    /**
+     * Appends a record with the specified body to the head segment, creating a new head segment if necessary.
+     */
+    private long append(byte[] body) {
+        int recordSize = RECORD_HEADER_SIZE + body.length;
+        if (recordSize > head.size() - SEGMENT_HEADER_SIZE) {
+            throw new SessionException("Unable to store a session record of " + recordSize + " bytes in segments " +
+                    "of " + head.size() + " bytes.  Increase the segmentSize.");
+        }
+        if (head.position + recordSize > head.size()) {
+            try {
+                head = createSegment(head.seq + 1);
+            } catch (IOException e) {
+                throw new SessionException("Unable to create a new session segment file.", e);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        int offset = head.position;
+        ByteBuffer buffer = head.buffer.duplicate();
+        buffer.position(offset + RECORD_HEADER_SIZE);
+        buffer.put(body);
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        //written last, so that a record only becomes visible to recovery once complete:
+        buffer.putInt(offset, body.length);
+        head.position = offset + recordSize;
+        return location(head.seq, offset);
+    }
+
+    private boolean isCompactionNeeded() {
+        long used = 0;
+        long live = 0;
+        for (Segment segment : segments.values()) {
+            used += segment.position - SEGMENT_HEADER_SIZE;
+            live += segment.liveBytes;
+        }
+        return used - live > live;
+    }
+
+    private boolean compactOldest() {
+        final Segment oldest = segments.firstEntry().getValue();
+        if (oldest == head) {
+            return false;
+        }
+        int firstTarget = head.seq;
+        final int[] copied = new int[1];
+        scan(oldest, new RecordVisitor() {
+            public void visit(int offset, byte type, Serializable id, byte[] body) {
+                Long location = index.get(id);
+                if (type == PUT && location != null && location == location(oldest.seq, offset)) {
+                    long relocated = append(body);
+                    head.liveBytes += RECORD_HEADER_SIZE + body.length;
+                    index.put(id, relocated);
+                    copied[0]++;
+                }
+            }
+        });
+        //the copies must be durable before the originals are given up:
+        for (Segment target : segments.tailMap(firstTarget).values()) {
+            target.buffer.force();
+        }
+        //marked first, so that recovery ignores the segment should its file not be deleted:
+        oldest.buffer.putInt(STATE_OFFSET, STATE_DEAD);
+        oldest.buffer.force();
+        segments.remove(oldest.seq);
+        if (!oldest.file.delete()) {
+            log.warn("Unable to delete compacted session segment file [{}].  It is ignored from now on.",
+                    oldest.file);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Compacted session segment file [{}], copying {} live records.", oldest.file, copied[0]);
+        }
+        return true;
+    }
+
+    private void open() {
+        if (directory == null) {
+            throw new IllegalStateException("The directory property must be set.");
+        }
+        try {
+            if (!directory.isDirectory()) {
+                if (!directory.mkdirs()) {
+                    throw new IOException("Unable to create directory [" + directory + "].");
+                }
+                restrictToOwner(directory);
+            }
+            File file = new File(directory, LOCK_FILE_NAME);
+            boolean created = !file.exists();
+            lockFile = new RandomAccessFile(file, "rw");
+            if (created) {
+                restrictToOwner(file);
+            }
+            try {
+                fileLock = lockFile.getChannel().tryLock();
+            } catch (OverlappingFileLockException e) {
+                //held by another instance within this JVM:
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                lockFile.close();
+                lockFile = null;
+                throw new IOException("Directory [" + directory + "] is in use by another process.");
+            }
+            recover();
+        } catch (IOException e) {
+            close();
+            throw new SessionException("Unable to open the session segment files in [" + directory + "].", e);
+        }
+        open = true;
+        startCompaction();
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles();
+        List<Integer> seqs = new ArrayList<Integer>();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX)) {
+                    try {
+                        seqs.add(Integer.valueOf(name.substring(SEGMENT_FILE_PREFIX.length(),
+                                name.length() - SEGMENT_FILE_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        log.warn("Ignoring unexpected file [{}].", file);
+                    }
+                }
+            }
+        }
+        Integer[] sorted = seqs.toArray(new Integer[seqs.size()]);
+        Arrays.sort(sorted);
+
+        int lastSeq = 0;
+        for (int seq : sorted) {
+            lastSeq = seq;
+            Segment segment = openSegment(segmentFile(seq), seq);
+            if (segment == null) {
+                continue;
+            }
+            segments.put(seq, segment);
+            final Segment replayed = segment;
+            segment.position = scan(segment, new RecordVisitor() {
+                public void visit(int offset, byte type, Serializable id, byte[] body) {
+                    Long previous;
+                    if (type == PUT) {
+                        replayed.liveBytes += RECORD_HEADER_SIZE + body.length;
+                        previous = index.put(id, location(replayed.seq, offset));
+                    } else {
+                        previous = index.remove(id);
+                    }
+                    if (previous != null) {
+                        released(previous);
+                    }
+                }
+            });
+        }
+        head = !segments.isEmpty() ? segments.lastEntry().getValue() : createSegment(lastSeq + 1);
+        if (!index.isEmpty()) {
+            log.info("Recovered {} sessions from {} session segment files in [{}].",
+                    new Object[]{index.size(), segments.size(), directory});
+        }
+    }
+
+    private void close() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+        segments.clear();
+        index.clear();
+        head = null;
+        try {
+            if (fileLock != null) {
+                fileLock.release();
+            }
+            if (lockFile != null) {
+                lockFile.close();
+            }
+        } catch (IOException e) {
+            log.warn("Unable to release the session directory lock.", e);
+        }
+        fileLock = null;
+        lockFile = null;
+        open = false;
+    }
+
+    private void startCompaction() {
+        if (compactionInterval <= 0 || service != null) {
+            return;
+        }
+        service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                thread.setName(threadNamePrefix + count.getAndIncrement());
+                return thread;
+            }
+        });
+        service.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    log.warn("Unable to compact the session segment files.", e);
+                }
+            }
+        }, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private File segmentFile(int seq) {
+        return new File(directory, SEGMENT_FILE_PREFIX + String.format("%010d", seq) + SEGMENT_FILE_SUFFIX);
+    }
+
+    private Segment createSegment(int seq) throws IOException {
+        File file = segmentFile(seq);
+        MappedByteBuffer buffer = map(file, segmentSize);
+        buffer.putInt(0, SEGMENT_MAGIC);
+        buffer.putInt(4, SEGMENT_VERSION);
+        buffer.putInt(STATE_OFFSET, STATE_LIVE);
+        Segment segment = new Segment(seq, file, buffer);
+        segments.put(seq, segment);
+        return segment;
+    }
+
+    /**
+     * Maps an existing segment file, or returns {@code null} (deleting the file) if it is not a live segment.
+     */
+    private Segment openSegment(File file, int seq) throws IOException {
+        long length = file.length();
+        if (length >= SEGMENT_HEADER_SIZE && length <= Integer.MAX_VALUE) {
+            MappedByteBuffer buffer = map(file, (int) length);
+            if (buffer.getInt(0) == SEGMENT_MAGIC && buffer.getInt(4) == SEGMENT_VERSION &&
+                    buffer.getInt(STATE_OFFSET) == STATE_LIVE) {
+                return new Segment(seq, file, buffer);
+            }
+        }
+        log.debug("Deleting obsolete session segment file [{}].", file);
+        if (!file.delete()) {
+            log.warn("Unable to delete obsolete session segment file [{}].", file);
+        }
+        return null;
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        boolean created = !file.exists();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (created) {
+                //before any session is written to it:
+                restrictToOwner(file);
+            }
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            //the mapping remains valid after the file is closed:
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Makes the file or directory readable, writable (and executable, if it was) by its owner only.
+     */
+    private static void restrictToOwner(File file) {
+        boolean executable = file.canExecute();
+        boolean restricted = file.setReadable(false, false) && file.setReadable(true, true) &&
+                file.setWritable(false, false) && file.setWritable(true, true) &&
+                file.setExecutable(false, false) && (!executable || file.setExecutable(true, true));
+        if (!restricted) {
+            log.warn("Unable to restrict access to [{}] to its owner.  Ensure that other users cannot read it.", file);
+        }
+    }
+
+    /**
+     * Visits all complete records of the segment in order and returns the offset right after the last one.
+     */
+    private int scan(Segment segment, RecordVisitor visitor) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int size = segment.size();
+        int offset = SEGMENT_HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            int bodyLength = buffer.getInt(offset);
+            if (bodyLength <= 0 || bodyLength > size - offset - RECORD_HEADER_SIZE) {
+                break;
+            }
+            byte[] body = new byte[bodyLength];
+            buffer.position(offset + RECORD_HEADER_SIZE);
+            buffer.get(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                log.warn("Corrupt record in session segment file [{}] at offset {}.  Ignoring the rest of the file.",
+                        segment.file, offset);
+                break;
+            }
+            ByteBuffer b = ByteBuffer.wrap(body);
+            byte type = b.get();
+            int idLength = b.getInt();
+            byte[] id = new byte[idLength];
+            b.get(id);
+            visitor.visit(offset, type, idSerializer.deserialize(id), body);
+            offset += RECORD_HEADER_SIZE + bodyLength;
+        }
+        return offset;
+    }
+
+    private interface RecordVisitor {
+        void visit(int offset, byte type, Serializable id, byte[] body);
+    }
+
+    /**
+     * A mapped segment file and its bookkeeping.
+     */
+    private static final class Segment {
+
+        private final int seq;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private int position = SEGMENT_HEADER_SIZE;
+        private long liveBytes;
+
+        private Segment(int seq, File file, MappedByteBuffer buffer) {
+            this.seq = seq;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private int size() {
+            return buffer.capacity();
+        }
+    }
+}
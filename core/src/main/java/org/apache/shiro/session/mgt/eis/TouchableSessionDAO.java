@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.UnknownSessionException;
+
+/**
+ * A {@code SessionDAO} that can persist a session's {@link Session#getLastAccessTime() lastAccessTime} on its own,
+ * without writing the entire session.
+ * <p/>
+ * Sessions are {@link Session#touch() touched} on nearly every request, while their other state (attributes,
+ * timeout, etc) changes far less often.  Implementations backed by a database or remote cache can use this to send
+ * only the new last access time to the data store instead of the full serialized session.
+ *
+ * @see org.apache.shiro.session.mgt.DefaultSessionManager
+ * @since 1.5
+ */
+public interface TouchableSessionDAO extends SessionDAO {
+
+    /**
+     * Persists the specified session's {@link Session#getLastAccessTime() lastAccessTime}.  The session's other
+     * state is known not to have changed since it was last {@link #create created} or {@link #update updated}.
+     *
+     * @param session the session whose last access time has changed.
+     * @throws UnknownSessionException if no existing EIS session record exists with the identifier of
+     *                                 {@link Session#getId() session.getId()}
+     */
+    void touch(Session session) throws UnknownSessionException;
+}
@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.cache.CacheManager;
+import org.apache.shiro.cache.CacheManagerAware;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.util.Destroyable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code SessionDAO} decorator that takes session updates off the request path: {@link #update(Session) updated}
+ * and {@link #touch(Session) touched} sessions are held in a concurrent dirty map and written to the wrapped
+ * {@link #getSessionDAO() sessionDAO} in batches by a background thread.
+ * <h3>Coalescing</h3>
+ * Repeated updates of the same session are collapsed: no matter how often a session changes between two flushes, it
+ * is written to the wrapped {@code SessionDAO} at most once per flush.  If a session has only been touched since its
+ * last flush and the wrapped {@code SessionDAO} is a {@link TouchableSessionDAO TouchableSessionDAO} (as all
+ * {@link CachingSessionDAO CachingSessionDAO}s are), it is only {@link TouchableSessionDAO#touch(Session) touched};
+ * otherwise the full session is {@link SessionDAO#update(Session) updated}.
+ * <h3>Staleness</h3>
+ * Pending changes are flushed every {@link #getMaxStaleness() maxStaleness} milliseconds, so the wrapped
+ * {@code SessionDAO} never lags behind by more than approximately that amount.  Reads through this DAO always see
+ * pending changes.  {@link #create(Session) create} and {@link #delete(Session) delete} calls are never deferred.  A
+ * pending update of a deleted session is discarded, as are updates and touches of a deleted session received until the
+ * second flush after its deletion; later ones are written like any other.
+ * <p/>
+ * Pending changes are lost if the JVM terminates before they are flushed, so {@link #destroy() destroy} this DAO on
+ * shutdown to flush the remaining changes, and only use it where losing a few seconds of session changes (typically
+ * last access times) after a crash is acceptable.
+ * <h3>Usage</h3>
+ * <pre>
+ * sessionDAO = org.apache.shiro.session.mgt.eis.EnterpriseCacheSessionDAO
+ * writeBehindSessionDAO = org.apache.shiro.session.mgt.eis.WriteBehindSessionDAO
+ * writeBehindSessionDAO.sessionDAO = $sessionDAO
+ * writeBehindSessionDAO.maxStaleness = 5000
+ * securityManager.sessionManager.sessionDAO = $writeBehindSessionDAO
+ * </pre>
+ *
+ * @since 1.5
+ */
+public class WriteBehindSessionDAO implements TouchableSessionDAO, CacheManagerAware, Destroyable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindSessionDAO.class);
+
+    /**
+     * The default {@link #getMaxStaleness() maxStaleness}, {@code 5000} milliseconds.
+     */
+    public static final long DEFAULT_MAX_STALENESS = 5000;
+
+    private static final int LOCK_COUNT = 64; //power of two
+
+    private SessionDAO sessionDAO;
+    private long maxStaleness = DEFAULT_MAX_STALENESS;
+    private String threadNamePrefix = "SessionWriteBehindThread-";
+
+    private final ConcurrentMap<Serializable, PendingUpdate> pending =
+            new ConcurrentHashMap<Serializable, PendingUpdate>();
+
+    /**
+     * The IDs of recently deleted sessions, mapped to the {@link #flushCount} at the time of their deletion.
+     */
+    private final ConcurrentMap<Serializable, Long> deleted = new ConcurrentHashMap<Serializable, Long>();
+
+    /**
+     * Serializes writes and deletes of the same session, so a flush can never resurrect a concurrently deleted one.
+     */
+    private final Object[] locks;
+
+    private volatile ScheduledExecutorService service;
+    private boolean destroyed;
+
+    private final AtomicLong flushCount = new AtomicLong();
+
+    private final AtomicLong updateCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+
+    public WriteBehindSessionDAO() {
+        this.locks = new Object[LOCK_COUNT];
+        for (int i = 0; i < LOCK_COUNT; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    public WriteBehindSessionDAO(SessionDAO sessionDAO) {
+        this();
+        this.sessionDAO = sessionDAO;
+    }
+
+    /**
+     * Returns the wrapped {@code SessionDAO} that pending changes are written to.
+     *
+     * @return the wrapped {@code SessionDAO} that pending changes are written to.
+     */
+    public SessionDAO getSessionDAO() {
+        return sessionDAO;
+    }
+
+    /**
+     * Sets the wrapped {@code SessionDAO} that pending changes are written to.
+     *
+     * @param sessionDAO the wrapped {@code SessionDAO} that pending changes are written to.
+     */
+    public void setSessionDAO(SessionDAO sessionDAO) {
+        this.sessionDAO = sessionDAO;
+    }
+
+    /**
+     * Returns the maximum number of milliseconds a session change may remain pending before it is written to the
+     * wrapped {@code SessionDAO}.  This is also the interval at which the background thread flushes.  The default is
+     * {@link #DEFAULT_MAX_STALENESS}.
+     *
+     * @return the maximum number of milliseconds a session change may remain pending.
+     */
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    /**
+     * Sets the maximum number of milliseconds a session change may remain pending before it is written to the
+     * wrapped {@code SessionDAO}.  This is also the interval at which the background thread flushes.  A value of zero
+     * or less disables write-behind entirely: every change is then written immediately.
+     *
+     * @param maxStaleness the maximum number of milliseconds a session change may remain pending.
+     */
+    public void setMaxStaleness(long maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * Passes the {@code CacheManager} on to the wrapped {@code SessionDAO} if it is {@link CacheManagerAware}.
+     *
+     * @param cacheManager the {@code CacheManager} to pass on to the wrapped {@code SessionDAO}.
+     */
+    public void setCacheManager(CacheManager cacheManager) {
+        if (sessionDAO instanceof CacheManagerAware) {
+            ((CacheManagerAware) sessionDAO).setCacheManager(cacheManager);
+        }
+    }
+
+    public Serializable create(Session session) {
+        Serializable id = getRequiredSessionDAO().create(session);
+        if (id != null) {
+            deleted.remove(id);
+        }
+        return id;
+    }
+
+    public Session readSession(Serializable sessionId) throws UnknownSessionException {
+        PendingUpdate update = sessionId != null ? pending.get(sessionId) : null;
+        if (update != null) {
+            return update.session;
+        }
+        return getRequiredSessionDAO().readSession(sessionId);
+    }
+
+    public void update(Session session) throws UnknownSessionException {
+        enqueue(session, false);
+    }
+
+    public void touch(Session session) throws UnknownSessionException {
+        enqueue(session, true);
+    }
+
+    public void delete(Session session) {
+        Serializable id = session.getId();
+        if (id == null) {
+            getRequiredSessionDAO().delete(session);
+            return;
+        }
+        synchronized (lockFor(id)) {
+            pending.remove(id);
+            if (maxStaleness > 0 && ensureStarted()) {
+                //discards updates and touches still on their way:
+                deleted.put(id, flushCount.get());
+            }
+            getRequiredSessionDAO().delete(session);
+        }
+    }
+
+    /**
+     * Returns the wrapped {@code SessionDAO}'s active sessions, with any session that has pending changes replaced by
+     * its pending (more recent) state.  This ensures session validation never expires a session based on a last access
+     * time that has not been flushed yet.
+     *
+     * @return the active sessions, including pending changes.
+     */
+    public Collection<Session> getActiveSessions() {
+        Collection<Session> active = getRequiredSessionDAO().getActiveSessions();
+        if (pending.isEmpty() || active == null || active.isEmpty()) {
+            return active != null ? active : Collections.<Session>emptySet();
+        }
+        Map<Serializable, Session> merged = new LinkedHashMap<Serializable, Session>(active.size() * 4 / 3 + 1);
+        for (Session session : active) {
+            PendingUpdate update = session.getId() != null ? pending.get(session.getId()) : null;
+            merged.put(session.getId(), update != null ? update.session : session);
+        }
+        return Collections.unmodifiableCollection(new ArrayList<Session>(merged.values()));
+    }
+
+    /**
+     * Writes all pending session changes to the wrapped {@code SessionDAO}.  This is called periodically by the
+     * background thread, but may also be called directly, e.g. before taking a node out of service.
+     */
+    public void flush() {
+        SessionDAO dao = getRequiredSessionDAO();
+        long flushCount = this.flushCount.incrementAndGet();
+        for (Map.Entry<Serializable, PendingUpdate> entry : pending.entrySet()) {
+            Serializable id = entry.getKey();
+            PendingUpdate update = entry.getValue();
+            synchronized (lockFor(id)) {
+                //a concurrent update may have replaced the entry, in which case the next flush will write it:
+                if (!pending.remove(id, update) || deleted.containsKey(id)) {
+                    continue;
+                }
+                try {
+                    write(dao, update);
+                } catch (RuntimeException e) {
+                    log.warn("Unable to write pending changes of session [" + id + "] to the underlying " +
+                            "SessionDAO.  They will not be retried.", e);
+                }
+            }
+        }
+        //deleted before the previous flush started, so any update that raced with the deletion has been discarded:
+        for (Iterator<Long> i = deleted.values().iterator(); i.hasNext(); ) {
+            if (i.next() < flushCount - 1) {
+                i.remove();
+            }
+        }
+    }
+
+    private void write(SessionDAO dao, PendingUpdate update) {
+        if (update.touchOnly && dao instanceof TouchableSessionDAO) {
+            ((TouchableSessionDAO) dao).touch(update.session);
+        } else {
+            dao.update(update.session);
+        }
+        writeCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of sessions with changes that have not been written to the wrapped {@code SessionDAO} yet.
+     *
+     * @return the number of sessions with pending changes.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the number of {@link #update(Session) update} and {@link #touch(Session) touch} calls received.
+     *
+     * @return the number of update and touch calls received.
+     */
+    public long getUpdateCount() {
+        return updateCount.get();
+    }
+
+    /**
+     * Returns the number of writes performed against the wrapped {@code SessionDAO}.  The difference between this and
+     * the {@link #getUpdateCount() updateCount} is the number of writes saved by coalescing.
+     *
+     * @return the number of writes performed against the wrapped {@code SessionDAO}.
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Stops the background thread and flushes all pending changes.
+     */
+    public void destroy() {
+        ScheduledExecutorService service;
+        synchronized (this) {
+            destroyed = true;
+            service = this.service;
+            this.service = null;
+        }
+        if (service != null) {
+            service.shutdown();
+            try {
+                service.awaitTermination(maxStaleness, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (sessionDAO != null) {
+            flush();
+        }
+        deleted.clear();
+    }
+
+    private void enqueue(Session session, boolean touchOnly) {
+        updateCount.incrementAndGet();
+        Serializable id = session.getId();
+        if (id == null || maxStaleness <= 0 || !ensureStarted()) {
+            write(getRequiredSessionDAO(), new PendingUpdate(session, touchOnly));
+            return;
+        }
+        if (deleted.containsKey(id)) {
+            log.trace("Discarding a change of deleted session [{}].", id);
+            return;
+        }
+        for (;;) {
+            PendingUpdate existing = pending.get(id);
+            if (existing == null) {
+                if (pending.putIfAbsent(id, new PendingUpdate(session, touchOnly)) == null) {
+                    return;
+                }
+            } else {
+                //a touch never downgrades a pending full update:
+                PendingUpdate merged = new PendingUpdate(session, existing.touchOnly && touchOnly);
+                if (pending.replace(id, existing, merged)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean ensureStarted() {
+        if (service != null) {
+            return true;
+        }
+        synchronized (this) {
+            return startIfNecessary();
+        }
+    }
+
+    private boolean startIfNecessary() {
+        if (destroyed) {
+            return false;
+        }
+        if (service == null) {
+            service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger(1);
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r);
+                    thread.setDaemon(true);
+                    thread.setName(threadNamePrefix + count.getAndIncrement());
+                    return thread;
+                }
+            });
+            service.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        flush();
+                    } catch (RuntimeException e) {
+                        log.warn("Unable to flush pending session changes.", e);
+                    }
+                }
+            }, maxStaleness, maxStaleness, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    private Object lockFor(Serializable id) {
+        int h = id.hashCode();
+        h ^= (h >>> 16);
+        return locks[h & (LOCK_COUNT - 1)];
+    }
+
+    private SessionDAO getRequiredSessionDAO() {
+        if (sessionDAO == null) {
+            throw new IllegalStateException("The wrapped sessionDAO property must be set.");
+        }
+        return sessionDAO;
+    }
+
+    private static final class PendingUpdate {
+
+        private final Session session;
+
+        /**
+         * {@code true} if only the session's last access time has changed since it was last written.
+         */
+        private final boolean touchOnly;
+
+        private PendingUpdate(Session session, boolean touchOnly) {
+            this.session = session;
+            this.touchOnly = touchOnly;
+        }
+    }
+}
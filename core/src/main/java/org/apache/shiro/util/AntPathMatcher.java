@@ -57,7 +57,7 @@ package org.apache.shiro.util;
  *
  * @since 16.07.2003
  */
-public class AntPathMatcher implements PatternMatcher {
+public class AntPathMatcher implements CompilingPatternMatcher {
 
     //TODO - complete JavaDoc
 
@@ -77,6 +77,16 @@ public class AntPathMatcher implements PatternMatcher {
         this.pathSeparator = (pathSeparator != null ? pathSeparator : DEFAULT_PATH_SEPARATOR);
     }
 
+    /**
+     * Returns the path separator used by this matcher, {@link #DEFAULT_PATH_SEPARATOR} unless changed.
+     *
+     * @return the path separator used by this matcher.
+     * @since 1.5
+     */
+    public String getPathSeparator() {
+        return this.pathSeparator;
+    }
+
 
     public boolean isPattern(String path) {
         return (path.indexOf('*') != -1 || path.indexOf('?') != -1);
@@ -94,6 +104,28 @@ public class AntPathMatcher implements PatternMatcher {
         return doMatch(pattern, path, false);
     }
 
+    /**
+     * Compiles the specified pattern by tokenizing it once, so that matching the returned {@code CompiledPattern}
+     * only needs to tokenize the matched path.
+     * <p/>
+     * Subclasses overriding {@link #doMatch(String, String, boolean) doMatch} get a compiled pattern that delegates to
+     * {@link #matches(String, String)} instead, so that their matching logic is retained.
+     *
+     * @param pattern the pattern to compile
+     * @return the compiled pattern.
+     * @since 1.5
+     */
+    public CompiledPattern compile(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern argument cannot be null.");
+        }
+        if (getClass() != AntPathMatcher.class) {
+            return new DelegatingCompiledPattern(this, pattern);
+        }
+        return new CompiledAntPattern(pattern, StringUtils.tokenizeToStringArray(pattern, this.pathSeparator),
+                this.pathSeparator);
+    }
+
 
     /**
      * Actually match the given <code>path</code> against the given <code>pattern</code>.
@@ -111,7 +143,15 @@ public class AntPathMatcher implements PatternMatcher {
         }
 
         String[] pattDirs = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator);
-        String[] pathDirs = StringUtils.tokenizeToStringArray(path, this.pathSeparator);
+        return doMatch(pattern, pattDirs, path, fullMatch, this.pathSeparator);
+    }
+
+    /**
+     * Matches the given <code>path</code> against the given, already tokenized, <code>pattern</code>.
+     */
+    private static boolean doMatch(String pattern, String[] pattDirs, String path, boolean fullMatch,
+                                   String pathSeparator) {
+        String[] pathDirs = StringUtils.tokenizeToStringArray(path, pathSeparator);
 
         int pattIdxStart = 0;
         int pattIdxEnd = pattDirs.length - 1;
@@ -134,14 +174,14 @@ public class AntPathMatcher implements PatternMatcher {
         if (pathIdxStart > pathIdxEnd) {
             // Path is exhausted, only match if rest of pattern is * or **'s
             if (pattIdxStart > pattIdxEnd) {
-                return (pattern.endsWith(this.pathSeparator) ?
-                        path.endsWith(this.pathSeparator) : !path.endsWith(this.pathSeparator));
+                return (pattern.endsWith(pathSeparator) ?
+                        path.endsWith(pathSeparator) : !path.endsWith(pathSeparator));
             }
             if (!fullMatch) {
                 return true;
             }
             if (pattIdxStart == pattIdxEnd && pattDirs[pattIdxStart].equals("*") &&
-                    path.endsWith(this.pathSeparator)) {
+                    path.endsWith(pathSeparator)) {
                 return true;
             }
             for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
@@ -242,7 +282,7 @@ public class AntPathMatcher implements PatternMatcher {
      * @return <code>true</code> if the string matches against the
      *         pattern, or <code>false</code> otherwise.
      */
-    private boolean matchStrings(String pattern, String str) {
+    private static boolean matchStrings(String pattern, String str) {
         char[] patArr = pattern.toCharArray();
         char[] strArr = str.toCharArray();
         int patIdxStart = 0;
@@ -422,4 +462,36 @@ public class AntPathMatcher implements PatternMatcher {
         return buffer.toString();
     }
 
+    /**
+     * A pattern tokenized once by {@link AntPathMatcher#compile(String)}.
+     */
+    private static final class CompiledAntPattern implements CompiledPattern {
+
+        private final String pattern;
+        private final String[] pattDirs;
+        private final String pathSeparator;
+        private final boolean absolute;
+
+        private CompiledAntPattern(String pattern, String[] pattDirs, String pathSeparator) {
+            this.pattern = pattern;
+            this.pattDirs = pattDirs;
+            this.pathSeparator = pathSeparator;
+            this.absolute = pattern.startsWith(pathSeparator);
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public boolean matches(String source) {
+            if (source.startsWith(pathSeparator) != absolute) {
+                return false;
+            }
+            return doMatch(pattern, pattDirs, source, true, pathSeparator);
+        }
+
+        public String toString() {
+            return pattern;
+        }
+    }
 }
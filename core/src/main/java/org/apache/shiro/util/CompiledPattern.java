@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.util;
+
+/**
+ * A pattern that has been compiled once by a {@link CompilingPatternMatcher} so that it can be matched against many
+ * source strings without parsing the pattern again for every match.
+ * <p/>
+ * Components that match the same configured patterns against every request (such as URL path filters) should compile
+ * their patterns when they are configured and retain the resulting {@code CompiledPattern}s.
+ *
+ * @see CompilingPatternMatcher#compile(String)
+ * @since 1.5
+ */
+public interface CompiledPattern {
+
+    /**
+     * Returns the pattern string this instance was compiled from.
+     *
+     * @return the pattern string this instance was compiled from.
+     */
+    String getPattern();
+
+    /**
+     * Returns <code>true</code> if the given <code>source</code> matches this pattern, <code>false</code> otherwise.
+     *
+     * @param source the source to match
+     * @return <code>true</code> if the given <code>source</code> matches this pattern, <code>false</code> otherwise.
+     */
+    boolean matches(String source);
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe map of pattern strings to the {@link CompiledPattern}s a single {@link PatternMatcher} compiled them
+ * into.
+ * <p/>
+ * This allows components whose matching API is expressed in terms of pattern strings (and therefore can be
+ * overridden by subclasses in terms of strings) to still compile each configured pattern only once.  Patterns are
+ * expected to come from configuration, so the cache is not bounded.
+ *
+ * @see DelegatingCompiledPattern#compile(PatternMatcher, String)
+ * @since 1.5
+ */
+public class CompiledPatternCache {
+
+    private final PatternMatcher patternMatcher;
+    private final ConcurrentMap<String, CompiledPattern> compiledPatterns;
+
+    public CompiledPatternCache(PatternMatcher patternMatcher) {
+        if (patternMatcher == null) {
+            throw new IllegalArgumentException("patternMatcher argument cannot be null.");
+        }
+        this.patternMatcher = patternMatcher;
+        this.compiledPatterns = new ConcurrentHashMap<String, CompiledPattern>();
+    }
+
+    /**
+     * Returns the matcher that compiles the cached patterns.
+     *
+     * @return the matcher that compiles the cached patterns.
+     */
+    public PatternMatcher getPatternMatcher() {
+        return patternMatcher;
+    }
+
+    /**
+     * Returns the compiled form of the specified pattern, compiling and caching it first if necessary.
+     *
+     * @param pattern the pattern to compile
+     * @return the compiled pattern.
+     */
+    public CompiledPattern get(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern argument cannot be null.");
+        }
+        CompiledPattern compiled = compiledPatterns.get(pattern);
+        if (compiled == null) {
+            compiled = DelegatingCompiledPattern.compile(patternMatcher, pattern);
+            CompiledPattern existing = compiledPatterns.putIfAbsent(pattern, compiled);
+            if (existing != null) {
+                compiled = existing;
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns {@code true} if the specified source matches the specified pattern, compiling the pattern only the first
+     * time it is used.
+     *
+     * @param pattern the pattern to match against
+     * @param source  the source to match
+     * @return {@code true} if the specified source matches the specified pattern, {@code false} otherwise.
+     */
+    public boolean matches(String pattern, String source) {
+        return get(pattern).matches(source);
+    }
+
+    /**
+     * Returns the number of cached patterns.
+     *
+     * @return the number of cached patterns.
+     */
+    public int size() {
+        return compiledPatterns.size();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.util;
+
+/**
+ * A {@link PatternMatcher} that can compile a pattern once into a reusable {@link CompiledPattern}.
+ * <p/>
+ * Matching a compiled pattern must be equivalent to calling {@link #matches(String, String) matches(pattern, source)}
+ * with the pattern it was compiled from.  Callers that work with arbitrary {@code PatternMatcher}s can use a
+ * {@link DelegatingCompiledPattern} for matchers that do not implement this interface.
+ *
+ * @since 1.5
+ */
+public interface CompilingPatternMatcher extends PatternMatcher {
+
+    /**
+     * Compiles the specified pattern.
+     *
+     * @param pattern the pattern to compile
+     * @return the compiled pattern, never {@code null}.
+     * @throws IllegalArgumentException if the pattern is {@code null} or invalid for this matcher.
+     */
+    CompiledPattern compile(String pattern) throws IllegalArgumentException;
+}
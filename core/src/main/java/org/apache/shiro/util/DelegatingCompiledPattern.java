@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.util;
+
+/**
+ * A {@link CompiledPattern} that simply retains the pattern string and delegates every match to a
+ * {@link PatternMatcher}.  It allows pattern matchers that do not implement {@link CompilingPatternMatcher} to be
+ * used wherever compiled patterns are expected.
+ *
+ * @since 1.5
+ */
+public class DelegatingCompiledPattern implements CompiledPattern {
+
+    private final PatternMatcher patternMatcher;
+    private final String pattern;
+
+    public DelegatingCompiledPattern(PatternMatcher patternMatcher, String pattern) {
+        if (patternMatcher == null) {
+            throw new IllegalArgumentException("patternMatcher argument cannot be null.");
+        }
+        this.patternMatcher = patternMatcher;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Compiles the specified pattern with the given matcher if it is a {@link CompilingPatternMatcher}, or wraps it in
+     * a new {@code DelegatingCompiledPattern} otherwise.
+     *
+     * @param patternMatcher the matcher to compile the pattern with
+     * @param pattern        the pattern to compile
+     * @return the compiled pattern.
+     */
+    public static CompiledPattern compile(PatternMatcher patternMatcher, String pattern) {
+        if (patternMatcher instanceof CompilingPatternMatcher) {
+            return ((CompilingPatternMatcher) patternMatcher).compile(pattern);
+        }
+        return new DelegatingCompiledPattern(patternMatcher, pattern);
+    }
+
+    public PatternMatcher getPatternMatcher() {
+        return patternMatcher;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean matches(String source) {
+        return patternMatcher.matches(pattern, source);
+    }
+
+    public String toString() {
+        return pattern;
+    }
+}
@@ -23,11 +23,14 @@ import java.util.regex.Matcher;
 
 /**
  * {@code PatternMatcher} implementation that uses standard {@link java.util.regex} objects.
+ * <p/>
+ * Since compiling a regular expression is far more expensive than matching it, callers matching the same pattern
+ * repeatedly should {@link #compile(String) compile} it once and retain the resulting {@link CompiledPattern}.
  *
  * @see Pattern
  * @since 1.0
  */
-public class RegExPatternMatcher implements PatternMatcher {
+public class RegExPatternMatcher implements CompilingPatternMatcher {
 
     /**
      * Simple implementation that merely uses the default pattern comparison logic provided by the
@@ -49,4 +52,47 @@ public class RegExPatternMatcher implements PatternMatcher {
         Matcher m = p.matcher(source);
         return m.matches();
     }
+
+    /**
+     * Compiles the specified regular expression once into a {@link Pattern}, which is reused for every match of the
+     * returned {@code CompiledPattern}.
+     * <p/>
+     * Subclasses get a compiled pattern that delegates to {@link #matches(String, String)} instead, so that any
+     * overridden matching logic is retained.
+     *
+     * @param pattern the regular expression to compile
+     * @return the compiled pattern.
+     * @throws IllegalArgumentException if the pattern is {@code null} or not a valid regular expression.
+     * @since 1.5
+     */
+    public CompiledPattern compile(String pattern) throws IllegalArgumentException {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern argument cannot be null.");
+        }
+        if (getClass() != RegExPatternMatcher.class) {
+            return new DelegatingCompiledPattern(this, pattern);
+        }
+        return new CompiledRegExPattern(Pattern.compile(pattern));
+    }
+
+    private static final class CompiledRegExPattern implements CompiledPattern {
+
+        private final Pattern pattern;
+
+        private CompiledRegExPattern(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        public String getPattern() {
+            return pattern.pattern();
+        }
+
+        public boolean matches(String source) {
+            return pattern.matcher(source).matches();
+        }
+
+        public String toString() {
+            return pattern.pattern();
+        }
+    }
 }
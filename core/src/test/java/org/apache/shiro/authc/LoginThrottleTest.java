@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc;
+
+import org.apache.shiro.subject.PrincipalCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link LoginThrottle} class.
+ *
+ * @since 1.5
+ */
+public class LoginThrottleTest {
+
+    private LoginThrottle throttle;
+    private AtomicInteger attempts;
+    private AbstractAuthenticator authenticator;
+
+    @Before
+    public void setUp() {
+        throttle = new LoginThrottle();
+        throttle.setPrincipalLimit(3);
+        throttle.setHostLimit(5);
+        attempts = new AtomicInteger();
+        authenticator = new AbstractAuthenticator() {
+            protected AuthenticationInfo doAuthenticate(AuthenticationToken token) {
+                attempts.incrementAndGet();
+                if (!"password".equals(new String(((UsernamePasswordToken) token).getPassword()))) {
+                    throw new IncorrectCredentialsException();
+                }
+                return new SimpleAuthenticationInfo(token.getPrincipal(), "password", "realmName");
+            }
+        };
+        authenticator.setLoginThrottle(throttle);
+    }
+
+    private boolean attempt(String username, String password, String host) {
+        try {
+            authenticator.authenticate(new UsernamePasswordToken(username, password, false, host));
+            return true;
+        } catch (ExcessiveAttemptsException e) {
+            throw e;
+        } catch (AuthenticationException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testNotAddedToListeners() {
+        final AtomicInteger failures = new AtomicInteger();
+        AuthenticationListener listener = new AuthenticationListener() {
+            public void onSuccess(AuthenticationToken token, AuthenticationInfo info) {
+            }
+
+            public void onFailure(AuthenticationToken token, AuthenticationException ae) {
+                failures.incrementAndGet();
+            }
+
+            public void onLogout(PrincipalCollection principals) {
+            }
+        };
+        //an immutable collection owned by the caller:
+        authenticator.setAuthenticationListeners(Collections.singletonList(listener));
+        authenticator.setLoginThrottle(new LoginThrottle());
+        authenticator.setLoginThrottle(throttle);
+        assertEquals(Collections.singletonList(listener), authenticator.getAuthenticationListeners());
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(attempt("jsmith", "wrong", null));
+        }
+        assertEquals(3, failures.get());
+        try {
+            attempt("jsmith", "password", null);
+            fail("The principal must be throttled.");
+        } catch (ExcessiveAttemptsException expected) {
+        }
+    }
+
+    @Test
+    public void testEqualHashCodesCountedSeparately() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        for (int i = 0; i < 3; i++) {
+            assertFalse(attempt("Aa", "wrong", null));
+        }
+        assertTrue(attempt("BB", "password", null));
+    }
+
+    @Test
+    public void testPrincipalThrottled() {
+        for (int i = 0; i < 3; i++) {
+            assertFalse(attempt("jsmith", "wrong", null));
+        }
+        try {
+            attempt("jsmith", "password", null);
+            fail("The principal must be throttled.");
+        } catch (ExcessiveAttemptsException expected) {
+        }
+        assertEquals(3, attempts.get());
+        assertEquals(1, throttle.getRejectedCount());
+
+        //other principals are unaffected:
+        assertTrue(attempt("other", "password", null));
+    }
+
+    @Test
+    public void testHostThrottled() {
+        for (int i = 0; i < 5; i++) {
+            assertFalse(attempt("user" + i, "wrong", "10.0.0.1"));
+        }
+        try {
+            attempt("another", "password", "10.0.0.1");
+            fail("The host must be throttled.");
+        } catch (ExcessiveAttemptsException expected) {
+        }
+        assertTrue(attempt("another", "password", "10.0.0.2"));
+    }
+
+    @Test
+    public void testCountsDecay() throws Exception {
+        throttle = new LoginThrottle();
+        throttle.setPrincipalLimit(3);
+        throttle.setWindow(50);
+        authenticator.setLoginThrottle(throttle);
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(attempt("jsmith", "wrong", null));
+        }
+        //after two full windows, nothing is left of the failures:
+        Thread.sleep(120);
+        assertTrue(attempt("jsmith", "password", null));
+    }
+
+    @Test
+    public void testShortWindow() throws Exception {
+        throttle = new LoginThrottle();
+        throttle.setPrincipalLimit(3);
+        //the window numbers of windows this short no longer fit into 32 bits:
+        throttle.setWindow(200);
+        authenticator.setLoginThrottle(throttle);
+
+        //start at the beginning of a window so that all attempts fall into it:
+        while (System.currentTimeMillis() % 200 > 50) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertFalse(attempt("jsmith", "wrong", null));
+        }
+        try {
+            attempt("jsmith", "password", null);
+            fail("The principal must be throttled.");
+        } catch (ExcessiveAttemptsException expected) {
+        }
+    }
+
+    @Test
+    public void testBoundedMemory() {
+        throttle.setStripes(16);
+        for (int i = 0; i < 100; i++) {
+            throttle.onFailure(new UsernamePasswordToken("user" + i, "wrong"), new IncorrectCredentialsException());
+        }
+        //with heavy collisions, the sketch over-counts but never under-counts:
+        try {
+            throttle.assertAllowed(new UsernamePasswordToken("user0", "wrong"));
+            fail("A principal whose failures were counted must not be under-counted.");
+        } catch (ExcessiveAttemptsException expected) {
+        }
+    }
+}
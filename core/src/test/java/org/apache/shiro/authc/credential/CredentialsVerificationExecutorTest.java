@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc.credential;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.CredentialsVerificationRejectedException;
+import org.apache.shiro.authc.IncorrectCredentialsException;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.crypto.hash.Sha256Hash;
+import org.apache.shiro.realm.AuthenticatingRealm;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link CredentialsVerificationExecutor} class.
+ *
+ * @since 1.5
+ */
+public class CredentialsVerificationExecutorTest {
+
+    private static final AuthenticationToken TOKEN = new UsernamePasswordToken("username", "password");
+    private static final AuthenticationInfo ACCOUNT =
+            new SimpleAuthenticationInfo("username", new Sha256Hash("password").getBytes(), "realmName");
+
+    private CredentialsVerificationExecutor executor;
+    private CountDownLatch started;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() {
+        executor = new CredentialsVerificationExecutor();
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.destroy();
+    }
+
+    /**
+     * A matcher that blocks until released, occupying a pool thread.
+     */
+    private CredentialsMatcher blockingMatcher() {
+        return new CredentialsMatcher() {
+            public boolean doCredentialsMatch(AuthenticationToken token, AuthenticationInfo info) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+    }
+
+    private Thread verifyInBackground(final CredentialsMatcher matcher) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                executor.verify(matcher, TOKEN, ACCOUNT);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void testVerify() {
+        CredentialsMatcher matcher = new HashedCredentialsMatcher(Sha256Hash.ALGORITHM_NAME);
+        assertTrue(executor.verify(matcher, TOKEN, ACCOUNT));
+        assertFalse(executor.verify(matcher, new UsernamePasswordToken("username", "wrong"), ACCOUNT));
+        assertEquals(2, executor.getVerifiedCount());
+        assertTrue(executor.getMaxVerifyTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test(expected = IncorrectCredentialsException.class)
+    public void testMatcherExceptionRethrown() {
+        executor.verify(new CredentialsMatcher() {
+            public boolean doCredentialsMatch(AuthenticationToken token, AuthenticationInfo info) {
+                throw new IncorrectCredentialsException();
+            }
+        }, TOKEN, ACCOUNT);
+    }
+
+    @Test
+    public void testRejectedWhenQueueFull() throws Exception {
+        executor.setPoolSize(1);
+        executor.setQueueCapacity(1);
+        Thread running = verifyInBackground(blockingMatcher());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread queued = verifyInBackground(blockingMatcher());
+        while (executor.getQueueDepth() == 0) {
+            Thread.sleep(1);
+        }
+
+        try {
+            executor.verify(blockingMatcher(), TOKEN, ACCOUNT);
+            fail("A full queue must reject the verification.");
+        } catch (CredentialsVerificationRejectedException expected) {
+        }
+        assertEquals(1, executor.getRejectedCount());
+
+        release.countDown();
+        running.join(5000);
+        queued.join(5000);
+        assertEquals(2, executor.getVerifiedCount());
+    }
+
+    @Test
+    public void testRejectedOnTimeout() throws Exception {
+        executor.setTimeout(50);
+
+        try {
+            executor.verify(blockingMatcher(), TOKEN, ACCOUNT);
+            fail("A verification that does not complete in time must be rejected.");
+        } catch (CredentialsVerificationRejectedException expected) {
+        }
+        assertEquals(1, executor.getTimedOutCount());
+        assertEquals(0, executor.getRejectedCount());
+
+        //the verification itself still completes:
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getVerifiedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, executor.getVerifiedCount());
+    }
+
+    @Test
+    public void testRejectedAfterDestroy() {
+        CredentialsMatcher matcher = new HashedCredentialsMatcher(Sha256Hash.ALGORITHM_NAME);
+        assertTrue(executor.verify(matcher, TOKEN, ACCOUNT));
+        executor.destroy();
+
+        //no new pool is started:
+        executor.init();
+        try {
+            executor.verify(matcher, TOKEN, ACCOUNT);
+            fail("A destroyed executor must reject the verification.");
+        } catch (CredentialsVerificationRejectedException expected) {
+        }
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(1, executor.getVerifiedCount());
+    }
+
+    @Test
+    public void testRealmDelegatesToExecutor() {
+        AuthenticatingRealm realm = new AuthenticatingRealm(new HashedCredentialsMatcher(Sha256Hash.ALGORITHM_NAME)) {
+            @Override
+            protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) {
+                return ACCOUNT;
+            }
+        };
+        realm.setCredentialsVerificationExecutor(executor);
+
+        assertNotNull(realm.getAuthenticationInfo(TOKEN));
+        assertEquals(1, executor.getVerifiedCount());
+        try {
+            realm.getAuthenticationInfo(new UsernamePasswordToken("username", "wrong"));
+            fail("Incorrect credentials must fail.");
+        } catch (AuthenticationException expected) {
+            assertTrue(expected instanceof IncorrectCredentialsException);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authc.credential;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.IncorrectCredentialsException;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.crypto.hash.Sha256Hash;
+import org.apache.shiro.realm.AuthenticatingRealm;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link VerifiedCredentialsCache} class.
+ *
+ * @since 1.5
+ */
+public class VerifiedCredentialsCacheTest {
+
+    private static final AuthenticationInfo ACCOUNT =
+            new SimpleAuthenticationInfo("username", new Sha256Hash("password").getBytes(), "realmName");
+
+    private VerifiedCredentialsCache cache;
+    private AtomicInteger lookups;
+    private AuthenticatingRealm realm;
+
+    @Before
+    public void setUp() {
+        cache = new VerifiedCredentialsCache();
+        lookups = new AtomicInteger();
+        realm = new AuthenticatingRealm(new HashedCredentialsMatcher(Sha256Hash.ALGORITHM_NAME)) {
+            @Override
+            protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) {
+                lookups.incrementAndGet();
+                return ACCOUNT;
+            }
+        };
+        realm.setName("realmName");
+        realm.setVerifiedCredentialsCache(cache);
+    }
+
+    @Test
+    public void testRepeatedCredentialsSkipVerification() {
+        assertSame(ACCOUNT, realm.getAuthenticationInfo(new UsernamePasswordToken("username", "password")));
+        assertSame(ACCOUNT, realm.getAuthenticationInfo(new UsernamePasswordToken("username", "password")));
+        assertEquals(1, lookups.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testDifferentCredentialsVerified() {
+        realm.getAuthenticationInfo(new UsernamePasswordToken("username", "password"));
+        try {
+            realm.getAuthenticationInfo(new UsernamePasswordToken("username", "wrong"));
+            fail("Different credentials must be verified.");
+        } catch (IncorrectCredentialsException expected) {
+        }
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testFailedCredentialsNotCached() {
+        try {
+            realm.getAuthenticationInfo(new UsernamePasswordToken("username", "wrong"));
+            fail("Incorrect credentials must fail.");
+        } catch (IncorrectCredentialsException expected) {
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testClearCacheInvalidates() {
+        realm.getAuthenticationInfo(new UsernamePasswordToken("username", "password"));
+        realm.onLogout(new SimplePrincipalCollection("username", "realmName"));
+        assertEquals(0, cache.size());
+
+        realm.getAuthenticationInfo(new UsernamePasswordToken("username", "password"));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        cache.setTimeToLive(1);
+        realm.getAuthenticationInfo(new UsernamePasswordToken("username", "password"));
+        Thread.sleep(10);
+        realm.getAuthenticationInfo(new UsernamePasswordToken("username", "password"));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testScopedByRealm() {
+        AuthenticationToken token = new UsernamePasswordToken("username", "password");
+        cache.put("realmName", "username", token, ACCOUNT);
+        assertSame(ACCOUNT, cache.get("realmName", "username", token));
+        assertNull(cache.get("otherRealm", "username", token));
+    }
+
+    @Test
+    public void testMaxSize() {
+        cache.setMaxSize(1);
+        cache.put("realmName", "username", new UsernamePasswordToken("username", "password"), ACCOUNT);
+        cache.put("realmName", "other", new UsernamePasswordToken("other", "password"), ACCOUNT);
+        assertEquals(1, cache.size());
+        assertNull(cache.get("realmName", "other", new UsernamePasswordToken("other", "password")));
+    }
+}
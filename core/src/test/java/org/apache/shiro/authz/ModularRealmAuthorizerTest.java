@@ -21,17 +21,24 @@ package org.apache.shiro.authz;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import junit.framework.Assert;
 
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authz.permission.PermissionResolver;
 import org.apache.shiro.authz.permission.RolePermissionResolver;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.apache.shiro.authz.permission.WildcardPermissionResolver;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.realm.Realm;
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
 import org.junit.Test;
 
 public class ModularRealmAuthorizerTest
@@ -95,6 +102,167 @@ public class ModularRealmAuthorizerTest
         
     }
     
+    @Test
+    public void testBatchPermissionChecksLookUpAuthorizationInfoOncePerRealm()
+    {
+        CountingRealm printers = new CountingRealm( "printer:*" );
+        CountingRealm newsletters = new CountingRealm( "newsletter:view" );
+        Collection<Realm> realms = new ArrayList<Realm>();
+        realms.add( printers );
+        realms.add( newsletters );
+        ModularRealmAuthorizer modRealmAuthz = new ModularRealmAuthorizer( realms );
+        PrincipalCollection principals = new SimplePrincipalCollection( "user", "realm" );
+
+        boolean[] permitted = modRealmAuthz.isPermitted( principals, "printer:print", "newsletter:view", "newsletter:edit" );
+        Assert.assertTrue( permitted[0] );
+        Assert.assertTrue( permitted[1] );
+        Assert.assertFalse( permitted[2] );
+        Assert.assertEquals( 1, printers.lookups );
+        Assert.assertEquals( 1, newsletters.lookups );
+
+        Assert.assertTrue( modRealmAuthz.isPermittedAll( principals, "printer:print", "newsletter:view" ) );
+        Assert.assertFalse( modRealmAuthz.isPermittedAll( principals, "printer:print", "newsletter:edit" ) );
+
+        try
+        {
+            modRealmAuthz.checkPermissions( principals, "printer:print", "newsletter:edit", "newsletter:view" );
+            Assert.fail( "UnauthorizedException expected" );
+        }
+        catch ( UnauthorizedException expected )
+        {
+            Assert.assertTrue( expected.getMessage().contains( "newsletter:edit" ) );
+        }
+        Assert.assertEquals( 6, printers.lookups );
+        Assert.assertEquals( 4, newsletters.lookups );
+    }
+
+    @Test
+    public void testIsPermittedAllStopsAtFirstDenial()
+    {
+        final List<String> evaluated = new ArrayList<String>();
+        final List<Permission> evaluatedPermissions = new ArrayList<Permission>();
+        CountingRealm realm = new CountingRealm( "printer:*" )
+        {
+            @Override
+            public boolean isPermitted( PrincipalCollection principals, String permission )
+            {
+                evaluated.add( permission );
+                return super.isPermitted( principals, permission );
+            }
+
+            @Override
+            public boolean isPermitted( PrincipalCollection principals, Permission permission )
+            {
+                evaluatedPermissions.add( permission );
+                return super.isPermitted( principals, permission );
+            }
+        };
+        ModularRealmAuthorizer modRealmAuthz = new ModularRealmAuthorizer( Collections.<Realm>singletonList( realm ) );
+        PrincipalCollection principals = new SimplePrincipalCollection( "user", "realm" );
+
+        Assert.assertFalse( modRealmAuthz.isPermittedAll( principals, "printer:print", "newsletter:edit",
+                "printer:query" ) );
+        Assert.assertEquals( Arrays.asList( "printer:print", "newsletter:edit" ), evaluated );
+
+        evaluatedPermissions.clear();
+        Permission print = new WildcardPermission( "printer:print" );
+        Permission edit = new WildcardPermission( "newsletter:edit" );
+        Permission query = new WildcardPermission( "printer:query" );
+        Assert.assertFalse( modRealmAuthz.isPermittedAll( principals, Arrays.asList( print, edit, query ) ) );
+        Assert.assertEquals( Arrays.asList( print, edit ), evaluatedPermissions );
+    }
+
+    @Test
+    public void testPermissionStringsDelegatedUnlessResolvedIdentically()
+    {
+        final int[] resolutions = new int[1];
+        PermissionResolver sharedResolver = new PermissionResolver()
+        {
+            public Permission resolvePermission( String permissionString )
+            {
+                if ( permissionString.equals( "newsletter:view" ) )
+                {
+                    resolutions[0]++;
+                }
+                return new WildcardPermission( permissionString );
+            }
+        };
+        //resolves permission strings differently from the shared resolver:
+        CountingRealm ownResolver = new CountingRealm( "printer:print" );
+        //decides on the permission strings themselves:
+        CountingRealm stringChecks = new CountingRealm( "none" )
+        {
+            @Override
+            public boolean isPermitted( PrincipalCollection principals, String permission )
+            {
+                return permission.equals( "document:read" );
+            }
+
+            @Override
+            public boolean[] isPermitted( PrincipalCollection principals, String... permissions )
+            {
+                boolean[] permitted = new boolean[permissions.length];
+                for ( int i = 0; i < permissions.length; i++ )
+                {
+                    permitted[i] = isPermitted( principals, permissions[i] );
+                }
+                return permitted;
+            }
+        };
+        CountingRealm shared = new CountingRealm( "newsletter:*" );
+        Collection<Realm> realms = new ArrayList<Realm>();
+        realms.add( ownResolver );
+        realms.add( stringChecks );
+        realms.add( shared );
+        ModularRealmAuthorizer modRealmAuthz = new ModularRealmAuthorizer( realms );
+        modRealmAuthz.setPermissionResolver( sharedResolver );
+        ownResolver.setPermissionResolver( new WildcardPermissionResolver()
+        {
+            @Override
+            public Permission resolvePermission( String permissionString )
+            {
+                return super.resolvePermission( permissionString.replace( "laser", "printer" ) );
+            }
+        } );
+        PrincipalCollection principals = new SimplePrincipalCollection( "user", "realm" );
+
+        Assert.assertTrue( modRealmAuthz.isPermitted( principals, "laser:print" ) );
+        Assert.assertTrue( modRealmAuthz.isPermitted( principals, "document:read" ) );
+        resolutions[0] = 0;
+        Assert.assertTrue( modRealmAuthz.isPermitted( principals, "newsletter:view" ) );
+        Assert.assertEquals( 1, resolutions[0] );
+        Assert.assertFalse( modRealmAuthz.isPermitted( principals, "calendar:edit" ) );
+
+        resolutions[0] = 0;
+        boolean[] permitted = modRealmAuthz.isPermitted( principals, "laser:print", "document:read", "newsletter:view",
+                "calendar:edit" );
+        Assert.assertEquals( 1, resolutions[0] );
+        Assert.assertTrue( permitted[0] );
+        Assert.assertTrue( permitted[1] );
+        Assert.assertTrue( permitted[2] );
+        Assert.assertFalse( permitted[3] );
+    }
+
+    class CountingRealm extends MockAuthorizingRealm
+    {
+        private final String permission;
+        private int lookups;
+
+        CountingRealm( String permission )
+        {
+            this.permission = permission;
+        }
+
+        @Override
+        protected AuthorizationInfo doGetAuthorizationInfo( PrincipalCollection principals )
+        {
+            lookups++;
+            SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+            info.addStringPermission( permission );
+            return info;
+        }
+    }
+
     class MockAuthorizingRealm extends AuthorizingRealm
     {
 
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @since 1.5
+ */
+public class PermissionCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSize() {
+        new PermissionCache(0);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        PermissionCache cache = new PermissionCache();
+        assertNull(cache.get("printer:print"));
+        Permission p = new WildcardPermission("printer:print");
+        cache.put("printer:print", p);
+        assertSame(p, cache.get("printer:print"));
+        assertNull(cache.get(null));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictionKeepsRecentlyUsedEntries() {
+        PermissionCache cache = new PermissionCache(10);
+        Permission hot = new WildcardPermission("hot");
+        cache.put("hot", hot);
+        for (int i = 0; i < 100; i++) {
+            assertSame(hot, cache.get("hot"));
+            String s = "cold:" + i;
+            cache.put(s, new WildcardPermission(s));
+            assertTrue(cache.size() <= cache.getMaxSize());
+        }
+        assertSame(hot, cache.get("hot"));
+        assertEquals(91, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testResolverReusesCachedPermissions() {
+        WildcardPermissionResolver resolver = new WildcardPermissionResolver();
+        Permission p = resolver.resolvePermission("printer:print");
+        assertSame(p, resolver.resolvePermission("printer:print"));
+        assertEquals(1, resolver.getPermissionCache().getHitCount());
+
+        resolver.setPermissionCache(null);
+        assertNotSame(p, resolver.resolvePermission("printer:print"));
+        assertEquals(p, resolver.resolvePermission("printer:print"));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.authz.permission;
+
+import org.apache.shiro.authz.Permission;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 1.5
+ */
+public class PermissionIndexTest {
+
+    private static final String[] GRANTS = {
+            "newsletter:view,edit", "newsletter:*:13", "printer:print", "printer:query:lp7200",
+            "file:read:*", "file:*:*", "domain:*", "a:b:c:d", "x:y,z:*:w", "single", "*:view"
+    };
+
+    private static final String[] CHECKS = {
+            "newsletter", "newsletter:view", "newsletter:view,edit", "newsletter:edit:12", "newsletter:delete",
+            "newsletter:delete:13", "newsletter:view,delete", "printer", "printer:print", "printer:print:lp7200",
+            "printer:query", "printer:query:lp7200", "printer:query:epsoncolor", "file", "file:read", "file:write",
+            "file:write:foo", "domain", "domain:x:y", "a:b", "a:b:c", "a:b:c:d", "a:b:c:d:e", "a:b:c:e", "x:y",
+            "x:z:q", "x:z:q:w", "x:z:q:v", "x:y,z:q:w", "single", "single:sub", "other:view", "other:edit", "*",
+            "SINGLE"
+    };
+
+    private static boolean scan(List<Permission> granted, Permission checked) {
+        for (Permission p : granted) {
+            if (p.implies(checked)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Permission> resolve(String... permissions) {
+        List<Permission> resolved = new ArrayList<Permission>(permissions.length);
+        for (String s : permissions) {
+            resolved.add(new WildcardPermission(s));
+        }
+        return resolved;
+    }
+
+    @Test
+    public void testEmpty() {
+        PermissionIndex index = new PermissionIndex(Collections.<Permission>emptyList());
+        assertTrue(index.isEmpty());
+        assertFalse(index.implies(new WildcardPermission("anything")));
+        assertTrue(new PermissionIndex(null).isEmpty());
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        List<Permission> granted = resolve(GRANTS);
+        PermissionIndex index = new PermissionIndex(granted);
+        assertFalse(index.isEmpty());
+        for (String check : CHECKS) {
+            Permission checked = new WildcardPermission(check);
+            assertEquals(check, scan(granted, checked), index.implies(checked));
+        }
+    }
+
+    @Test
+    public void testEachGrantIndividually() {
+        for (String grant : GRANTS) {
+            List<Permission> granted = resolve(grant);
+            PermissionIndex index = new PermissionIndex(granted);
+            for (String check : CHECKS) {
+                Permission checked = new WildcardPermission(check);
+                assertEquals(grant + " -> " + check, scan(granted, checked), index.implies(checked));
+            }
+        }
+    }
+
+    @Test
+    public void testNonWildcardPermissions() {
+        List<Permission> granted = new ArrayList<Permission>(resolve("printer:print"));
+        PermissionIndex index = new PermissionIndex(granted);
+        assertFalse(index.implies(new AllPermission()));
+
+        granted.add(new AllPermission());
+        index = new PermissionIndex(granted);
+        assertTrue(index.implies(new WildcardPermission("anything:at:all")));
+        assertTrue(index.implies(new AllPermission()));
+    }
+
+    @Test
+    public void testSubclassOverridingImpliesIsNotIndexed() {
+        Permission deny = new WildcardPermission("printer:print") {
+            @Override
+            public boolean implies(Permission p) {
+                return false;
+            }
+        };
+        PermissionIndex index = new PermissionIndex(Arrays.asList(deny));
+        assertFalse(index.implies(new WildcardPermission("printer:print")));
+    }
+
+    @Test
+    public void testDomainPermission() {
+        PermissionIndex index = new PermissionIndex(Arrays.<Permission>asList(new DomainPermission("read")));
+        assertTrue(index.implies(new WildcardPermission("domain:read")));
+        assertFalse(index.implies(new WildcardPermission("domain:write")));
+    }
+}
@@ -18,10 +18,16 @@
  */
 package org.apache.shiro.authz.permission;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 
 /**
  * @since 0.9
@@ -225,4 +231,43 @@ public class WildcardPermissionTest {
         assertTrue("one,two:three,four,five:six:seven,eight".equals(p5.toString()));
         assertTrue(p5.equals(new WildcardPermission(p5.toString())));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTokensWithCollidingHashCodes() {
+        // "Aa" and "BB" share the same String hash code:
+        WildcardPermission p1 = new WildcardPermission("printer:Aa,BB", true);
+        WildcardPermission p2 = new WildcardPermission("printer:BB", true);
+        WildcardPermission p3 = new WildcardPermission("printer:Aa,BB,Cc", true);
+        WildcardPermission p4 = new WildcardPermission("printer:Ab", true);
+        assertTrue(p1.implies(p2));
+        assertFalse(p2.implies(p1));
+        assertFalse(p1.implies(p3));
+        assertTrue(p3.implies(p1));
+        assertFalse(p1.implies(p4));
+    }
+
+    @Test
+    public void testSetPartsRecompiles() {
+        WildcardPermission p1 = new WildcardPermission("printer:print");
+        WildcardPermission p2 = new WildcardPermission("printer:query");
+        assertFalse(p1.implies(p2));
+        p1.setParts("printer:query,print");
+        assertTrue(p1.implies(p2));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        WildcardPermission p1 = new WildcardPermission("newsletter:view,edit:*");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(p1);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        WildcardPermission p2 = (WildcardPermission) in.readObject();
+
+        assertEquals(p1, p2);
+        assertTrue(p2.implies(new WildcardPermission("newsletter:edit:12")));
+        assertFalse(p2.implies(new WildcardPermission("newsletter:delete:12")));
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.io;
+
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.support.DefaultSubjectContext;
+import org.apache.shiro.util.ByteSource;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * @since 1.5
+ */
+public class CompactSerializerTest {
+
+    private static SimpleSession newSession() {
+        SimpleSession session = new SimpleSession("192.168.1.1");
+        session.setId(UUID.randomUUID().toString());
+        session.setLastAccessTime(new Date(session.getStartTimestamp().getTime() + 12345));
+        session.setAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY,
+                new SimplePrincipalCollection("jsmith", "iniRealm"));
+        session.setAttribute(DefaultSubjectContext.AUTHENTICATED_SESSION_KEY, Boolean.TRUE);
+        session.setAttribute("cart", new ArrayList<Object>(Arrays.asList("item1", 42, 42L, new Date(0))));
+        return session;
+    }
+
+    @Test
+    public void testSessionRoundTrip() {
+        CompactSerializer<SimpleSession> serializer = new CompactSerializer<SimpleSession>();
+        SimpleSession session = newSession();
+        session.setStopTimestamp(new Date(session.getStartTimestamp().getTime() + 20000));
+        session.setExpired(true);
+
+        SimpleSession deserialized = serializer.deserialize(serializer.serialize(session));
+
+        assertEquals(session.getId(), deserialized.getId());
+        assertEquals(session.getStartTimestamp(), deserialized.getStartTimestamp());
+        assertEquals(session.getStopTimestamp(), deserialized.getStopTimestamp());
+        assertEquals(session.getLastAccessTime(), deserialized.getLastAccessTime());
+        assertEquals(session.getTimeout(), deserialized.getTimeout());
+        assertTrue(deserialized.isExpired());
+        assertEquals(session.getHost(), deserialized.getHost());
+        assertEquals(session.getAttributes(), deserialized.getAttributes());
+    }
+
+    @Test
+    public void testEmptySessionRoundTrip() {
+        CompactSerializer<SimpleSession> serializer = new CompactSerializer<SimpleSession>();
+        SimpleSession session = new SimpleSession();
+        session.setStartTimestamp(null);
+        session.setLastAccessTime(null);
+        session.setTimeout(0);
+
+        SimpleSession deserialized = serializer.deserialize(serializer.serialize(session));
+
+        assertNull(deserialized.getId());
+        assertNull(deserialized.getStartTimestamp());
+        assertNull(deserialized.getLastAccessTime());
+        assertEquals(0, deserialized.getTimeout());
+        assertNull(deserialized.getHost());
+        assertNull(deserialized.getAttributes());
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() {
+        SimpleSession session = newSession();
+        int compact = new CompactSerializer<SimpleSession>().serialize(session).length;
+        int java = new DefaultSerializer<SimpleSession>().serialize(session).length;
+        assertTrue("compact: " + compact + ", java: " + java, compact * 4 < java);
+    }
+
+    @Test
+    public void testPrincipalCollectionRoundTrip() {
+        CompactSerializer<PrincipalCollection> serializer = new CompactSerializer<PrincipalCollection>();
+        SimplePrincipalCollection principals = new SimplePrincipalCollection();
+        principals.add("jsmith", "realmA");
+        principals.add(12345L, "realmA");
+        principals.add("jsmith", "realmB");
+
+        PrincipalCollection deserialized = serializer.deserialize(serializer.serialize(principals));
+
+        assertEquals(principals, deserialized);
+        assertEquals(principals.asList(), deserialized.asList());
+        assertEquals("jsmith", deserialized.getPrimaryPrincipal());
+    }
+
+    @Test
+    public void testEmptyPrincipalCollectionRoundTrip() {
+        CompactSerializer<PrincipalCollection> serializer = new CompactSerializer<PrincipalCollection>();
+        SimplePrincipalCollection cleared = new SimplePrincipalCollection("jsmith", "realmA");
+        cleared.clear();
+
+        assertTrue(serializer.deserialize(serializer.serialize(new SimplePrincipalCollection())).isEmpty());
+        assertTrue(serializer.deserialize(serializer.serialize(cleared)).isEmpty());
+    }
+
+    @Test
+    public void testAuthenticationInfoRoundTrip() {
+        CompactSerializer<SimpleAuthenticationInfo> serializer = new CompactSerializer<SimpleAuthenticationInfo>();
+        SimpleAuthenticationInfo info = new SimpleAuthenticationInfo("jsmith", "hashed".toCharArray(),
+                ByteSource.Util.bytes("salt"), "iniRealm");
+
+        SimpleAuthenticationInfo deserialized = serializer.deserialize(serializer.serialize(info));
+
+        assertEquals(info.getPrincipals(), deserialized.getPrincipals());
+        assertTrue(Arrays.equals((char[]) info.getCredentials(), (char[]) deserialized.getCredentials()));
+        assertEquals(info.getCredentialsSalt(), deserialized.getCredentialsSalt());
+    }
+
+    @Test
+    public void testAuthorizationInfoRoundTrip() {
+        CompactSerializer<SimpleAuthorizationInfo> serializer = new CompactSerializer<SimpleAuthorizationInfo>();
+        SimpleAuthorizationInfo info = new SimpleAuthorizationInfo(new HashSet<String>(Arrays.asList("admin", "user")));
+        info.addStringPermission("printer:print");
+        info.addObjectPermission(new WildcardPermission("document:read"));
+
+        SimpleAuthorizationInfo deserialized = serializer.deserialize(serializer.serialize(info));
+
+        assertEquals(info.getRoles(), deserialized.getRoles());
+        assertEquals(info.getStringPermissions(), deserialized.getStringPermissions());
+        assertEquals(info.getObjectPermissions(), deserialized.getObjectPermissions());
+    }
+
+    @Test
+    public void testCodec() {
+        CompactSerializer<Object> serializer = new CompactSerializer<Object>();
+        serializer.addCodec(new CompactSerializer.Codec<Locale>() {
+            public Class<Locale> getType() {
+                return Locale.class;
+            }
+
+            public void write(Locale value, DataOutput out) throws IOException {
+                out.writeUTF(value.toString());
+            }
+
+            public Locale read(DataInput in) throws IOException {
+                String[] parts = in.readUTF().split("_");
+                return new Locale(parts[0], parts[1]);
+            }
+        });
+
+        byte[] serialized = serializer.serialize(Locale.GERMANY);
+        assertEquals(Locale.GERMANY, serializer.deserialize(serialized));
+
+        try {
+            new CompactSerializer<Object>().deserialize(serialized);
+            fail("Deserializing a value of a type without a registered codec should fail.");
+        } catch (SerializationException expected) {
+        }
+    }
+
+    @Test
+    public void testUnknownTypesFallBackToJavaSerialization() {
+        CompactSerializer<Object> serializer = new CompactSerializer<Object>();
+        assertEquals(Locale.FRANCE, serializer.deserialize(serializer.serialize(Locale.FRANCE)));
+    }
+
+    @Test
+    public void testDeserializesJavaSerializedData() {
+        SimpleSession session = newSession();
+        byte[] serialized = new DefaultSerializer<SimpleSession>().serialize(session);
+
+        SimpleSession deserialized = new CompactSerializer<SimpleSession>().deserialize(serialized);
+
+        assertEquals(session.getId(), deserialized.getId());
+        assertEquals(session.getAttributes(), deserialized.getAttributes());
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testTruncatedData() {
+        CompactSerializer<SimpleSession> serializer = new CompactSerializer<SimpleSession>();
+        byte[] serialized = serializer.serialize(newSession());
+        serializer.deserialize(Arrays.copyOf(serialized, serialized.length / 2));
+    }
+}
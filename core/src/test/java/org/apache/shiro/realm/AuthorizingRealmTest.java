@@ -26,6 +26,7 @@ import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.authz.UnauthorizedException;
 import org.apache.shiro.authz.permission.RolePermissionResolver;
 import org.apache.shiro.authz.permission.WildcardPermission;
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.subject.SimplePrincipalCollection;
 import org.junit.After;
@@ -214,6 +215,40 @@ public class AuthorizingRealmTest {
         assertTrue( realm.isPermitted( pCollection, "other:bar:foo" ) );
     }
 
+    @Test
+    public void testPermissionIndexWithCachedAuthorizationInfo() {
+        Principal principal = new UsernamePrincipal("indexed");
+        PrincipalCollection pCollection = new SimplePrincipalCollection(principal, "testPermissionIndex");
+
+        final List<String> granted = new ArrayList<String>();
+        granted.add("printer:print");
+        AuthorizingRealm realm = new AllowAllRealm() {
+            @Override
+            protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+                SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+                info.addStringPermissions(granted);
+                return info;
+            }
+        };
+        realm.setCacheManager(new MemoryConstrainedCacheManager());
+        assertFalse(realm.isPermissionIndexingEnabled());
+        realm.setPermissionIndexingEnabled(true);
+
+        assertTrue(realm.isPermitted(pCollection, "printer:print"));
+        assertTrue(realm.isPermitted(pCollection, "printer:print:lp7200"));
+        assertFalse(realm.isPermitted(pCollection, "printer:query"));
+
+        //the cached info (and therefore its index) is reused until cleared:
+        granted.add("printer:query");
+        assertFalse(realm.isPermitted(pCollection, "printer:query"));
+        realm.clearCachedAuthorizationInfo(pCollection);
+        assertTrue(realm.isPermitted(pCollection, "printer:query"));
+
+        realm.setPermissionIndexingEnabled(false);
+        assertTrue(realm.isPermitted(pCollection, "printer:query"));
+        assertFalse(realm.isPermitted(pCollection, "printer:delete"));
+    }
+
     private void assertArrayEquals(boolean[] expected, boolean[] actual) {
         if (expected.length != actual.length) {
             fail("Expected array of length [" + expected.length + "] but received array of length [" + actual.length + "]");
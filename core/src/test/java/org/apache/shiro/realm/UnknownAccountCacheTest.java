@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.realm;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.UnknownAccountException;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link UnknownAccountCache} and {@link KnownAccountFilter} classes.
+ *
+ * @since 1.5
+ */
+public class UnknownAccountCacheTest {
+
+    private UnknownAccountCache cache;
+    private AtomicInteger lookups;
+    private SimpleAccountRealm realm;
+
+    @Before
+    public void setUp() {
+        cache = new UnknownAccountCache();
+        lookups = new AtomicInteger();
+        realm = new SimpleAccountRealm() {
+            @Override
+            protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) {
+                lookups.incrementAndGet();
+                return super.doGetAuthenticationInfo(token);
+            }
+        };
+        realm.addAccount("known", "password");
+        realm.setUnknownAccountCache(cache);
+    }
+
+    @Test
+    public void testUnknownAccountLookedUpOnce() {
+        assertNull(realm.getAuthenticationInfo(new UsernamePasswordToken("unknown", "password")));
+        assertNull(realm.getAuthenticationInfo(new UsernamePasswordToken("unknown", "password")));
+        assertEquals(1, lookups.get());
+        assertEquals(1, cache.getHitCount());
+
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("known", "password")));
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("known", "password")));
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void testUnknownAccountExceptionCached() {
+        AuthenticatingRealm throwing = new AuthenticatingRealm() {
+            @Override
+            protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) {
+                lookups.incrementAndGet();
+                throw new UnknownAccountException();
+            }
+        };
+        throwing.setUnknownAccountCache(cache);
+        try {
+            throwing.getAuthenticationInfo(new UsernamePasswordToken("unknown", "password"));
+            fail("The realm's exception must be propagated.");
+        } catch (UnknownAccountException expected) {
+        }
+        assertNull(throwing.getAuthenticationInfo(new UsernamePasswordToken("unknown", "password")));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void testAccountCreationInvalidates() {
+        realm.getAuthenticationInfo(new UsernamePasswordToken("new", "password"));
+        realm.addAccount("new", "password");
+        assertEquals(0, cache.size());
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("new", "password")));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        cache.setTimeToLive(1);
+        realm.getAuthenticationInfo(new UsernamePasswordToken("unknown", "password"));
+        Thread.sleep(10);
+        realm.getAuthenticationInfo(new UsernamePasswordToken("unknown", "password"));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testBounded() {
+        cache.setMaxSize(10);
+        for (int i = 0; i < 100; i++) {
+            cache.put("unknown" + i);
+        }
+        assertEquals(10, cache.size());
+        assertTrue(cache.isUnknown("unknown99"));
+    }
+
+    @Test
+    public void testKnownAccountFilter() {
+        KnownAccountFilter filter = new KnownAccountFilter(100, 0.01);
+        filter.add("known");
+        cache.setKnownAccountFilter(filter);
+
+        assertNull(realm.getAuthenticationInfo(new UsernamePasswordToken("unknown", "password")));
+        assertEquals(0, lookups.get());
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("known", "password")));
+        assertEquals(1, lookups.get());
+
+        realm.addAccount("new", "password");
+        assertNotNull(realm.getAuthenticationInfo(new UsernamePasswordToken("new", "password")));
+    }
+
+    @Test
+    public void testKnownAccountFilterFalsePositiveRate() {
+        KnownAccountFilter filter = new KnownAccountFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("user" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("attacker" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 300);
+        assertFalse(new KnownAccountFilter().mightContain("anyone"));
+        filter.addAll(Arrays.asList("a", "b"));
+        assertTrue(filter.mightContain("b"));
+    }
+}
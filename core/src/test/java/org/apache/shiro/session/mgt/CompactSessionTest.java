@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import org.apache.shiro.io.CompactSerializer;
+import org.apache.shiro.io.DefaultSerializer;
+import org.apache.shiro.session.ExpiredSessionException;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.StoppedSessionException;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @since 1.5
+ */
+public class CompactSessionTest {
+
+    private static void assertAttributes(Map<Object, Object> expected, CompactSession session) {
+        assertEquals(expected.keySet(), new HashSet<Object>(session.getAttributeKeys()));
+        for (Map.Entry<Object, Object> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), session.getAttribute(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testAttributesBehaveLikeAMap() {
+        CompactSession session = new CompactSession();
+        Map<Object, Object> expected = new HashMap<Object, Object>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            Object key = random.nextInt(10) == 0 ? null : "key" + random.nextInt(40);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), session.removeAttribute(key));
+            } else {
+                Object value = random.nextInt(10) == 0 ? null : i;
+                if (value == null) {
+                    expected.remove(key);
+                } else {
+                    expected.put(key, value);
+                }
+                session.setAttribute(key, value);
+            }
+            assertEquals(expected.get("key7"), session.getAttribute("key7"));
+        }
+        assertAttributes(expected, session);
+    }
+
+    @Test
+    public void testTimestamps() {
+        CompactSession session = new CompactSession("localhost");
+        assertEquals("localhost", session.getHost());
+        assertNotNull(session.getStartTimestamp());
+        assertEquals(session.getStartTimestamp(), session.getLastAccessTime());
+        assertNull(session.getStopTimestamp());
+        assertTrue(session.isValid());
+
+        session.stop();
+        assertNotNull(session.getStopTimestamp());
+        assertFalse(session.isValid());
+        try {
+            session.validate();
+            fail("A stopped session should not validate.");
+        } catch (StoppedSessionException expected) {
+        }
+    }
+
+    @Test
+    public void testValidateExpires() {
+        CompactSession session = new CompactSession();
+        session.setTimeout(1000);
+        session.setLastAccessTime(new Date(System.currentTimeMillis() - 2000));
+        try {
+            session.validate();
+            fail("A timed out session should not validate.");
+        } catch (ExpiredSessionException expected) {
+        }
+        assertTrue(session.isExpired());
+        assertNotNull(session.getStopTimestamp());
+    }
+
+    @Test
+    public void testSerialization() {
+        CompactSession session = new CompactSession("localhost");
+        session.setId("abc");
+        session.setAttribute("foo", "bar");
+        session.setAttribute(null, "nullKey");
+        session.setAttribute(AttributeKey.A, 1);
+
+        CompactSession java = (CompactSession) new DefaultSerializer<Object>().deserialize(
+                new DefaultSerializer<Object>().serialize(session));
+        CompactSession compact = (CompactSession) new CompactSerializer<Object>().deserialize(
+                new CompactSerializer<Object>().serialize(session));
+
+        for (CompactSession deserialized : new CompactSession[]{java, compact}) {
+            assertEquals(session, deserialized);
+            assertEquals(session.getStartTimestamp(), deserialized.getStartTimestamp());
+            assertEquals(session.getLastAccessTime(), deserialized.getLastAccessTime());
+            assertEquals(session.getTimeout(), deserialized.getTimeout());
+            assertEquals("localhost", deserialized.getHost());
+            assertEquals("bar", deserialized.getAttribute("foo"));
+            assertEquals("nullKey", deserialized.getAttribute(null));
+            assertEquals(1, deserialized.getAttribute(AttributeKey.A));
+            assertEquals(3, deserialized.getAttributeKeys().size());
+        }
+    }
+
+    @Test
+    public void testWithDefaultSessionManager() {
+        DefaultSessionManager sessionManager = new DefaultSessionManager();
+        sessionManager.setSessionFactory(new CompactSessionFactory());
+        try {
+            Session session = sessionManager.start(null);
+            session.setAttribute("foo", "bar");
+            assertEquals("bar", session.getAttribute("foo"));
+            assertNotNull(session.getId());
+            session.stop();
+        } finally {
+            sessionManager.destroy();
+        }
+    }
+
+    /**
+     * An attribute key whose hash code is not stable across JVMs.
+     */
+    private enum AttributeKey {
+        A
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.shiro.session.InvalidSessionException;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.SessionListener;
 import org.apache.shiro.session.SessionListenerAdapter;
+import org.apache.shiro.session.mgt.eis.MemorySessionDAO;
 import org.apache.shiro.session.mgt.eis.SessionDAO;
 import org.apache.shiro.util.ThreadContext;
 import org.easymock.EasyMock;
@@ -31,6 +32,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.Serializable;
 import java.util.UUID;
 
 import static org.easymock.EasyMock.*;
@@ -221,6 +223,74 @@ public class DefaultSessionManagerTest {
         }
     }
 
+    /**
+     * @since 1.5
+     */
+    @Test
+    public void testWorkingCopyScopeCoalescesReadsAndWrites() {
+        final int[] counts = new int[2];
+        sm.setSessionDAO(new MemorySessionDAO() {
+            @Override
+            public Session readSession(Serializable sessionId) {
+                counts[0]++;
+                return super.readSession(sessionId);
+            }
+
+            @Override
+            public void update(Session session) {
+                counts[1]++;
+                super.update(session);
+            }
+        });
+        sm.setWorkingCopyEnabled(true);
+        Serializable id = sm.start(null).getId();
+        counts[0] = counts[1] = 0;
+
+        assertTrue(sm.beginWorkingCopyScope());
+        assertFalse(sm.beginWorkingCopyScope());
+        Session session = sm.getSession(new DefaultSessionKey(id));
+        session.touch();
+        for (int i = 0; i < 10; i++) {
+            session.setAttribute("foo", "bar" + i);
+            assertEquals("bar" + i, session.getAttribute("foo"));
+        }
+        session.removeAttribute("foo");
+        assertEquals(1, counts[0]);
+        assertEquals(0, counts[1]);
+        sm.endWorkingCopyScope();
+        assertEquals(1, counts[1]);
+
+        //read-only scopes do not write anything:
+        assertTrue(sm.beginWorkingCopyScope());
+        assertNull(sm.getSession(new DefaultSessionKey(id)).getAttribute("foo"));
+        sm.endWorkingCopyScope();
+        assertEquals(2, counts[0]);
+        assertEquals(1, counts[1]);
+
+        //outside of a scope every change is written immediately:
+        session.setAttribute("foo", "bar");
+        session.touch();
+        assertEquals(3, counts[1]);
+    }
+
+    @Test
+    public void testWorkingCopyScopeRequiresWorkingCopyEnabled() {
+        assertFalse(sm.isWorkingCopyEnabled());
+        assertFalse(sm.beginWorkingCopyScope());
+    }
+
+    @Test
+    public void testStopWithinWorkingCopyScope() {
+        sm.setWorkingCopyEnabled(true);
+        Serializable id = sm.start(null).getId();
+        assertTrue(sm.beginWorkingCopyScope());
+        Session session = sm.getSession(new DefaultSessionKey(id));
+        session.setAttribute("foo", "bar");
+        session.stop();
+        sm.endWorkingCopyScope();
+        assertTrue(sm.getActiveSessions().isEmpty());
+    }
+
     public static <T extends Session> T eqSessionTimeout(long timeout) {
         EasyMock.reportMatcher(new SessionTimeoutMatcher(timeout));
         return null;
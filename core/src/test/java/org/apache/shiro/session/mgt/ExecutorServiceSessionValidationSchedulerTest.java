@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.eis.MemorySessionDAO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for parallel session validation via the {@link ExecutorServiceSessionValidationScheduler}.
+ *
+ * @since 1.5
+ */
+public class ExecutorServiceSessionValidationSchedulerTest {
+
+    private DefaultSessionManager sm;
+    private AtomicInteger concurrentDeletes;
+    private AtomicInteger maxConcurrentDeletes;
+
+    @Before
+    public void setUp() {
+        concurrentDeletes = new AtomicInteger();
+        maxConcurrentDeletes = new AtomicInteger();
+        sm = new DefaultSessionManager();
+        sm.setSessionValidationSchedulerEnabled(false);
+        sm.setSessionValidationBatchSize(7);
+        sm.setSessionDAO(new MemorySessionDAO() {
+            @Override
+            public void delete(Session session) {
+                int current = concurrentDeletes.incrementAndGet();
+                if (current > maxConcurrentDeletes.get()) {
+                    maxConcurrentDeletes.set(current);
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.delete(session);
+                concurrentDeletes.decrementAndGet();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        sm.destroy();
+    }
+
+    private void startSessions(int valid, int expiring) throws InterruptedException {
+        for (int i = 0; i < valid; i++) {
+            sm.start(null);
+        }
+        for (int i = 0; i < expiring; i++) {
+            sm.start(null).setTimeout(1);
+        }
+        Thread.sleep(10);
+    }
+
+    @Test
+    public void testSerialValidationMetrics() throws InterruptedException {
+        startSessions(20, 30);
+        SessionValidationMetrics metrics = sm.validateSessions(null, 0, 0);
+        assertEquals(50, metrics.getScannedCount());
+        assertEquals(30, metrics.getExpiredCount());
+        assertEquals(0, metrics.getStoppedCount());
+        assertEquals(30, metrics.getInvalidCount());
+        assertEquals(20, sm.getActiveSessions().size());
+    }
+
+    @Test
+    public void testParallelValidation() throws InterruptedException {
+        startSessions(40, 60);
+        ExecutorServiceSessionValidationScheduler scheduler = new ExecutorServiceSessionValidationScheduler(sm);
+        scheduler.setInterval(60 * 60 * 1000);
+        scheduler.setValidationThreads(4);
+        scheduler.setMaxConcurrentInvalidations(2);
+        scheduler.enableSessionValidation();
+        try {
+            scheduler.run();
+        } finally {
+            scheduler.disableSessionValidation();
+        }
+
+        SessionValidationMetrics metrics = scheduler.getLastValidationMetrics();
+        assertNotNull(metrics);
+        assertEquals(100, metrics.getScannedCount());
+        assertEquals(60, metrics.getExpiredCount());
+        assertEquals(40, sm.getActiveSessions().size());
+        assertTrue(maxConcurrentDeletes.get() <= 2);
+    }
+
+    @Test
+    public void testSerialValidationUsesValidateSessions() {
+        final AtomicInteger runs = new AtomicInteger();
+        DefaultSessionManager manager = new DefaultSessionManager() {
+            @Override
+            public void validateSessions() {
+                runs.incrementAndGet();
+            }
+        };
+        manager.setSessionValidationSchedulerEnabled(false);
+        ExecutorServiceSessionValidationScheduler scheduler = new ExecutorServiceSessionValidationScheduler(manager);
+        scheduler.run();
+        assertEquals(1, runs.get());
+        //the overridden validateSessions() reports no counts:
+        SessionValidationMetrics metrics = scheduler.getLastValidationMetrics();
+        assertNotNull(metrics);
+        assertEquals(0, metrics.getScannedCount());
+    }
+
+    @Test
+    public void testSerialValidationRecordsMetrics() throws InterruptedException {
+        startSessions(20, 30);
+        ExecutorServiceSessionValidationScheduler scheduler = new ExecutorServiceSessionValidationScheduler(sm);
+        scheduler.run();
+
+        SessionValidationMetrics metrics = scheduler.getLastValidationMetrics();
+        assertNotNull(metrics);
+        assertSame(metrics, sm.getLastValidationMetrics());
+        assertEquals(50, metrics.getScannedCount());
+        assertEquals(30, metrics.getExpiredCount());
+
+        //every run replaces the metrics of the previous one:
+        scheduler.run();
+        assertNotSame(metrics, scheduler.getLastValidationMetrics());
+        assertEquals(0, scheduler.getLastValidationMetrics().getExpiredCount());
+    }
+
+    @Test
+    public void testParallelValidationUsesValidateHook() throws InterruptedException {
+        final AtomicInteger validated = new AtomicInteger();
+        sm = new DefaultSessionManager() {
+            @Override
+            protected void validate(Session session, SessionKey key) {
+                validated.incrementAndGet();
+                super.validate(session, key);
+            }
+        };
+        sm.setSessionValidationSchedulerEnabled(false);
+        sm.setSessionValidationBatchSize(7);
+        startSessions(10, 15);
+        validated.set(0);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            SessionValidationMetrics metrics = sm.validateSessions(executor, 6, 1);
+            assertEquals(25, validated.get());
+            assertEquals(15, metrics.getExpiredCount());
+            assertEquals(10, sm.getActiveSessions().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testShutdownExecutorCancelsValidation() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        sm = new DefaultSessionManager() {
+            @Override
+            protected void validate(Session session, SessionKey key) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.validate(session, key);
+            }
+        };
+        sm.setSessionValidationSchedulerEnabled(false);
+        sm.setSessionValidationBatchSize(7);
+        startSessions(50, 0);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        Thread validation = new Thread() {
+            @Override
+            public void run() {
+                sm.validateSessions(executor, 2, 0);
+            }
+        };
+        validation.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        //drops the queued chunks:
+        executor.shutdownNow();
+        validation.join(5000);
+        release.countDown();
+        assertFalse(validation.isAlive());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValidationThreads() {
+        new ExecutorServiceSessionValidationScheduler().setValidationThreads(0);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.eis.MemorySessionDAO;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link SessionExpiryIndex} class and its use by {@link AbstractValidatingSessionManager}.
+ *
+ * @since 1.5
+ */
+public class SessionExpiryIndexTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidResolution() {
+        new SessionExpiryIndex(0);
+    }
+
+    @Test
+    public void testPollExpiredInOrder() {
+        SessionExpiryIndex index = new SessionExpiryIndex(10);
+        index.put("c", 2501);
+        index.put("a", 1001);
+        index.put("b", 1999);
+        assertEquals(3, index.size());
+
+        assertEquals(Collections.emptyList(), index.pollExpired(1009, 10));
+        assertEquals(Arrays.<Serializable>asList("a"), index.pollExpired(1010, 10));
+        assertEquals(Arrays.<Serializable>asList("b", "c"), index.pollExpired(5000, 10));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testPutReplacesAndRemoveRemoves() {
+        SessionExpiryIndex index = new SessionExpiryIndex(1);
+        index.put("a", 100);
+        index.put("a", 200);
+        index.put("b", 100);
+        index.remove("b");
+        assertEquals(1, index.size());
+        assertTrue(index.pollExpired(150, 10).isEmpty());
+        assertEquals(Arrays.<Serializable>asList("a"), index.pollExpired(200, 10));
+    }
+
+    @Test
+    public void testPollIsBounded() {
+        SessionExpiryIndex index = new SessionExpiryIndex();
+        for (int i = 0; i < 25; i++) {
+            index.put(i, i);
+        }
+        assertEquals(10, index.pollExpired(100000, 10).size());
+        assertEquals(10, index.pollExpired(100000, 10).size());
+        assertEquals(5, index.pollExpired(100000, 10).size());
+    }
+
+    @Test
+    public void testNeverExpiringSessionDoesNotOverflow() {
+        SessionExpiryIndex index = new SessionExpiryIndex(1000);
+        index.put("a", Long.MAX_VALUE - 1);
+        assertTrue(index.pollExpired(Long.MAX_VALUE - 2, 10).isEmpty());
+        assertEquals(1, index.pollExpired(Long.MAX_VALUE, 10).size());
+    }
+
+    @Test
+    public void testIncrementalValidation() throws InterruptedException {
+        final int[] activeSessionScans = new int[1];
+        DefaultSessionManager sm = new DefaultSessionManager();
+        sm.setSessionValidationSchedulerEnabled(false);
+        sm.setSessionDAO(new MemorySessionDAO() {
+            @Override
+            public Collection<Session> getActiveSessions() {
+                activeSessionScans[0]++;
+                return super.getActiveSessions();
+            }
+        });
+        SessionExpiryIndex index = new SessionExpiryIndex(1);
+        sm.setSessionExpiryIndex(index);
+        try {
+            Session longLived = sm.start(null);
+            Session expiring = sm.start(null);
+            expiring.setTimeout(1);
+            Thread.sleep(10);
+
+            //the first run validates (and indexes) every active session:
+            sm.validateSessions();
+            assertEquals(1, activeSessionScans[0]);
+            assertEquals(1, sm.getActiveSessions().size());
+            assertEquals(1, index.size());
+            activeSessionScans[0] = 0;
+
+            expiring = sm.start(null);
+            expiring.setTimeout(1);
+            assertEquals(2, index.size());
+            Thread.sleep(10);
+
+            //later runs only visit the sessions that can have expired:
+            sm.validateSessions();
+            assertEquals(0, activeSessionScans[0]);
+            assertEquals(1, index.size());
+            assertTrue(sm.isValid(new DefaultSessionKey(longLived.getId())));
+            assertFalse(sm.isValid(new DefaultSessionKey(expiring.getId())));
+
+            longLived.stop();
+            assertEquals(0, index.size());
+        } finally {
+            sm.destroy();
+        }
+    }
+
+    @Test
+    public void testIncompleteRunIsFollowedByFullRun() throws InterruptedException {
+        final int[] activeSessionScans = new int[1];
+        final boolean[] failReads = new boolean[1];
+        DefaultSessionManager sm = new DefaultSessionManager();
+        sm.setSessionValidationSchedulerEnabled(false);
+        sm.setSessionDAO(new MemorySessionDAO() {
+            @Override
+            public Collection<Session> getActiveSessions() {
+                activeSessionScans[0]++;
+                return super.getActiveSessions();
+            }
+
+            @Override
+            public Session readSession(Serializable sessionId) {
+                if (failReads[0]) {
+                    throw new IllegalStateException("The session data store is unavailable.");
+                }
+                return super.readSession(sessionId);
+            }
+        });
+        SessionExpiryIndex index = new SessionExpiryIndex(1);
+        sm.setSessionExpiryIndex(index);
+        try {
+            sm.validateSessions();
+            Session expiring = sm.start(null);
+            expiring.setTimeout(1);
+            Thread.sleep(10);
+
+            failReads[0] = true;
+            try {
+                sm.validateSessions();
+                fail("The data store failure should propagate.");
+            } catch (IllegalStateException expected) {
+            }
+            assertEquals(0, index.size()); //polled, but never validated
+            failReads[0] = false;
+            activeSessionScans[0] = 0;
+
+            //the sessions polled by the failed run are found by a full run:
+            sm.validateSessions();
+            assertEquals(1, activeSessionScans[0]);
+            assertTrue(sm.getActiveSessions().isEmpty());
+        } finally {
+            sm.destroy();
+        }
+    }
+
+    @Test
+    public void testPeriodicFullRun() throws InterruptedException {
+        final int[] activeSessionScans = new int[1];
+        DefaultSessionManager sm = new DefaultSessionManager();
+        sm.setSessionValidationSchedulerEnabled(false);
+        sm.setSessionDAO(new MemorySessionDAO() {
+            @Override
+            public Collection<Session> getActiveSessions() {
+                activeSessionScans[0]++;
+                return super.getActiveSessions();
+            }
+        });
+        sm.setSessionExpiryIndex(new SessionExpiryIndex(1));
+        sm.setSessionExpiryIndexRescanInterval(200);
+        try {
+            sm.validateSessions();
+            sm.validateSessions();
+            assertEquals(1, activeSessionScans[0]);
+            Thread.sleep(250);
+            sm.validateSessions();
+            assertEquals(2, activeSessionScans[0]);
+        } finally {
+            sm.destroy();
+        }
+    }
+}
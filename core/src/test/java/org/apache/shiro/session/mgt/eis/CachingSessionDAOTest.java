@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.cache.MapCache;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for touching sessions through a {@link CachingSessionDAO}.
+ *
+ * @since 1.5
+ */
+public class CachingSessionDAOTest {
+
+    private static class CountingCachingSessionDAO extends EnterpriseCacheSessionDAO {
+
+        private int updates;
+        private int touches;
+
+        CountingCachingSessionDAO() {
+            setActiveSessionsCache(new MapCache<Serializable, Session>("test", new HashMap<Serializable, Session>()));
+        }
+
+        @Override
+        protected void doUpdate(Session session) {
+            updates++;
+        }
+
+        @Override
+        protected void doTouch(Session session) {
+            touches++;
+        }
+    }
+
+    @Test
+    public void testTouchedSessionsAreOnlyTouched() {
+        CountingCachingSessionDAO dao = new CountingCachingSessionDAO();
+        DefaultSessionManager sm = new DefaultSessionManager();
+        sm.setSessionValidationSchedulerEnabled(false);
+        sm.setSessionDAO(dao);
+        try {
+            Session session = sm.start(null);
+            dao.updates = 0;
+            dao.touches = 0;
+
+            session.touch();
+            assertEquals(1, dao.touches);
+            assertEquals(0, dao.updates);
+
+            session.setAttribute("key", "value");
+            assertTrue(dao.updates > 0);
+            assertSame(dao.getActiveSessions().iterator().next(), dao.readSession(session.getId()));
+        } finally {
+            sm.destroy();
+        }
+    }
+
+    @Test
+    public void testTouchDefaultsToUpdate() {
+        final int[] updates = new int[1];
+        CachingSessionDAO dao = new EnterpriseCacheSessionDAO() {
+            @Override
+            protected void doUpdate(Session session) {
+                updates[0]++;
+            }
+        };
+        dao.setActiveSessionsCache(new MapCache<Serializable, Session>("test", new HashMap<Serializable, Session>()));
+        SimpleSession session = new SimpleSession();
+        session.setId("id");
+
+        dao.touch(session);
+
+        assertEquals(1, updates[0]);
+        assertSame(session, dao.readSession("id"));
+    }
+
+    @Test
+    public void testTouchUsesOverriddenUpdate() {
+        final int[] updates = new int[1];
+        CountingCachingSessionDAO dao = new CountingCachingSessionDAO() {
+            @Override
+            public void update(Session session) {
+                updates[0]++;
+                super.update(session);
+            }
+        };
+        SimpleSession session = new SimpleSession();
+        session.setId("id");
+
+        dao.touch(session);
+
+        assertEquals(1, updates[0]);
+        assertEquals(0, dao.touches);
+    }
+}
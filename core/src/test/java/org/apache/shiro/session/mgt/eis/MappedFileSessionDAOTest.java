@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.SessionException;
+import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link MappedFileSessionDAO} implementation.
+ *
+ * @since 1.5
+ */
+public class MappedFileSessionDAOTest {
+
+    private File directory;
+    private MappedFileSessionDAO dao;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("shiro-sessions", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        dao = newDAO();
+    }
+
+    @After
+    public void tearDown() {
+        dao.destroy();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private MappedFileSessionDAO newDAO() {
+        MappedFileSessionDAO dao = new MappedFileSessionDAO(directory);
+        dao.setSegmentSize(4096);
+        dao.setCompactionInterval(0); //compacted explicitly by the tests
+        return dao;
+    }
+
+    private MappedFileSessionDAO restart() {
+        dao.destroy();
+        dao = newDAO();
+        return dao;
+    }
+
+    private static Session newSession(String value) {
+        Session session = new SimpleSession("localhost");
+        session.setAttribute("value", value);
+        return session;
+    }
+
+    @Test
+    public void testCreateReadUpdateDelete() {
+        Session session = newSession("a");
+        Serializable id = dao.create(session);
+
+        Session read = dao.readSession(id);
+        assertNotSame(session, read);
+        assertEquals("a", read.getAttribute("value"));
+        assertEquals("localhost", read.getHost());
+
+        session.setAttribute("value", "b");
+        dao.update(session);
+        assertEquals("b", dao.readSession(id).getAttribute("value"));
+        assertEquals(1, dao.getSessionCount());
+        assertEquals(1, dao.getActiveSessions().size());
+
+        dao.delete(session);
+        assertEquals(0, dao.getSessionCount());
+        try {
+            dao.readSession(id);
+            fail("A deleted session should not be found.");
+        } catch (UnknownSessionException expected) {
+        }
+    }
+
+    @Test
+    public void testRecovery() {
+        List<Session> sessions = new ArrayList<Session>();
+        for (int i = 0; i < 100; i++) {
+            Session session = newSession("v" + i);
+            dao.create(session);
+            sessions.add(session);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            sessions.get(i).setAttribute("value", "updated" + i);
+            dao.update(sessions.get(i));
+        }
+        for (int i = 0; i < 100; i += 10) {
+            dao.delete(sessions.get(i));
+        }
+        long liveBytes = dao.getLiveBytes();
+
+        restart();
+
+        assertEquals(90, dao.getSessionCount());
+        assertEquals(liveBytes, dao.getLiveBytes());
+        for (int i = 0; i < 100; i++) {
+            Serializable id = sessions.get(i).getId();
+            if (i % 10 == 0) {
+                try {
+                    dao.readSession(id);
+                    fail("A deleted session should not be recovered.");
+                } catch (UnknownSessionException expected) {
+                }
+            } else {
+                assertEquals(i % 2 == 0 ? "updated" + i : "v" + i, dao.readSession(id).getAttribute("value"));
+            }
+        }
+    }
+
+    @Test
+    public void testCompaction() {
+        List<Session> sessions = new ArrayList<Session>();
+        for (int i = 0; i < 10; i++) {
+            Session session = newSession("v" + i);
+            dao.create(session);
+            sessions.add(session);
+        }
+        for (int round = 0; round < 50; round++) {
+            for (Session session : sessions) {
+                session.setAttribute("value", "round" + round);
+                dao.update(session);
+            }
+        }
+        dao.delete(sessions.remove(0));
+        int segmentCount = dao.getSegmentCount();
+        long usedBytes = dao.getUsedBytes();
+        long liveBytes = dao.getLiveBytes();
+        assertTrue(segmentCount > 2);
+
+        dao.compact();
+
+        //all older segments have been compacted into the newest one(s):
+        assertTrue(dao.getSegmentCount() <= 2);
+        assertTrue(dao.getUsedBytes() < usedBytes);
+        assertEquals(liveBytes, dao.getLiveBytes());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(9, dao.getSessionCount());
+            for (Session session : sessions) {
+                assertEquals("round49", dao.readSession(session.getId()).getAttribute("value"));
+            }
+            restart();
+        }
+    }
+
+    @Test
+    public void testRecoveryIgnoresIncompleteRecord() throws IOException {
+        Session session = newSession("a");
+        Serializable id = dao.create(session);
+        long usedBytes = dao.getUsedBytes();
+        dao.destroy();
+
+        //simulate a record whose body has not been completely written:
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        for (File file : files) {
+            if (file.getName().endsWith(".seg")) {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.seek(16 + usedBytes);
+                    raf.writeInt(100);
+                    raf.writeInt(12345);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+
+        dao = newDAO();
+        assertEquals("a", dao.readSession(id).getAttribute("value"));
+        assertEquals(usedBytes, dao.getUsedBytes());
+
+        Serializable id2 = dao.create(newSession("b"));
+        restart();
+        assertEquals("a", dao.readSession(id).getAttribute("value"));
+        assertEquals("b", dao.readSession(id2).getAttribute("value"));
+    }
+
+    @Test(expected = SessionException.class)
+    public void testDirectoryIsLocked() {
+        dao.init();
+        MappedFileSessionDAO other = newDAO();
+        try {
+            other.init();
+        } finally {
+            other.destroy();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDirectoryIsRequired() {
+        MappedFileSessionDAO other = new MappedFileSessionDAO();
+        try {
+            other.create(newSession("a"));
+        } finally {
+            other.destroy();
+        }
+    }
+}
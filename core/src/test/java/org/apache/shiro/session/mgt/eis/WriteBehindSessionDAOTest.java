@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.session.mgt.eis;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.UnknownSessionException;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link WriteBehindSessionDAO} implementation.
+ *
+ * @since 1.5
+ */
+public class WriteBehindSessionDAOTest {
+
+    private CountingSessionDAO target;
+    private WriteBehindSessionDAO dao;
+
+    @Before
+    public void setUp() {
+        target = new CountingSessionDAO();
+        dao = new WriteBehindSessionDAO(target);
+        dao.setMaxStaleness(60000); //flushed explicitly by the tests
+    }
+
+    @After
+    public void tearDown() {
+        dao.destroy();
+    }
+
+    @Test
+    public void testUpdatesAreCoalesced() {
+        Session session = new SimpleSession();
+        Serializable id = dao.create(session);
+        for (int i = 0; i < 10; i++) {
+            session.setAttribute("count", i);
+            dao.update(session);
+            dao.touch(session);
+        }
+        assertEquals(0, target.updates);
+        assertEquals(1, dao.getPendingCount());
+        assertSame(session, dao.readSession(id));
+
+        dao.flush();
+        assertEquals(1, target.updates);
+        assertEquals(0, target.touches);
+        assertEquals(0, dao.getPendingCount());
+        assertEquals(20, dao.getUpdateCount());
+        assertEquals(1, dao.getWriteCount());
+    }
+
+    @Test
+    public void testTouchOnlyFastPath() {
+        Session session = new SimpleSession();
+        dao.create(session);
+        dao.touch(session);
+        dao.touch(session);
+        dao.flush();
+        assertEquals(0, target.updates);
+        assertEquals(1, target.touches);
+    }
+
+    @Test(expected = UnknownSessionException.class)
+    public void testDeleteDiscardsPendingUpdate() {
+        Session session = new SimpleSession();
+        Serializable id = dao.create(session);
+        dao.update(session);
+        dao.delete(session);
+        dao.flush();
+        assertEquals(0, target.updates);
+        assertEquals(0, dao.getPendingCount());
+        assertTrue(dao.getActiveSessions().isEmpty());
+        dao.readSession(id);
+    }
+
+    @Test
+    public void testChangesAfterDeleteAreDiscarded() {
+        Session session = new SimpleSession();
+        Serializable id = dao.create(session);
+        dao.delete(session);
+        //e.g. a request still holding the session:
+        dao.touch(session);
+        dao.update(session);
+        assertEquals(0, dao.getPendingCount());
+        dao.flush();
+        assertEquals(0, target.updates);
+        assertEquals(0, target.touches);
+
+        //the deletion is forgotten after two flushes:
+        dao.flush();
+        dao.update(session);
+        dao.flush();
+        assertEquals(1, target.updates);
+        assertSame(session, target.readSession(id));
+    }
+
+    @Test
+    public void testActiveSessionsIncludePendingState() {
+        SimpleSession stored = new SimpleSession();
+        Serializable id = dao.create(stored);
+        SimpleSession newer = new SimpleSession();
+        newer.setId(id);
+        dao.touch(newer);
+
+        Collection<Session> active = dao.getActiveSessions();
+        assertEquals(1, active.size());
+        assertSame(newer, active.iterator().next());
+    }
+
+    @Test
+    public void testDestroyFlushes() {
+        Session session = new SimpleSession();
+        dao.create(session);
+        dao.update(session);
+        dao.destroy();
+        assertEquals(1, target.updates);
+
+        //after destruction, changes are written immediately:
+        dao.update(session);
+        assertEquals(2, target.updates);
+    }
+
+    @Test
+    public void testBackgroundFlush() throws InterruptedException {
+        dao.setMaxStaleness(10);
+        Session session = new SimpleSession();
+        dao.create(session);
+        dao.update(session);
+        for (int i = 0; i < 500 && target.updates == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, target.updates);
+    }
+
+    @Test
+    public void testSessionManagerTouchesTouchableSessionDAO() {
+        DefaultSessionManager sm = new DefaultSessionManager();
+        sm.setSessionDAO(target);
+        try {
+            Session session = sm.start(null);
+            int updates = target.updates;
+            session.touch();
+            assertEquals(updates, target.updates);
+            assertEquals(1, target.touches);
+        } finally {
+            sm.destroy();
+        }
+    }
+
+    private static class CountingSessionDAO extends MemorySessionDAO implements TouchableSessionDAO {
+
+        private volatile int updates;
+        private volatile int touches;
+
+        @Override
+        public void update(Session session) {
+            updates++;
+            super.update(session);
+        }
+
+        public void touch(Session session) {
+            touches++;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link AntPathMatcher}.
+ *
+ * @since 1.5
+ */
+public class AntPathMatcherTest {
+
+    private static final String[] PATTERNS = {
+            "/login.jsp", "/account/*", "/account/**/edit", "/docs/", "/docs/**", "/api/v?/users/*.json",
+            "/**/*.jsp", "relative/**", "/", "/**"
+    };
+
+    private static final String[] PATHS = {
+            "/login.jsp", "/login.jsp/", "login.jsp", "/account", "/account/", "/account/profile", "/account/a/b/edit",
+            "/docs", "/docs/", "/docs/guide/intro", "/api/v1/users/jsmith.json", "/api/v12/users/jsmith.json",
+            "/a/b/c.jsp", "relative/x/y", "/", "", "/x//y"
+    };
+
+    @Test
+    public void testCompiledPatternMatchesLikeMatcher() {
+        AntPathMatcher matcher = new AntPathMatcher();
+        for (String pattern : PATTERNS) {
+            CompiledPattern compiled = matcher.compile(pattern);
+            assertEquals(pattern, compiled.getPattern());
+            for (String path : PATHS) {
+                assertEquals("pattern [" + pattern + "], path [" + path + "]",
+                        matcher.matches(pattern, path), compiled.matches(path));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledPatternWithCustomSeparator() {
+        AntPathMatcher matcher = new AntPathMatcher();
+        matcher.setPathSeparator(".");
+        CompiledPattern compiled = matcher.compile("com.*.Foo");
+        assertTrue(compiled.matches("com.example.Foo"));
+        assertFalse(compiled.matches("com/example/Foo"));
+    }
+
+    @Test
+    public void testSubclassCompilesToDelegatingPattern() {
+        AntPathMatcher matcher = new AntPathMatcher() {
+            @Override
+            protected boolean doMatch(String pattern, String path, boolean fullMatch) {
+                return super.doMatch(pattern.toLowerCase(), path.toLowerCase(), fullMatch);
+            }
+        };
+        CompiledPattern compiled = matcher.compile("/Account/**");
+        assertTrue(compiled instanceof DelegatingCompiledPattern);
+        assertTrue(compiled.matches("/ACCOUNT/profile"));
+    }
+
+    @Test
+    public void testCompiledPatternCache() {
+        CompiledPatternCache cache = new CompiledPatternCache(new AntPathMatcher());
+        assertSame(cache.get("/account/**"), cache.get("/account/**"));
+        assertTrue(cache.matches("/account/**", "/account/profile"));
+        assertFalse(cache.matches("/docs/**", "/account/profile"));
+        assertEquals(2, cache.size());
+    }
+}
@@ -40,4 +40,33 @@ public class RegExPatternMatcherTest {
         assertTrue(pm.matches(pattern, test));
     }
 
+    @Test
+    public void testCompiledPattern() {
+        RegExPatternMatcher pm = new RegExPatternMatcher();
+        CompiledPattern compiled = pm.compile("/api/v[0-9]+/.*");
+        assertEquals("/api/v[0-9]+/.*", compiled.getPattern());
+        assertTrue(compiled.matches("/api/v12/users"));
+        assertFalse(compiled.matches("/api/vX/users"));
+        assertFalse(compiled.matches("/other/api/v1/users"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompileInvalidPattern() {
+        new RegExPatternMatcher().compile("/api/(unclosed");
+    }
+
+    @Test
+    public void testSubclassCompilesToDelegatingPattern() {
+        RegExPatternMatcher pm = new RegExPatternMatcher() {
+            @Override
+            public boolean matches(String pattern, String source) {
+                return super.matches(pattern, source.toLowerCase());
+            }
+        };
+        CompiledPattern compiled = pm.compile("/account/.*");
+        assertTrue(compiled instanceof DelegatingCompiledPattern);
+        assertTrue(compiled.matches("/ACCOUNT/profile"));
+        assertTrue(new CompiledPatternCache(pm).matches("/account/.*", "/Account/profile"));
+    }
+
 }
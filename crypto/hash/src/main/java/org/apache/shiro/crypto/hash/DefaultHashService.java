@@ -160,10 +160,11 @@ public class DefaultHashService implements ConfigurableHashService {
         ByteSource privateSalt = getPrivateSalt();
         ByteSource salt = combine(privateSalt, publicSalt);
 
-        Hash computed = new SimpleHash(algorithmName, source, salt, iterations);
+        byte[] hashed = HashEngine.hash(algorithmName, source.getBytes(), salt != null ? salt.getBytes() : null,
+                iterations);
 
         SimpleHash result = new SimpleHash(algorithmName);
-        result.setBytes(computed.getBytes());
+        result.setBytes(hashed);
         result.setIterations(iterations);
         //Only expose the public salt - not the real/combined salt that might have been used:
         result.setSalt(publicSalt);
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.crypto.hash;
+
+import org.apache.shiro.crypto.UnknownAlgorithmException;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes salted, iterated {@link MessageDigest} hashes with as little overhead per hash and per iteration as
+ * possible.  The output is byte-for-byte identical to hashing the salt and source once and then re-hashing the result
+ * {@code iterations - 1} times, each time with a new {@code MessageDigest}.
+ * <p/>
+ * Two costs are avoided compared to doing so naively:
+ * <ul>
+ * <li>{@code MessageDigest} instances are looked up via the JCA provider framework once per thread and algorithm
+ * and then reused, instead of once per hash.</li>
+ * <li>Iterations re-hash the previous digest in place in a single output buffer via
+ * {@link MessageDigest#digest(byte[], int, int)}, instead of allocating a new {@code byte[]} per iteration, which adds
+ * up at hundreds of thousands of iterations per password.</li>
+ * </ul>
+ * This class is thread-safe.  Digests obtained from {@link #getDigest(String)} however belong to the calling thread
+ * and must neither be retained nor shared.
+ *
+ * @see SimpleHash
+ * @since 1.5
+ */
+public final class HashEngine {
+
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS =
+            new ThreadLocal<Map<String, MessageDigest>>() {
+                @Override
+                protected Map<String, MessageDigest> initialValue() {
+                    return new HashMap<String, MessageDigest>(4);
+                }
+            };
+
+    private HashEngine() {
+    }
+
+    /**
+     * Returns the calling thread's {@code MessageDigest} for the specified algorithm, reset and ready for use.  The
+     * instance is only valid until the calling thread next calls a method of this class.
+     *
+     * @param algorithmName the name of the {@code MessageDigest} algorithm.
+     * @return the calling thread's {@code MessageDigest} for the specified algorithm.
+     * @throws UnknownAlgorithmException if the specified algorithm name is not available.
+     */
+    public static MessageDigest getDigest(String algorithmName) throws UnknownAlgorithmException {
+        Map<String, MessageDigest> digests = DIGESTS.get();
+        MessageDigest digest = digests.get(algorithmName);
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance(algorithmName);
+            } catch (NoSuchAlgorithmException e) {
+                String msg = "No native '" + algorithmName + "' MessageDigest instance available on the current JVM.";
+                throw new UnknownAlgorithmException(msg, e);
+            }
+            digests.put(algorithmName, digest);
+        } else {
+            digest.reset();
+        }
+        return digest;
+    }
+
+    /**
+     * Hashes the specified bytes with the calling thread's digest for the specified algorithm.
+     *
+     * @param algorithmName the name of the {@code MessageDigest} algorithm.
+     * @param bytes         the bytes to hash.
+     * @param salt          the salt to hash before the bytes, or {@code null} for no salt.
+     * @param iterations    the total number of times to hash, at least one hash will always occur.
+     * @return the hashed bytes.
+     * @throws UnknownAlgorithmException if the specified algorithm name is not available.
+     */
+    public static byte[] hash(String algorithmName, byte[] bytes, byte[] salt, int iterations)
+            throws UnknownAlgorithmException {
+        return hash(getDigest(algorithmName), bytes, salt, iterations);
+    }
+
+    /**
+     * Hashes the specified bytes with the specified (reset) digest.
+     *
+     * @param digest     the digest to hash with.
+     * @param bytes      the bytes to hash.
+     * @param salt       the salt to hash before the bytes, or {@code null} for no salt.
+     * @param iterations the total number of times to hash, at least one hash will always occur.
+     * @return the hashed bytes.
+     */
+    public static byte[] hash(MessageDigest digest, byte[] bytes, byte[] salt, int iterations) {
+        if (salt != null) {
+            digest.update(salt);
+        }
+        byte[] hashed = digest.digest(bytes);
+        int remaining = iterations - 1; //already hashed once above
+        if (remaining <= 0) {
+            return hashed;
+        }
+        int length = hashed.length;
+        if (digest.getDigestLength() != length) {
+            //the provider doesn't report its digest length, so digesting into a buffer isn't safe:
+            for (int i = 0; i < remaining; i++) {
+                hashed = digest.digest(hashed);
+            }
+            return hashed;
+        }
+        try {
+            for (int i = 0; i < remaining; i++) {
+                digest.update(hashed, 0, length);
+                //digest(byte[], int, int) also resets the digest:
+                digest.digest(hashed, 0, length);
+            }
+        } catch (DigestException e) {
+            //cannot happen, the buffer is exactly the digest length:
+            throw new IllegalStateException("Unable to digest into a buffer of the digest's length.", e);
+        }
+        return hashed;
+    }
+}
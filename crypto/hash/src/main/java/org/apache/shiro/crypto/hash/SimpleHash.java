@@ -26,7 +26,6 @@ import org.apache.shiro.util.ByteSource;
 import org.apache.shiro.util.StringUtils;
 
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
 /**
@@ -293,18 +292,16 @@ public class SimpleHash extends AbstractHash {
 
     /**
      * Returns the JDK MessageDigest instance to use for executing the hash.
+     * <p/>
+     * As of 1.5, this implementation returns the calling thread's reusable instance from the {@link HashEngine}.  The
+     * instance must not be retained beyond the hash computation.
      *
      * @param algorithmName the algorithm to use for the hash, provided by subclasses.
      * @return the MessageDigest object for the specified {@code algorithm}.
      * @throws UnknownAlgorithmException if the specified algorithm name is not available.
      */
     protected MessageDigest getDigest(String algorithmName) throws UnknownAlgorithmException {
-        try {
-            return MessageDigest.getInstance(algorithmName);
-        } catch (NoSuchAlgorithmException e) {
-            String msg = "No native '" + algorithmName + "' MessageDigest instance available on the current JVM.";
-            throw new UnknownAlgorithmException(msg, e);
-        }
+        return HashEngine.getDigest(algorithmName);
     }
 
     /**
@@ -340,19 +337,7 @@ public class SimpleHash extends AbstractHash {
      * @throws UnknownAlgorithmException if the {@link #getAlgorithmName() algorithmName} is not available.
      */
     protected byte[] hash(byte[] bytes, byte[] salt, int hashIterations) throws UnknownAlgorithmException {
-        MessageDigest digest = getDigest(getAlgorithmName());
-        if (salt != null) {
-            digest.reset();
-            digest.update(salt);
-        }
-        byte[] hashed = digest.digest(bytes);
-        int iterations = hashIterations - 1; //already hashed once above
-        //iterate remaining number:
-        for (int i = 0; i < iterations; i++) {
-            digest.reset();
-            hashed = digest.digest(hashed);
-        }
-        return hashed;
+        return HashEngine.hash(getDigest(getAlgorithmName()), bytes, salt, hashIterations);
     }
 
     public boolean isEmpty() {
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.crypto.hash
+
+import org.apache.shiro.crypto.UnknownAlgorithmException
+import org.junit.Test
+
+import java.security.MessageDigest
+
+import static org.junit.Assert.*
+
+/**
+ * Unit tests for the {@link HashEngine} class.
+ *
+ * @since 1.5
+ */
+class HashEngineTest {
+
+    /**
+     * The hashing logic prior to 1.5: a new MessageDigest per hash and a new byte array per iteration.
+     */
+    private static byte[] naiveHash(String algorithmName, byte[] bytes, byte[] salt, int iterations) {
+        MessageDigest digest = MessageDigest.getInstance(algorithmName)
+        if (salt != null) {
+            digest.reset()
+            digest.update(salt)
+        }
+        byte[] hashed = digest.digest(bytes)
+        for (int i = 0; i < iterations - 1; i++) {
+            digest.reset()
+            hashed = digest.digest(hashed)
+        }
+        return hashed
+    }
+
+    @Test
+    void testOutputIdenticalToNaiveHashing() {
+        byte[] source = 'secret'.getBytes('UTF-8')
+        byte[] salt = 'salt'.getBytes('UTF-8')
+        for (String algorithmName : ['MD2', 'MD5', 'SHA-1', 'SHA-256', 'SHA-384', 'SHA-512']) {
+            for (int iterations : [-1, 0, 1, 2, 1024]) {
+                assertArrayEquals(naiveHash(algorithmName, source, salt, iterations),
+                        HashEngine.hash(algorithmName, source, salt, iterations))
+                assertArrayEquals(naiveHash(algorithmName, source, null, iterations),
+                        HashEngine.hash(algorithmName, source, null, iterations))
+            }
+        }
+    }
+
+    @Test
+    void testDigestReusedPerThread() {
+        MessageDigest digest = HashEngine.getDigest('SHA-256')
+        digest.update('left over'.getBytes('UTF-8')) //must be reset before reuse
+        assertSame digest, HashEngine.getDigest('SHA-256')
+        assertArrayEquals(naiveHash('SHA-256', new byte[0], null, 1), HashEngine.hash('SHA-256', new byte[0], null, 1))
+
+        MessageDigest other = null
+        Thread thread = Thread.start { other = HashEngine.getDigest('SHA-256') }
+        thread.join()
+        assertNotNull other
+        assertNotSame digest, other
+    }
+
+    @Test
+    void testSimpleHashUsesEngine() {
+        Hash hash = new Sha512Hash('secret', 'salt', 500)
+        assertArrayEquals(naiveHash('SHA-512', 'secret'.getBytes('UTF-8'), 'salt'.getBytes('UTF-8'), 500), hash.bytes)
+    }
+
+    @Test(expected = UnknownAlgorithmException)
+    void testUnknownAlgorithm() {
+        HashEngine.getDigest('unknown')
+    }
+}
@@ -0,0 +1,575 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.event.support;
+
+import org.apache.shiro.event.EventBus;
+import org.apache.shiro.util.Destroyable;
+import org.apache.shiro.util.Initializable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link EventBus} that delivers events to their listeners on background dispatch threads, so that slow
+ * {@link org.apache.shiro.event.Subscribe Subscribe} methods do not add latency to the code publishing events.
+ * <h2>Ordering</h2>
+ * Each registered object is assigned to one of the {@link #setDispatchThreads(int) dispatch threads}, each of which
+ * owns a bounded queue and a {@link DefaultEventBus} of the objects assigned to it.  A published event is queued for
+ * every dispatch thread, so each registered object receives events in the order they were published, and objects
+ * sharing a dispatch thread receive them in registration order.  With more than one dispatch thread, there is no
+ * ordering between objects on different threads.  With the default of a single dispatch thread, delivery order is the
+ * same as the {@code DefaultEventBus}'s.
+ * <h2>Back-pressure</h2>
+ * Queues hold up to {@link #setQueueCapacity(int) queueCapacity} events.  When a queue is full, the
+ * {@link #setBackPressurePolicy(BackPressurePolicy) backPressurePolicy} determines whether the publisher
+ * {@link BackPressurePolicy#BLOCK blocks}, the event is {@link BackPressurePolicy#DROP dropped} for that thread's
+ * listeners, or the publisher delivers it to them {@link BackPressurePolicy#CALLER_RUNS itself} (which may deliver it
+ * ahead of events still queued).  Listeners publishing events are never blocked: with the {@code BLOCK} policy,
+ * a dispatch thread finding a queue full delivers the event itself.  Dispatch threads drain their queue in batches of up to
+ * {@link #setBatchSize(int) batchSize} events.
+ * <h2>Lifecycle</h2>
+ * Dispatch threads are started by {@link #init()}, after which the configuration properties no longer have any
+ * effect.  Until then, and after {@link #destroy()} (which delivers all queued events first), events are delivered
+ * synchronously on the publishing thread.  Configuration frameworks call both methods automatically, e.g. in
+ * {@code shiro.ini}:
+ * <pre>
+ * [main]
+ * eventBus = org.apache.shiro.event.support.AsyncEventBus
+ * eventBus.dispatchThreads = 2
+ * eventBus.queueCapacity = 10000
+ * eventBus.backPressurePolicyName = CALLER_RUNS
+ * </pre>
+ * The {@link #getQueueDepth() queue depth}, {@link #getDroppedCount() dropped events} and
+ * {@link #getMaxQueueLatency(TimeUnit) queue latency} metrics help to size the queues and dispatch threads.
+ *
+ * @since 1.5
+ */
+public class AsyncEventBus implements EventBus, Initializable, Destroyable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncEventBus.class);
+
+    /**
+     * What to do with a published event when a dispatch thread's queue is full.
+     */
+    public enum BackPressurePolicy {
+
+        /**
+         * The publishing thread waits until the queue has room for the event, unless it is a dispatch thread (i.e. a
+         * listener is publishing), which delivers the event itself as with {@link #CALLER_RUNS}.
+         */
+        BLOCK,
+
+        /**
+         * The event is not delivered to the listeners of the dispatch thread whose queue is full.
+         */
+        DROP,
+
+        /**
+         * The publishing thread delivers the event to the listeners of the dispatch thread whose queue is full.
+         */
+        CALLER_RUNS
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private EventListenerResolver eventListenerResolver;
+    private int dispatchThreads;
+    private int queueCapacity;
+    private int batchSize;
+    private BackPressurePolicy backPressurePolicy;
+    private String threadNamePrefix;
+
+    //delivers events synchronously while no dispatch threads are running, registration order is retained:
+    private final DefaultEventBus synchronousBus;
+
+    private final Object registrationLock = new Object();
+    private final Map<Object, Dispatcher> registrations; //key: registered instance, value: assigned dispatcher
+    private int nextDispatcher;
+    private volatile Dispatcher[] dispatchers;
+    private volatile boolean running;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+    private final AtomicLong totalQueueLatencyNanos = new AtomicLong();
+    private final AtomicLong maxQueueLatencyNanos = new AtomicLong();
+
+    public AsyncEventBus() {
+        this.eventListenerResolver = new AnnotationEventListenerResolver();
+        this.dispatchThreads = 1;
+        this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        this.backPressurePolicy = BackPressurePolicy.BLOCK;
+        this.threadNamePrefix = "shiroEventBus-";
+        this.synchronousBus = new DefaultEventBus();
+        this.registrations = new LinkedHashMap<Object, Dispatcher>();
+    }
+
+    public EventListenerResolver getEventListenerResolver() {
+        return eventListenerResolver;
+    }
+
+    public void setEventListenerResolver(EventListenerResolver eventListenerResolver) {
+        this.eventListenerResolver = eventListenerResolver;
+        this.synchronousBus.setEventListenerResolver(eventListenerResolver);
+    }
+
+    /**
+     * Returns the number of threads delivering events to listeners, {@code 1} by default.
+     *
+     * @return the number of threads delivering events to listeners.
+     */
+    public int getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    /**
+     * Sets the number of threads delivering events to listeners, {@code 1} by default.  Each registered object is
+     * always notified by the same thread.
+     *
+     * @param dispatchThreads the number of threads delivering events to listeners, at least {@code 1}.
+     */
+    public void setDispatchThreads(int dispatchThreads) {
+        if (dispatchThreads < 1) {
+            throw new IllegalArgumentException("dispatchThreads must be at least 1.");
+        }
+        this.dispatchThreads = dispatchThreads;
+    }
+
+    /**
+     * Returns the maximum number of events queued per dispatch thread, {@link #DEFAULT_QUEUE_CAPACITY} by default.
+     *
+     * @return the maximum number of events queued per dispatch thread.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of events queued per dispatch thread, {@link #DEFAULT_QUEUE_CAPACITY} by default.
+     *
+     * @param queueCapacity the maximum number of events queued per dispatch thread, at least {@code 1}.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1.");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Returns the maximum number of events a dispatch thread takes from its queue at once,
+     * {@link #DEFAULT_BATCH_SIZE} by default.
+     *
+     * @return the maximum number of events a dispatch thread takes from its queue at once.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of events a dispatch thread takes from its queue at once,
+     * {@link #DEFAULT_BATCH_SIZE} by default.
+     *
+     * @param batchSize the maximum number of events a dispatch thread takes from its queue at once, at least
+     *                  {@code 1}.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns what happens to events published while a dispatch thread's queue is full,
+     * {@link BackPressurePolicy#BLOCK BLOCK} by default.
+     *
+     * @return what happens to events published while a dispatch thread's queue is full.
+     */
+    public BackPressurePolicy getBackPressurePolicy() {
+        return backPressurePolicy;
+    }
+
+    /**
+     * Sets what happens to events published while a dispatch thread's queue is full,
+     * {@link BackPressurePolicy#BLOCK BLOCK} by default.
+     *
+     * @param backPressurePolicy what happens to events published while a dispatch thread's queue is full.
+     */
+    public void setBackPressurePolicy(BackPressurePolicy backPressurePolicy) {
+        if (backPressurePolicy == null) {
+            throw new IllegalArgumentException("backPressurePolicy cannot be null.");
+        }
+        this.backPressurePolicy = backPressurePolicy;
+    }
+
+    /**
+     * Sets the {@link #setBackPressurePolicy(BackPressurePolicy) backPressurePolicy} by its name, which is convenient
+     * for text-based configuration such as {@code shiro.ini}.
+     *
+     * @param backPressurePolicyName the (case-insensitive) name of a {@link BackPressurePolicy}.
+     */
+    public void setBackPressurePolicyName(String backPressurePolicyName) {
+        if (backPressurePolicyName == null) {
+            throw new IllegalArgumentException("backPressurePolicyName cannot be null.");
+        }
+        setBackPressurePolicy(BackPressurePolicy.valueOf(backPressurePolicyName.trim().toUpperCase()));
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * Starts the dispatch threads.  Calling this method again has no effect.
+     */
+    public void init() {
+        synchronized (this.registrationLock) {
+            if (this.running) {
+                return;
+            }
+            Dispatcher[] dispatchers = new Dispatcher[this.dispatchThreads];
+            for (int i = 0; i < dispatchers.length; i++) {
+                dispatchers[i] = new Dispatcher(this.threadNamePrefix + (i + 1));
+            }
+            //assign the objects registered so far, retaining their registration order:
+            this.nextDispatcher = 0;
+            for (Map.Entry<Object, Dispatcher> entry : this.registrations.entrySet()) {
+                Dispatcher dispatcher = dispatchers[this.nextDispatcher++ % dispatchers.length];
+                dispatcher.bus.register(entry.getKey());
+                dispatcher.registrationCount.incrementAndGet();
+                entry.setValue(dispatcher);
+            }
+            for (Dispatcher dispatcher : dispatchers) {
+                dispatcher.start();
+            }
+            this.dispatchers = dispatchers;
+            this.running = true;
+        }
+        log.debug("Started {} event dispatch thread(s).", this.dispatchThreads);
+    }
+
+    /**
+     * Stops the dispatch threads after they have delivered all queued events.  Events published afterwards are
+     * delivered synchronously.
+     *
+     * @throws Exception if interrupted while waiting for the dispatch threads to stop.
+     */
+    public void destroy() throws Exception {
+        Dispatcher[] dispatchers;
+        synchronized (this.registrationLock) {
+            if (!this.running) {
+                return;
+            }
+            this.running = false;
+            dispatchers = this.dispatchers;
+            this.dispatchers = null;
+        }
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.executor.shutdown();
+        }
+        for (Dispatcher dispatcher : dispatchers) {
+            if (!dispatcher.executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Event dispatch thread did not finish delivering {} queued event(s) in time.",
+                        dispatcher.queue.size());
+                dispatcher.executor.shutdownNow();
+            } else {
+                //events queued by publishers that raced with this method:
+                QueuedEvent queued;
+                while ((queued = dispatcher.queue.poll()) != null) {
+                    recordDispatch(queued);
+                    dispatcher.bus.publish(queued.event);
+                }
+            }
+        }
+    }
+
+    public void publish(Object event) {
+        if (event == null) {
+            log.info("Received null event for publishing.  Ignoring and returning.");
+            return;
+        }
+        Dispatcher[] dispatchers = this.dispatchers;
+        if (dispatchers == null) {
+            this.synchronousBus.publish(event);
+            return;
+        }
+        this.publishedCount.incrementAndGet();
+        QueuedEvent queued = new QueuedEvent(event, System.nanoTime());
+        for (Dispatcher dispatcher : dispatchers) {
+            if (dispatcher.registrationCount.get() > 0) {
+                enqueue(dispatcher, queued);
+            }
+        }
+    }
+
+    private void enqueue(Dispatcher dispatcher, QueuedEvent queued) {
+        if (dispatcher.queue.offer(queued)) {
+            return;
+        }
+        BackPressurePolicy policy = this.backPressurePolicy;
+        if (policy == BackPressurePolicy.BLOCK && isDispatchThread()) {
+            //a listener publishing an event: waiting for a dispatch thread (possibly this one) to make room could
+            //deadlock, so deliver the event here instead:
+            policy = BackPressurePolicy.CALLER_RUNS;
+        }
+        switch (policy) {
+            case BLOCK:
+                try {
+                    dispatcher.queue.put(queued);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    this.droppedCount.incrementAndGet();
+                    log.warn("Interrupted while waiting to queue event [{}].  The event is dropped.", queued.event);
+                }
+                break;
+            case DROP:
+                this.droppedCount.incrementAndGet();
+                log.debug("Event queue is full.  Dropping event [{}].", queued.event);
+                break;
+            default:
+                this.callerRunsCount.incrementAndGet();
+                dispatcher.bus.publish(queued.event);
+        }
+    }
+
+    private boolean isDispatchThread() {
+        Dispatcher[] dispatchers = this.dispatchers;
+        if (dispatchers != null) {
+            Thread current = Thread.currentThread();
+            for (Dispatcher dispatcher : dispatchers) {
+                if (dispatcher.thread == current) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void register(Object instance) {
+        if (instance == null) {
+            log.info("Received null instance for event listener registration.  Ignoring registration request.");
+            return;
+        }
+        synchronized (this.registrationLock) {
+            unregister(instance);
+            this.synchronousBus.register(instance);
+            Dispatcher dispatcher = null;
+            Dispatcher[] dispatchers = this.dispatchers;
+            if (dispatchers != null) {
+                dispatcher = dispatchers[this.nextDispatcher++ % dispatchers.length];
+                dispatcher.bus.register(instance);
+                dispatcher.registrationCount.incrementAndGet();
+            }
+            this.registrations.put(instance, dispatcher);
+        }
+    }
+
+    public void unregister(Object instance) {
+        if (instance == null) {
+            return;
+        }
+        synchronized (this.registrationLock) {
+            this.synchronousBus.unregister(instance);
+            Dispatcher dispatcher = this.registrations.remove(instance);
+            if (dispatcher != null) {
+                dispatcher.bus.unregister(instance);
+                dispatcher.registrationCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of events currently queued for all dispatch threads.
+     *
+     * @return the total number of events currently queued for all dispatch threads.
+     */
+    public int getQueueDepth() {
+        Dispatcher[] dispatchers = this.dispatchers;
+        int depth = 0;
+        if (dispatchers != null) {
+            for (Dispatcher dispatcher : dispatchers) {
+                depth += dispatcher.queue.size();
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the number of events published while the dispatch threads were running.
+     *
+     * @return the number of events published while the dispatch threads were running.
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * Returns the number of queued events taken by dispatch threads (counted once per dispatch thread).
+     *
+     * @return the number of queued events taken by dispatch threads.
+     */
+    public long getDispatchedCount() {
+        return dispatchedCount.get();
+    }
+
+    /**
+     * Returns the number of events dropped due to the {@link BackPressurePolicy#DROP DROP} policy (or an interrupted
+     * publisher), counted once per dispatch thread.
+     *
+     * @return the number of events dropped.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of events delivered by their publisher due to the
+     * {@link BackPressurePolicy#CALLER_RUNS CALLER_RUNS} policy, counted once per dispatch thread.
+     *
+     * @return the number of events delivered by their publisher.
+     */
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    /**
+     * Returns the average time dispatched events spent queued.
+     *
+     * @param unit the unit of the returned value
+     * @return the average time dispatched events spent queued.
+     */
+    public long getAverageQueueLatency(TimeUnit unit) {
+        long dispatched = this.dispatchedCount.get();
+        return dispatched == 0 ? 0 : unit.convert(this.totalQueueLatencyNanos.get() / dispatched, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest time a dispatched event spent queued.
+     *
+     * @param unit the unit of the returned value
+     * @return the longest time a dispatched event spent queued.
+     */
+    public long getMaxQueueLatency(TimeUnit unit) {
+        return unit.convert(this.maxQueueLatencyNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    private void recordDispatch(QueuedEvent queued) {
+        long latency = System.nanoTime() - queued.queuedAt;
+        this.dispatchedCount.incrementAndGet();
+        this.totalQueueLatencyNanos.addAndGet(latency);
+        long max = this.maxQueueLatencyNanos.get();
+        while (latency > max && !this.maxQueueLatencyNanos.compareAndSet(max, latency)) {
+            max = this.maxQueueLatencyNanos.get();
+        }
+    }
+
+    private static final class QueuedEvent {
+
+        private final Object event;
+        private final long queuedAt;
+
+        private QueuedEvent(Object event, long queuedAt) {
+            this.event = event;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * A dispatch thread, along with its queue and the objects assigned to it.
+     */
+    private final class Dispatcher implements Runnable {
+
+        private final DefaultEventBus bus;
+        private final BlockingQueue<QueuedEvent> queue;
+        private final AtomicInteger registrationCount;
+        private final ExecutorService executor;
+        private volatile Thread thread;
+
+        private Dispatcher(final String threadName) {
+            this.bus = new DefaultEventBus();
+            this.bus.setEventListenerResolver(getEventListenerResolver());
+            this.queue = new ArrayBlockingQueue<QueuedEvent>(getQueueCapacity());
+            this.registrationCount = new AtomicInteger();
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r);
+                    thread.setDaemon(true);
+                    thread.setName(threadName);
+                    return thread;
+                }
+            });
+        }
+
+        private void start() {
+            this.executor.execute(this);
+        }
+
+        public void run() {
+            this.thread = Thread.currentThread();
+            int batchSize = getBatchSize();
+            List<QueuedEvent> batch = new ArrayList<QueuedEvent>(batchSize);
+            while (true) {
+                QueuedEvent first;
+                try {
+                    first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    log.debug("Event dispatch thread interrupted, {} queued event(s) are not delivered.",
+                            this.queue.size());
+                    return;
+                }
+                if (first == null) {
+                    if (this.executor.isShutdown()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, batchSize - 1);
+                for (QueuedEvent queued : batch) {
+                    recordDispatch(queued);
+                    //DefaultEventBus already logs and swallows listener failures:
+                    this.bus.publish(queued.event);
+                }
+                batch.clear();
+            }
+        }
+    }
+}
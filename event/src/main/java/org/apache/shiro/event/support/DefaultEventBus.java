@@ -23,14 +23,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A default event bus implementation that synchronously publishes events to registered listeners.  Listeners can be
@@ -68,7 +71,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * concept, although no code was shared/imported (even though Guava is Apache 2.0 licensed and could have
  * been used).
  *
- * This implementation is thread-safe and may be used concurrently.
+ * This implementation is thread-safe and may be used concurrently.  Publishing is lock-free: registrations produce
+ * an immutable snapshot of all subscriptions, and for each published event class the listeners that accept it are
+ * resolved once per snapshot into a dispatch table, so that publishing only visits the listeners that will actually
+ * receive the event.
  *
  * @since 1.3
  */
@@ -88,25 +94,17 @@ public class DefaultEventBus implements EventBus {
     //with the event bus.  This has the nice effect that any Shiro system-level components that are registered first
     //(likely to happen upon startup) have precedence over those registered by end-user components later.
     //
-    //One might think that this could have been done by just using a ConcurrentSkipListMap (which is available only on
-    //JDK 6 or later).  However, this approach requires the implementation of a Comparator to sort elements, and this
-    //surfaces a problem: for any given random event listener, there isn't any guaranteed property to exist that can be
-    //inspected to determine order of registration, since registration order is an artifact of this EventBus
-    //implementation, not the listeners themselves.
-    //
-    //Therefore, we use a simple concurrent lock to wrap a LinkedHashMap - the LinkedHashMap retains insertion order
-    //and the lock provides thread-safety in probably a much simpler mechanism than attempting to write a
-    //EventBus-specific Comparator.  This technique is also likely to be faster than a ConcurrentSkipListMap, which
-    //is about 3-5 times slower than a standard ConcurrentMap.
+    //The registry is a LinkedHashMap (which retains insertion order) that is only accessed by (un)registrations while
+    //holding the registry lock.  Since the registry is read-mostly, every change publishes a new immutable
+    //RegistrySnapshot of it, which is all that publish() reads - publishing never locks.
     private final Map<Object, Subscription> registry;
-    private final Lock registryReadLock;
-    private final Lock registryWriteLock;
+    private final Lock registryLock;
+    private volatile RegistrySnapshot snapshot;
 
     public DefaultEventBus() {
-        this.registry = new LinkedHashMap<Object, Subscription>(); //not thread safe, so we need locks:
-        ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
-        this.registryReadLock = rwl.readLock();
-        this.registryWriteLock = rwl.writeLock();
+        this.registry = new LinkedHashMap<Object, Subscription>(); //not thread safe, so we need a lock:
+        this.registryLock = new ReentrantLock();
+        this.snapshot = new RegistrySnapshot(Collections.<Subscription>emptyList());
         this.eventListenerResolver = new AnnotationEventListenerResolver();
     }
 
@@ -124,27 +122,7 @@ public class DefaultEventBus implements EventBus {
             return;
         }
 
-        registryReadLock.lock();
-        try {
-            //performing the entire iteration within the lock will be a slow operation if the registry has a lot of
-            //contention.  However, it is expected that the very large majority of cases the registry will be
-            //read-mostly with very little writes (registrations or removals) occurring during a typical application
-            //lifetime.
-            //
-            //The alternative would be to copy the registry.values() collection to a new LinkedHashSet within the lock
-            //only and the iteration on this new collection could be outside the lock.  This has the performance penalty
-            //however of always creating a new collection every time an event is published,  which could be more
-            //costly for the majority of applications, especially if the number of listeners is large.
-            //
-            //Finally, the read lock is re-entrant, so multiple publish calls will be
-            //concurrent without penalty since publishing is a read-only operation on the registry.
-
-            for (Subscription subscription : this.registry.values()) {
-                subscription.onEvent(event);
-            }
-        } finally {
-            registryReadLock.unlock();
-        }
+        this.snapshot.getDispatch(event.getClass()).dispatch(event);
     }
 
     public void register(Object instance) {
@@ -165,11 +143,12 @@ public class DefaultEventBus implements EventBus {
 
         Subscription subscription = new Subscription(listeners);
 
-        this.registryWriteLock.lock();
+        this.registryLock.lock();
         try {
             this.registry.put(instance, subscription);
+            this.snapshot = new RegistrySnapshot(this.registry.values());
         } finally {
-            this.registryWriteLock.unlock();
+            this.registryLock.unlock();
         }
     }
 
@@ -177,22 +156,73 @@ public class DefaultEventBus implements EventBus {
         if (instance == null) {
             return;
         }
-        this.registryWriteLock.lock();
+        this.registryLock.lock();
         try {
-            this.registry.remove(instance);
+            if (this.registry.remove(instance) != null) {
+                this.snapshot = new RegistrySnapshot(this.registry.values());
+            }
         } finally {
-            this.registryWriteLock.unlock();
+            this.registryLock.unlock();
         }
     }
 
-    private class Subscription {
+    private static void onEvent(EventListener listener, Object event) {
+        try {
+            listener.onEvent(event);
+        } catch (Throwable t) {
+            log.warn(EVENT_LISTENER_ERROR_MSG, t);
+        }
+    }
+
+    /**
+     * Returns the object a listener delivers events to; each registered object receives an event at most once.
+     */
+    private static Object getTarget(EventListener listener) {
+        if (listener instanceof SingleArgumentMethodEventListener) {
+            return ((SingleArgumentMethodEventListener) listener).getTarget();
+        }
+        return listener;
+    }
+
+    /**
+     * Returns {@code true} if whether the listener accepts an event depends on the event's class only, i.e. if it can
+     * be resolved once per event class.
+     */
+    private static boolean isTypeIndexable(EventListener listener) {
+        return listener != null && listener.getClass() == SingleArgumentMethodEventListener.class;
+    }
+
+    private static class Subscription {
 
         private final List<EventListener> listeners;
+        private final boolean typeIndexable;
 
         public Subscription(List<EventListener> listeners) {
             List<EventListener> toSort = new ArrayList<EventListener>(listeners);
             Collections.sort(toSort, EVENT_LISTENER_COMPARATOR);
             this.listeners = toSort;
+            boolean typeIndexable = true;
+            for (EventListener listener : toSort) {
+                typeIndexable &= isTypeIndexable(listener);
+            }
+            this.typeIndexable = typeIndexable;
+        }
+
+        /**
+         * Adds the listeners that would receive an event of the specified class, in delivery order.  Only valid if
+         * all of this subscription's listeners are {@link #isTypeIndexable(EventListener) type-indexable}.
+         */
+        public void addListeners(Class eventClass, List<EventListener> accepting) {
+            Set<Object> delivered = new HashSet<Object>();
+            for (EventListener listener : this.listeners) {
+                Object target = getTarget(listener);
+                @SuppressWarnings("unchecked")
+                boolean accepts = ((TypedEventListener) listener).getEventType().isAssignableFrom(eventClass);
+                if (accepts && !delivered.contains(target)) {
+                    accepting.add(listener);
+                    delivered.add(target);
+                }
+            }
         }
 
         public void onEvent(Object event) {
@@ -200,20 +230,82 @@ public class DefaultEventBus implements EventBus {
             Set<Object> delivered = new HashSet<Object>();
 
             for (EventListener listener : this.listeners) {
-                Object target = listener;
-                if (listener instanceof SingleArgumentMethodEventListener) {
-                    SingleArgumentMethodEventListener singleArgListener = (SingleArgumentMethodEventListener) listener;
-                    target = singleArgListener.getTarget();
-                }
+                Object target = getTarget(listener);
                 if (listener.accepts(event) && !delivered.contains(target)) {
-                    try {
-                        listener.onEvent(event);
-                    } catch (Throwable t) {
-                        log.warn(EVENT_LISTENER_ERROR_MSG, t);
-                    }
+                    DefaultEventBus.onEvent(listener, event);
                     delivered.add(target);
                 }
             }
         }
     }
+
+    /**
+     * An immutable copy of the registry's subscriptions (in registration order), along with the dispatch tables that
+     * have been resolved from it so far.
+     */
+    private static class RegistrySnapshot {
+
+        private final Subscription[] subscriptions;
+        private final ConcurrentMap<Class, Dispatch> dispatchByEventClass;
+
+        private RegistrySnapshot(Collection<Subscription> subscriptions) {
+            this.subscriptions = subscriptions.toArray(new Subscription[subscriptions.size()]);
+            this.dispatchByEventClass = new ConcurrentHashMap<Class, Dispatch>();
+        }
+
+        public Dispatch getDispatch(Class eventClass) {
+            Dispatch dispatch = this.dispatchByEventClass.get(eventClass);
+            if (dispatch == null) {
+                dispatch = new Dispatch(eventClass, this.subscriptions);
+                Dispatch existing = this.dispatchByEventClass.putIfAbsent(eventClass, dispatch);
+                if (existing != null) {
+                    dispatch = existing;
+                }
+            }
+            return dispatch;
+        }
+    }
+
+    /**
+     * The listeners receiving events of a particular class, in delivery order.  Subscriptions containing listeners
+     * whose acceptance of an event cannot be determined from its class alone are consulted for every event.
+     */
+    private static class Dispatch {
+
+        //exactly one of listeners[i] and subscriptions[i] is non-null:
+        private final EventListener[] listeners;
+        private final Subscription[] subscriptions;
+
+        private Dispatch(Class eventClass, Subscription[] registered) {
+            List<EventListener> listeners = new ArrayList<EventListener>();
+            List<Subscription> subscriptions = new ArrayList<Subscription>();
+            List<EventListener> accepting = new ArrayList<EventListener>();
+            for (Subscription subscription : registered) {
+                if (subscription.typeIndexable) {
+                    accepting.clear();
+                    subscription.addListeners(eventClass, accepting);
+                    for (EventListener listener : accepting) {
+                        listeners.add(listener);
+                        subscriptions.add(null);
+                    }
+                } else {
+                    listeners.add(null);
+                    subscriptions.add(subscription);
+                }
+            }
+            this.listeners = listeners.toArray(new EventListener[listeners.size()]);
+            this.subscriptions = subscriptions.toArray(new Subscription[subscriptions.size()]);
+        }
+
+        public void dispatch(Object event) {
+            for (int i = 0; i < this.listeners.length; i++) {
+                EventListener listener = this.listeners[i];
+                if (listener != null) {
+                    onEvent(listener, event);
+                } else {
+                    this.subscriptions[i].onEvent(event);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.event.support
+
+import org.apache.shiro.event.Subscribe
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * @since 1.5
+ */
+class AsyncEventBusTest extends GroovyTestCase {
+
+    AsyncEventBus bus;
+
+    @Override
+    protected void setUp() {
+        bus = new AsyncEventBus()
+    }
+
+    @Override
+    protected void tearDown() {
+        bus.destroy()
+    }
+
+    void testSynchronousDeliveryBeforeInit() {
+        def subscriber = new TestSubscriber()
+        bus.register(subscriber)
+
+        bus.publish(new FooEvent(this))
+
+        assertEquals 1, subscriber.fooCount
+        assertEquals 0, bus.publishedCount
+    }
+
+    void testAsynchronousDelivery() {
+        def latch = new CountDownLatch(1)
+        Thread deliveredOn = null
+        bus.register(new Object() {
+            @Subscribe
+            void onFoo(FooEvent event) {
+                deliveredOn = Thread.currentThread()
+                latch.countDown()
+            }
+        })
+        bus.init()
+
+        bus.publish(new FooEvent(this))
+
+        assertTrue latch.await(5, TimeUnit.SECONDS)
+        assertNotSame Thread.currentThread(), deliveredOn
+        assertTrue deliveredOn.name.startsWith(bus.threadNamePrefix)
+    }
+
+    void testDeliveryInPublicationOrderPerListener() {
+        bus.dispatchThreads = 3
+        bus.batchSize = 4
+        bus.init()
+
+        def received = []
+        def latches = []
+        3.times {
+            def list = Collections.synchronizedList([])
+            def latch = new CountDownLatch(100)
+            received << list
+            latches << latch
+            bus.register(new Object() {
+                @Subscribe
+                void onSimple(SimpleEvent event) {
+                    list << event
+                    latch.countDown()
+                }
+            })
+        }
+
+        def published = []
+        100.times {
+            def event = new SimpleEvent()
+            published << event
+            bus.publish(event)
+        }
+
+        latches.each { assertTrue it.await(5, TimeUnit.SECONDS) }
+        received.each { assertEquals published, it }
+        assertEquals 100, bus.publishedCount
+        assertEquals 300, bus.dispatchedCount
+    }
+
+    void testDropPolicy() {
+        bus.queueCapacity = 2
+        bus.backPressurePolicyName = 'drop'
+        assertEquals AsyncEventBus.BackPressurePolicy.DROP, bus.backPressurePolicy
+
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def count = 0
+        bus.register(new Object() {
+            @Subscribe
+            void onSimple(SimpleEvent event) {
+                started.countDown()
+                release.await(5, TimeUnit.SECONDS)
+                count++
+            }
+        })
+        bus.init()
+
+        bus.publish(new SimpleEvent())
+        assertTrue started.await(5, TimeUnit.SECONDS) //the dispatch thread is now busy with the first event
+        4.times { bus.publish(new SimpleEvent()) }
+
+        assertEquals 2, bus.queueDepth
+        assertEquals 2, bus.droppedCount
+
+        release.countDown()
+        bus.destroy()
+
+        assertEquals 3, count
+        assertEquals 0, bus.queueDepth
+        assertEquals 3, bus.dispatchedCount
+        assertTrue bus.getMaxQueueLatency(TimeUnit.NANOSECONDS) > 0
+    }
+
+    void testCallerRunsPolicy() {
+        bus.queueCapacity = 1
+        bus.backPressurePolicy = AsyncEventBus.BackPressurePolicy.CALLER_RUNS
+
+        def publisher = Thread.currentThread()
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def threads = Collections.synchronizedList([])
+        bus.register(new Object() {
+            @Subscribe
+            void onSimple(SimpleEvent event) {
+                threads << Thread.currentThread()
+                if (Thread.currentThread() != publisher) {
+                    started.countDown()
+                    release.await(5, TimeUnit.SECONDS)
+                }
+            }
+        })
+        bus.init()
+
+        bus.publish(new SimpleEvent())
+        assertTrue started.await(5, TimeUnit.SECONDS)
+        bus.publish(new SimpleEvent()) //fills the queue
+        bus.publish(new SimpleEvent()) //delivered by the publisher
+
+        assertEquals 1, bus.callerRunsCount
+        assertTrue threads.contains(publisher)
+
+        release.countDown()
+        bus.destroy()
+
+        assertEquals 3, threads.size()
+    }
+
+    void testListenerPublishingToFullQueue() {
+        bus.queueCapacity = 2
+
+        def latch = new CountDownLatch(6)
+        def threads = Collections.synchronizedSet(new HashSet())
+        bus.register(new Object() {
+            @Subscribe
+            void onFoo(FooEvent event) {
+                5.times { bus.publish(new SimpleEvent()) } //more than the dispatch thread's own queue can hold
+            }
+
+            @Subscribe
+            void onSimple(SimpleEvent event) {
+                threads << Thread.currentThread()
+                latch.countDown()
+            }
+        })
+        bus.init()
+
+        bus.publish(new FooEvent(this))
+        bus.publish(new SimpleEvent()) //the dispatch thread is still delivering events
+
+        assertTrue latch.await(5, TimeUnit.SECONDS)
+        assertTrue bus.callerRunsCount > 0
+        assertFalse threads.contains(Thread.currentThread())
+    }
+
+    void testUnregister() {
+        def subscriber = new TestSubscriber()
+        bus.register(subscriber)
+        bus.init()
+        bus.unregister(subscriber)
+
+        bus.publish(new FooEvent(this))
+        bus.destroy()
+
+        assertEquals 0, subscriber.count
+        assertEquals 0, bus.dispatchedCount
+    }
+
+    void testInvalidConfiguration() {
+        shouldFail(IllegalArgumentException) { bus.dispatchThreads = 0 }
+        shouldFail(IllegalArgumentException) { bus.queueCapacity = 0 }
+        shouldFail(IllegalArgumentException) { bus.batchSize = 0 }
+        shouldFail(IllegalArgumentException) { bus.backPressurePolicyName = 'unknown' }
+    }
+}
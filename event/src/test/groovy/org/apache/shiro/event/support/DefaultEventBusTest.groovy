@@ -18,6 +18,8 @@
  */
 package org.apache.shiro.event.support
 
+import org.apache.shiro.event.Subscribe
+
 import static org.easymock.EasyMock.*
 
 /**
@@ -172,4 +174,60 @@ class DefaultEventBusTest extends GroovyTestCase {
         assertEquals 0, error.count
     }
 
+    /**
+     * @since 1.5
+     */
+    void testDeliveryInRegistrationOrder() {
+        def delivered = []
+        def customResolver = new EventListenerResolver() {
+            List<EventListener> getEventListeners(Object instance) {
+                return [new EventListener() {
+                    boolean accepts(Object event) {
+                        return event instanceof FooEvent
+                    }
+
+                    void onEvent(Object event) {
+                        delivered << instance
+                    }
+                }]
+            }
+        }
+        def annotationResolver = bus.eventListenerResolver
+
+        bus.eventListenerResolver = customResolver
+        bus.register('first')
+        bus.eventListenerResolver = annotationResolver
+        bus.register(new Object() {
+            @Subscribe
+            void onBarEvent(BarEvent event) {
+                delivered << 'annotated'
+            }
+        })
+        bus.eventListenerResolver = customResolver
+        bus.register('last')
+
+        bus.publish(new FooEvent(this))
+        bus.publish(new BazEvent(this))
+
+        assertEquals(['first', 'last', 'first', 'annotated', 'last'], delivered)
+    }
+
+    /**
+     * @since 1.5
+     */
+    void testRegistrationAfterPublishing() {
+        def first = new TestSubscriber()
+        bus.register(first)
+        bus.publish(new FooEvent(this))
+
+        def second = new TestSubscriber()
+        bus.register(second)
+        bus.publish(new FooEvent(this))
+
+        bus.unregister(first)
+        bus.publish(new FooEvent(this))
+
+        assertEquals 2, first.count
+        assertEquals 2, second.count
+    }
 }
@@ -36,6 +36,11 @@ import java.util.List;
  * <p><strong>NOTE:</strong> in a Spring environment implementing EventBusAware is not necessary, as you can just inject the EventBus with
  * {@link org.springframework.beans.factory.annotation.Autowire @Autowire}.</p>
  *
+ * <p>Any {@link EventBus} implementation may be used, e.g. an {@link org.apache.shiro.event.support.AsyncEventBus
+ * AsyncEventBus} (enabled with the {@code shiro.eventBus.async} property in Spring configurations) to deliver events
+ * on background threads.  Those configurations start and stop its dispatch threads themselves, as the bus is created
+ * while bean post-processors are still being registered.</p>
+ *
  * @see EventBusAware
  * @see Subscribe
  * @since 1.4
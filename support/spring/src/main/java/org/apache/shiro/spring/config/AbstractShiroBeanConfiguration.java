@@ -19,25 +19,75 @@
 package org.apache.shiro.spring.config;
 
 import org.apache.shiro.event.EventBus;
+import org.apache.shiro.event.support.AsyncEventBus;
 import org.apache.shiro.event.support.DefaultEventBus;
 import org.apache.shiro.spring.LifecycleBeanPostProcessor;
 import org.apache.shiro.spring.ShiroEventBusBeanPostProcessor;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
 
 /**
  * @since 1.4.0
  */
-public class AbstractShiroBeanConfiguration {
+public class AbstractShiroBeanConfiguration implements EnvironmentAware, DisposableBean {
+
+    /**
+     * The {@code shiro.eventBus.*} properties are read from the {@code Environment} rather than injected with
+     * {@code @Value}:  configurations declaring {@code BeanPostProcessor} beans are created before the
+     * post-processor resolving {@code @Value} annotations is registered.
+     *
+     * @since 1.5
+     */
+    protected Environment environment;
+
+    private AsyncEventBus asyncEventBus;
+
+    /**
+     * @since 1.5
+     */
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
 
     protected LifecycleBeanPostProcessor lifecycleBeanPostProcessor() {
         return new LifecycleBeanPostProcessor();
     }
 
     protected EventBus eventBus() {
+        if (getEventBusProperty("async", Boolean.class, Boolean.FALSE)) {
+            AsyncEventBus eventBus = new AsyncEventBus();
+            eventBus.setDispatchThreads(getEventBusProperty("dispatchThreads", Integer.class, 1));
+            eventBus.setQueueCapacity(getEventBusProperty("queueCapacity", Integer.class,
+                    AsyncEventBus.DEFAULT_QUEUE_CAPACITY));
+            eventBus.setBackPressurePolicyName(getEventBusProperty("backPressurePolicy", String.class,
+                    AsyncEventBus.BackPressurePolicy.BLOCK.name()));
+            //the bus is created while BeanPostProcessors are registered, so the LifecycleBeanPostProcessor might not
+            //see it; start (and later stop) it here instead:
+            eventBus.init();
+            this.asyncEventBus = eventBus;
+            return eventBus;
+        }
         return new DefaultEventBus();
     }
 
+    private <T> T getEventBusProperty(String name, Class<T> type, T defaultValue) {
+        return environment != null ? environment.getProperty("shiro.eventBus." + name, type, defaultValue)
+                : defaultValue;
+    }
+
     protected ShiroEventBusBeanPostProcessor shiroEventBusAwareBeanPostProcessor() {
         return new ShiroEventBusBeanPostProcessor(eventBus());
     }
+
+    /**
+     * Stops the dispatch threads of the {@link AsyncEventBus} created by {@link #eventBus()}, if any.
+     *
+     * @since 1.5
+     */
+    public void destroy() throws Exception {
+        if (this.asyncEventBus != null) {
+            this.asyncEventBus.destroy();
+        }
+    }
 }
@@ -27,6 +27,7 @@ import org.apache.shiro.web.config.IniFilterChainResolverFactory;
 import org.apache.shiro.web.filter.AccessControlFilter;
 import org.apache.shiro.web.filter.authc.AuthenticationFilter;
 import org.apache.shiro.web.filter.authz.AuthorizationFilter;
+import org.apache.shiro.web.filter.mgt.CompiledPathMatchingFilterChainResolver;
 import org.apache.shiro.web.filter.mgt.DefaultFilterChainManager;
 import org.apache.shiro.web.filter.mgt.FilterChainManager;
 import org.apache.shiro.web.filter.mgt.FilterChainResolver;
@@ -127,6 +128,10 @@ public class ShiroFilterFactoryBean implements FactoryBean, BeanPostProcessor {
     private String successUrl;
     private String unauthorizedUrl;
 
+    private boolean compiledPathMatchingEnabled;
+
+    private boolean subjectlessChainsEnabled;
+
     private AbstractShiroFilter instance;
 
     public ShiroFilterFactoryBean() {
@@ -250,6 +255,59 @@ public class ShiroFilterFactoryBean implements FactoryBean, BeanPostProcessor {
         this.unauthorizedUrl = unauthorizedUrl;
     }
 
+    /**
+     * Returns {@code true} if the constructed Shiro Filter compiles all
+     * {@link #setFilterChainDefinitionMap(java.util.Map) filter chain definition} paths into a single trie (using a
+     * {@link CompiledPathMatchingFilterChainResolver}), {@code false} if it matches each path in turn.  The default is
+     * {@code false}.
+     *
+     * @return {@code true} if the constructed Shiro Filter compiles all chain paths into a single trie.
+     * @since 1.5
+     */
+    public boolean isCompiledPathMatchingEnabled() {
+        return compiledPathMatchingEnabled;
+    }
+
+    /**
+     * Sets whether the constructed Shiro Filter compiles all
+     * {@link #setFilterChainDefinitionMap(java.util.Map) filter chain definition} paths into a single trie, which is
+     * significantly faster for large numbers of chain definitions.
+     *
+     * @param compiledPathMatchingEnabled whether the constructed Shiro Filter compiles all chain paths into a single
+     *                                    trie.
+     * @since 1.5
+     */
+    public void setCompiledPathMatchingEnabled(boolean compiledPathMatchingEnabled) {
+        this.compiledPathMatchingEnabled = compiledPathMatchingEnabled;
+    }
+
+    /**
+     * Returns {@code true} if the constructed Shiro Filter processes requests whose resolved chain consists of
+     * {@link org.apache.shiro.web.filter.SubjectIndependentFilter SubjectIndependentFilter}s only (such as
+     * {@code anon}) without creating a {@code Subject}, {@code false} otherwise.  The default is {@code false}.
+     *
+     * @return {@code true} if the constructed Shiro Filter processes such requests without creating a {@code Subject}.
+     * @see AbstractShiroFilter#setSubjectlessChainsEnabled(boolean)
+     * @since 1.5
+     */
+    public boolean isSubjectlessChainsEnabled() {
+        return subjectlessChainsEnabled;
+    }
+
+    /**
+     * Sets whether the constructed Shiro Filter processes requests whose resolved chain consists of
+     * {@link org.apache.shiro.web.filter.SubjectIndependentFilter SubjectIndependentFilter}s only (such as
+     * {@code anon}) without creating a {@code Subject}.
+     *
+     * @param subjectlessChainsEnabled whether the constructed Shiro Filter processes such requests without creating
+     *                                 a {@code Subject}.
+     * @see AbstractShiroFilter#setSubjectlessChainsEnabled(boolean)
+     * @since 1.5
+     */
+    public void setSubjectlessChainsEnabled(boolean subjectlessChainsEnabled) {
+        this.subjectlessChainsEnabled = subjectlessChainsEnabled;
+    }
+
     /**
      * Returns the filterName-to-Filter map of filters available for reference when defining filter chain definitions.
      * All filter chain definitions will reference filters by the names in this map (i.e. the keys).
@@ -439,14 +497,17 @@ public class ShiroFilterFactoryBean implements FactoryBean, BeanPostProcessor {
         //Expose the constructed FilterChainManager by first wrapping it in a
         // FilterChainResolver implementation. The AbstractShiroFilter implementations
         // do not know about FilterChainManagers - only resolvers:
-        PathMatchingFilterChainResolver chainResolver = new PathMatchingFilterChainResolver();
+        PathMatchingFilterChainResolver chainResolver = isCompiledPathMatchingEnabled() ?
+                new CompiledPathMatchingFilterChainResolver() : new PathMatchingFilterChainResolver();
         chainResolver.setFilterChainManager(manager);
 
         //Now create a concrete ShiroFilter instance and apply the acquired SecurityManager and built
         //FilterChainResolver.  It doesn't matter that the instance is an anonymous inner class
         //here - we're just using it because it is a concrete AbstractShiroFilter instance that accepts
         //injection of the SecurityManager and FilterChainResolver:
-        return new SpringShiroFilter((WebSecurityManager) securityManager, chainResolver);
+        SpringShiroFilter filter = new SpringShiroFilter((WebSecurityManager) securityManager, chainResolver);
+        filter.setSubjectlessChainsEnabled(isSubjectlessChainsEnabled());
+        return filter;
     }
 
     private void applyLoginUrlIfNecessary(Filter filter) {
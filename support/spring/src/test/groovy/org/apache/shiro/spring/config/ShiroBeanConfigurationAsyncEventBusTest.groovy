@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.spring.config
+
+import org.apache.shiro.event.EventBus
+import org.apache.shiro.event.support.AsyncEventBus
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.context.ApplicationContextInitializer
+import org.springframework.context.ConfigurableApplicationContext
+import org.springframework.core.env.MapPropertySource
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner
+
+import static org.junit.Assert.*
+
+/**
+ * @since 1.5
+ */
+@ContextConfiguration(classes = [ShiroBeanConfiguration, EventBusConsumersTestConfiguration],
+        initializers = ShiroBeanConfigurationAsyncEventBusTest.EventBusPropertiesInitializer)
+@RunWith(SpringJUnit4ClassRunner.class)
+public class ShiroBeanConfigurationAsyncEventBusTest {
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Test
+    public void testAsyncEventBusStarted() {
+
+        assertTrue eventBus instanceof AsyncEventBus
+
+        AsyncEventBus asyncEventBus = (AsyncEventBus) eventBus
+        assertEquals 2, asyncEventBus.dispatchThreads
+        assertEquals 16, asyncEventBus.queueCapacity
+        assertEquals AsyncEventBus.BackPressurePolicy.DROP, asyncEventBus.backPressurePolicy
+
+        //only events published while the dispatch threads are running are counted:
+        asyncEventBus.publish(new Object())
+        assertEquals 1, asyncEventBus.publishedCount
+    }
+
+    static class EventBusPropertiesInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+        @Override
+        void initialize(ConfigurableApplicationContext applicationContext) {
+            applicationContext.environment.propertySources.addFirst(new MapPropertySource("shiroEventBus", [
+                    "shiro.eventBus.async"             : "true",
+                    "shiro.eventBus.dispatchThreads"   : "2",
+                    "shiro.eventBus.queueCapacity"     : "16",
+                    "shiro.eventBus.backPressurePolicy": "drop"] as Map<String, Object>))
+        }
+    }
+}
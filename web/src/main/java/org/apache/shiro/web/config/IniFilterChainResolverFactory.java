@@ -24,6 +24,7 @@ import org.apache.shiro.config.IniSecurityManagerFactory;
 import org.apache.shiro.config.ReflectionBuilder;
 import org.apache.shiro.util.CollectionUtils;
 import org.apache.shiro.util.Factory;
+import org.apache.shiro.web.filter.mgt.CompiledPathMatchingFilterChainResolver;
 import org.apache.shiro.web.filter.mgt.FilterChainManager;
 import org.apache.shiro.web.filter.mgt.FilterChainResolver;
 import org.apache.shiro.web.filter.mgt.PathMatchingFilterChainResolver;
@@ -49,6 +50,8 @@ public class IniFilterChainResolverFactory extends IniFactorySupport<FilterChain
 
     private FilterConfig filterConfig;
 
+    private boolean compiledPathMatchingEnabled;
+
     public IniFilterChainResolverFactory() {
         super();
     }
@@ -70,6 +73,33 @@ public class IniFilterChainResolverFactory extends IniFactorySupport<FilterChain
         this.filterConfig = filterConfig;
     }
 
+    /**
+     * Returns {@code true} if the created resolver compiles all {@code [urls]} path patterns into a single trie
+     * (a {@link CompiledPathMatchingFilterChainResolver}), {@code false} if it matches each pattern in turn (a
+     * {@link PathMatchingFilterChainResolver}).  The default is {@code false}.
+     *
+     * @return {@code true} if the created resolver compiles all path patterns into a single trie.
+     * @since 1.5
+     */
+    public boolean isCompiledPathMatchingEnabled() {
+        return compiledPathMatchingEnabled;
+    }
+
+    /**
+     * Sets whether the created resolver compiles all {@code [urls]} path patterns into a single trie, which is
+     * significantly faster for long {@code [urls]} sections.  Configure it in {@code shiro.ini} with:
+     * <pre>
+     * [main]
+     * filterChainResolver.compiledPathMatchingEnabled = true
+     * </pre>
+     *
+     * @param compiledPathMatchingEnabled whether the created resolver compiles all path patterns into a single trie.
+     * @since 1.5
+     */
+    public void setCompiledPathMatchingEnabled(boolean compiledPathMatchingEnabled) {
+        this.compiledPathMatchingEnabled = compiledPathMatchingEnabled;
+    }
+
     protected FilterChainResolver createInstance(Ini ini) {
         FilterChainResolver filterChainResolver = createDefaultInstance();
         if (filterChainResolver instanceof PathMatchingFilterChainResolver) {
@@ -82,6 +112,10 @@ public class IniFilterChainResolverFactory extends IniFactorySupport<FilterChain
 
     protected FilterChainResolver createDefaultInstance() {
         FilterConfig filterConfig = getFilterConfig();
+        if (isCompiledPathMatchingEnabled()) {
+            return filterConfig != null ? new CompiledPathMatchingFilterChainResolver(filterConfig) :
+                    new CompiledPathMatchingFilterChainResolver();
+        }
         if (filterConfig != null) {
             return new PathMatchingFilterChainResolver(filterConfig);
         } else {
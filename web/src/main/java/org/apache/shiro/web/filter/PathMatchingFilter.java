@@ -19,9 +19,12 @@
 package org.apache.shiro.web.filter;
 
 import org.apache.shiro.util.AntPathMatcher;
+import org.apache.shiro.util.CompiledPattern;
+import org.apache.shiro.util.CompiledPatternCache;
 import org.apache.shiro.util.PatternMatcher;
 import org.apache.shiro.util.StringUtils;
 import org.apache.shiro.web.servlet.AdviceFilter;
+import org.apache.shiro.web.servlet.ProxiedFilterChain;
 import org.apache.shiro.web.util.WebUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +64,12 @@ public abstract class PathMatchingFilter extends AdviceFilter implements PathCon
      */
     protected Map<String, Object> appliedPaths = new LinkedHashMap<String, Object>();
 
+    /**
+     * The applied paths (and any other patterns matched via {@link #pathsMatch(String, String)}) compiled by the
+     * current {@link #pathMatcher}.
+     */
+    private volatile CompiledPatternCache compiledPatterns;
+
     /**
      * Splits any comma-delmited values that might be found in the <code>config</code> argument and sets the resulting
      * <code>String[]</code> array on the <code>appliedPaths</code> internal Map.
@@ -86,9 +95,28 @@ public abstract class PathMatchingFilter extends AdviceFilter implements PathCon
         }
 
         this.appliedPaths.put(path, values);
+        //compile the path now rather than on the first request, which also rejects invalid patterns early:
+        getCompiledPattern(path);
         return this;
     }
 
+    /**
+     * Returns the compiled form of the specified pattern, as compiled by the current {@link #pathMatcher}.  Each
+     * pattern is only compiled once.
+     *
+     * @param pattern the pattern to compile
+     * @return the compiled form of the specified pattern.
+     * @since 1.5
+     */
+    protected CompiledPattern getCompiledPattern(String pattern) {
+        CompiledPatternCache compiledPatterns = this.compiledPatterns;
+        if (compiledPatterns == null || compiledPatterns.getPatternMatcher() != this.pathMatcher) {
+            compiledPatterns = new CompiledPatternCache(this.pathMatcher);
+            this.compiledPatterns = compiledPatterns;
+        }
+        return compiledPatterns.get(pattern);
+    }
+
     /**
      * Returns the context path within the application based on the specified <code>request</code>.
      * <p/>
@@ -128,7 +156,8 @@ public abstract class PathMatchingFilter extends AdviceFilter implements PathCon
      * Returns <code>true</code> if the <code>path</code> matches the specified <code>pattern</code> string,
      * <code>false</code> otherwise.
      * <p/>
-     * Simply delegates to
+     * Matches the path against the {@link #getCompiledPattern(String) compiled} form of the pattern, which is
+     * equivalent to
      * <b><code>this.pathMatcher.{@link PatternMatcher#matches(String, String) matches(pattern,path)}</code></b>,
      * but can be overridden by subclasses for custom matching behavior.
      *
@@ -138,7 +167,7 @@ public abstract class PathMatchingFilter extends AdviceFilter implements PathCon
      *         <code>false</code> otherwise.
      */
     protected boolean pathsMatch(String pattern, String path) {
-        return pathMatcher.matches(pattern, path);
+        return getCompiledPattern(pattern).matches(path);
     }
 
     /**
@@ -150,6 +179,12 @@ public abstract class PathMatchingFilter extends AdviceFilter implements PathCon
      * path does not match or the filter is not enabled for that path, this filter will allow passthrough immediately
      * to allow the {@code FilterChain} to continue executing.
      * <p/>
+     * If this filter executes as part of a chain that a
+     * {@link org.apache.shiro.web.filter.mgt.FilterChainResolver FilterChainResolver} already matched the request
+     * against, the configuration this filter was given for that chain is used directly, without matching the request
+     * path against the {@link #appliedPaths appliedPaths} again.  Otherwise (e.g. when this filter is mapped directly
+     * in {@code web.xml}), the first applied path that {@link #pathsMatch(String, ServletRequest) matches} wins.
+     * <p/>
      * In order to retain path-matching functionality, subclasses should not override this method if at all
      * possible, and instead override
      * {@link #onPreHandle(javax.servlet.ServletRequest, javax.servlet.ServletResponse, Object) onPreHandle} instead.
@@ -169,6 +204,12 @@ public abstract class PathMatchingFilter extends AdviceFilter implements PathCon
             return true;
         }
 
+        String chainName = getResolvedChainName(request);
+        if (chainName != null && this.appliedPaths.containsKey(chainName)) {
+            log.trace("Current request was resolved to chain '{}'.  Determining filter chain execution...", chainName);
+            return isFilterChainContinued(request, response, chainName, this.appliedPaths.get(chainName));
+        }
+
         for (String path : this.appliedPaths.keySet()) {
             // If the path does match, then pass on to the subclass implementation for specific checks
             //(first match 'wins'):
@@ -183,6 +224,19 @@ public abstract class PathMatchingFilter extends AdviceFilter implements PathCon
         return true;
     }
 
+    /**
+     * Returns the name of the (already resolved) filter chain this filter is currently executing in, or {@code null}
+     * if this filter is not executing as part of a named chain.
+     *
+     * @param request the incoming ServletRequest
+     * @return the name of the filter chain this filter is currently executing in, or {@code null}.
+     * @since 1.5
+     */
+    protected String getResolvedChainName(ServletRequest request) {
+        Object chainName = request.getAttribute(ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE);
+        return chainName instanceof String ? (String) chainName : null;
+    }
+
     /**
      * Simple method to abstract out logic from the preHandle implementation - it was getting a bit unruly.
      *
@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.filter;
+
+/**
+ * Marker interface for filters that neither use the current {@link org.apache.shiro.subject.Subject Subject} nor its
+ * session, e.g. the {@link org.apache.shiro.web.filter.authc.AnonymousFilter anon} filter.
+ * <p/>
+ * When an {@link org.apache.shiro.web.servlet.AbstractShiroFilter AbstractShiroFilter} has
+ * {@link org.apache.shiro.web.servlet.AbstractShiroFilter#setSubjectlessChainsEnabled(boolean) subjectless chains}
+ * enabled, requests whose resolved chain consists of such filters only are processed without creating a
+ * {@code Subject}, touching its session or binding anything to the thread.  Subclasses of marked filters that do
+ * use the {@code Subject} must not be used in such chains.
+ *
+ * @since 1.5
+ */
+public interface SubjectIndependentFilter {
+}
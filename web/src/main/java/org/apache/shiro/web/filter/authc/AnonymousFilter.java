@@ -19,6 +19,7 @@
 package org.apache.shiro.web.filter.authc;
 
 import org.apache.shiro.web.filter.PathMatchingFilter;
+import org.apache.shiro.web.filter.SubjectIndependentFilter;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
@@ -49,7 +50,7 @@ import javax.servlet.ServletResponse;
  *
  * @since 0.9
  */
-public class AnonymousFilter extends PathMatchingFilter {
+public class AnonymousFilter extends PathMatchingFilter implements SubjectIndependentFilter {
 
     /**
      * Always returns <code>true</code> allowing unchecked access to the underlying path or resource.
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.filter.mgt;
+
+import org.apache.shiro.util.AntPathMatcher;
+import org.apache.shiro.util.PatternMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link PathMatchingFilterChainResolver} that compiles all configured chain path patterns into a trie of path
+ * segments once, instead of matching the request path against each pattern in turn.
+ * <p/>
+ * The parent implementation tokenizes both the pattern and the request path for every configured chain until one
+ * matches, so requests matching chains near the end of a long {@code [urls]} list pay for hundreds of
+ * tokenizations.  This implementation tokenizes the request path once and walks the trie (literal segments,
+ * {@code *}/{@code ?} segments and {@code **} edges) in a single pass.  The first configured chain whose pattern
+ * matches still wins, exactly as before.
+ * <p/>
+ * The trie is rebuilt automatically whenever the {@link FilterChainManager#getChainNames() chain names} change.  It
+ * is only used with the default {@link AntPathMatcher AntPathMatcher} (and its default path separator); if another
+ * {@link #setPathMatcher(PatternMatcher) pathMatcher} is configured, this resolver falls back to the parent's
+ * behavior.  Note that the compiled path does not call {@link #pathMatches(String, String) pathMatches}.
+ *
+ * @see org.apache.shiro.web.config.IniFilterChainResolverFactory#setCompiledPathMatchingEnabled(boolean)
+ * @since 1.5
+ */
+public class CompiledPathMatchingFilterChainResolver extends PathMatchingFilterChainResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledPathMatchingFilterChainResolver.class);
+
+    private volatile CompiledChains compiled;
+
+    public CompiledPathMatchingFilterChainResolver() {
+        super();
+    }
+
+    public CompiledPathMatchingFilterChainResolver(FilterConfig filterConfig) {
+        super(filterConfig);
+    }
+
+    @Override
+    public void setFilterChainManager(FilterChainManager filterChainManager) {
+        super.setFilterChainManager(filterChainManager);
+        this.compiled = null;
+    }
+
+    @Override
+    public FilterChain getChain(ServletRequest request, ServletResponse response, FilterChain originalChain) {
+        if (!isCompilable(getPathMatcher())) {
+            return super.getChain(request, response, originalChain);
+        }
+
+        FilterChainManager filterChainManager = getFilterChainManager();
+        if (!filterChainManager.hasChains()) {
+            return null;
+        }
+
+        CompiledChains chains = getCompiledChains(filterChainManager.getChainNames());
+        String requestURI = getPathWithinApplication(request);
+        int index = chains.trie.match(requestURI);
+        if (index < 0) {
+            return null;
+        }
+
+        String pathPattern = chains.names[index];
+        if (log.isTraceEnabled()) {
+            log.trace("Matched path pattern [" + pathPattern + "] for requestURI [" + requestURI + "].  " +
+                    "Utilizing corresponding filter chain...");
+        }
+        return filterChainManager.proxy(originalChain, pathPattern);
+    }
+
+    private static boolean isCompilable(PatternMatcher pathMatcher) {
+        return pathMatcher != null && pathMatcher.getClass() == AntPathMatcher.class &&
+                AntPathMatcher.DEFAULT_PATH_SEPARATOR.equals(((AntPathMatcher) pathMatcher).getPathSeparator());
+    }
+
+    private CompiledChains getCompiledChains(Set<String> chainNames) {
+        CompiledChains chains = this.compiled;
+        if (chains == null || !chains.isCompiledFrom(chainNames)) {
+            chains = new CompiledChains(chainNames);
+            this.compiled = chains;
+            if (log.isDebugEnabled()) {
+                log.debug("Compiled {} filter chain path patterns.", chains.names.length);
+            }
+        }
+        return chains;
+    }
+
+    /**
+     * The chain names a trie was compiled from, in order, and the trie itself.
+     */
+    private static final class CompiledChains {
+
+        private final String[] names;
+        private final PathPatternTrie trie;
+
+        private CompiledChains(Set<String> chainNames) {
+            List<String> names = new ArrayList<String>(chainNames);
+            this.names = names.toArray(new String[names.size()]);
+            this.trie = new PathPatternTrie(names);
+        }
+
+        /**
+         * Checks whether the chain names are still the ones this trie was compiled from.  This is cheap, since unchanged
+         * chain names are usually the very same String instances.
+         */
+        private boolean isCompiledFrom(Set<String> chainNames) {
+            if (chainNames.size() != names.length) {
+                return false;
+            }
+            Iterator<String> i = chainNames.iterator();
+            for (String name : names) {
+                String current = i.next();
+                //noinspection StringEquality
+                if (current != name && !current.equals(name)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.shiro.web.filter.mgt;
 
 import org.apache.shiro.util.AntPathMatcher;
+import org.apache.shiro.util.CompiledPatternCache;
 import org.apache.shiro.util.PatternMatcher;
 import org.apache.shiro.web.util.WebUtils;
 import org.slf4j.Logger;
@@ -47,6 +48,11 @@ public class PathMatchingFilterChainResolver implements FilterChainResolver {
 
     private PatternMatcher pathMatcher;
 
+    /**
+     * The configured chain path patterns compiled by the current {@link #pathMatcher}.
+     */
+    private volatile CompiledPatternCache compiledPatterns;
+
     public PathMatchingFilterChainResolver() {
         this.pathMatcher = new AntPathMatcher();
         this.filterChainManager = new DefaultFilterChainManager();
@@ -119,8 +125,10 @@ public class PathMatchingFilterChainResolver implements FilterChainResolver {
      * Returns {@code true} if an incoming request path (the {@code path} argument)
      * matches a configured filter chain path (the {@code pattern} argument), {@code false} otherwise.
      * <p/>
-     * Simply delegates to
-     * <b><code>{@link #getPathMatcher() getPathMatcher()}.{@link org.apache.shiro.util.PatternMatcher#matches(String, String) matches(pattern,path)}</code></b>.
+     * Matches the path against the {@link org.apache.shiro.util.CompiledPattern compiled} form of the
+     * {@code pattern}, which is equivalent to
+     * <b><code>{@link #getPathMatcher() getPathMatcher()}.{@link org.apache.shiro.util.PatternMatcher#matches(String, String) matches(pattern,path)}</code></b>
+     * but only compiles (parses) each pattern once (as of 1.5).
      * Subclass implementors should think carefully before overriding this method, as typically a custom
      * {@code PathMatcher} should be configured for custom path matching behavior instead.  Favor OO composition
      * rather than inheritance to limit your exposure to Shiro implementation details which may change over time.
@@ -132,7 +140,12 @@ public class PathMatchingFilterChainResolver implements FilterChainResolver {
      */
     protected boolean pathMatches(String pattern, String path) {
         PatternMatcher pathMatcher = getPathMatcher();
-        return pathMatcher.matches(pattern, path);
+        CompiledPatternCache compiledPatterns = this.compiledPatterns;
+        if (compiledPatterns == null || compiledPatterns.getPatternMatcher() != pathMatcher) {
+            compiledPatterns = new CompiledPatternCache(pathMatcher);
+            this.compiledPatterns = compiledPatterns;
+        }
+        return compiledPatterns.matches(pattern, path);
     }
 
     /**
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.filter.mgt;
+
+import org.apache.shiro.util.AntPathMatcher;
+import org.apache.shiro.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An ordered list of {@link AntPathMatcher Ant-style} path patterns compiled into a trie of path segments, which
+ * finds the first pattern matching a path in a single pass over the path's segments.
+ * <p/>
+ * Each trie node has literal children (keyed by exact segment), wildcard children (segments containing {@code *} or
+ * {@code ?}) and a {@code **} child that may consume any number of segments.  The path is matched against all
+ * patterns at once by tracking the set of nodes reachable after each segment; of all patterns ending at a reachable
+ * node, the one that was added first wins.
+ * <p/>
+ * Matching is identical to calling {@link AntPathMatcher#matches(String, String)} (with the default {@code /}
+ * separator) for each pattern in order and returning the first match, including the treatment of leading and
+ * trailing separators.
+ *
+ * @since 1.5
+ */
+final class PathPatternTrie {
+
+    private static final String SEPARATOR = AntPathMatcher.DEFAULT_PATH_SEPARATOR;
+    private static final String DOUBLE_WILDCARD = "**";
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    /**
+     * Patterns with and without a leading separator can only ever match paths with and without one, respectively.
+     */
+    private final Node absoluteRoot = new Node();
+    private final Node relativeRoot = new Node();
+
+    /**
+     * Compiles the specified patterns.  The index of each pattern in the list is returned by {@link #match(String)}.
+     *
+     * @param patterns the patterns in order of precedence.
+     */
+    PathPatternTrie(List<String> patterns) {
+        for (int i = 0; i < patterns.size(); i++) {
+            add(patterns.get(i), i);
+        }
+    }
+
+    private void add(String pattern, int index) {
+        Node node = pattern.startsWith(SEPARATOR) ? absoluteRoot : relativeRoot;
+        String[] segments = StringUtils.tokenizeToStringArray(pattern, SEPARATOR);
+        boolean containsDoubleWildcard = false;
+        for (String segment : segments) {
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                containsDoubleWildcard = true;
+                break;
+            }
+        }
+
+        for (int i = 0; i < segments.length; i++) {
+            if (!containsDoubleWildcard && i == segments.length - 1 && "*".equals(segments[i])) {
+                //AntPathMatcher lets a trailing '*' also match a path ending right before it with a separator,
+                //e.g. '/foo/*' matches '/foo/':
+                node.separatorStarEnd = Math.min(node.separatorStarEnd, index);
+            }
+            node = node.child(segments[i]);
+        }
+
+        if (containsDoubleWildcard) {
+            node.anyEnd = Math.min(node.anyEnd, index);
+        } else if (pattern.endsWith(SEPARATOR)) {
+            node.separatorEnd = Math.min(node.separatorEnd, index);
+        } else {
+            node.noSeparatorEnd = Math.min(node.noSeparatorEnd, index);
+        }
+    }
+
+    /**
+     * Returns the index of the first pattern that matches the specified path, or {@code -1} if none does.
+     *
+     * @param path the path to match.
+     * @return the index of the first matching pattern, or {@code -1} if no pattern matches.
+     */
+    int match(String path) {
+        Node root = path.startsWith(SEPARATOR) ? absoluteRoot : relativeRoot;
+        String[] segments = StringUtils.tokenizeToStringArray(path, SEPARATOR);
+
+        List<Node> current = new ArrayList<Node>(4);
+        List<Node> next = new ArrayList<Node>(4);
+        addWithDoubleWildcards(current, root);
+
+        for (String segment : segments) {
+            for (Node node : current) {
+                node.step(segment, next);
+            }
+            if (next.isEmpty()) {
+                return -1;
+            }
+            List<Node> swap = current;
+            current = next;
+            next = swap;
+            next.clear();
+        }
+
+        boolean endsWithSeparator = path.endsWith(SEPARATOR);
+        int best = NO_MATCH;
+        for (Node node : current) {
+            best = Math.min(best, node.anyEnd);
+            if (endsWithSeparator) {
+                best = Math.min(best, Math.min(node.separatorEnd, node.separatorStarEnd));
+            } else {
+                best = Math.min(best, node.noSeparatorEnd);
+            }
+        }
+        return best != NO_MATCH ? best : -1;
+    }
+
+    /**
+     * Adds the node and, since a {@code **} segment may match zero path segments, every node reachable from it via
+     * {@code **} edges alone.
+     */
+    private static void addWithDoubleWildcards(List<Node> nodes, Node node) {
+        while (node != null) {
+            if (contains(nodes, node)) {
+                return;
+            }
+            nodes.add(node);
+            node = node.doubleWildcard;
+        }
+    }
+
+    private static boolean contains(List<Node> nodes, Node node) {
+        for (Node n : nodes) {
+            if (n == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mirrors AntPathMatcher's single-segment matching: {@code *} matches zero or more characters and {@code ?}
+     * exactly one.
+     */
+    static boolean matchSegment(String pattern, String segment) {
+        int p = 0;
+        int s = 0;
+        int starP = -1;
+        int starS = 0;
+        while (s < segment.length()) {
+            if (p < pattern.length() && pattern.charAt(p) != '*' &&
+                    (pattern.charAt(p) == '?' || pattern.charAt(p) == segment.charAt(s))) {
+                p++;
+                s++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starP = p++;
+                starS = s;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                s = ++starS;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static final class Node {
+
+        private Map<String, Node> literals;
+        private List<String> wildcardSegments;
+        private List<Node> wildcards;
+
+        /**
+         * The node reached via a {@code **} segment.  It loops back onto itself for every further path segment.
+         */
+        private Node doubleWildcard;
+        private boolean reachedByDoubleWildcard;
+
+        /**
+         * Lowest index of the patterns ending at this node: patterns containing {@code **} (which match regardless of
+         * a trailing separator), and other patterns with and without a trailing separator.
+         */
+        private int anyEnd = NO_MATCH;
+        private int separatorEnd = NO_MATCH;
+        private int noSeparatorEnd = NO_MATCH;
+
+        /**
+         * Lowest index of the patterns without {@code **} that end with a {@code *} segment directly below this node.
+         */
+        private int separatorStarEnd = NO_MATCH;
+
+        private Node child(String segment) {
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                if (doubleWildcard == null) {
+                    doubleWildcard = new Node();
+                    doubleWildcard.reachedByDoubleWildcard = true;
+                }
+                return doubleWildcard;
+            }
+            if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                if (wildcards == null) {
+                    wildcardSegments = new ArrayList<String>(2);
+                    wildcards = new ArrayList<Node>(2);
+                }
+                int i = wildcardSegments.indexOf(segment);
+                if (i >= 0) {
+                    return wildcards.get(i);
+                }
+                Node child = new Node();
+                wildcardSegments.add(segment);
+                wildcards.add(child);
+                return child;
+            }
+            if (literals == null) {
+                literals = new HashMap<String, Node>();
+            }
+            Node child = literals.get(segment);
+            if (child == null) {
+                child = new Node();
+                literals.put(segment, child);
+            }
+            return child;
+        }
+
+        private void step(String segment, List<Node> next) {
+            if (reachedByDoubleWildcard) {
+                addWithDoubleWildcards(next, this);
+            }
+            if (literals != null) {
+                Node child = literals.get(segment);
+                if (child != null) {
+                    addWithDoubleWildcards(next, child);
+                }
+            }
+            if (wildcards != null) {
+                for (int i = 0; i < wildcards.size(); i++) {
+                    if (matchSegment(wildcardSegments.get(i), segment)) {
+                        addWithDoubleWildcards(next, wildcards.get(i));
+                    }
+                }
+            }
+        }
+    }
+}
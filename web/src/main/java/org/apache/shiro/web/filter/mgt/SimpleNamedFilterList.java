@@ -76,7 +76,7 @@ public class SimpleNamedFilterList implements NamedFilterList {
     }
 
     public FilterChain proxy(FilterChain orig) {
-        return new ProxiedFilterChain(orig, this);
+        return new ProxiedFilterChain(orig, this, getName());
     }
 
     public boolean add(Filter filter) {
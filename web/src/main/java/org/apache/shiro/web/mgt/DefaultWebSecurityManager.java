@@ -26,6 +26,7 @@ import org.apache.shiro.realm.Realm;
 import org.apache.shiro.session.mgt.SessionContext;
 import org.apache.shiro.session.mgt.SessionKey;
 import org.apache.shiro.session.mgt.SessionManager;
+import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.subject.Subject;
 import org.apache.shiro.subject.SubjectContext;
 import org.apache.shiro.util.LifecycleUtils;
@@ -34,6 +35,7 @@ import org.apache.shiro.web.session.mgt.*;
 import org.apache.shiro.web.subject.WebSubject;
 import org.apache.shiro.web.subject.WebSubjectContext;
 import org.apache.shiro.web.subject.support.DefaultWebSubjectContext;
+import org.apache.shiro.web.subject.support.LazyWebDelegatingSubject;
 import org.apache.shiro.web.util.WebUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +69,24 @@ public class DefaultWebSecurityManager extends DefaultSecurityManager implements
     @Deprecated
     private String sessionMode;
 
+    /**
+     * @since 1.5
+     */
+    private boolean lazySubjectsEnabled;
+
+    /**
+     * @since 1.5
+     */
+    private final LazyWebDelegatingSubject.Resolver lazySubjectResolver = new LazyWebDelegatingSubject.Resolver() {
+        public WebSubjectContext resolve(WebSubjectContext context) {
+            return (WebSubjectContext) resolvePrincipals(resolveSession(context));
+        }
+
+        public void save(Subject subject) {
+            DefaultWebSecurityManager.this.save(subject);
+        }
+    };
+
     public DefaultWebSecurityManager() {
         super();
         ((DefaultSubjectDAO) this.subjectDAO).setSessionStorageEvaluator(new DefaultWebSessionStorageEvaluator());
@@ -126,6 +146,66 @@ public class DefaultWebSecurityManager extends DefaultSecurityManager implements
         return super.copy(subjectContext);
     }
 
+    /**
+     * Returns {@code true} if anonymous web subjects are created as {@link LazyWebDelegatingSubject}s, which only look
+     * up their session and remembered identity when first used, {@code false} otherwise.  The default value is
+     * {@code false}.
+     *
+     * @return {@code true} if anonymous web subjects are created as {@link LazyWebDelegatingSubject}s, {@code false}
+     *         otherwise.
+     * @since 1.5
+     */
+    public boolean isLazySubjectsEnabled() {
+        return lazySubjectsEnabled;
+    }
+
+    /**
+     * Sets whether anonymous web subjects (i.e. those built from a request/response pair without any principals,
+     * session or existing subject, as done for every request by the {@code ShiroFilter}) are created as
+     * {@link LazyWebDelegatingSubject}s.  Such subjects only look up the request's session and
+     * {@link #setRememberMeManager(org.apache.shiro.mgt.RememberMeManager) remembered identity} and
+     * {@link #save(Subject) save} their state when that state is first used, so requests that never use it never reach
+     * the session store.
+     * <p/>
+     * Subjects are only created lazily if the default {@link DefaultWebSubjectFactory} is used, since a custom
+     * {@link #setSubjectFactory(org.apache.shiro.mgt.SubjectFactory) subjectFactory} may rely on the resolved state.
+     * The default value is {@code false}.
+     *
+     * @param lazySubjectsEnabled whether anonymous web subjects are created as {@link LazyWebDelegatingSubject}s.
+     * @since 1.5
+     */
+    public void setLazySubjectsEnabled(boolean lazySubjectsEnabled) {
+        this.lazySubjectsEnabled = lazySubjectsEnabled;
+    }
+
+    /**
+     * Creates a {@link LazyWebDelegatingSubject} if {@link #isLazySubjectsEnabled() lazy subjects are enabled} and the
+     * context permits it, otherwise creates the subject as usual.
+     *
+     * @param subjectContext any data needed to direct how the Subject should be constructed.
+     * @return the {@code Subject} instance reflecting the specified contextual data.
+     * @since 1.5
+     */
+    @Override
+    public Subject createSubject(SubjectContext subjectContext) {
+        if (isLazySubjectsEnabled() && isLazilyResolvable(subjectContext)) {
+            WebSubjectContext context = (WebSubjectContext) ensureSecurityManager(copy(subjectContext));
+            return new LazyWebDelegatingSubject(context, this.lazySubjectResolver);
+        }
+        return super.createSubject(subjectContext);
+    }
+
+    private boolean isLazilyResolvable(SubjectContext context) {
+        if (!(context instanceof WebSubjectContext) || !WebUtils.isWeb(context) ||
+                getSubjectFactory() == null || getSubjectFactory().getClass() != DefaultWebSubjectFactory.class) {
+            return false;
+        }
+        PrincipalCollection principals = context.getPrincipals();
+        return context.getSubject() == null && (principals == null || principals.isEmpty()) &&
+                context.getSession() == null && !context.isAuthenticated() &&
+                context.getAuthenticationToken() == null && context.getAuthenticationInfo() == null;
+    }
+
     @SuppressWarnings({"UnusedDeclaration"})
     @Deprecated
     public String getSessionMode() {
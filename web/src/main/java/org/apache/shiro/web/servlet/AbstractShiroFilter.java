@@ -19,16 +19,22 @@
 package org.apache.shiro.web.servlet;
 
 import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.mgt.SessionsSecurityManager;
 import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.SessionManager;
+import org.apache.shiro.session.mgt.WorkingCopySessionManager;
 import org.apache.shiro.subject.ExecutionException;
 import org.apache.shiro.subject.Subject;
+import org.apache.shiro.web.filter.SubjectIndependentFilter;
 import org.apache.shiro.web.filter.mgt.FilterChainResolver;
 import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
 import org.apache.shiro.web.mgt.WebSecurityManager;
 import org.apache.shiro.web.subject.WebSubject;
+import org.apache.shiro.web.subject.support.LazyWebDelegatingSubject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
@@ -36,6 +42,7 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -77,6 +84,12 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
 
     private static final String STATIC_INIT_PARAM_NAME = "staticSecurityManagerEnabled";
 
+    /**
+     * Request attribute holding the chain resolved by {@link #getSubjectlessChain}, so that
+     * {@link #getExecutionChain} does not resolve it again.
+     */
+    private static final String RESOLVED_CHAIN_ATTRIBUTE = AbstractShiroFilter.class.getName() + "_RESOLVED_CHAIN";
+
     // Reference to the security manager used by this filter
     private WebSecurityManager securityManager;
 
@@ -90,8 +103,16 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
      */
     private boolean staticSecurityManagerEnabled;
 
+    /**
+     * Whether or not requests whose resolved chain consists of {@link SubjectIndependentFilter}s only are processed
+     * without a Subject.
+     * @since 1.5
+     */
+    private boolean subjectlessChainsEnabled;
+
     protected AbstractShiroFilter() {
         this.staticSecurityManagerEnabled = false;
+        this.subjectlessChainsEnabled = false;
     }
 
     public WebSecurityManager getSecurityManager() {
@@ -146,6 +167,39 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
         this.staticSecurityManagerEnabled = staticSecurityManagerEnabled;
     }
 
+    /**
+     * Returns {@code true} if requests whose resolved filter chain consists of {@link SubjectIndependentFilter}s only
+     * (e.g. static resources or health checks mapped to {@code anon}) are processed without creating a
+     * {@code Subject}, {@code false} otherwise.
+     * <p/>
+     * The default value is {@code false}.
+     *
+     * @return {@code true} if requests whose resolved filter chain consists of {@link SubjectIndependentFilter}s only
+     *         are processed without creating a {@code Subject}, {@code false} otherwise.
+     * @since 1.5
+     */
+    public boolean isSubjectlessChainsEnabled() {
+        return subjectlessChainsEnabled;
+    }
+
+    /**
+     * Sets if requests whose resolved filter chain consists of {@link SubjectIndependentFilter}s only are processed
+     * without creating a {@code Subject}.  Such requests then skip the session ID and remember-me cookie lookups, the
+     * session read and {@link #updateSessionLastAccessTime touch}, and binding the {@code Subject} to the thread: the
+     * resolved chain is executed directly, with the original (unwrapped) request and response.  Code handling such
+     * requests must therefore not call {@code SecurityUtils.getSubject()}.
+     * <p/>
+     * The default value is {@code false}.
+     *
+     * @param subjectlessChainsEnabled if requests whose resolved filter chain consists of
+     *                                 {@link SubjectIndependentFilter}s only are processed without creating a
+     *                                 {@code Subject}.
+     * @since 1.5
+     */
+    public void setSubjectlessChainsEnabled(boolean subjectlessChainsEnabled) {
+        this.subjectlessChainsEnabled = subjectlessChainsEnabled;
+    }
+
     protected final void onFilterConfigSet() throws Exception {
         //added in 1.2 for SHIRO-287:
         applyStaticSecurityManagerEnabledConfig();
@@ -297,7 +351,9 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
      * If native sessions are not enabled (that is, standard Servlet container sessions are being used) or there is no
      * session ({@code subject.getSession(false) == null}), this method does nothing.
      * <p/>This method implementation merely calls
-     * <code>Session.{@link org.apache.shiro.session.Session#touch() touch}()</code> on the session.
+     * <code>Session.{@link org.apache.shiro.session.Session#touch() touch}()</code> on the session.  If the subject is
+     * a {@link LazyWebDelegatingSubject} that has not looked up its session yet, the session is touched once (and
+     * if) it is looked up instead.
      *
      * @param request  incoming request - ignored, but available to subclasses that might wish to override this method
      * @param response outgoing response - ignored, but available to subclasses that might wish to override this method
@@ -307,6 +363,10 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
     protected void updateSessionLastAccessTime(ServletRequest request, ServletResponse response) {
         if (!isHttpSessions()) { //'native' sessions
             Subject subject = SecurityUtils.getSubject();
+            if (subject instanceof LazyWebDelegatingSubject && !((LazyWebDelegatingSubject) subject).isResolved()) {
+                ((LazyWebDelegatingSubject) subject).setTouchSessionOnResolve(true);
+                return;
+            }
             //Subject should never _ever_ be null, but just in case:
             if (subject != null) {
                 Session session = subject.getSession(false);
@@ -340,6 +400,14 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
      * <p/>
      * The {@code Subject.}{@link Subject#execute(Runnable) execute(Runnable)} call in step #4 is used as an
      * implementation technique to guarantee proper thread binding and restoration is completed successfully.
+     * <p/>
+     * If a {@link #getWorkingCopySessionManager() WorkingCopySessionManager} is available, all of the above is
+     * performed within a request-scoped session working copy scope, which is ended (and any session changes written)
+     * once the request has been filtered.
+     * <p/>
+     * If {@link #isSubjectlessChainsEnabled() subjectless chains} are enabled and the
+     * {@link #getSubjectlessChain(ServletRequest, ServletResponse, FilterChain) resolved chain} consists of
+     * {@link SubjectIndependentFilter}s only, none of the above is performed: the resolved chain is executed directly.
      *
      * @param servletRequest  the incoming {@code ServletRequest}
      * @param servletResponse the outgoing {@code ServletResponse}
@@ -350,8 +418,20 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
     protected void doFilterInternal(ServletRequest servletRequest, ServletResponse servletResponse, final FilterChain chain)
             throws ServletException, IOException {
 
+        if (isSubjectlessChainsEnabled()) {
+            FilterChain subjectless = getSubjectlessChain(servletRequest, servletResponse, chain);
+            if (subjectless != null) {
+                subjectless.doFilter(servletRequest, servletResponse);
+                return;
+            }
+        }
+
         Throwable t = null;
 
+        WorkingCopySessionManager workingCopySessionManager = getWorkingCopySessionManager();
+        boolean workingCopyScope = workingCopySessionManager != null &&
+                workingCopySessionManager.beginWorkingCopyScope();
+
         try {
             final ServletRequest request = prepareServletRequest(servletRequest, servletResponse, chain);
             final ServletResponse response = prepareServletResponse(request, servletResponse, chain);
@@ -370,6 +450,17 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
             t = ex.getCause();
         } catch (Throwable throwable) {
             t = throwable;
+        } finally {
+            if (workingCopyScope) {
+                try {
+                    //writes each session changed during this request back to the session store exactly once:
+                    workingCopySessionManager.endWorkingCopyScope();
+                } catch (Throwable throwable) {
+                    if (t == null) {
+                        t = throwable;
+                    }
+                }
+            }
         }
 
         if (t != null) {
@@ -385,6 +476,71 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
         }
     }
 
+    /**
+     * Returns the native session manager that supports request-scoped
+     * {@link WorkingCopySessionManager session working copies}, or {@code null} if this filter uses servlet container
+     * sessions or the configured {@code SecurityManager} does not support them.
+     * <p/>
+     * When a manager is returned, each Shiro session accessed during the request is looked up once, and a single
+     * coalesced update is written back when the request has been filtered.
+     *
+     * @return the session manager supporting request-scoped session working copies, or {@code null}.
+     * @since 1.5
+     */
+    protected WorkingCopySessionManager getWorkingCopySessionManager() {
+        WebSecurityManager securityManager = getSecurityManager();
+        if (securityManager instanceof SessionsSecurityManager && !isHttpSessions()) {
+            SessionManager sessionManager = ((SessionsSecurityManager) securityManager).getSessionManager();
+            if (sessionManager instanceof WorkingCopySessionManager) {
+                return (WorkingCopySessionManager) sessionManager;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the chain resolved for the request if it consists of {@link SubjectIndependentFilter}s only, or
+     * {@code null} if the request needs a {@code Subject} (including requests not matching any configured chain).
+     * In the latter case, the resolved chain is kept as a request attribute for
+     * {@link #getExecutionChain(ServletRequest, ServletResponse, FilterChain) getExecutionChain}, so that each request
+     * is only resolved once.
+     *
+     * @param request   the incoming ServletRequest
+     * @param response  the outgoing ServletResponse
+     * @param origChain the Servlet Container-provided chain
+     * @return the resolved chain if it consists of {@link SubjectIndependentFilter}s only, {@code null} otherwise.
+     * @since 1.5
+     */
+    protected FilterChain getSubjectlessChain(ServletRequest request, ServletResponse response, FilterChain origChain) {
+        FilterChainResolver resolver = getFilterChainResolver();
+        if (resolver == null) {
+            return null;
+        }
+        FilterChain resolved = resolver.getChain(request, response, origChain);
+        if (!isSubjectIndependent(resolved)) {
+            request.setAttribute(RESOLVED_CHAIN_ATTRIBUTE, new ResolvedChain(origChain, resolved));
+            return null;
+        }
+        log.trace("Resolved a subject independent FilterChain for the current request.  Skipping Subject creation.");
+        return resolved;
+    }
+
+    private static boolean isSubjectIndependent(FilterChain chain) {
+        if (!(chain instanceof ProxiedFilterChain)) {
+            return false;
+        }
+        List<Filter> filters = ((ProxiedFilterChain) chain).getFilters();
+        if (filters == null || filters.isEmpty()) {
+            return false;
+        }
+        for (Filter filter : filters) {
+            if (!(filter instanceof SubjectIndependentFilter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the {@code FilterChain} to execute for the given request.
      * <p/>
@@ -412,7 +568,14 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
             return origChain;
         }
 
-        FilterChain resolved = resolver.getChain(request, response, origChain);
+        FilterChain resolved;
+        Object previous = request.getAttribute(RESOLVED_CHAIN_ATTRIBUTE);
+        if (previous instanceof ResolvedChain && ((ResolvedChain) previous).origChain == origChain) {
+            request.removeAttribute(RESOLVED_CHAIN_ATTRIBUTE);
+            resolved = ((ResolvedChain) previous).resolved;
+        } else {
+            resolved = resolver.getChain(request, response, origChain);
+        }
         if (resolved != null) {
             log.trace("Resolved a configured FilterChain for the current request.");
             chain = resolved;
@@ -448,4 +611,18 @@ public abstract class AbstractShiroFilter extends OncePerRequestFilter {
         FilterChain chain = getExecutionChain(request, response, origChain);
         chain.doFilter(request, response);
     }
+
+    /**
+     * A chain resolved by {@link #getSubjectlessChain}, along with the original chain it was resolved for.
+     */
+    private static final class ResolvedChain {
+
+        private final FilterChain origChain;
+        private final FilterChain resolved;
+
+        private ResolvedChain(FilterChain origChain, FilterChain resolved) {
+            this.origChain = origChain;
+            this.resolved = resolved;
+        }
+    }
 }
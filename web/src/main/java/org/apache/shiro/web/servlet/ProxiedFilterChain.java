@@ -30,6 +30,12 @@ import java.util.List;
  * as a {@link List List} of other {@link Filter Filter}s that might need to execute prior to the final wrapped
  * original chain.  It allows a list of filters to execute before continuing the original (proxied)
  * {@code FilterChain} instance.
+ * <p/>
+ * If the chain was created for a named chain (typically the path pattern a
+ * {@link org.apache.shiro.web.filter.mgt.FilterChainResolver FilterChainResolver} matched the request against), that
+ * {@link #getChainName() name} is exposed to each wrapped filter as the {@link #CHAIN_NAME_ATTRIBUTE} request
+ * attribute while it executes.  This allows path-matching filters to look up their configuration for the resolved
+ * chain instead of matching the request path again.
  *
  * @since 0.9
  */
@@ -39,31 +45,101 @@ public class ProxiedFilterChain implements FilterChain {
 
     private static final Logger log = LoggerFactory.getLogger(ProxiedFilterChain.class);
 
+    /**
+     * Request attribute holding the {@link #getChainName() name} of the chain whose wrapped filter is currently
+     * executing.  It is removed again while the original chain executes, and its previous value is restored once a
+     * wrapped filter returns, whether or not that filter continued the chain.
+     *
+     * @since 1.5
+     */
+    public static final String CHAIN_NAME_ATTRIBUTE = ProxiedFilterChain.class.getName() + "_CHAIN_NAME";
+
     private FilterChain orig;
     private List<Filter> filters;
+    private String chainName;
     private int index = 0;
 
     public ProxiedFilterChain(FilterChain orig, List<Filter> filters) {
+        this(orig, filters, null);
+    }
+
+    /**
+     * Creates a new chain executing the specified filters before the original chain, exposing the specified chain
+     * name to the filters via the {@link #CHAIN_NAME_ATTRIBUTE} request attribute.
+     *
+     * @param orig      the original chain to execute after the filters.
+     * @param filters   the filters to execute first.
+     * @param chainName the name of the chain the filters were configured for, may be {@code null}.
+     * @since 1.5
+     */
+    public ProxiedFilterChain(FilterChain orig, List<Filter> filters, String chainName) {
         if (orig == null) {
             throw new NullPointerException("original FilterChain cannot be null.");
         }
         this.orig = orig;
         this.filters = filters;
+        this.chainName = chainName;
         this.index = 0;
     }
 
+    /**
+     * Returns the name of the chain the wrapped filters were configured for, or {@code null} if unknown.
+     *
+     * @return the name of the chain the wrapped filters were configured for, or {@code null} if unknown.
+     * @since 1.5
+     */
+    public String getChainName() {
+        return chainName;
+    }
+
+    /**
+     * Returns the wrapped filters, for use by {@link AbstractShiroFilter} only.
+     */
+    List<Filter> getFilters() {
+        return filters;
+    }
+
     public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
         if (this.filters == null || this.filters.size() == this.index) {
             //we've reached the end of the wrapped chain, so invoke the original one:
             if (log.isTraceEnabled()) {
                 log.trace("Invoking original filter chain.");
             }
-            this.orig.doFilter(request, response);
+            if (this.chainName == null) {
+                this.orig.doFilter(request, response);
+                return;
+            }
+            Object previous = request.getAttribute(CHAIN_NAME_ATTRIBUTE);
+            request.removeAttribute(CHAIN_NAME_ATTRIBUTE);
+            try {
+                this.orig.doFilter(request, response);
+            } finally {
+                restoreChainName(request, previous);
+            }
         } else {
             if (log.isTraceEnabled()) {
                 log.trace("Invoking wrapped filter at index [" + this.index + "]");
             }
-            this.filters.get(this.index++).doFilter(request, response, this);
+            if (this.chainName == null) {
+                this.filters.get(this.index++).doFilter(request, response, this);
+                return;
+            }
+            Object previous = request.getAttribute(CHAIN_NAME_ATTRIBUTE);
+            request.setAttribute(CHAIN_NAME_ATTRIBUTE, this.chainName);
+            try {
+                this.filters.get(this.index++).doFilter(request, response, this);
+            } finally {
+                //the filter may not have continued the chain (e.g. after a redirect or a forward):
+                restoreChainName(request, previous);
+            }
+        }
+    }
+
+    private static void restoreChainName(ServletRequest request, Object previous) {
+        if (previous != null) {
+            request.setAttribute(CHAIN_NAME_ATTRIBUTE, previous);
+        } else {
+            request.removeAttribute(CHAIN_NAME_ATTRIBUTE);
         }
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.subject.support;
+
+import org.apache.shiro.session.Session;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.web.subject.WebSubjectContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ObjectStreamException;
+
+/**
+ * A {@link WebDelegatingSubject} that defers resolving its session and remembered identity until its state is first
+ * needed.
+ * <p/>
+ * An eagerly created {@code Subject} looks up the request's session, decodes any 'Remember Me' principals and saves
+ * the resulting state for every request, even if the request never asks for any of it.  Instances of this class
+ * instead only retain the {@link WebSubjectContext WebSubjectContext} they were created from, whose request still
+ * carries the raw session ID and remember-me cookies.  The context is {@link Resolver#resolve(WebSubjectContext)
+ * resolved} and the resolved state {@link Resolver#save(Subject) saved} the first time
+ * {@link #getPrincipals() getPrincipals()}, {@link #isAuthenticated() isAuthenticated()},
+ * {@link #getSession(boolean) getSession(...)}, {@link #getHost() getHost()} or any method depending on them (such as
+ * all authorization methods) is called.  Requests that never use any of these never reach the session store.
+ * <p/>
+ * Like any {@code Subject}, instances are not meant to be shared by concurrently executing threads.  The context and
+ * resolver are not serialized, so (serializable subclass) instances are resolved before they are written.
+ *
+ * @see org.apache.shiro.web.mgt.DefaultWebSecurityManager#setLazySubjectsEnabled(boolean)
+ * @since 1.5
+ */
+public class LazyWebDelegatingSubject extends WebDelegatingSubject {
+
+    private static final long serialVersionUID = 4713225412532370962L;
+
+    private static final Logger log = LoggerFactory.getLogger(LazyWebDelegatingSubject.class);
+
+    /**
+     * Resolves the state a {@link LazyWebDelegatingSubject} was created without, typically implemented by the
+     * {@code SecurityManager} that created the subject.
+     */
+    public interface Resolver {
+
+        /**
+         * Resolves the session and the (possibly remembered) principals referenced by the specified context.
+         *
+         * @param context the context the lazy subject was created from.
+         * @return the context to obtain the subject's principals, authentication state, host and session from.
+         */
+        WebSubjectContext resolve(WebSubjectContext context);
+
+        /**
+         * Saves the state of the specified subject, right after it has been resolved.
+         *
+         * @param subject the subject whose state has just been resolved.
+         */
+        void save(Subject subject);
+    }
+
+    private transient WebSubjectContext context;
+    private transient Resolver resolver;
+    private boolean resolved;
+    private boolean touchSessionOnResolve;
+
+    public LazyWebDelegatingSubject(WebSubjectContext context, Resolver resolver) {
+        super(null, false, null, null, context.isSessionCreationEnabled(), context.resolveServletRequest(),
+                context.resolveServletResponse(), context.resolveSecurityManager());
+        if (resolver == null) {
+            throw new IllegalArgumentException("Resolver argument cannot be null.");
+        }
+        this.context = context;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Returns {@code true} if this subject's state has been resolved already, {@code false} otherwise.
+     *
+     * @return {@code true} if this subject's state has been resolved already, {@code false} otherwise.
+     */
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    /**
+     * Sets whether the resolved session (if any) should be {@link Session#touch() touched} as soon as this subject is
+     * resolved.  Used to defer updating the session's last access time for the current request until the session is
+     * actually looked up.
+     *
+     * @param touchSessionOnResolve whether the resolved session should be touched as soon as it is resolved.
+     */
+    public void setTouchSessionOnResolve(boolean touchSessionOnResolve) {
+        this.touchSessionOnResolve = touchSessionOnResolve;
+    }
+
+    /**
+     * Resolves this subject's state if that has not happened yet.
+     */
+    protected void resolve() {
+        //without a resolver (i.e. after deserialization), the state written with this subject is all there is:
+        if (this.resolved || this.resolver == null) {
+            return;
+        }
+        //set first, saving the subject below reads its state again:
+        this.resolved = true;
+        WebSubjectContext context = this.resolver.resolve(this.context);
+        Resolver resolver = this.resolver;
+        this.context = null;
+        this.resolver = null;
+
+        this.principals = context.resolvePrincipals();
+        this.authenticated = context.resolveAuthenticated();
+        this.host = context.resolveHost();
+        Session session = context.resolveSession();
+        if (session != null) {
+            this.session = decorate(session);
+        }
+        resolver.save(this);
+
+        if (this.touchSessionOnResolve && this.session != null) {
+            try {
+                this.session.touch();
+            } catch (Throwable t) {
+                log.error("session.touch() method invocation has failed.  Unable to update " +
+                        "the corresponding session's last access time based on the incoming request.", t);
+            }
+        }
+    }
+
+    /**
+     * Resolves this subject before it is serialized, as its context and resolver are not serialized with it.
+     *
+     * @return this subject.
+     * @throws ObjectStreamException never.
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        resolve();
+        return this;
+    }
+
+    @Override
+    public String getHost() {
+        resolve();
+        return super.getHost();
+    }
+
+    @Override
+    public PrincipalCollection getPrincipals() {
+        resolve();
+        return super.getPrincipals();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        resolve();
+        return super.isAuthenticated();
+    }
+
+    @Override
+    public Session getSession(boolean create) {
+        resolve();
+        return super.getSession(create);
+    }
+}
@@ -18,10 +18,21 @@
  */
 package org.apache.shiro.web.servlet
 
+import javax.servlet.Filter
+import javax.servlet.FilterChain
 import javax.servlet.FilterConfig
 import javax.servlet.ServletContext
+import javax.servlet.ServletRequest
+import javax.servlet.ServletResponse
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
 import org.apache.shiro.SecurityUtils
 import org.apache.shiro.UnavailableSecurityManagerException
+import org.apache.shiro.util.ThreadContext
+import org.apache.shiro.web.filter.authc.AnonymousFilter
+import org.apache.shiro.web.filter.authc.FormAuthenticationFilter
+import org.apache.shiro.web.filter.mgt.FilterChainResolver
+import org.apache.shiro.web.filter.session.NoSessionCreationFilter
 import org.apache.shiro.web.mgt.WebSecurityManager
 import static org.easymock.EasyMock.*
 
@@ -84,4 +95,95 @@ class AbstractShiroFilterTest extends GroovyTestCase {
         }
     }
 
+    /**
+     * @since 1.5
+     */
+    void testSubjectlessChain() {
+
+        def securityManager = createStrictMock(WebSecurityManager) //no Subject may be created
+        def request = createNiceMock(HttpServletRequest)
+        def response = createNiceMock(HttpServletResponse)
+        def origChain = createStrictMock(FilterChain)
+
+        List<Filter> filters = [new AnonymousFilter()]
+        def resolver = [getChain: { ServletRequest req, ServletResponse resp, FilterChain chain ->
+            new ProxiedFilterChain(chain, filters, '/static/**')
+        }] as FilterChainResolver
+
+        origChain.doFilter(request, response)
+        expectLastCall().andAnswer {
+            assertNull ThreadContext.subject
+        }
+
+        replay securityManager, request, response, origChain
+
+        AbstractShiroFilter filter = new AbstractShiroFilter() {}
+        filter.securityManager = securityManager
+        filter.filterChainResolver = resolver
+        filter.subjectlessChainsEnabled = true
+
+        filter.doFilterInternal(request, response, origChain)
+
+        verify securityManager, origChain
+    }
+
+    /**
+     * @since 1.5
+     */
+    void testChainRequiringSubject() {
+
+        def request = createNiceMock(HttpServletRequest)
+        def response = createNiceMock(HttpServletResponse)
+        def origChain = createNiceMock(FilterChain)
+
+        List<Filter> filters = [new AnonymousFilter(), new FormAuthenticationFilter()]
+        def resolver = [getChain: { ServletRequest req, ServletResponse resp, FilterChain chain ->
+            new ProxiedFilterChain(chain, filters, '/login')
+        }] as FilterChainResolver
+
+        AbstractShiroFilter filter = new AbstractShiroFilter() {}
+        filter.filterChainResolver = resolver
+
+        assertNull filter.getSubjectlessChain(request, response, origChain)
+
+        //noSessionCreation must reach the Subject via the request attribute it sets:
+        filters = [new NoSessionCreationFilter(), new AnonymousFilter()]
+        assertNull filter.getSubjectlessChain(request, response, origChain)
+
+        filters = [new AnonymousFilter()]
+        assertNotNull filter.getSubjectlessChain(request, response, origChain)
+    }
+
+    /**
+     * @since 1.5
+     */
+    void testChainResolvedOnce() {
+
+        def attributes = [:]
+        def request = [getAttribute: { String name -> attributes[name] },
+                       setAttribute: { String name, Object value -> attributes[name] = value },
+                       removeAttribute: { String name -> attributes.remove(name) }] as HttpServletRequest
+        def response = createNiceMock(HttpServletResponse)
+        def origChain = createNiceMock(FilterChain)
+
+        int resolutions = 0
+        def resolved = new ProxiedFilterChain(origChain, [new FormAuthenticationFilter()] as List<Filter>, '/login')
+        def resolver = [getChain: { ServletRequest req, ServletResponse resp, FilterChain chain ->
+            resolutions++
+            resolved
+        }] as FilterChainResolver
+
+        AbstractShiroFilter filter = new AbstractShiroFilter() {}
+        filter.filterChainResolver = resolver
+
+        assertNull filter.getSubjectlessChain(request, response, origChain)
+        assertSame resolved, filter.getExecutionChain(request, response, origChain)
+        assertEquals 1, resolutions
+        assertTrue attributes.isEmpty()
+
+        //a later resolution for the same request resolves again:
+        assertSame resolved, filter.getExecutionChain(request, response, origChain)
+        assertEquals 2, resolutions
+    }
+
 }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.servlet
+
+import javax.servlet.Filter
+import javax.servlet.FilterChain
+import javax.servlet.FilterConfig
+import javax.servlet.ServletRequest
+import javax.servlet.ServletResponse
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+/**
+ * Unit tests for the {@link ProxiedFilterChain} implementation.
+ *
+ * @since 1.5
+ */
+class ProxiedFilterChainTest extends GroovyTestCase {
+
+    private Map attributes = [:]
+    private HttpServletRequest request = [getAttribute: { String name -> attributes[name] },
+            setAttribute: { String name, Object value -> attributes[name] = value },
+            removeAttribute: { String name -> attributes.remove(name) }] as HttpServletRequest
+    private HttpServletResponse response = [:] as HttpServletResponse
+
+    private Filter filter(Closure doFilter) {
+        [init: { FilterConfig config -> }, destroy: {},
+                doFilter: { ServletRequest req, ServletResponse resp, FilterChain chain -> doFilter(chain) }] as Filter
+    }
+
+    void testChainNameExposedToFilters() {
+        def seen = []
+        def orig = [doFilter: { ServletRequest req, ServletResponse resp ->
+            seen << attributes[ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE]
+        }] as FilterChain
+        def recording = filter { FilterChain chain ->
+            seen << attributes[ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE]
+            chain.doFilter(request, response)
+            seen << attributes[ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE]
+        }
+
+        new ProxiedFilterChain(orig, [recording], '/account/**').doFilter(request, response)
+
+        assertEquals(['/account/**', null, '/account/**'], seen)
+        assertTrue attributes.isEmpty()
+    }
+
+    void testChainNameRemovedWhenFilterDoesNotContinue() {
+        def orig = [doFilter: { ServletRequest req, ServletResponse resp ->
+            fail 'The original chain must not be invoked.'
+        }] as FilterChain
+        //e.g. redirects to the login page:
+        def redirecting = filter { FilterChain chain -> }
+
+        new ProxiedFilterChain(orig, [redirecting], '/account/**').doFilter(request, response)
+
+        assertTrue attributes.isEmpty()
+    }
+
+    void testPreviousChainNameRestored() {
+        attributes[ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE] = '/outer/**'
+        def orig = [doFilter: { ServletRequest req, ServletResponse resp -> }] as FilterChain
+        def failing = filter { FilterChain chain -> throw new IllegalStateException() }
+
+        shouldFail(IllegalStateException) {
+            new ProxiedFilterChain(orig, [failing], '/inner/**').doFilter(request, response)
+        }
+        assertEquals '/outer/**', attributes[ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE]
+
+        new ProxiedFilterChain(orig, [filter { FilterChain chain -> chain.doFilter(request, response) }],
+                '/inner/**').doFilter(request, response)
+        assertEquals '/outer/**', attributes[ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE]
+    }
+}
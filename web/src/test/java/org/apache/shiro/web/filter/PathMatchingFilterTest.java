@@ -18,6 +18,7 @@
  */
 package org.apache.shiro.web.filter;
 
+import org.apache.shiro.web.servlet.ProxiedFilterChain;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -121,5 +122,42 @@ public class PathMatchingFilterTest {
         verify(request);
     }
 
+    @Test
+    public void testResolvedChainConfigUsedWithoutPathMatching() throws Exception {
+        filter.processPathConfig(DISABLED_PATH, null);
+        filter.processPathConfig(ENABLED_PATH, null);
+
+        //a strict mock: the request path must not be inspected at all
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        ServletResponse response = createNiceMock(ServletResponse.class);
+
+        expect(request.getAttribute(ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE)).andReturn(ENABLED_PATH);
+        replay(request);
+
+        boolean continueFilterChain = filter.preHandle(request, response);
+
+        assertFalse("FilterChain should NOT continue.", continueFilterChain);
+
+        verify(request);
+    }
 
+    @Test
+    public void testUnknownResolvedChainFallsBackToPathMatching() throws Exception {
+        filter.processPathConfig(DISABLED_PATH, null);
+        filter.processPathConfig(ENABLED_PATH, null);
+
+        HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+        ServletResponse response = createNiceMock(ServletResponse.class);
+
+        expect(request.getAttribute(ProxiedFilterChain.CHAIN_NAME_ATTRIBUTE)).andReturn("/other/**").anyTimes();
+        expect(request.getContextPath()).andReturn(CONTEXT_PATH).anyTimes();
+        expect(request.getRequestURI()).andReturn(ENABLED_PATH).anyTimes();
+        replay(request);
+
+        boolean continueFilterChain = filter.preHandle(request, response);
+
+        assertFalse("FilterChain should NOT continue.", continueFilterChain);
+
+        verify(request);
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.filter.mgt;
+
+import org.apache.shiro.util.AntPathMatcher;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link PathPatternTrie}, verifying it always agrees with matching each pattern in turn using an
+ * {@link AntPathMatcher}.
+ *
+ * @since 1.5
+ */
+public class PathPatternTrieTest {
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/login.jsp",
+            "/account/*",
+            "/account/**/edit",
+            "/docs/",
+            "/docs/**",
+            "/api/v?/users/*.json",
+            "/api/**/admin/**",
+            "/static/**/*.css",
+            "/*/public/**",
+            "relative/*",
+            "relative/**",
+            "/**/*.jsp",
+            "/",
+            "/**");
+
+    private static final List<String> PATHS = Arrays.asList(
+            "/login.jsp", "/login.jsp/", "login.jsp", "/account", "/account/", "/account/profile",
+            "/account/profile/", "/account/a/b/edit", "/account/edit", "/account/a/b", "/docs", "/docs/",
+            "/docs/guide/intro", "/api/v1/users/jsmith.json", "/api/v12/users/jsmith.json",
+            "/api/v1/users/jsmith.xml", "/api/admin", "/api/x/y/admin/z", "/static/app.css", "/static/a/b/app.css",
+            "/static/app.js", "/foo/public", "/foo/public/x", "/foo/bar/public", "relative/x", "relative/x/y",
+            "relative", "/a/b/c.jsp", "/a.jsp", "/", "", "//", "/x//y", "/unknown/path");
+
+    private static int matchInTurn(List<String> patterns, String path) {
+        AntPathMatcher matcher = new AntPathMatcher();
+        for (int i = 0; i < patterns.size(); i++) {
+            if (matcher.matches(patterns.get(i), path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void assertMatchesLikeAntPathMatcher(List<String> patterns) {
+        PathPatternTrie trie = new PathPatternTrie(patterns);
+        for (String path : PATHS) {
+            assertEquals("path [" + path + "] with patterns " + patterns, matchInTurn(patterns, path),
+                    trie.match(path));
+        }
+    }
+
+    @Test
+    public void testFirstMatchWins() {
+        assertMatchesLikeAntPathMatcher(PATTERNS);
+    }
+
+    @Test
+    public void testEveryPatternAlone() {
+        for (String pattern : PATTERNS) {
+            assertMatchesLikeAntPathMatcher(Arrays.asList(pattern));
+        }
+    }
+
+    @Test
+    public void testEverySuffixOfPatterns() {
+        //moves the catch-all patterns towards the front, so that they shadow more specific ones:
+        for (int i = 0; i < PATTERNS.size(); i++) {
+            assertMatchesLikeAntPathMatcher(PATTERNS.subList(i, PATTERNS.size()));
+        }
+    }
+
+    @Test
+    public void testNoPatterns() {
+        assertEquals(-1, new PathPatternTrie(Arrays.<String>asList()).match("/index.html"));
+    }
+
+    @Test
+    public void testMatchSegment() {
+        assertTrue(PathPatternTrie.matchSegment("*", ""));
+        assertTrue(PathPatternTrie.matchSegment("*.jsp", "index.jsp"));
+        assertTrue(PathPatternTrie.matchSegment("a*b*c", "aXXbYYc"));
+        assertTrue(PathPatternTrie.matchSegment("v?", "v1"));
+        assertFalse(PathPatternTrie.matchSegment("v?", "v12"));
+        assertFalse(PathPatternTrie.matchSegment("*.jsp", "index.jspx"));
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.shiro.web.config.WebIniSecurityManagerFactory;
 import org.apache.shiro.web.servlet.ShiroHttpSession;
 import org.apache.shiro.web.session.mgt.WebSessionManager;
 import org.apache.shiro.web.subject.WebSubject;
+import org.apache.shiro.web.subject.support.LazyWebDelegatingSubject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -214,6 +215,68 @@ public class DefaultWebSecurityManagerTest extends AbstractWebSecurityManagerTes
         verify(mockResponse);
     }
 
+    @Test
+    public void testLazySubjectDoesNotUseRequestUntilFirstUse() {
+        shiroSessionModeInit();
+        sm.setLazySubjectsEnabled(true);
+
+        //strict mocks without expectations, so any use of the request or response fails:
+        HttpServletRequest mockRequest = createMock(HttpServletRequest.class);
+        HttpServletResponse mockResponse = createMock(HttpServletResponse.class);
+
+        replay(mockRequest);
+        replay(mockResponse);
+
+        Subject subject = newSubject(mockRequest, mockResponse);
+
+        verify(mockRequest);
+        verify(mockResponse);
+
+        assertTrue(subject instanceof LazyWebDelegatingSubject);
+        assertFalse(((LazyWebDelegatingSubject) subject).isResolved());
+    }
+
+    @Test
+    public void testLazySubjectResolvesSessionOnFirstUse() {
+        shiroSessionModeInit();
+
+        HttpServletRequest mockRequest = createNiceMock(HttpServletRequest.class);
+        HttpServletResponse mockResponse = createNiceMock(HttpServletResponse.class);
+
+        replay(mockRequest);
+        replay(mockResponse);
+
+        Subject subject = newSubject(mockRequest, mockResponse);
+        Session session = subject.getSession();
+        session.setAttribute("foo", "bar");
+        Serializable sessionId = session.getId();
+
+        sm.setLazySubjectsEnabled(true);
+
+        mockRequest = createNiceMock(HttpServletRequest.class);
+        mockResponse = createNiceMock(HttpServletResponse.class);
+        Cookie[] cookies = new Cookie[]{new Cookie(ShiroHttpSession.DEFAULT_SESSION_ID_NAME, sessionId.toString())};
+        expect(mockRequest.getCookies()).andReturn(cookies).anyTimes();
+        expect(mockRequest.getParameter(isA(String.class))).andReturn(null).anyTimes();
+
+        replay(mockRequest);
+        replay(mockResponse);
+
+        subject = newSubject(mockRequest, mockResponse);
+        assertFalse(((LazyWebDelegatingSubject) subject).isResolved());
+
+        session = subject.getSession(false);
+        assertTrue(((LazyWebDelegatingSubject) subject).isResolved());
+        assertNotNull(session);
+        assertEquals(sessionId, session.getId());
+        assertEquals("bar", session.getAttribute("foo"));
+        assertFalse(subject.isAuthenticated());
+
+        subject.login(new UsernamePasswordToken("lonestarr", "vespa"));
+        assertTrue(subject.isAuthenticated());
+        assertEquals("lonestarr", subject.getPrincipal());
+    }
+
     /**
      * Asserts fix for <a href="https://issues.apache.org/jira/browse/SHIRO-350">SHIRO-350</a>.
      */
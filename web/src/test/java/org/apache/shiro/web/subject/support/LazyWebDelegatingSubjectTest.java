@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.shiro.web.subject.support;
+
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
+import org.apache.shiro.web.subject.WebSubjectContext;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link LazyWebDelegatingSubject} class.
+ *
+ * @since 1.5
+ */
+public class LazyWebDelegatingSubjectTest {
+
+    private static class SerializableSubject extends LazyWebDelegatingSubject implements Serializable {
+
+        private SerializableSubject(WebSubjectContext context, Resolver resolver) {
+            super(context, resolver);
+        }
+    }
+
+    private static class CountingResolver implements LazyWebDelegatingSubject.Resolver {
+
+        private final PrincipalCollection principals = new SimplePrincipalCollection("jsmith", "realm");
+        private int resolutions;
+
+        public WebSubjectContext resolve(WebSubjectContext context) {
+            resolutions++;
+            context.setPrincipals(principals);
+            context.setAuthenticated(true);
+            return context;
+        }
+
+        public void save(Subject subject) {
+        }
+    }
+
+    private static WebSubjectContext newContext() {
+        WebSubjectContext context = new DefaultWebSubjectContext();
+        context.setSecurityManager(new DefaultWebSecurityManager());
+        return context;
+    }
+
+    @Test
+    public void testResolvedOnFirstUse() {
+        CountingResolver resolver = new CountingResolver();
+        LazyWebDelegatingSubject subject = new LazyWebDelegatingSubject(newContext(), resolver);
+        assertFalse(subject.isResolved());
+        assertEquals(0, resolver.resolutions);
+
+        assertTrue(subject.isAuthenticated());
+        assertSame(resolver.principals, subject.getPrincipals());
+        assertEquals(1, resolver.resolutions);
+    }
+
+    @Test
+    public void testResolvedBeforeSerialization() throws IOException {
+        CountingResolver resolver = new CountingResolver();
+        SerializableSubject subject = new SerializableSubject(newContext(), resolver);
+
+        ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream());
+        out.writeObject(subject);
+        out.close();
+
+        assertTrue(subject.isResolved());
+        assertEquals(1, resolver.resolutions);
+        //the resolved state is retained:
+        assertSame(resolver.principals, subject.getPrincipals());
+        assertEquals(1, resolver.resolutions);
+    }
+}